@@ -0,0 +1,41 @@
+package iso25.g05.esi_media.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import iso25.g05.esi_media.service.AudioBlobMigrationService;
+
+/**
+ * Lanza al arrancar la migración de audios embebidos al almacén de blobs.
+ *
+ * La migración se ejecuta en segundo plano (@Async), así que el arranque no espera
+ * a que termine y la aplicación sigue sirviendo mientras se mueven los binarios.
+ * Se puede desactivar con app.audio.migracion-blobs.habilitada=false.
+ */
+@Component
+public class AudioBlobMigrationRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioBlobMigrationRunner.class);
+
+    private final AudioBlobMigrationService migrationService;
+    private final boolean habilitada;
+
+    public AudioBlobMigrationRunner(AudioBlobMigrationService migrationService,
+                                    @Value("${app.audio.migracion-blobs.habilitada:true}") boolean habilitada) {
+        this.migrationService = migrationService;
+        this.habilitada = habilitada;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!habilitada) {
+            logger.info("Migración de audios a blobs desactivada");
+            return;
+        }
+        logger.info("Iniciando migración de audios embebidos al almacén de blobs");
+        migrationService.migrarEnSegundoPlano();
+    }
+}
@@ -0,0 +1,45 @@
+package iso25.g05.esi_media.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import iso25.g05.esi_media.service.BusquedaContenidosService;
+
+/**
+ * Crea al arrancar el índice de texto de la búsqueda de contenidos.
+ *
+ * Con app.busqueda.texto.habilitada=false, o si el índice no se puede crear, la búsqueda
+ * sigue usando las consultas $regex de ContenidoRepository.
+ */
+@Component
+public class BusquedaRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaRunner.class);
+
+    private final BusquedaContenidosService busquedaService;
+    private final boolean habilitada;
+
+    public BusquedaRunner(BusquedaContenidosService busquedaService,
+                          @Value("${app.busqueda.texto.habilitada:true}") boolean habilitada) {
+        this.busquedaService = busquedaService;
+        this.habilitada = habilitada;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!habilitada) {
+            logger.info("Búsqueda por índice de texto desactivada");
+            return;
+        }
+        try {
+            busquedaService.crearIndice();
+            logger.info("Índice de texto de contenidos listo");
+        } catch (Exception e) {
+            logger.error("No se pudo crear el índice de texto de contenidos; la búsqueda usará $regex: {}",
+                e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package iso25.g05.esi_media.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import iso25.g05.esi_media.service.CaratulaMigrationService;
+
+/**
+ * Lanza al arrancar la migración de carátulas en data URI al almacén de blobs.
+ *
+ * Igual que la de audios, corre en segundo plano (@Async) y no retrasa el arranque.
+ * Se puede desactivar con app.caratulas.migracion.habilitada=false.
+ */
+@Component
+public class CaratulaMigrationRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaratulaMigrationRunner.class);
+
+    private final CaratulaMigrationService migrationService;
+    private final boolean habilitada;
+
+    public CaratulaMigrationRunner(CaratulaMigrationService migrationService,
+                                   @Value("${app.caratulas.migracion.habilitada:true}") boolean habilitada) {
+        this.migrationService = migrationService;
+        this.habilitada = habilitada;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!habilitada) {
+            logger.info("Migración de carátulas a blobs desactivada");
+            return;
+        }
+        logger.info("Iniciando migración de carátulas embebidas al almacén de blobs");
+        migrationService.migrarEnSegundoPlano();
+    }
+}
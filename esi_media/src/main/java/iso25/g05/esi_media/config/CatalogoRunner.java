@@ -0,0 +1,45 @@
+package iso25.g05.esi_media.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import iso25.g05.esi_media.service.CatalogoService;
+
+/**
+ * Prepara al arrancar el modelo de lectura "catalogo": crea sus índices y lo reconstruye
+ * en segundo plano (@Async), sin retrasar el arranque.
+ *
+ * Con app.catalogo.habilitado=false los listados siguen leyendo de "contenidos".
+ */
+@Component
+public class CatalogoRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogoRunner.class);
+
+    private final CatalogoService catalogoService;
+    private final boolean habilitado;
+
+    public CatalogoRunner(CatalogoService catalogoService,
+                          @Value("${app.catalogo.habilitado:true}") boolean habilitado) {
+        this.catalogoService = catalogoService;
+        this.habilitado = habilitado;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!habilitado) {
+            logger.info("Catálogo de lectura desactivado");
+            return;
+        }
+        try {
+            catalogoService.crearIndices();
+        } catch (Exception e) {
+            logger.error("No se pudieron crear los índices del catálogo: {}", e.getMessage(), e);
+        }
+        logger.info("Iniciando reconstrucción del catálogo de lectura");
+        catalogoService.reconstruirEnSegundoPlano();
+    }
+}
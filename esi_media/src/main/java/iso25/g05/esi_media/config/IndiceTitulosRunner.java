@@ -0,0 +1,40 @@
+package iso25.g05.esi_media.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import iso25.g05.esi_media.service.IndiceTitulosService;
+
+/**
+ * Construye al arrancar, en segundo plano (@Async), el índice de títulos en memoria del
+ * autocompletado.
+ *
+ * Con app.indice-titulos.habilitado=false la búsqueda por título sigue consultando la base de datos.
+ */
+@Component
+public class IndiceTitulosRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceTitulosRunner.class);
+
+    private final IndiceTitulosService indiceTitulos;
+    private final boolean habilitado;
+
+    public IndiceTitulosRunner(IndiceTitulosService indiceTitulos,
+                               @Value("${app.indice-titulos.habilitado:true}") boolean habilitado) {
+        this.indiceTitulos = indiceTitulos;
+        this.habilitado = habilitado;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!habilitado) {
+            logger.info("Índice de títulos en memoria desactivado");
+            return;
+        }
+        logger.info("Iniciando construcción del índice de títulos");
+        indiceTitulos.construirEnSegundoPlano();
+    }
+}
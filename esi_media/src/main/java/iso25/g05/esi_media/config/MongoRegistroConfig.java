@@ -32,7 +32,7 @@ import com.mongodb.client.MongoClients;
     basePackages = "iso25.g05.esi_media.repository",
     includeFilters = @org.springframework.context.annotation.ComponentScan.Filter(
         type = org.springframework.context.annotation.FilterType.REGEX,
-        pattern = ".*(Usuario|Visualizador|Administrador|GestorDeContenido|Contrasenia|Token|CodigoRecuperacion|Audio|Video|Contenido|Lista|ContraseniaComun|IpLoginAttempt|LogEntry|Valoracion)Repository"
+        pattern = ".*(Usuario|Visualizador|Administrador|GestorDeContenido|Contrasenia|Token|CodigoRecuperacion|Audio|Video|Contenido|Lista|ContraseniaComun|IpLoginAttempt|LogEntry|Valoracion|Catalogo)Repository"
     )
 )
 public class MongoRegistroConfig extends AbstractMongoClientConfiguration {
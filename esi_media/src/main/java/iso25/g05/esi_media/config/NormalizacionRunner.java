@@ -0,0 +1,41 @@
+package iso25.g05.esi_media.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import iso25.g05.esi_media.service.NormalizacionContenidosService;
+
+/**
+ * Lanza al arrancar, en segundo plano (@Async), el relleno de los campos de búsqueda normalizados
+ * de los contenidos que aún no los tienen.
+ *
+ * Con app.busqueda.normalizacion.habilitada=false la búsqueda sin índice de texto sigue usando
+ * las consultas $regex de ContenidoRepository.
+ */
+@Component
+public class NormalizacionRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(NormalizacionRunner.class);
+
+    private final NormalizacionContenidosService normalizacionService;
+    private final boolean habilitada;
+
+    public NormalizacionRunner(NormalizacionContenidosService normalizacionService,
+                               @Value("${app.busqueda.normalizacion.habilitada:true}") boolean habilitada) {
+        this.normalizacionService = normalizacionService;
+        this.habilitada = habilitada;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!habilitada) {
+            logger.info("Relleno de campos de búsqueda normalizados desactivado");
+            return;
+        }
+        logger.info("Iniciando relleno de campos de búsqueda normalizados");
+        normalizacionService.rellenarEnSegundoPlano();
+    }
+}
@@ -0,0 +1,50 @@
+package iso25.g05.esi_media.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import iso25.g05.esi_media.service.SesionService;
+
+/**
+ * Prepara al arrancar la colección "sesiones" (índice TTL y por usuario) y retira de "users"
+ * las sesiones embebidas antiguas, que ya no se consultan.
+ * Se puede desactivar con app.sesiones.migracion.habilitada=false.
+ */
+@Component
+public class SesionesRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SesionesRunner.class);
+
+    private final SesionService sesionService;
+    private final boolean habilitada;
+
+    public SesionesRunner(SesionService sesionService,
+                          @Value("${app.sesiones.migracion.habilitada:true}") boolean habilitada) {
+        this.sesionService = sesionService;
+        this.habilitada = habilitada;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!habilitada) {
+            logger.info("Preparación de la colección de sesiones desactivada");
+            return;
+        }
+        try {
+            sesionService.crearIndices();
+        } catch (Exception e) {
+            logger.error("No se pudieron crear los índices de sesiones: {}", e.getMessage(), e);
+        }
+        try {
+            long limpiados = sesionService.eliminarSesionesEmbebidas();
+            if (limpiados > 0) {
+                logger.info("Eliminadas {} sesiones embebidas en users", limpiados);
+            }
+        } catch (Exception e) {
+            logger.error("No se pudieron limpiar las sesiones embebidas: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package iso25.g05.esi_media.controller;
 
 import iso25.g05.esi_media.model.Administrador;
 import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.repository.CacheSesiones;
 import iso25.g05.esi_media.repository.UsuarioRepository;
 import iso25.g05.esi_media.service.LogService;
 import org.springframework.http.HttpStatus;
@@ -26,10 +27,13 @@ public class BloqueoUsuarioController {
     
     private final UsuarioRepository usuarioRepository;
     private final LogService logService;
+    private final CacheSesiones cacheSesiones;
     
-    public BloqueoUsuarioController(UsuarioRepository usuarioRepository, LogService logService) {
+    public BloqueoUsuarioController(UsuarioRepository usuarioRepository, LogService logService,
+                                    CacheSesiones cacheSesiones) {
         this.usuarioRepository = usuarioRepository;
         this.logService = logService;
+        this.cacheSesiones = cacheSesiones;
     }
     
     /**
@@ -97,6 +101,8 @@ public class BloqueoUsuarioController {
             // Bloquear usuario
             usuario.setBloqueado(true);
             usuarioRepository.save(usuario);
+            // Sus sesiones cacheadas aún lo ven desbloqueado
+            cacheSesiones.invalidarUsuario(usuarioId);
             
             // Registrar auditoría
             logService.registrarBloqueoUsuario(
@@ -171,6 +177,7 @@ public class BloqueoUsuarioController {
             // Desbloquear usuario
             usuario.setBloqueado(false);
             usuarioRepository.save(usuario);
+            cacheSesiones.invalidarUsuario(usuarioId);
             
             // Registrar auditoría
             logService.registrarDesbloqueoUsuario(
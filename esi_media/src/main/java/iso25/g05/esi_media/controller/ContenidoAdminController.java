@@ -2,6 +2,8 @@ package iso25.g05.esi_media.controller;
 
 import iso25.g05.esi_media.model.*;
 import iso25.g05.esi_media.repository.*;
+import iso25.g05.esi_media.dto.SugerenciaDTO;
+import iso25.g05.esi_media.service.IndiceTitulosService;
 import iso25.g05.esi_media.service.LogService;
 import org.bson.types.ObjectId;
 import org.springframework.http.HttpStatus;
@@ -17,10 +19,10 @@ public class ContenidoAdminController {
 
     private final UsuarioRepository usuarioRepository;
     private final ContenidoRepository contenidoRepository; // Videos base (colecciÃƒÂ³n contenidos)
-    private final VideoRepository videoRepository;         // Videos especÃƒÂ­ficos (colecciÃƒÂ³n videos)
     private final AudioRepository audioRepository;         // Audios (colecciÃƒÂ³n audios)
     private final GestorDeContenidoRepository gestorRepository;
     private final LogService logService;
+    private final IndiceTitulosService indiceTitulos;
 
     private String ERROR = "error";
     private String TITULO = "titulo";
@@ -33,16 +35,16 @@ public class ContenidoAdminController {
 
     public ContenidoAdminController(UsuarioRepository usuarioRepository,
                                     ContenidoRepository contenidoRepository,
-                                    VideoRepository videoRepository,
                                     AudioRepository audioRepository,
                                     GestorDeContenidoRepository gestorRepository,
-                                    LogService logService) {
+                                    LogService logService,
+                                    IndiceTitulosService indiceTitulos) {
         this.usuarioRepository = usuarioRepository;
         this.contenidoRepository = contenidoRepository;
-        this.videoRepository = videoRepository;
         this.audioRepository = audioRepository;
         this.gestorRepository = gestorRepository;
         this.logService = logService;
+        this.indiceTitulos = indiceTitulos;
     }
 
     @GetMapping("/listar")
@@ -164,61 +166,34 @@ public class ContenidoAdminController {
         if (limit <= 0 || limit > 50) limit = 10;
         
         List<Map<String, Object>> resultado = new ArrayList<>();
-        String queryLower = query.toLowerCase();
         
         try {
-            // Buscar en contenidos (videos base) usando query optimizada
-            List<Contenido> contenidos = contenidoRepository.findByTituloContainingIgnoreCase(query);
-            contenidos.stream()
-                .limit(limit)
-                .forEach(c -> {
-                    Map<String, Object> item = new HashMap<>();
-                    item.put("id", c.getId());
-                    item.put(TITULO, c.gettitulo());
-                    item.put("tipo", VIDEO);
-                    item.put(DESC, c.getdescripcion());
-                    item.put(DUR, c.getduracion());
-                    resultado.add(item);
-                });
-                
-            // Si necesitamos más resultados, buscar en videos específicos
-            if (resultado.size() < limit) {
-                int remaining = limit - resultado.size();
-                // Nota: VideoRepository y AudioRepository necesitarían métodos similares
-                // Por simplicidad, usamos findAll con filtro por ahora
-                videoRepository.findAll().stream()
-                    .filter(v -> v.gettitulo() != null && 
-                               v.gettitulo().toLowerCase().contains(queryLower))
-                    .limit(remaining)
-                    .forEach(v -> {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("id", v.getId());
-                        item.put(TITULO, v.gettitulo());
-                        item.put("tipo", VIDEO);
-                        item.put(DESC, v.getdescripcion());
-                        item.put(DUR, v.getduracion());
-                        item.put("resolucion", v.getresolucion());
-                        resultado.add(item);
-                    });
-            }
-            
-            // Si necesitamos más resultados, buscar en audios
-            if (resultado.size() < limit) {
-                int remaining = limit - resultado.size();
-                audioRepository.findAll().stream()
-                    .filter(a -> a.gettitulo() != null && 
-                               a.gettitulo().toLowerCase().contains(queryLower))
-                    .limit(remaining)
-                    .forEach(a -> {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("id", a.getId());
-                        item.put(TITULO, a.gettitulo());
-                        item.put("tipo", AUDIO);
-                        item.put(DESC, a.getdescripcion());
-                        item.put(DUR, a.getduracion());
-                        resultado.add(item);
-                    });
+            // Los ids salen del índice de títulos en memoria; de la BD solo se leen esos contenidos
+            Optional<List<SugerenciaDTO>> sugerencias = indiceTitulos.sugerir(query, limit);
+            List<Contenido> contenidos;
+            if (sugerencias.isPresent()) {
+                List<String> ids = sugerencias.get().stream().map(SugerenciaDTO::getId).toList();
+                Map<String, Contenido> porId = new HashMap<>();
+                contenidoRepository.findParaBuscadorByIdIn(ids).forEach(c -> porId.put(c.getId(), c));
+                contenidos = ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+            } else {
+                // Índice aún en construcción
+                contenidos = contenidoRepository.findByTituloContainingIgnoreCase(query).stream()
+                    .limit(limit)
+                    .toList();
             }
+            contenidos.forEach(c -> {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", c.getId());
+                item.put(TITULO, c.gettitulo());
+                item.put("tipo", determinarTipoContenido(c));
+                item.put(DESC, c.getdescripcion());
+                item.put(DUR, c.getduracion());
+                if (c instanceof Video v) {
+                    item.put("resolucion", v.getresolucion());
+                }
+                resultado.add(item);
+            });
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -235,6 +210,27 @@ public class ContenidoAdminController {
         }
     }
 
+    /**
+     * Autocompletado de títulos mientras se escribe.
+     * Responde desde el índice en memoria, sin consultar la base de datos; mientras el índice
+     * se construye al arrancar devuelve una lista vacía.
+     */
+    @GetMapping("/sugerencias")
+    public ResponseEntity<?> sugerencias(
+            @RequestParam("q") String q,
+            @RequestParam(defaultValue = "8") int limit,
+            @CookieValue(value = "SESSION_TOKEN", required = false) String token) {
+
+        if (token == null || token.isBlank()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of(ERROR, "Token de autorización requerido"));
+        }
+        if (limit <= 0 || limit > 20) limit = 8;
+
+        List<SugerenciaDTO> sugerencias = indiceTitulos.sugerir(q, limit).orElse(List.of());
+        return ResponseEntity.ok(sugerencias);
+    }
+
     /**
      * Determina el tipo de contenido basándose en sus propiedades específicas
      */
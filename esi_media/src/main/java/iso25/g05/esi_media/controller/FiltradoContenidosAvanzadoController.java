@@ -1,5 +1,6 @@
 package iso25.g05.esi_media.controller;
 
+import iso25.g05.esi_media.dto.BusquedaFacetadaDTO;
 import iso25.g05.esi_media.dto.ContenidoDTO;
 import iso25.g05.esi_media.dto.TagStatDTO;
 import iso25.g05.esi_media.service.FiltradoContenidosAvanzadoService;
@@ -28,6 +29,7 @@ public class FiltradoContenidosAvanzadoController {
     private static final String TYPE_VIDEO = "video";
     private static final String TYPE_AUDIO = "audio";
     private static final String TYPE_ALL = "all";
+    private static final int MAX_SIZE_BUSQUEDA = 50;
     
     public FiltradoContenidosAvanzadoController(FiltradoContenidosAvanzadoService filtradoService) {
         this.filtradoService = filtradoService;
@@ -154,6 +156,46 @@ public class FiltradoContenidosAvanzadoController {
         }
     }
     
+    /**
+     * Endpoint de búsqueda con facetas para visualizadores
+     *
+     * GET /api/filtradoContenidosAvanzado/buscar
+     *
+     * Query Parameters:
+     * - q: texto buscado (opcional; sin él, todos los contenidos visibles)
+     * - contentType: "video" o "audio" (opcional)
+     * - vip, edad, resolucion, tag: valores elegidos en las facetas (opcionales)
+     * - page: página desde 0 (default: 0); size: tamaño de página (default: 20, max: 50)
+     *
+     * Devuelve la página de contenidos y los conteos por tipo, VIP, edad, resolución y tags más
+     * frecuentes, calculados en una sola agregación. Requiere sesión (cookie SESSION_TOKEN): se
+     * aplican las mismas restricciones de edad y VIP que en /multimedia.
+     *
+     * @return BusquedaFacetadaDTO con resultados, total y facetas
+     */
+    @GetMapping("/buscar")
+    public ResponseEntity<BusquedaFacetadaDTO> buscarConFacetas(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) Boolean vip,
+            @RequestParam(required = false) Integer edad,
+            @RequestParam(required = false) String resolucion,
+            @RequestParam(required = false) String tag,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @CookieValue(value = "SESSION_TOKEN", required = false) String token) {
+
+        if (token == null || token.isBlank()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        int pagina = Math.max(0, page);
+        int tamano = Math.max(1, Math.min(size, MAX_SIZE_BUSQUEDA));
+        FiltradoContenidosAvanzadoService.FiltrosFacetas filtros =
+            new FiltradoContenidosAvanzadoService.FiltrosFacetas(contentType, vip, edad, resolucion, tag);
+
+        return ResponseEntity.ok(filtradoService.buscarConFacetas(token, q, filtros, pagina, tamano));
+    }
+
     /**
      * Endpoint adicional para obtener estadísticas generales (opcional)
      * Puede ser útil para debugging y monitoreo
@@ -165,7 +207,7 @@ public class FiltradoContenidosAvanzadoController {
             stats.put("service", "FiltradoContenidosAvanzado");
             stats.put("status", "UP");
             stats.put("description", "Servicio para filtrado avanzado de contenidos");
-            stats.put("endpoints", List.of("/top-contents", "/top-tags"));
+            stats.put("endpoints", List.of("/top-contents", "/top-tags", "/buscar"));
             
             return ResponseEntity.ok(stats);
             
@@ -25,6 +25,7 @@ import jakarta.validation.Valid;
  *
  * Rutas:
  *  - GET    /gestor/contenidos               Listado paginado de contenidos
+ *                                            (con ?cursor= y ?orden=, paginación por cursor sin totales)
  *  - GET    /gestor/contenidos/{id}         Detalle de un contenido
  *  - PUT    /gestor/contenidos/{id}         Actualización de campos editables
  *  - DELETE /gestor/contenidos/{id}         Eliminación de contenido
@@ -37,13 +38,20 @@ public class GestorContenidoController {
     private GestorContenidoService gestorContenidoService;
 
     @GetMapping
-    public Page<ContenidoResumenDTO> listar(
+    public ResponseEntity<?> listar(
             Pageable pageable,
             @CookieValue(value = "SESSION_TOKEN", required = false) String token,
             @RequestParam(value = "tipo", required = false) String tipo,
-            @RequestParam(value = "query", required = false) String query) {
+            @RequestParam(value = "query", required = false) String query,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "orden", required = false) String orden) {
 
-        return gestorContenidoService.listar(token, pageable, tipo, query);
+        if (cursor != null) {
+            return ResponseEntity.ok(gestorContenidoService.listarPorCursor(
+                token, tipo, query, orden, cursor, pageable.getPageSize()));
+        }
+        Page<ContenidoResumenDTO> pagina = gestorContenidoService.listar(token, pageable, tipo, query);
+        return ResponseEntity.ok(pagina);
     }
 
     @GetMapping("/{id}")
@@ -2,11 +2,15 @@ package iso25.g05.esi_media.controller;
 
 import iso25.g05.esi_media.dto.ErrorRespuestaDTO;
 import iso25.g05.esi_media.exception.AccesoNoAutorizadoException;
+import iso25.g05.esi_media.exception.DemasiadosStreamsException;
 import iso25.g05.esi_media.exception.PeticionInvalidaException;
+import iso25.g05.esi_media.exception.RangoNoSatisfacibleException;
 import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+import iso25.g05.esi_media.exception.ServicioSaturadoException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -68,6 +72,51 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
     }
 
+    @ExceptionHandler(RangoNoSatisfacibleException.class)
+    public ResponseEntity<ErrorRespuestaDTO> handleRangoNoSatisfacible(RangoNoSatisfacibleException ex,
+                                                                       HttpServletRequest request) {
+        ErrorRespuestaDTO body = new ErrorRespuestaDTO(
+                HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(),
+                HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.getReasonPhrase(),
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        log.debug("416 Range Not Satisfiable en {}: {}", request.getRequestURI(), ex.getMessage());
+        // RFC 7233: el 416 indica el tamaño real del recurso
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + ex.getLongitudTotal())
+                .body(body);
+    }
+
+    @ExceptionHandler(DemasiadosStreamsException.class)
+    public ResponseEntity<ErrorRespuestaDTO> handleDemasiadosStreams(DemasiadosStreamsException ex,
+                                                                     HttpServletRequest request) {
+        ErrorRespuestaDTO body = new ErrorRespuestaDTO(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        log.info("429 Too Many Requests en {}: {}", request.getRequestURI(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(body);
+    }
+
+    @ExceptionHandler(ServicioSaturadoException.class)
+    public ResponseEntity<ErrorRespuestaDTO> handleServicioSaturado(ServicioSaturadoException ex,
+                                                                    HttpServletRequest request) {
+        ErrorRespuestaDTO body = new ErrorRespuestaDTO(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        log.warn("503 Service Unavailable en {}: {}", request.getRequestURI(), ex.getMessage());
+        // El reproductor puede reintentar pasado Retry-After
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getReintentarSegundos()))
+                .body(body);
+    }
+
     /**
      * Fallback para cualquier error no contemplado.
      * No forma parte estricta del paso 7, pero aporta robustez mínima.
@@ -0,0 +1,94 @@
+package iso25.g05.esi_media.controller;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import iso25.g05.esi_media.model.Administrador;
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.repository.UsuarioRepository;
+import iso25.g05.esi_media.service.AudioCacheService;
+import iso25.g05.esi_media.service.CacheListadosService;
+import iso25.g05.esi_media.service.PlanificadorStreamsService;
+
+/**
+ * Métricas internas de rendimiento (cachés, streaming) para administradores.
+ *
+ * Endpoints:
+ *  - GET /metricas/cache-audio → aciertos, ratio de aciertos, bytes residentes y expulsiones
+ *  - GET /metricas/cache-listados → aciertos, ratio de aciertos, expulsiones, caducadas e invalidadas
+ *  - GET /metricas/streaming   → streams activos, en cola, limitados por ancho de banda y rechazados
+ */
+@RestController
+@RequestMapping("/metricas")
+public class MetricasController {
+
+    private static final String ERROR = "error";
+
+    private final UsuarioRepository usuarioRepository;
+    private final AudioCacheService audioCache;
+    private final PlanificadorStreamsService planificadorStreams;
+    private final CacheListadosService cacheListados;
+
+    public MetricasController(UsuarioRepository usuarioRepository, AudioCacheService audioCache,
+                              PlanificadorStreamsService planificadorStreams, CacheListadosService cacheListados) {
+        this.usuarioRepository = usuarioRepository;
+        this.audioCache = audioCache;
+        this.planificadorStreams = planificadorStreams;
+        this.cacheListados = cacheListados;
+    }
+
+    @GetMapping("/cache-audio")
+    public ResponseEntity<?> cacheAudio(@RequestHeader(value = "Admin-ID", required = false) String adminId) {
+        ResponseEntity<?> denegado = validarAdministrador(adminId);
+        if (denegado != null) {
+            return denegado;
+        }
+        return ResponseEntity.ok(audioCache.estadisticas());
+    }
+
+    @GetMapping("/cache-listados")
+    public ResponseEntity<?> cacheListados(@RequestHeader(value = "Admin-ID", required = false) String adminId) {
+        ResponseEntity<?> denegado = validarAdministrador(adminId);
+        if (denegado != null) {
+            return denegado;
+        }
+        return ResponseEntity.ok(cacheListados.estadisticas());
+    }
+
+    @GetMapping("/streaming")
+    public ResponseEntity<?> streaming(@RequestHeader(value = "Admin-ID", required = false) String adminId) {
+        ResponseEntity<?> denegado = validarAdministrador(adminId);
+        if (denegado != null) {
+            return denegado;
+        }
+        return ResponseEntity.ok(planificadorStreams.estadisticas());
+    }
+
+    /**
+     * Devuelve la respuesta de error si el Admin-ID no es de un administrador, o null si es válido.
+     */
+    private ResponseEntity<?> validarAdministrador(String adminId) {
+        if (adminId == null || adminId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of(ERROR, "No autorizado. Se requiere Admin-ID"));
+        }
+        if (!ObjectId.isValid(adminId)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of(ERROR, "Admin-ID inválido"));
+        }
+        Optional<Usuario> admin = usuarioRepository.findById(adminId);
+        if (admin.isEmpty() || !(admin.get() instanceof Administrador)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of(ERROR, "Acceso denegado. Solo administradores"));
+        }
+        return null;
+    }
+}
@@ -1,10 +1,14 @@
 package iso25.g05.esi_media.controller;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -15,13 +19,31 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 import iso25.g05.esi_media.dto.ContenidoDetalleDTO;
 import iso25.g05.esi_media.dto.ContenidoResumenDTO;
+import iso25.g05.esi_media.dto.FormaOndaDTO;
+import iso25.g05.esi_media.dto.SugerenciaDTO;
 import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.SegmentoAudio;
+import iso25.g05.esi_media.service.AudioSegmentacionService;
+import iso25.g05.esi_media.service.AudioStreamingService;
+import iso25.g05.esi_media.service.CaratulaService;
+import iso25.g05.esi_media.service.FormaOndaService;
+import iso25.g05.esi_media.service.FuenteBinaria;
 import iso25.g05.esi_media.service.MultimediaService;
+import iso25.g05.esi_media.service.PermisoStream;
+import iso25.g05.esi_media.service.PlanificadorStreamsService;
+import iso25.g05.esi_media.service.RangoBytes;
+import iso25.g05.esi_media.service.UrlFirmadaService;
 
 /**
  * Controlador REST para reproducción/listado de contenido multimedia por visualizadores.
@@ -34,7 +56,11 @@ import iso25.g05.esi_media.service.MultimediaService;
  * Endpoints:
  *  - GET /multimedia                → lista paginada de ContenidoResumenDTO
  *  - GET /multimedia/{id}          → detalle (ContenidoDetalleDTO)
+ *  - GET /multimedia/{id}/caratula → imagen de la carátula (ETag, caché larga con ?v=, miniatura con ?tam=)
  *  - GET /multimedia/audio/{id}    → streaming de audio (.mp3) con Range (206)
+ *  - GET /multimedia/audio/{id}/manifest.m3u8  → lista de reproducción segmentada (HLS)
+ *  - GET /multimedia/audio/{id}/segmentos/{sha}  → segmento inmutable de ~10 s
+ *  - GET /multimedia/audio/{id}/picos          → forma de onda resumida (pares min/max)
  */
 @RestController
 @RequestMapping("/multimedia")
@@ -45,6 +71,24 @@ public class MultimediaController {
     @Autowired
     private MultimediaService multimediaService;
 
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private AudioSegmentacionService audioSegmentacionService;
+
+    @Autowired
+    private FormaOndaService formaOndaService;
+
+    @Autowired
+    private UrlFirmadaService urlFirmadaService;
+
+    @Autowired
+    private PlanificadorStreamsService planificadorStreams;
+
+    @Autowired
+    private CaratulaService caratulaService;
+
     /**
      * GET /multimedia
      * Lista contenidos accesibles para el visualizador autenticado (paginado).
@@ -52,23 +96,33 @@ public class MultimediaController {
      * Contrato:
      * - Seguridad: requiere header Authorization con token ("Bearer <token>" o el token directamente).
      * - Paginación: soporta parámetros estándar de Spring (page, size, sort).
+     * - Cursor: con {@code cursor} (vacío para la primera página) responde {contenidos, siguienteCursor, hayMas}
+     *   sin totales; {@code orden} = fecha (por defecto), vistas o titulo y {@code size} el tamaño de página.
+     *   No se combina con {@code query}.
      * - Visibilidad: respeta estado, edad mínima y filtrado por VIP según el usuario (no-VIP no ve VIP).
      *
      * @param pageable parámetros de paginación inyectados por Spring
      * @param authHeader cabecera Authorization con el token de sesión
-     * @return Page de ContenidoResumenDTO
+     * @return Page de ContenidoResumenDTO, o PaginaCursorDTO en modo cursor
      */
     @GetMapping
     public ResponseEntity<?> listarContenidos(
             Pageable pageable,
             @CookieValue(value = "SESSION_TOKEN", required = false) String token,
             @RequestParam(value = "tipo", required = false) String tipo,
-            @RequestParam(value = "query", required = false) String query) {
+            @RequestParam(value = "query", required = false) String query,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "orden", required = false) String orden) {
 
         if (token == null || token.isBlank()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(Map.of(MSG, "No autenticado"));
         }
+        if (cursor != null) {
+            // Fuera del try: un cursor u orden no válidos son un 400, no un error interno
+            return ResponseEntity.ok(multimediaService.listarContenidosPorCursor(
+                token, tipo, query, orden, cursor, pageable.getPageSize()));
+        }
         try {
             Page<ContenidoResumenDTO> pagina = multimediaService.listarContenidos(pageable, token, tipo, query);
             return ResponseEntity.ok(pagina);
@@ -81,6 +135,29 @@ public class MultimediaController {
         }
     }
 
+    /**
+     * GET /multimedia/sugerencias
+     * Autocompletado del buscador: títulos, tags y listas públicas que empiezan por {@code q}
+     * (o con una palabra que empieza por él), de más a menos vistos.
+     *
+     * @param q texto escrito hasta ahora
+     * @param limite número máximo de sugerencias (de 1 a 20)
+     * @param token token de sesión (cookie)
+     * @return lista de SugerenciaDTO (vacía mientras el diccionario se construye)
+     */
+    @GetMapping("/sugerencias")
+    public ResponseEntity<List<SugerenciaDTO>> sugerencias(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "8") int limite,
+            @CookieValue(value = "SESSION_TOKEN", required = false) String token) {
+
+        if (token == null || token.isBlank()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        int acotado = Math.max(1, Math.min(limite, 20));
+        return ResponseEntity.ok(multimediaService.sugerir(token, q, acotado));
+    }
+
     /**
      * GET /multimedia/{id}
      * Devuelve detalle del contenido validando edad/VIP/visibilidad.
@@ -130,80 +207,327 @@ public class MultimediaController {
         }
     }
 
+    /**
+     * GET /multimedia/{id}/caratula
+     *
+     * Qué hace:
+     * - Sirve la imagen de la carátula desde el almacén de blobs (los DTOs solo llevan esta URL).
+     * - Con {@code ?v=} igual a la versión actual (la URL que va en los DTOs) se cachea un año
+     *   como inmutable: si la carátula cambia, cambia la URL. Sin ella, se revalida con el ETag.
+     * - Con {@code ?tam=} sirve la miniatura más pequeña de al menos ese ancho. Mientras las
+     *   miniaturas no están generadas se sirve la original sin caché larga, para que el cliente
+     *   recoja la miniatura en cuanto exista.
+     * - Responde 304 si If-None-Match coincide.
+     *
+     * La carátula no es contenido protegido (se muestra en el catálogo), así que no pide sesión
+     * y la respuesta puede guardarse en cachés compartidas.
+     *
+     * @param id id del contenido
+     * @param version versión de la imagen (opcional, principio de su SHA-256)
+     * @param ancho ancho deseado en píxeles (opcional; sin él, la imagen original)
+     * @param ifNoneMatch cabecera If-None-Match (opcional)
+     * @return bytes de la imagen
+     */
+    @GetMapping("/{id}/caratula")
+    public ResponseEntity<byte[]> caratula(
+        @PathVariable String id,
+        @RequestParam(value = "v", required = false) String version,
+        @RequestParam(value = "tam", required = false) Integer ancho,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        ImagenCaratula imagen = caratulaService.obtener(id);
+        ImagenCaratula servida = caratulaService.seleccionar(id, imagen, ancho);
+        boolean definitiva = ancho == null || imagen.getvariantes() != null;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(caratulaService.etag(servida));
+        if (definitiva && CaratulaService.version(imagen).equals(version)) {
+            headers.setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+        } else {
+            headers.setCacheControl(CacheControl.noCache().cachePublic());
+        }
+        if (audioStreamingService.coincideIfNoneMatch(ifNoneMatch, headers.getETag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        // Solo PNG/JPEG y sin que el navegador adivine otro tipo: la imagen se sirve desde el origen de la API
+        headers.setContentType(MediaType.parseMediaType(CaratulaService.tipoServible(servida.getmimeType())));
+        headers.set("X-Content-Type-Options", "nosniff");
+        return new ResponseEntity<>(caratulaService.leer(servida), headers, HttpStatus.OK);
+    }
+
     /**
      * GET /multimedia/audio/{id}
-     * Descarga/streaming del audio completo (sin soporte de rangos HTTP por ahora) y con validación de acceso.
+     * Streaming del audio con soporte de rangos HTTP (206 Partial Content) y validación de acceso.
      *
      * Por qué existe (explicación sencilla):
-     * - Cuando el usuario quiera escuchar un audio descargará el archivo completo.
+     * - Los reproductores piden el audio por trozos (cabecera {@code Range}) para poder avanzar, retroceder
+     *   o continuar una descarga cortada sin volver a bajar el fichero entero.
      * - Antes de enviar nada, comprobamos que el usuario está autorizado (token válido, edad mínima y VIP si aplica).
      *
      * Cómo funciona (paso a paso):
      * - Validamos que el id corresponde a un contenido visible y de tipo audio, y que el usuario puede acceder.
-     * - Leemos el binario completo del audio desde BD.
-     * - Respondemos 200 OK con todo el archivo y las cabeceras {@code Content-Type} y {@code Content-Length}.
-     * - Ignoramos la cabecera {@code Range} si el cliente la enviase: siempre devolvemos el audio completo.
+     * - Si {@code If-None-Match} coincide con el ETag (SHA-256 del fichero): 304 Not Modified sin cuerpo.
+     * - Resolvemos {@code Range}/{@code If-Range} contra el tamaño del fichero.
+     * - Sin rango (o If-Range que no coincide con el ETag): 200 OK con el fichero completo.
+     * - Un rango: 206 con {@code Content-Range}. Varios rangos: 206 {@code multipart/byteranges}.
+     * - El cuerpo se escribe por trozos leyendo directamente del almacén, sin cargar el fichero en memoria.
      *
      * Seguridad y reglas:
-     * - Requiere cabecera {@code Authorization} (acepta {@code Bearer <token>} o el token en claro).
-     * - Solo usuarios del tipo Visualizador pueden reproducir contenidos.
+     * - Requiere la cookie {@code SESSION_TOKEN} o una URL firmada (la {@code referenciaReproduccion}
+     *   del detalle). Con URL firmada la firma se verifica en memoria y no se busca al usuario.
      * - Se comprueba edad mínima del contenido y condición VIP (si el contenido es VIP, el usuario también debe serlo).
      *
      * Errores típicos:
      * - 400: el id es vacío o el recurso encontrado no es de tipo audio.
      * - 403: token inválido/no autorizado o no cumple edad/VIP.
      * - 404: audio no encontrado o sin binario almacenado.
+     * - 416: ninguno de los rangos pedidos cae dentro del fichero (o t supera la duración).
+     * - 429: el usuario ya tiene abiertas todas las reproducciones que le corresponden.
+     * - 503: el servidor no admite más reproducciones simultáneas (con Retry-After).
+     *
+     * Búsqueda por tiempo: con {@code ?t=segundos} se responde 206 desde el frame MP3 que
+     * contiene ese instante (la cabecera Range se ignora en ese caso).
      *
      * @param id id del contenido de audio
-     * @param authHeader cabecera Authorization con token (Bearer o en claro)
-     * @return bytes del audio completo con cabeceras apropiadas
+     * @param t posición en segundos desde la que reproducir (opcional)
+     * @param exp caducidad de la URL firmada (epoch en segundos, opcional)
+     * @param usuarioId id del usuario firmado (opcional)
+     * @param vip permiso VIP firmado (opcional)
+     * @param edad edad firmada del usuario (opcional)
+     * @param gestor permiso de gestor firmado (opcional)
+     * @param firma firma HMAC de la URL (opcional)
+     * @param token token de sesión (cookie)
+     * @param range cabecera Range (opcional)
+     * @param ifRange cabecera If-Range (opcional)
+     * @param ifNoneMatch cabecera If-None-Match (opcional)
+     * @param response respuesta sobre la que se escriben las cabeceras y el cuerpo
+     * @return tarea que escribe el cuerpo en el pool de streaming (null si se responde sin cuerpo)
      */
     @GetMapping("/audio/{id}")
-    public ResponseEntity<byte[]> streamAudio(
+    public WebAsyncTask<Void> streamAudio(
         @PathVariable String id,
-        @CookieValue(value = "SESSION_TOKEN", required = false) String token) {
+        @RequestParam(value = "t", required = false) Double t,
+        @RequestParam(value = "exp", required = false) Long exp,
+        @RequestParam(value = "u", required = false) String usuarioId,
+        @RequestParam(value = "vip", required = false) Integer vip,
+        @RequestParam(value = "edad", required = false) Integer edad,
+        @RequestParam(value = "gestor", required = false) Integer gestor,
+        @RequestParam(value = "firma", required = false) String firma,
+        @CookieValue(value = "SESSION_TOKEN", required = false) String token,
+        @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+        @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+        HttpServletResponse response) {
 
         /*
          * Paso 1: Validaciones previas de acceso y tipo de contenido
-         * - Usamos el servicio para: comprobar que el id existe y corresponde a un contenido visible,
-         *   validar el token y asegurar que el usuario es un Visualizador.
-         * - También valida reglas de negocio: edad mínima del contenido y condición VIP del usuario cuando aplique.
+         * - El servicio comprueba que el id existe, es un audio visible y que el usuario cumple edad/VIP.
+         * - Con URL firmada los permisos salen de la propia URL (HMAC en memoria, sin buscar al usuario).
          * - Si algo falla, el servicio lanzará excepciones (400/403/404) y este método responderá en consecuencia.
          */
-    if (token == null || token.isBlank()) {
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-    }
-    Audio audio = multimediaService.validarYObtenerAudioParaStreaming(id, token);
+        PermisoStream permiso;
+        if (firma != null) {
+            permiso = urlFirmadaService.verificar(id, exp, usuarioId, vip, edad, gestor, firma);
+        } else if (token == null || token.isBlank()) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return null;
+        } else {
+            permiso = multimediaService.permisoParaStreaming(token);
+        }
+        Audio audio = multimediaService.obtenerAudioConPermiso(id, permiso);
 
         /*
-         * Paso 2: Cargar el binario del audio
-         * - El archivo .mp3 está guardado en MongoDB como un campo binario (Binary).
-         * - Obtenemos el arreglo de bytes real. Si por cualquier motivo no existe o está vacío,
-         *   respondemos con 404 (no hay contenido para reproducir).
+         * Paso 2: Revalidación con ETag
+         * - El ETag es el SHA-256 del fichero; si el cliente ya tiene esta versión respondemos 304
+         *   sin tocar el almacén. El acceso ya se ha validado en el paso 1.
          */
-        byte[] data = audio.getfichero() != null ? audio.getfichero().getData() : null;
-        if (data == null || data.length == 0) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(null);
+        String etag = audioStreamingService.etag(audio);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Contenido con control de acceso: solo caché del navegador y siempre revalidando con el ETag
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        if (audioStreamingService.coincideIfNoneMatch(ifNoneMatch, etag)) {
+            escribirCabeceras(response, HttpStatus.NOT_MODIFIED, headers);
+            return null;
         }
 
         /*
-         * Paso 3: Preparar metadatos y cabeceras HTTP
-         * - Calculamos el tamaño total del archivo en bytes.
-         * - Establecemos el tipo MIME (por defecto "audio/mpeg" si no viene informado con el audio).
-         * - No anunciamos soporte de rangos: se envía siempre el archivo completo.
+         * Paso 3: Localizar el binario (caché de audios calientes, blob o binario embebido legado)
+         * - Si no hay binario, el servicio lanza RecursoNoEncontradoException (404).
          */
-        long fileLength = data.length;
+        FuenteBinaria fuente = audioStreamingService.obtenerFuente(audio);
+        long longitud = fuente.longitud();
         String mime = audio.getmimeType() != null ? audio.getmimeType() : "audio/mpeg";
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(mime));
+        /*
+         * Paso 4: Resolver rangos (416 si ninguno es satisfacible)
+         * - Con ?t= el rango sale de la tabla de búsqueda del MP3: una sola lectura desde el frame.
+         */
+        List<RangoBytes> rangos = t != null
+            ? List.of(audioStreamingService.rangoDesdeInstante(audio, t, longitud))
+            : audioStreamingService.resolverRangos(range, ifRange, etag, longitud);
+
+        HttpStatus estado;
+        StreamingResponseBody cuerpo;
+        if (rangos.isEmpty()) {
+            headers.setContentType(MediaType.parseMediaType(mime));
+            headers.setContentLength(longitud);
+            RangoBytes completo = new RangoBytes(0, longitud - 1);
+            estado = HttpStatus.OK;
+            cuerpo = out -> audioStreamingService.escribirRango(fuente, completo, out);
+        } else if (rangos.size() == 1) {
+            RangoBytes rango = rangos.get(0);
+            headers.setContentType(MediaType.parseMediaType(mime));
+            headers.setContentLength(rango.longitud());
+            headers.set(HttpHeaders.CONTENT_RANGE, rango.contentRange(longitud));
+            estado = HttpStatus.PARTIAL_CONTENT;
+            cuerpo = out -> audioStreamingService.escribirRango(fuente, rango, out);
+        } else {
+            String boundary = UUID.randomUUID().toString().replace("-", "");
+            headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+            headers.setContentLength(audioStreamingService.longitudMultiparte(rangos, mime, boundary, longitud));
+            estado = HttpStatus.PARTIAL_CONTENT;
+            cuerpo = out -> audioStreamingService.escribirMultiparte(fuente, rangos, mime, boundary, out);
+        }
 
         /*
-         * Paso 4: Enviar SIEMPRE el archivo completo (200 OK)
-         * - Incluimos Content-Length para que el cliente conozca el tamaño total.
+         * Paso 5: Turno en el planificador (429 si el usuario ya tiene todos sus streams, 503 si el
+         *   servidor está lleno; nunca se espera en el hilo de Tomcat). Va al final para que ningún
+         *   error previo deje el turno ocupado. Los bytes se escriben directamente en la respuesta
+         *   desde el pool de streaming, al ritmo del cubo de tokens del turno, que se libera al
+         *   terminar, al caducar o si falla.
          */
-        headers.setContentLength(fileLength);
-        return new ResponseEntity<>(data, headers, HttpStatus.OK);
+        PlanificadorStreamsService.Turno turno = planificadorStreams.admitir(permiso);
+        escribirCabeceras(response, estado, headers);
+        return planificadorStreams.programar(turno, response, cuerpo);
+    }
+
+    /**
+     * Copia estado y cabeceras a la respuesta: el cuerpo del stream se escribe sobre ella
+     * sin pasar por un {@code ResponseEntity}.
+     */
+    private static void escribirCabeceras(HttpServletResponse response, HttpStatus estado, HttpHeaders headers) {
+        response.setStatus(estado.value());
+        headers.forEach((nombre, valores) -> valores.forEach(valor -> response.addHeader(nombre, valor)));
+    }
+
+    /**
+     * GET /multimedia/audio/{id}/manifest.m3u8
+     *
+     * Qué hace:
+     * - Devuelve la lista de reproducción (M3U8, VOD) de la entrega segmentada del audio.
+     * - La primera vez que se pide, el audio se corta en segmentos de ~10 s en frontera de frame.
+     *
+     * El manifiesto pasa por las mismas validaciones de acceso que {@code streamAudio} y no se
+     * cachea en proxies; los segmentos a los que apunta sí.
+     *
+     * @param id id del contenido de audio
+     * @param token token de sesión (cookie)
+     * @return manifiesto M3U8
+     */
+    @GetMapping("/audio/{id}/manifest.m3u8")
+    public ResponseEntity<String> manifiestoAudio(
+        @PathVariable String id,
+        @CookieValue(value = "SESSION_TOKEN", required = false) String token) {
+
+        if (token == null || token.isBlank()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Audio audio = multimediaService.validarYObtenerAudioParaStreaming(id, token);
+        List<SegmentoAudio> segmentos = audioSegmentacionService.obtenerSegmentos(audio);
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(AudioSegmentacionService.TIPO_MANIFIESTO))
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .body(audioSegmentacionService.generarManifiesto(segmentos));
+    }
+
+    /**
+     * GET /multimedia/audio/{id}/segmentos/{checksum}
+     *
+     * Qué hace:
+     * - Sirve un segmento del audio como objeto inmutable: ETag fuerte (SHA-256 del segmento)
+     *   y caché de un año, para que navegador y proxies lo guarden por separado.
+     * - Responde 304 si If-None-Match coincide.
+     *
+     * La URL contiene el SHA-256 del segmento: no se puede adivinar sin haber obtenido el
+     * manifiesto (que sí valida el acceso), por eso la respuesta puede ser pública.
+     *
+     * Errores típicos:
+     * - 403: no cumple edad/VIP.
+     * - 404: audio o segmento inexistente.
+     *
+     * @param id id del contenido de audio
+     * @param checksum SHA-256 del segmento (tal como aparece en el manifiesto)
+     * @param token token de sesión (cookie)
+     * @param ifNoneMatch cabecera If-None-Match (opcional)
+     * @return bytes del segmento
+     */
+    @GetMapping("/audio/{id}/segmentos/{checksum}")
+    public ResponseEntity<StreamingResponseBody> segmentoAudio(
+        @PathVariable String id,
+        @PathVariable String checksum,
+        @CookieValue(value = "SESSION_TOKEN", required = false) String token,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (token == null || token.isBlank()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Audio audio = multimediaService.validarYObtenerAudioParaStreaming(id, token);
+        SegmentoAudio segmento = audioSegmentacionService.obtenerSegmento(audio, checksum);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"" + segmento.getchecksum() + "\"");
+        headers.setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+        if (audioStreamingService.coincideIfNoneMatch(ifNoneMatch, headers.getETag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        FuenteBinaria fuente = audioStreamingService.fuenteBlob(segmento.getblobId(), segmento.gettamanoBytes());
+        RangoBytes completo = new RangoBytes(0, fuente.longitud() - 1);
+        headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
+        headers.setContentLength(fuente.longitud());
+        return new ResponseEntity<>(
+            out -> audioStreamingService.escribirRango(fuente, completo, out), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET /multimedia/audio/{id}/picos
+     *
+     * Qué hace:
+     * - Devuelve la forma de onda del audio (unos KB) en lugar de obligar a descargar el MP3.
+     * - No cambia mientras no cambie el fichero: ETag propio y caché de larga duración
+     *   (privada, porque el acceso depende del usuario).
+     *
+     * @param id id del contenido de audio
+     * @param token token de sesión (cookie)
+     * @param ifNoneMatch cabecera If-None-Match (opcional)
+     * @return forma de onda (FormaOndaDTO)
+     */
+    @GetMapping("/audio/{id}/picos")
+    public ResponseEntity<FormaOndaDTO> formaOndaAudio(
+        @PathVariable String id,
+        @CookieValue(value = "SESSION_TOKEN", required = false) String token,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (token == null || token.isBlank()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Audio audio = multimediaService.validarYObtenerAudioParaStreaming(id, token);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable());
+        String etag = formaOndaService.etag(audio);
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        if (audioStreamingService.coincideIfNoneMatch(ifNoneMatch, etag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        return new ResponseEntity<>(formaOndaService.obtener(audio), headers, HttpStatus.OK);
     }
 }
@@ -25,7 +25,9 @@ import iso25.g05.esi_media.model.Administrador;
 import iso25.g05.esi_media.model.GestordeContenido;
 import iso25.g05.esi_media.model.Token;
 import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Visualizador;
+import iso25.g05.esi_media.repository.CacheSesiones;
 import iso25.g05.esi_media.repository.UsuarioRepository;
 import iso25.g05.esi_media.service.LogService;
 import iso25.g05.esi_media.service.UserService;
@@ -55,11 +57,14 @@ public class UsuarioController {
     private final UsuarioRepository usuarioRepository;
     private final UserService userService;
     private final LogService logService;
+    private final CacheSesiones cacheSesiones;
 
-    public UsuarioController(UsuarioRepository usuarioRepository, UserService userService, LogService logService) {
+    public UsuarioController(UsuarioRepository usuarioRepository, UserService userService, LogService logService,
+                             CacheSesiones cacheSesiones) {
         this.usuarioRepository = usuarioRepository;
         this.userService = userService;
         this.logService = logService;
+        this.cacheSesiones = cacheSesiones;
     }
     
     // ==================== ENDPOINTS DE LOGIN (/users) ====================
@@ -131,13 +136,18 @@ public class UsuarioController {
             if (token == null || token.isBlank()) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(MSG, "No autenticado"));
             }
-            Usuario authUser = usuarioRepository.findBySesionToken(token).orElse(null);
+            UsuarioAutenticado authUser = usuarioRepository.findUsuarioAutenticado(token).orElse(null);
             if (authUser == null) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(MSG, "No autorizado"));
             }
-            if (!(authUser instanceof Visualizador visualizador)) {
+            if (!authUser.esVisualizador()) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(MSG, "Solo visualizadores"));
             }
+            // La sesión no guarda la fecha de cambio: se lee el visualizador
+            Visualizador visualizador = cargarVisualizador(authUser.id());
+            if (visualizador == null) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(MSG, "No autorizado"));
+            }
             Map<String, Object> resp = new HashMap<>();
             resp.put("vip", visualizador.isVip());
             resp.put("fechaCambio", visualizador.getFechacambiosuscripcion());
@@ -156,13 +166,17 @@ public class UsuarioController {
             if (token == null || token.isBlank()) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(MSG, "No autenticado"));
             }
-            Usuario authUser = usuarioRepository.findBySesionToken(token).orElse(null);
+            UsuarioAutenticado authUser = usuarioRepository.findUsuarioAutenticado(token).orElse(null);
             if (authUser == null) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(MSG, "No autorizado"));
             }
-            if (!(authUser instanceof Visualizador visualizador)) {
+            if (!authUser.esVisualizador()) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(MSG, "Solo visualizadores"));
             }
+            Visualizador visualizador = cargarVisualizador(authUser.id());
+            if (visualizador == null) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(MSG, "No autorizado"));
+            }
             Object v = body != null ? body.get("vip") : null;
             if (!(v instanceof Boolean)) {
                 return ResponseEntity.badRequest().body(Map.of(MSG, "Solicitud invalida"));
@@ -173,9 +187,10 @@ public class UsuarioController {
                 visualizador.setVip(nuevoVip);
                 visualizador.setFechacambiosuscripcion(new java.util.Date());
                 usuarioRepository.save(visualizador);
+                cacheSesiones.invalidarUsuario(visualizador.getId());
                 // Log de auditoría
                 try { logService.registrarAccion("Cambio de suscripcion a " + (nuevoVip ? "VIP" : "Estandar"),
-                        authUser.getEmail()); } catch (Exception ignore) {}
+                        visualizador.getEmail()); } catch (Exception ignore) {}
             }
             Map<String, Object> resp = new HashMap<>();
             resp.put("vip", visualizador.isVip());
@@ -188,6 +203,11 @@ public class UsuarioController {
 
     // ==================== Helpers ====================
 
+    private Visualizador cargarVisualizador(String id) {
+        return usuarioRepository.findById(id)
+                .filter(Visualizador.class::isInstance).map(Visualizador.class::cast).orElse(null);
+    }
+
 
     /**
      * Login con autenticación de 3 factores
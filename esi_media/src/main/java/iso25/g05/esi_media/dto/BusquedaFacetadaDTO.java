@@ -0,0 +1,32 @@
+package iso25.g05.esi_media.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de la búsqueda con facetas: la página de contenidos y, para cada faceta
+ * (tipo, vip, edad, resolucion, tags), cuántos contenidos hay de cada valor.
+ */
+public class BusquedaFacetadaDTO {
+
+    private final List<ContenidoDTO> resultados;
+    private final long total;
+    private final int page;
+    private final int size;
+    private final Map<String, Map<String, Long>> facetas;
+
+    public BusquedaFacetadaDTO(List<ContenidoDTO> resultados, long total, int page, int size,
+                               Map<String, Map<String, Long>> facetas) {
+        this.resultados = resultados;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        this.facetas = facetas;
+    }
+
+    public List<ContenidoDTO> getResultados() { return resultados; }
+    public long getTotal() { return total; }
+    public int getPage() { return page; }
+    public int getSize() { return size; }
+    public Map<String, Map<String, Long>> getFacetas() { return facetas; }
+}
@@ -11,7 +11,8 @@ public class ContenidoDetalleDTO {
     private String descripcion;
     /** Tipo de contenido: "AUDIO" o "VIDEO" */
     private String tipo;
-    private Object caratula;
+    /** URL de la carátula (endpoint /multimedia/{id}/caratula o URL externa) */
+    private String caratula;
     /** Indica si el contenido es VIP (requiere usuario VIP) */
     private boolean vip;
     /** Duración en segundos */
@@ -45,7 +46,7 @@ public class ContenidoDetalleDTO {
      * Asigna duracion = -1 para indicar "no indicada".
      */
     public ContenidoDetalleDTO(String id, String titulo, String descripcion, String tipo,
-                               Object caratula, boolean vip,
+                               String caratula, boolean vip,
                                java.util.Date fechadisponiblehasta, int edadvisualizacion,
                                int nvisualizaciones, java.util.List<String> tags,
                                String referenciaReproduccion, String resolucion) {
@@ -54,7 +55,7 @@ public class ContenidoDetalleDTO {
     }
 
     public ContenidoDetalleDTO(String id, String titulo, String descripcion, String tipo,
-                               Object caratula, boolean vip, double duracion,
+                               String caratula, boolean vip, double duracion,
                                java.util.Date fechadisponiblehasta, int edadvisualizacion,
                                int nvisualizaciones, java.util.List<String> tags,
                                String referenciaReproduccion, String resolucion) {
@@ -107,11 +108,11 @@ public class ContenidoDetalleDTO {
         this.tipo = tipo;
     }
 
-    public Object getCaratula() {
+    public String getCaratula() {
         return caratula;
     }
 
-    public void setCaratula(Object caratula) {
+    public void setCaratula(String caratula) {
         this.caratula = caratula;
     }
 
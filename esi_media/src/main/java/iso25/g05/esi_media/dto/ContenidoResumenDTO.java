@@ -9,15 +9,15 @@ public class ContenidoResumenDTO {
     private String titulo;
     /** Tipo de contenido: "AUDIO" o "VIDEO" */
     private String tipo;
-    /** Carátula asociada al contenido (mismo tipo que en el modelo) */
-    private Object caratula;
+    /** URL de la carátula (endpoint /multimedia/{id}/caratula o URL externa) */
+    private String caratula;
     /** Indica si el contenido es VIP (requiere usuario VIP) */
     private boolean vip;
     private String resolucion;
 
     public ContenidoResumenDTO() {}
 
-    public ContenidoResumenDTO(String id, String titulo, String tipo, Object caratula, boolean vip, String resolucion) {
+    public ContenidoResumenDTO(String id, String titulo, String tipo, String caratula, boolean vip, String resolucion) {
         this.id = id;
         this.titulo = titulo;
         this.tipo = tipo;
@@ -35,8 +35,8 @@ public class ContenidoResumenDTO {
     public String getTipo() { return tipo; }
     public void setTipo(String tipo) { this.tipo = tipo; }
 
-    public Object getCaratula() { return caratula; }
-    public void setCaratula(Object caratula) { this.caratula = caratula; }
+    public String getCaratula() { return caratula; }
+    public void setCaratula(String caratula) { this.caratula = caratula; }
 
     public boolean isVip() { return vip; }
     public void setVip(boolean vip) { this.vip = vip; }
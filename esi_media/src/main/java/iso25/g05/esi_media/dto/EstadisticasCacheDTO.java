@@ -0,0 +1,37 @@
+package iso25.g05.esi_media.dto;
+
+/**
+ * DTO con las métricas de una caché en memoria (aciertos, ocupación y expulsiones).
+ */
+public class EstadisticasCacheDTO {
+
+    private final long aciertos;
+    private final long fallos;
+    private final long entradas;
+    private final long bytesResidentes;
+    private final long capacidadBytes;
+    private final long expulsiones;
+
+    public EstadisticasCacheDTO(long aciertos, long fallos, long entradas,
+                                long bytesResidentes, long capacidadBytes, long expulsiones) {
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.entradas = entradas;
+        this.bytesResidentes = bytesResidentes;
+        this.capacidadBytes = capacidadBytes;
+        this.expulsiones = expulsiones;
+    }
+
+    public long getAciertos() { return aciertos; }
+    public long getFallos() { return fallos; }
+    public long getEntradas() { return entradas; }
+    public long getBytesResidentes() { return bytesResidentes; }
+    public long getCapacidadBytes() { return capacidadBytes; }
+    public long getExpulsiones() { return expulsiones; }
+
+    /** Proporción de aciertos sobre el total de consultas (0 si aún no hubo ninguna). */
+    public double getRatioAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0.0 : (double) aciertos / total;
+    }
+}
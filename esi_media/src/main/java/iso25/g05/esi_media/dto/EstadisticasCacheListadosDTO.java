@@ -0,0 +1,43 @@
+package iso25.g05.esi_media.dto;
+
+/**
+ * DTO con las métricas de la caché de páginas de los listados (aciertos, expulsiones e invalidaciones).
+ */
+public class EstadisticasCacheListadosDTO {
+
+    private final long aciertos;
+    private final long fallos;
+    private final long entradas;
+    private final long maxEntradas;
+    private final long expulsiones;
+    private final long caducadas;
+    private final long invalidadas;
+
+    public EstadisticasCacheListadosDTO(long aciertos, long fallos, long entradas, long maxEntradas,
+                                        long expulsiones, long caducadas, long invalidadas) {
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.entradas = entradas;
+        this.maxEntradas = maxEntradas;
+        this.expulsiones = expulsiones;
+        this.caducadas = caducadas;
+        this.invalidadas = invalidadas;
+    }
+
+    public long getAciertos() { return aciertos; }
+    public long getFallos() { return fallos; }
+    public long getEntradas() { return entradas; }
+    public long getMaxEntradas() { return maxEntradas; }
+    /** Páginas expulsadas por falta de sitio (las menos usadas recientemente). */
+    public long getExpulsiones() { return expulsiones; }
+    /** Páginas descartadas al consultarlas con el TTL vencido. */
+    public long getCaducadas() { return caducadas; }
+    /** Páginas descartadas porque cambió un contenido que su tramo puede ver. */
+    public long getInvalidadas() { return invalidadas; }
+
+    /** Proporción de aciertos sobre el total de consultas (0 si aún no hubo ninguna). */
+    public double getRatioAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0.0 : (double) aciertos / total;
+    }
+}
@@ -0,0 +1,34 @@
+package iso25.g05.esi_media.dto;
+
+/**
+ * DTO con el estado del planificador de streams (activos, en cola, limitados y rechazos).
+ */
+public class EstadisticasStreamingDTO {
+
+    private final int activos;
+    private final int maxConcurrentes;
+    private final int enCola;
+    private final int limitadosAhora;
+    private final long totalLimitados;
+    private final long rechazadosPorUsuario;
+    private final long rechazadosPorSaturacion;
+
+    public EstadisticasStreamingDTO(int activos, int maxConcurrentes, int enCola, int limitadosAhora,
+                                    long totalLimitados, long rechazadosPorUsuario, long rechazadosPorSaturacion) {
+        this.activos = activos;
+        this.maxConcurrentes = maxConcurrentes;
+        this.enCola = enCola;
+        this.limitadosAhora = limitadosAhora;
+        this.totalLimitados = totalLimitados;
+        this.rechazadosPorUsuario = rechazadosPorUsuario;
+        this.rechazadosPorSaturacion = rechazadosPorSaturacion;
+    }
+
+    public int getActivos() { return activos; }
+    public int getMaxConcurrentes() { return maxConcurrentes; }
+    public int getEnCola() { return enCola; }
+    public int getLimitadosAhora() { return limitadosAhora; }
+    public long getTotalLimitados() { return totalLimitados; }
+    public long getRechazadosPorUsuario() { return rechazadosPorUsuario; }
+    public long getRechazadosPorSaturacion() { return rechazadosPorSaturacion; }
+}
@@ -0,0 +1,22 @@
+package iso25.g05.esi_media.dto;
+
+/**
+ * DTO con la forma de onda resumida de un audio para el reproductor.
+ * {@code picos} son pares min/max intercalados en el rango [-127, 127].
+ */
+public class FormaOndaDTO {
+
+    private final int puntos;
+    private final double duracion;
+    private final int[] picos;
+
+    public FormaOndaDTO(int puntos, double duracion, int[] picos) {
+        this.puntos = puntos;
+        this.duracion = duracion;
+        this.picos = picos;
+    }
+
+    public int getPuntos() { return puntos; }
+    public double getDuracion() { return duracion; }
+    public int[] getPicos() { return picos; }
+}
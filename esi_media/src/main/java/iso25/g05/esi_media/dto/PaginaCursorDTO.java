@@ -0,0 +1,29 @@
+package iso25.g05.esi_media.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de la paginación por cursor (estilo Slice): los elementos y el cursor para pedir
+ * la siguiente. No lleva totales, así que no hace falta contar el conjunto filtrado.
+ *
+ * @param <T> tipo de los elementos
+ */
+public class PaginaCursorDTO<T> {
+
+    private final List<T> contenidos;
+    private final String siguienteCursor;   // null en la última página
+
+    public PaginaCursorDTO(List<T> contenidos, String siguienteCursor) {
+        this.contenidos = contenidos;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public <R> PaginaCursorDTO<R> map(Function<? super T, ? extends R> conversor) {
+        return new PaginaCursorDTO<>(contenidos.stream().<R>map(conversor).toList(), siguienteCursor);
+    }
+
+    public List<T> getContenidos() { return contenidos; }
+    public String getSiguienteCursor() { return siguienteCursor; }
+    public boolean isHayMas() { return siguienteCursor != null; }
+}
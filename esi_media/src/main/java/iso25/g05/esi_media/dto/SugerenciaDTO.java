@@ -0,0 +1,21 @@
+package iso25.g05.esi_media.dto;
+
+/**
+ * Sugerencia del autocompletado de títulos: lo justo para pintar la lista desplegable.
+ */
+public class SugerenciaDTO {
+
+    private final String id;       // null en los tags
+    private final String titulo;
+    private final String tipo;   // "AUDIO", "VIDEO", "TAG" o "LISTA"
+
+    public SugerenciaDTO(String id, String titulo, String tipo) {
+        this.id = id;
+        this.titulo = titulo;
+        this.tipo = tipo;
+    }
+
+    public String getId() { return id; }
+    public String getTitulo() { return titulo; }
+    public String getTipo() { return tipo; }
+}
@@ -0,0 +1,10 @@
+package iso25.g05.esi_media.exception;
+
+/**
+ * Excepción cuando un usuario ya tiene abiertos todos los streams que le corresponden (429)
+ */
+public class DemasiadosStreamsException extends RuntimeException {
+    public DemasiadosStreamsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package iso25.g05.esi_media.exception;
+
+/**
+ * Excepción para rangos HTTP que no se pueden servir (416)
+ */
+public class RangoNoSatisfacibleException extends RuntimeException {
+    private final long longitudTotal;
+
+    public RangoNoSatisfacibleException(String message, long longitudTotal) {
+        super(message);
+        this.longitudTotal = longitudTotal;
+    }
+
+    public long getLongitudTotal() {
+        return longitudTotal;
+    }
+}
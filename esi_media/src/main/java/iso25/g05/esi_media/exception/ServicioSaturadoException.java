@@ -0,0 +1,17 @@
+package iso25.g05.esi_media.exception;
+
+/**
+ * Excepción cuando el servidor no admite más streams simultáneos (503)
+ */
+public class ServicioSaturadoException extends RuntimeException {
+    private final long reintentarSegundos;
+
+    public ServicioSaturadoException(String message, long reintentarSegundos) {
+        super(message);
+        this.reintentarSegundos = reintentarSegundos;
+    }
+
+    public long getReintentarSegundos() {
+        return reintentarSegundos;
+    }
+}
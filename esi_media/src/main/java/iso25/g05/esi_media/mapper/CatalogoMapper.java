@@ -0,0 +1,95 @@
+package iso25.g05.esi_media.mapper;
+
+import java.util.Date;
+
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.EntradaCatalogo;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.TipoContenido;
+import iso25.g05.esi_media.model.Video;
+
+/**
+ * Conversión entre los contenidos y sus entradas del catálogo (modelo de lectura).
+ */
+public final class CatalogoMapper {
+
+    /** Marca de un contenido con carátula en data URI aún sin migrar (no se copia la imagen). */
+    static final String MARCA_DATA_URI = "data:";
+
+    private CatalogoMapper() {}
+
+    /**
+     * Construye la entrada del catálogo de un contenido, o null si no es audio ni vídeo.
+     */
+    public static EntradaCatalogo aEntrada(Contenido c, Date ahora) {
+        TipoContenido tipo = tipoDe(c);
+        if (tipo == null) {
+            return null;
+        }
+        EntradaCatalogo e = new EntradaCatalogo();
+        e.setId(c.getId());
+        e.settipo(tipo);
+        e.settitulo(c.gettitulo());
+        e.setestado(c.isestado());
+        e.setvip(c.isvip());
+        e.setedadvisualizacion(Math.max(0, c.getedadvisualizacion()));
+        e.setgestorId(c.getgestorId());
+        e.settags(c.gettags());
+        e.setnvisualizaciones(c.getnvisualizaciones());
+        e.setresolucion(c instanceof Video v ? v.getresolucion() : null);
+        e.setcaratula(caratulaDe(c.getcaratula()));
+        e.setimagenCaratula(sinVariantes(c.getimagenCaratula()));
+        e.setsincronizadoEn(ahora);
+        return e;
+    }
+
+    /**
+     * Reconstruye un contenido parcial (los campos del resumen) para reutilizar
+     * ContenidoMapper.aResumen y CaratulaService.urlMiniatura sobre las entradas del catálogo.
+     */
+    public static Contenido aContenido(EntradaCatalogo e) {
+        Contenido c;
+        if (e.gettipo() == TipoContenido.VIDEO) {
+            Video v = new Video();
+            v.setresolucion(e.getresolucion());
+            c = v;
+        } else {
+            c = new Audio();
+        }
+        c.setId(e.getId());
+        c.settitulo(e.gettitulo());
+        c.setestado(e.isestado());
+        c.setvip(e.isvip());
+        c.setedadvisualizacion(e.getedadvisualizacion());
+        c.settags(e.gettags());
+        c.setnvisualizaciones(e.getnvisualizaciones());
+        c.setcaratula(e.getcaratula());
+        c.setimagenCaratula(e.getimagenCaratula());
+        return c;
+    }
+
+    public static TipoContenido tipoDe(Contenido c) {
+        if (c instanceof Audio) return TipoContenido.AUDIO;
+        if (c instanceof Video) return TipoContenido.VIDEO;
+        return null;
+    }
+
+    /**
+     * Solo se copian las URL externas: un data URI pesa megas y el catálogo solo necesita
+     * saber que existe (el endpoint de carátulas lo migra al pedirlo).
+     */
+    private static String caratulaDe(Object caratula) {
+        if (!(caratula instanceof String s) || s.isBlank()) {
+            return null;
+        }
+        return s.startsWith(MARCA_DATA_URI) ? MARCA_DATA_URI : s;
+    }
+
+    private static ImagenCaratula sinVariantes(ImagenCaratula imagen) {
+        if (imagen == null) {
+            return null;
+        }
+        return new ImagenCaratula(imagen.getblobId(), imagen.getchecksum(), imagen.getmimeType(), imagen.gettamanoBytes());
+    }
+}
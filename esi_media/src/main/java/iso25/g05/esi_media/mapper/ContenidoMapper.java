@@ -16,14 +16,15 @@ public final class ContenidoMapper {
 
     /**
      * Construye un ContenidoResumenDTO a partir de la entidad.
+     * La carátula va como URL (ver CaratulaService#url), nunca con los bytes de la imagen.
      */
-    public static ContenidoResumenDTO aResumen(Contenido c) {
+    public static ContenidoResumenDTO aResumen(Contenido c, String urlCaratula) {
         String tipo = tipoDe(c);
         return new ContenidoResumenDTO(
             c.getId(),
             c.gettitulo(),
             tipo,
-            c.getcaratula(),
+            urlCaratula,
             c.isvip(),
             (c instanceof Video) ? ((Video) c).getresolucion() : null
         );
@@ -34,15 +35,16 @@ public final class ContenidoMapper {
     * La referencia debe ser calculada por la capa de servicio:
     *  - VIDEO: url externa
     *  - AUDIO: endpoint del backend (p. ej., "/multimedia/audio/{id}")
+    * Igual con la URL de la carátula.
      */
-    public static ContenidoDetalleDTO aDetalle(Contenido c, String referenciaReproduccion) {
+    public static ContenidoDetalleDTO aDetalle(Contenido c, String referenciaReproduccion, String urlCaratula) {
         String tipo = tipoDe(c);
         ContenidoDetalleDTO dto = new ContenidoDetalleDTO(
             c.getId(),
             c.gettitulo(),
             c.getdescripcion(),
             tipo,
-            c.getcaratula(),
+            urlCaratula,
             c.isvip(),
             c.getduracion(),
             c.getfechadisponiblehasta(),
@@ -5,9 +5,14 @@ import java.util.List;
 import org.bson.types.Binary;
 
 public class Audio extends Contenido {
-    private Binary fichero;        // Archivo binario real (.mp3)
+    private Binary fichero;        // LEGADO: binario embebido (.mp3). Solo existe en documentos aún no migrados al almacén de blobs
+    private String blobId;         // Identificador del fichero en el almacén de blobs (GridFS)
+    private String checksum;       // SHA-256 (hex) del contenido del fichero
     private String mimeType;       // Tipo MIME, debe ser "audio/mpeg"
     private long tamanoBytes;      // Tamaño en bytes
+    private int[] tablaBusqueda;   // Offset (bytes) del frame MP3 que contiene cada segundo; null si no se ha analizado
+    private List<SegmentoAudio> segmentos; // Segmentos de ~10 s para entrega por manifiesto; null hasta la primera reproducción
+    private byte[] picos;          // Forma de onda: pares min/max intercalados (bytes con signo); null si no se ha calculado
 
 	public Audio() { }
 
@@ -30,6 +35,22 @@ public class Audio extends Contenido {
 		this.fichero = fichero;
 	}
 
+	public String getblobId() {
+		return blobId;
+	}
+
+	public void setblobId(String blobId) {
+		this.blobId = blobId;
+	}
+
+	public String getchecksum() {
+		return checksum;
+	}
+
+	public void setchecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
 	public String getmimeType() {
 		return mimeType;
     }
@@ -46,5 +67,29 @@ public class Audio extends Contenido {
         this.tamanoBytes = tamanoBytes;
     }
 
+    public int[] gettablaBusqueda() {
+        return tablaBusqueda;
+    }
+
+    public void settablaBusqueda(int[] tablaBusqueda) {
+        this.tablaBusqueda = tablaBusqueda;
+    }
+
+    public List<SegmentoAudio> getsegmentos() {
+        return segmentos;
+    }
+
+    public void setsegmentos(List<SegmentoAudio> segmentos) {
+        this.segmentos = segmentos;
+    }
+
+    public byte[] getpicos() {
+        return picos;
+    }
+
+    public void setpicos(byte[] picos) {
+        this.picos = picos;
+    }
+
 	
 }
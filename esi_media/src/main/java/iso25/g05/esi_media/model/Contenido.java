@@ -4,6 +4,8 @@ import java.util.List;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.annotation.Id;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Document(collection = "contenidos")
 public class Contenido {
 
@@ -19,10 +21,21 @@ public class Contenido {
 	protected Date fechaestadoautomatico;
 	protected Date fechadisponiblehasta;
 	protected int edadvisualizacion;
-	protected Object caratula;
+	protected Object caratula;	// URL externa de la carátula (o data URI legado pendiente de migrar)
+	protected ImagenCaratula imagenCaratula;	// Carátula subida, guardada en el almacén de blobs
 	protected int nvisualizaciones;
 	protected String gestorId;	// ID del gestor que subió el contenido
 
+	// Copias en minúsculas y sin tildes para la búsqueda (las rellena CamposBusqueda al guardar)
+	@JsonIgnore
+	protected String tituloNormalizado;
+	@JsonIgnore
+	protected String descripcionNormalizada;
+	@JsonIgnore
+	protected List<String> tagsNormalizados;
+	@JsonIgnore
+	protected List<String> palabrasBusqueda;	// Palabras de título, tags y descripción (prefijos con índice)
+
 
 	
 	public Contenido() { }
@@ -133,6 +146,14 @@ public class Contenido {
 		this.caratula = caratula;
 	}
 
+	public ImagenCaratula getimagenCaratula() {
+		return imagenCaratula;
+	}
+
+	public void setimagenCaratula(ImagenCaratula imagenCaratula) {
+		this.imagenCaratula = imagenCaratula;
+	}
+
 	public int getnvisualizaciones() {
 		return nvisualizaciones;
 	}
@@ -149,4 +170,36 @@ public class Contenido {
 		this.gestorId = gestorId;
 	}
 
+	public String gettituloNormalizado() {
+		return tituloNormalizado;
+	}
+
+	public void settituloNormalizado(String tituloNormalizado) {
+		this.tituloNormalizado = tituloNormalizado;
+	}
+
+	public String getdescripcionNormalizada() {
+		return descripcionNormalizada;
+	}
+
+	public void setdescripcionNormalizada(String descripcionNormalizada) {
+		this.descripcionNormalizada = descripcionNormalizada;
+	}
+
+	public List<String> gettagsNormalizados() {
+		return tagsNormalizados;
+	}
+
+	public void settagsNormalizados(List<String> tagsNormalizados) {
+		this.tagsNormalizados = tagsNormalizados;
+	}
+
+	public List<String> getpalabrasBusqueda() {
+		return palabrasBusqueda;
+	}
+
+	public void setpalabrasBusqueda(List<String> palabrasBusqueda) {
+		this.palabrasBusqueda = palabrasBusqueda;
+	}
+
 }
@@ -0,0 +1,138 @@
+package iso25.g05.esi_media.model;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Entrada del modelo de lectura "catalogo": copia compacta de un contenido con lo que
+ * necesitan los listados paginados (filtros, orden y resumen).
+ *
+ * Se mantiene sincronizada en cada escritura de "contenidos" (ver CatalogoService).
+ * Comparte el _id con el contenido.
+ */
+@Document(collection = "catalogo")
+public class EntradaCatalogo {
+    @Id
+    private String id;
+    private TipoContenido tipo;         // Discriminador explícito (en lugar de _class / $exists)
+    private String titulo;
+    private boolean estado;             // TRUE: visible
+    private boolean vip;
+    private int edadvisualizacion;      // 0 si el contenido no la tiene (sin restricción)
+    private String gestorId;
+    private List<String> tags;
+    private int nvisualizaciones;       // Clave de orden "más vistos"
+    private String resolucion;          // Solo vídeos
+    private String caratula;            // URL externa; "data:" si el contenido tiene un data URI sin migrar
+    private ImagenCaratula imagenCaratula;  // Referencia al blob (sin variantes)
+    private Date sincronizadoEn;        // Última copia desde "contenidos" (para limpiar huérfanas)
+
+	public EntradaCatalogo() { }
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public TipoContenido gettipo() {
+		return tipo;
+	}
+
+	public void settipo(TipoContenido tipo) {
+		this.tipo = tipo;
+	}
+
+	public String gettitulo() {
+		return titulo;
+	}
+
+	public void settitulo(String titulo) {
+		this.titulo = titulo;
+	}
+
+	public boolean isestado() {
+		return estado;
+	}
+
+	public void setestado(boolean estado) {
+		this.estado = estado;
+	}
+
+	public boolean isvip() {
+		return vip;
+	}
+
+	public void setvip(boolean vip) {
+		this.vip = vip;
+	}
+
+	public int getedadvisualizacion() {
+		return edadvisualizacion;
+	}
+
+	public void setedadvisualizacion(int edadvisualizacion) {
+		this.edadvisualizacion = edadvisualizacion;
+	}
+
+	public String getgestorId() {
+		return gestorId;
+	}
+
+	public void setgestorId(String gestorId) {
+		this.gestorId = gestorId;
+	}
+
+	public List<String> gettags() {
+		return tags;
+	}
+
+	public void settags(List<String> tags) {
+		this.tags = tags;
+	}
+
+	public int getnvisualizaciones() {
+		return nvisualizaciones;
+	}
+
+	public void setnvisualizaciones(int nvisualizaciones) {
+		this.nvisualizaciones = nvisualizaciones;
+	}
+
+	public String getresolucion() {
+		return resolucion;
+	}
+
+	public void setresolucion(String resolucion) {
+		this.resolucion = resolucion;
+	}
+
+	public String getcaratula() {
+		return caratula;
+	}
+
+	public void setcaratula(String caratula) {
+		this.caratula = caratula;
+	}
+
+	public ImagenCaratula getimagenCaratula() {
+		return imagenCaratula;
+	}
+
+	public void setimagenCaratula(ImagenCaratula imagenCaratula) {
+		this.imagenCaratula = imagenCaratula;
+	}
+
+	public Date getsincronizadoEn() {
+		return sincronizadoEn;
+	}
+
+	public void setsincronizadoEn(Date sincronizadoEn) {
+		this.sincronizadoEn = sincronizadoEn;
+	}
+}
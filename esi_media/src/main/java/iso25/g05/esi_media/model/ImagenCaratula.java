@@ -0,0 +1,64 @@
+package iso25.g05.esi_media.model;
+
+import java.util.List;
+
+/**
+ * Carátula de un contenido guardada como blob propio (en lugar de un data URI embebido).
+ * Se embebe en el documento del contenido (campo {@code imagenCaratula}).
+ */
+public class ImagenCaratula {
+    private String blobId;      // Identificador de la imagen en el almacén de blobs
+    private String checksum;    // SHA-256 (hex) de la imagen
+    private String mimeType;    // image/png, image/jpeg...
+    private long tamanoBytes;   // Tamaño en bytes
+    private List<VarianteCaratula> variantes;   // Miniaturas de menor a mayor ancho; null mientras no se han generado
+
+	public ImagenCaratula() { }
+
+	public ImagenCaratula(String blobId, String checksum, String mimeType, long tamanoBytes) {
+		this.blobId = blobId;
+		this.checksum = checksum;
+		this.mimeType = mimeType;
+		this.tamanoBytes = tamanoBytes;
+	}
+
+	public String getblobId() {
+		return blobId;
+	}
+
+	public void setblobId(String blobId) {
+		this.blobId = blobId;
+	}
+
+	public String getchecksum() {
+		return checksum;
+	}
+
+	public void setchecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
+	public String getmimeType() {
+		return mimeType;
+	}
+
+	public void setmimeType(String mimeType) {
+		this.mimeType = mimeType;
+	}
+
+	public long gettamanoBytes() {
+		return tamanoBytes;
+	}
+
+	public void settamanoBytes(long tamanoBytes) {
+		this.tamanoBytes = tamanoBytes;
+	}
+
+	public List<VarianteCaratula> getvariantes() {
+		return variantes;
+	}
+
+	public void setvariantes(List<VarianteCaratula> variantes) {
+		this.variantes = variantes;
+	}
+}
@@ -0,0 +1,29 @@
+package iso25.g05.esi_media.model;
+
+/**
+ * Órdenes estables de la paginación por cursor. Todos desempatan por _id, así dos
+ * contenidos con la misma clave nunca se saltan ni se repiten entre páginas.
+ */
+public enum OrdenCatalogo {
+    /** Más recientes primero (el _id lleva la fecha de creación). */
+    FECHA,
+    /** Más vistos primero. */
+    VISTAS,
+    /** Alfabético por título. */
+    TITULO;
+
+    /**
+     * @return el orden pedido (sin distinguir mayúsculas), FECHA si no se indica, o null si no existe
+     */
+    public static OrdenCatalogo desde(String orden) {
+        if (orden == null || orden.isBlank()) {
+            return FECHA;
+        }
+        for (OrdenCatalogo valor : values()) {
+            if (valor.name().equalsIgnoreCase(orden.trim())) {
+                return valor;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package iso25.g05.esi_media.model;
+
+/**
+ * Trozo de ~10 s de un audio, cortado en frontera de frame MP3 y guardado como blob propio.
+ * Se embebe en el documento del audio (lista {@code segmentos}).
+ */
+public class SegmentoAudio {
+    private String blobId;      // Identificador del segmento en el almacén de blobs
+    private String checksum;    // SHA-256 (hex) del segmento
+    private double duracion;    // Duración aproximada en segundos
+    private long tamanoBytes;   // Tamaño en bytes
+
+	public SegmentoAudio() { }
+
+	public SegmentoAudio(String blobId, String checksum, double duracion, long tamanoBytes) {
+		this.blobId = blobId;
+		this.checksum = checksum;
+		this.duracion = duracion;
+		this.tamanoBytes = tamanoBytes;
+	}
+
+	public String getblobId() {
+		return blobId;
+	}
+
+	public void setblobId(String blobId) {
+		this.blobId = blobId;
+	}
+
+	public String getchecksum() {
+		return checksum;
+	}
+
+	public void setchecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
+	public double getduracion() {
+		return duracion;
+	}
+
+	public void setduracion(double duracion) {
+		this.duracion = duracion;
+	}
+
+	public long gettamanoBytes() {
+		return tamanoBytes;
+	}
+
+	public void settamanoBytes(long tamanoBytes) {
+		this.tamanoBytes = tamanoBytes;
+	}
+}
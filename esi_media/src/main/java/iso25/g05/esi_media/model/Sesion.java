@@ -0,0 +1,138 @@
+package iso25.g05.esi_media.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Sesión iniciada por un usuario (una por dispositivo). Colección "sesiones".
+ *
+ * - El _id es el SHA-256 del token: el token en claro solo lo tiene el cliente.
+ * - Copia los datos del usuario que deciden sus permisos (rol, VIP, fecha de nacimiento,
+ *   bloqueo y tipo de contenido del gestor); se refrescan en cada save del usuario (ver SesionService).
+ * - Mongo borra la sesión al llegar a expiraEn (índice TTL).
+ */
+@Document(collection = "sesiones")
+public class Sesion {
+    @Id
+    private String id;                  // SHA-256 (hex) del token
+    private String usuarioId;
+    private String rol;                 // Nombre simple de la clase: Visualizador, GestordeContenido, Administrador
+    private boolean vip;
+    private Date fechanac;
+    private boolean bloqueado;
+    private String tipocontenido;       // Solo gestores: "audio" / "video" (tal cual gettipocontenidovideooaudio)
+    private Date creadaEn;
+    private Date expiraEn;
+
+	public Sesion() { }
+
+	/**
+	 * Identificador de la sesión de un token.
+	 */
+	public static String idDeToken(String token) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 no disponible", e);
+		}
+	}
+
+	/**
+	 * Copia en la sesión los datos de permisos del usuario.
+	 */
+	public void copiarPermisos(Usuario usuario) {
+		this.usuarioId = usuario.getId();
+		this.rol = usuario.getClass().getSimpleName();
+		this.bloqueado = usuario.isBloqueado();
+		if (usuario instanceof Visualizador visualizador) {
+			this.vip = visualizador.isVip();
+			this.fechanac = visualizador.getFechaNac();
+		}
+		if (usuario instanceof GestordeContenido gestor) {
+			this.tipocontenido = gestor.gettipocontenidovideooaudio();
+		}
+	}
+
+	public boolean caducada() {
+		return expiraEn != null && !expiraEn.after(new Date());
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getusuarioId() {
+		return usuarioId;
+	}
+
+	public void setusuarioId(String usuarioId) {
+		this.usuarioId = usuarioId;
+	}
+
+	public String getrol() {
+		return rol;
+	}
+
+	public void setrol(String rol) {
+		this.rol = rol;
+	}
+
+	public boolean isvip() {
+		return vip;
+	}
+
+	public void setvip(boolean vip) {
+		this.vip = vip;
+	}
+
+	public Date getfechanac() {
+		return fechanac;
+	}
+
+	public void setfechanac(Date fechanac) {
+		this.fechanac = fechanac;
+	}
+
+	public boolean isbloqueado() {
+		return bloqueado;
+	}
+
+	public void setbloqueado(boolean bloqueado) {
+		this.bloqueado = bloqueado;
+	}
+
+	public String gettipocontenido() {
+		return tipocontenido;
+	}
+
+	public void settipocontenido(String tipocontenido) {
+		this.tipocontenido = tipocontenido;
+	}
+
+	public Date getcreadaEn() {
+		return creadaEn;
+	}
+
+	public void setcreadaEn(Date creadaEn) {
+		this.creadaEn = creadaEn;
+	}
+
+	public Date getexpiraEn() {
+		return expiraEn;
+	}
+
+	public void setexpiraEn(Date expiraEn) {
+		this.expiraEn = expiraEn;
+	}
+}
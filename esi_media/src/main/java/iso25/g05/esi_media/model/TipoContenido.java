@@ -0,0 +1,27 @@
+package iso25.g05.esi_media.model;
+
+/**
+ * Tipo de contenido normalizado del catálogo (en "contenidos" el tipo solo se deduce
+ * de _class o de la presencia de url/mimeType).
+ */
+public enum TipoContenido {
+    AUDIO,
+    VIDEO;
+
+    /**
+     * Tipo pedido en los filtros de los listados (sin distinguir mayúsculas).
+     *
+     * @return el tipo, o null si viene vacío o no es AUDIO/VIDEO (= todos los tipos)
+     */
+    public static TipoContenido desde(String tipo) {
+        if (tipo == null || tipo.isBlank()) {
+            return null;
+        }
+        for (TipoContenido valor : values()) {
+            if (valor.name().equalsIgnoreCase(tipo.trim())) {
+                return valor;
+            }
+        }
+        return null;
+    }
+}
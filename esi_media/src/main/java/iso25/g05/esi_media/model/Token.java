@@ -2,9 +2,12 @@ package iso25.g05.esi_media.model;
 
 import java.util.Date;
 
-import org.springframework.data.mongodb.core.mapping.Document;
-
-@Document(collection = "tokens")
+/**
+ * Token de sesión tal y como lo ve el cliente (valor en claro y caducidad).
+ *
+ * No se persiste: la sesión se guarda en la colección "sesiones" con el token cifrado
+ * (ver {@link Sesion}).
+ */
 public class Token {
 
     private String token;
@@ -5,6 +5,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -50,6 +51,11 @@ public class Usuario {
     @JsonIgnore
     public List<Codigorecuperacion> codigosrecuperacion = new ArrayList<>();
     
+    /**
+     * Sesión con la que se ha cargado el usuario (o la recién creada en el login).
+     * No se guarda en "users": las sesiones viven en la colección "sesiones".
+     */
+    @Transient
     @JsonIgnore
     public Token sesionstoken;
 
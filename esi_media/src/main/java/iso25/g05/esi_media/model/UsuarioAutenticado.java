@@ -0,0 +1,43 @@
+package iso25.g05.esi_media.model;
+
+import java.util.Date;
+
+/**
+ * Usuario de una sesión tal y como lo ve la autenticación: solo lo que deciden los permisos.
+ *
+ * Sale de la colección "sesiones" sin leer "users", así que no arrastra las DBRef del usuario
+ * (listas privadas con sus contenidos, favoritos, contraseña). Quien necesite el usuario completo
+ * lo lee por id.
+ *
+ * @param rol nombre simple de la clase del usuario (Visualizador, GestordeContenido, Administrador)
+ * @param tipocontenido solo gestores: "audio" o "video"
+ * @param expiraEn caducidad de la sesión (null si no se conoce)
+ */
+public record UsuarioAutenticado(String id, String rol, boolean vip, Date fechanac, boolean bloqueado,
+                                 String tipocontenido, Date expiraEn) {
+
+	private static final String VISUALIZADOR = Visualizador.class.getSimpleName();
+	private static final String GESTOR = GestordeContenido.class.getSimpleName();
+	private static final String ADMINISTRADOR = Administrador.class.getSimpleName();
+
+	public static UsuarioAutenticado de(Sesion sesion) {
+		return new UsuarioAutenticado(sesion.getusuarioId(), sesion.getrol(), sesion.isvip(), sesion.getfechanac(),
+			sesion.isbloqueado(), sesion.gettipocontenido(), sesion.getexpiraEn());
+	}
+
+	public boolean esVisualizador() {
+		return VISUALIZADOR.equals(rol);
+	}
+
+	public boolean esGestor() {
+		return GESTOR.equals(rol);
+	}
+
+	public boolean esAdministrador() {
+		return ADMINISTRADOR.equals(rol);
+	}
+
+	public boolean caducada() {
+		return expiraEn != null && !expiraEn.after(new Date());
+	}
+}
@@ -0,0 +1,63 @@
+package iso25.g05.esi_media.model;
+
+/**
+ * Versión reducida de una carátula (miniatura de un ancho fijo) guardada como blob propio.
+ * Se embebe en {@link ImagenCaratula} (campo {@code variantes}).
+ */
+public class VarianteCaratula {
+    private int ancho;          // Ancho en píxeles (el alto mantiene la proporción)
+    private String blobId;      // Identificador de la miniatura en el almacén de blobs
+    private String checksum;    // SHA-256 (hex) de la miniatura
+    private String mimeType;    // image/jpeg o image/png (si la original tiene transparencia)
+    private long tamanoBytes;   // Tamaño en bytes
+
+	public VarianteCaratula() { }
+
+	public VarianteCaratula(int ancho, String blobId, String checksum, String mimeType, long tamanoBytes) {
+		this.ancho = ancho;
+		this.blobId = blobId;
+		this.checksum = checksum;
+		this.mimeType = mimeType;
+		this.tamanoBytes = tamanoBytes;
+	}
+
+	public int getancho() {
+		return ancho;
+	}
+
+	public void setancho(int ancho) {
+		this.ancho = ancho;
+	}
+
+	public String getblobId() {
+		return blobId;
+	}
+
+	public void setblobId(String blobId) {
+		this.blobId = blobId;
+	}
+
+	public String getchecksum() {
+		return checksum;
+	}
+
+	public void setchecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
+	public String getmimeType() {
+		return mimeType;
+	}
+
+	public void setmimeType(String mimeType) {
+		this.mimeType = mimeType;
+	}
+
+	public long gettamanoBytes() {
+		return tamanoBytes;
+	}
+
+	public void settamanoBytes(long tamanoBytes) {
+		this.tamanoBytes = tamanoBytes;
+	}
+}
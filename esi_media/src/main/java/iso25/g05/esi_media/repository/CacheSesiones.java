@@ -0,0 +1,163 @@
+package iso25.g05.esi_media.repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
+
+/**
+ * Caché LRU con caducidad de token de sesión → {@link UsuarioAutenticado}, delante de
+ * {@link UsuarioRepository#findUsuarioAutenticado(String)}.
+ *
+ * Por qué existe: casi todos los endpoints resuelven la cookie con esa consulta y era la mayor
+ * parte de las operaciones contra Mongo.
+ *
+ * Reglas:
+ * - Límite por número de sesiones ({@code app.sesiones.cache.max-entradas}); al superarlo se
+ *   expulsan las menos usadas recientemente. Con 0 no se cachea nada.
+ * - Una entrada dura {@code app.sesiones.cache.ttl-segundos} y nunca más que el propio token.
+ * - Cierre de sesión, nuevo token, bloqueo/desbloqueo y cambio de suscripción invalidan
+ *   explícitamente. Además, cualquier save o delete de un usuario (perfil, favoritos, baja)
+ *   invalida sus sesiones por el evento de Mongo. El TTL cubre las actualizaciones parciales
+ *   y las escrituras de otra instancia.
+ * - Un usuario cargado mientras hubo una invalidación no se guarda.
+ */
+@Component
+public class CacheSesiones extends AbstractMongoEventListener<Usuario> {
+
+    private record Entrada(UsuarioAutenticado usuario, long expiraNanos) {}
+
+    private final int maxEntradas;
+    private final long ttlNanos;
+
+    /** Orden de acceso: la primera entrada es la menos usada recientemente. */
+    private final LinkedHashMap<String, Entrada> porToken = new LinkedHashMap<>(256, 0.75f, true);
+    /** Tokens cacheados de cada usuario, para invalidar por id. */
+    private final Map<String, Set<String>> tokensPorUsuario = new HashMap<>();
+    /** Cambia en cada invalidación; un usuario cargado con otra generación no se guarda. */
+    private final AtomicLong generacion = new AtomicLong();
+
+    public CacheSesiones(@Value("${app.sesiones.cache.max-entradas:2000}") int maxEntradas,
+                         @Value("${app.sesiones.cache.ttl-segundos:60}") long ttlSegundos) {
+        this.maxEntradas = Math.max(0, maxEntradas);
+        this.ttlNanos = Math.max(0, ttlSegundos) * 1_000_000_000L;
+    }
+
+    /**
+     * Generación actual: se lee antes de consultar Mongo y se pasa a {@link #guardar}.
+     */
+    long generacion() {
+        return generacion.get();
+    }
+
+    synchronized Optional<UsuarioAutenticado> obtener(String token) {
+        Entrada entrada = porToken.get(token);
+        if (entrada == null) {
+            return Optional.empty();
+        }
+        if (entrada.expiraNanos() - System.nanoTime() <= 0) {
+            quitar(token);
+            return Optional.empty();
+        }
+        return Optional.of(entrada.usuario());
+    }
+
+    /**
+     * Guarda el usuario del token, salvo que haya habido una invalidación desde {@code generacionAlCargar}.
+     */
+    synchronized void guardar(String token, UsuarioAutenticado usuario, long generacionAlCargar) {
+        if (maxEntradas == 0 || usuario.id() == null || generacion.get() != generacionAlCargar) {
+            return;
+        }
+        long ahora = System.nanoTime();
+        long expira = ahora + ttlNanos;
+        if (usuario.expiraEn() != null) {
+            long restanteMs = usuario.expiraEn().getTime() - System.currentTimeMillis();
+            if (restanteMs <= 0) {
+                return;
+            }
+            expira = Math.min(expira, ahora + restanteMs * 1_000_000L);
+        }
+        quitar(token);
+        porToken.put(token, new Entrada(usuario, expira));
+        tokensPorUsuario.computeIfAbsent(usuario.id(), id -> new HashSet<>()).add(token);
+
+        Iterator<Map.Entry<String, Entrada>> it = porToken.entrySet().iterator();
+        while (porToken.size() > maxEntradas && it.hasNext()) {
+            Map.Entry<String, Entrada> eldest = it.next();
+            it.remove();
+            desindexar(eldest.getValue().usuario().id(), eldest.getKey());
+        }
+    }
+
+    /**
+     * Olvida un token (cierre de sesión).
+     */
+    public synchronized void invalidarToken(String token) {
+        generacion.incrementAndGet();
+        if (token != null) {
+            quitar(token);
+        }
+    }
+
+    /**
+     * Olvida todas las sesiones del usuario (nuevo token, bloqueo, cambio de suscripción...).
+     */
+    public synchronized void invalidarUsuario(String usuarioId) {
+        generacion.incrementAndGet();
+        Set<String> tokens = usuarioId != null ? tokensPorUsuario.remove(usuarioId) : null;
+        if (tokens != null) {
+            tokens.forEach(porToken::remove);
+        }
+    }
+
+    public synchronized void invalidarTodo() {
+        generacion.incrementAndGet();
+        porToken.clear();
+        tokensPorUsuario.clear();
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Usuario> event) {
+        invalidarUsuario(event.getSource().getId());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Usuario> event) {
+        Object id = event.getSource().get("_id");
+        if (id instanceof String || id instanceof ObjectId) {
+            invalidarUsuario(id.toString());
+        } else {
+            // Borrado por otro filtro (o por varios ids): no se sabe a quién afecta
+            invalidarTodo();
+        }
+    }
+
+    private void quitar(String token) {
+        Entrada anterior = porToken.remove(token);
+        if (anterior != null) {
+            desindexar(anterior.usuario().id(), token);
+        }
+    }
+
+    private void desindexar(String usuarioId, String token) {
+        Set<String> tokens = tokensPorUsuario.get(usuarioId);
+        if (tokens != null && tokens.remove(token) && tokens.isEmpty()) {
+            tokensPorUsuario.remove(usuarioId);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package iso25.g05.esi_media.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import iso25.g05.esi_media.model.EntradaCatalogo;
+import iso25.g05.esi_media.model.TipoContenido;
+
+/**
+ * Consultas de los listados sobre el modelo de lectura "catalogo".
+ * Cada forma de consulta tiene su índice compuesto (ver CatalogoService#crearIndices).
+ * Devuelven List y no Page: el total lo pone CatalogoService desde su caché de counts.
+ */
+@Repository
+public interface CatalogoRepository extends MongoRepository<EntradaCatalogo, String> {
+
+    // Visualizadores VIP: visibles y permitidos para su edad
+    List<EntradaCatalogo> findByEstadoTrueAndEdadvisualizacionLessThanEqual(int edad, Pageable pageable);
+
+    List<EntradaCatalogo> findByEstadoTrueAndTipoAndEdadvisualizacionLessThanEqual(TipoContenido tipo, int edad, Pageable pageable);
+
+    // Visualizadores no VIP: además, sin contenidos VIP
+    List<EntradaCatalogo> findByEstadoTrueAndVipFalseAndEdadvisualizacionLessThanEqual(int edad, Pageable pageable);
+
+    List<EntradaCatalogo> findByEstadoTrueAndVipFalseAndTipoAndEdadvisualizacionLessThanEqual(TipoContenido tipo, int edad, Pageable pageable);
+
+    // Gestores: todos los contenidos (también los ocultos), opcionalmente de un tipo
+    List<EntradaCatalogo> findByTipo(TipoContenido tipo, Pageable pageable);
+
+    List<EntradaCatalogo> findAllBy(Pageable pageable);
+}
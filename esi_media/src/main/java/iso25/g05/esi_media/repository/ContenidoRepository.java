@@ -11,8 +11,22 @@ import java.util.Optional;
 
 @Repository
 public interface ContenidoRepository extends MongoRepository<Contenido, String> {
+
+    /**
+     * Proyección de los listados paginados: solo lo que usa ContenidoMapper.aResumen
+     * (id, título, tipo vía _class, VIP, resolución y la referencia de la carátula).
+     * Descripción, tags, índices de frames, picos, segmentos... no se leen.
+     * Por eso los métodos que devuelven Page<Contenido> traen entidades incompletas:
+     * para el detalle se usa findById / findByIdForGestor.
+     */
+    String CAMPOS_RESUMEN = "{ 'titulo': 1, '_class': 1, 'vip': 1, 'resolucion': 1, 'caratula': 1, "
+        + "'imagenCaratula.blobId': 1, 'imagenCaratula.checksum': 1 }";
     @Query("{'titulo': {$regex: ?0, $options: 'i'}}")
     List<Contenido> findByTituloContainingIgnoreCase(String titulo);
+
+    // Campos de los resultados de /contenidos/buscar (ids sacados del índice de títulos)
+    @Query(value = "{'_id': {$in: ?0}}", fields = "{ 'titulo': 1, '_class': 1, 'descripcion': 1, 'duracion': 1, 'resolucion': 1 }")
+    List<Contenido> findParaBuscadorByIdIn(List<String> ids);
     
     @Query("{'tags': {$in: [?0]}}")
     List<Contenido> findByTagsContaining(String tag);
@@ -22,38 +36,38 @@ public interface ContenidoRepository extends MongoRepository<Contenido, String>
 
     // Listado paginado de contenidos visibles para una edad máxima (independiente de VIP).
     // Importante: si 'edadvisualizacion' no existe en el documento, tratamos como sin restricción.
-    @Query("{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ] }")
+    @Query(value = "{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ] }", fields = CAMPOS_RESUMEN)
     Page<Contenido> findByEstadoTrueAndEdadAllowed(int edadvisualizacion, Pageable pageable);
 
     // Listado paginado de contenidos visibles y NO VIP, para usuarios no VIP.
-    @Query("{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ] }")
+    @Query(value = "{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ] }", fields = CAMPOS_RESUMEN)
     Page<Contenido> findByEstadoTrueAndVipFalseAndEdadAllowed(int edadvisualizacion, Pageable pageable);
 
     // Métodos legacy conservados para compatibilidad con tests/mocks antiguos
-    @Query("{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ] }")
+    @Query(value = "{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ] }", fields = CAMPOS_RESUMEN)
     Page<Contenido> findByEstadoTrueAndEdadvisualizacionLessThanEqual(int edadvisualizacion, Pageable pageable);
 
-    @Query("{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ] }")
+    @Query(value = "{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ] }", fields = CAMPOS_RESUMEN)
     Page<Contenido> findByEstadoTrueAndVipFalseAndEdadvisualizacionLessThanEqual(int edadvisualizacion, Pageable pageable);
 
     // Filtrado por tipo usando el campo interno _class (nombre de la clase Java persistida)
-    @Query("{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], '_class': ?1}")
+    @Query(value = "{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], '_class': ?1}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findByEstadoTrueAndEdadvisualizacionLessThanEqualAndClass(int edadvisualizacion, String className, Pageable pageable);
 
-    @Query("{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], '_class': ?1}")
+    @Query(value = "{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], '_class': ?1}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findByEstadoTrueAndVipFalseAndEdadvisualizacionLessThanEqualAndClass(int edadvisualizacion, String className, Pageable pageable);
 
     // Alternativas robustas por existencia de campos característicos
-    @Query("{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], 'url': {$exists: true}}")
+    @Query(value = "{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], 'url': {$exists: true}}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findVideos(int edadvisualizacion, Pageable pageable);
 
-    @Query("{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], 'url': {$exists: true}}")
+    @Query(value = "{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], 'url': {$exists: true}}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findVideosNoVip(int edadvisualizacion, Pageable pageable);
 
-    @Query("{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], 'mimeType': {$exists: true}}")
+    @Query(value = "{'estado': true, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], 'mimeType': {$exists: true}}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findAudios(int edadvisualizacion, Pageable pageable);
 
-    @Query("{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], 'mimeType': {$exists: true}}")
+    @Query(value = "{'estado': true, 'vip': false, $or:[ {'edadvisualizacion': {$lte: ?0}}, {'edadvisualizacion': {$exists:false}} ], 'mimeType': {$exists: true}}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findAudiosNoVip(int edadvisualizacion, Pageable pageable);
 
     // Búsqueda por id solo si está visible
@@ -62,84 +76,84 @@ public interface ContenidoRepository extends MongoRepository<Contenido, String>
     // Métodos de búsqueda por texto (título y descripción) con filtros
     
     // Búsqueda general en contenidos (todos los tipos)
-    @Query("{'estado': true, 'edadvisualizacion': {$lte: ?1}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, 'edadvisualizacion': {$lte: ?1}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchContenidos(String query, int edadvisualizacion, Pageable pageable);
 
-    @Query("{'estado': true, 'vip': false, 'edadvisualizacion': {$lte: ?1}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, 'vip': false, 'edadvisualizacion': {$lte: ?1}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchContenidosNoVip(String query, int edadvisualizacion, Pageable pageable);
 
     // Búsqueda específica en videos
-    @Query("{'estado': true, 'edadvisualizacion': {$lte: ?1}, 'url': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, 'edadvisualizacion': {$lte: ?1}, 'url': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchVideos(String query, int edadvisualizacion, Pageable pageable);
 
-    @Query("{'estado': true, 'vip': false, 'edadvisualizacion': {$lte: ?1}, 'url': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, 'vip': false, 'edadvisualizacion': {$lte: ?1}, 'url': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchVideosNoVip(String query, int edadvisualizacion, Pageable pageable);
 
     // Búsqueda específica en audios
-    @Query("{'estado': true, 'edadvisualizacion': {$lte: ?1}, 'mimeType': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, 'edadvisualizacion': {$lte: ?1}, 'mimeType': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchAudios(String query, int edadvisualizacion, Pageable pageable);
 
-    @Query("{'estado': true, 'vip': false, 'edadvisualizacion': {$lte: ?1}, 'mimeType': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, 'vip': false, 'edadvisualizacion': {$lte: ?1}, 'mimeType': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchAudiosNoVip(String query, int edadvisualizacion, Pageable pageable);
 
     // Métodos para Gestores de Contenido (sin restricciones de edad o VIP)
     
     // Listar todos los contenidos visibles sin restricciones
-    @Query("{'estado': true}")
+    @Query(value = "{'estado': true}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findByEstadoTrue(Pageable pageable);
 
     // Listar por tipo específico sin restricciones
-    @Query("{'estado': true, '_class': ?0}")
+    @Query(value = "{'estado': true, '_class': ?0}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findByEstadoTrueAndClass(String className, Pageable pageable);
 
     // Listar videos sin restricciones
-    @Query("{'estado': true, 'url': {$exists: true}}")
+    @Query(value = "{'estado': true, 'url': {$exists: true}}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findAllVideos(Pageable pageable);
 
     // Listar audios sin restricciones
-    @Query("{'estado': true, 'mimeType': {$exists: true}}")
+    @Query(value = "{'estado': true, 'mimeType': {$exists: true}}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findAllAudios(Pageable pageable);
 
     // Búsqueda de contenidos sin restricciones
-    @Query("{'estado': true, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchAllContenidos(String query, Pageable pageable);
 
     // Búsqueda de videos sin restricciones
-    @Query("{'estado': true, 'url': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, 'url': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchAllVideos(String query, Pageable pageable);
 
     // Búsqueda de audios sin restricciones
-    @Query("{'estado': true, 'mimeType': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'estado': true, 'mimeType': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchAllAudios(String query, Pageable pageable);
 
     // Métodos especiales para Gestores de Contenido (SIN filtro de estado - pueden ver contenidos ocultos)
     
     // Listar TODOS los contenidos sin restricciones de estado (para Gestores)
-    @Query("{}")
+    @Query(value = "{}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findAllContenidosForGestor(Pageable pageable);
 
     // Listar por tipo específico sin restricciones de estado (para Gestores)
-    @Query("{'_class': ?0}")
+    @Query(value = "{'_class': ?0}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findAllContenidosByClassForGestor(String className, Pageable pageable);
 
     // Listar todos los videos sin restricciones de estado (para Gestores)
-    @Query("{'url': {$exists: true}}")
+    @Query(value = "{'url': {$exists: true}}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findAllVideosForGestor(Pageable pageable);
 
     // Listar todos los audios sin restricciones de estado (para Gestores)
-    @Query("{'mimeType': {$exists: true}}")
+    @Query(value = "{'mimeType': {$exists: true}}", fields = CAMPOS_RESUMEN)
     Page<Contenido> findAllAudiosForGestor(Pageable pageable);
 
     // Búsqueda de contenidos sin restricciones de estado (para Gestores)
-    @Query("{$or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{$or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchAllContenidosForGestor(String query, Pageable pageable);
 
     // Búsqueda de videos sin restricciones de estado (para Gestores)
-    @Query("{'url': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'url': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchAllVideosForGestor(String query, Pageable pageable);
 
     // Búsqueda de audios sin restricciones de estado (para Gestores)
-    @Query("{'mimeType': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}")
+    @Query(value = "{'mimeType': {$exists: true}, $or: [{'titulo': {$regex: ?0, $options: 'i'}}, {'descripcion': {$regex: ?0, $options: 'i'}}]}", fields = CAMPOS_RESUMEN)
     Page<Contenido> searchAllAudiosForGestor(String query, Pageable pageable);
 
     // Buscar contenido por ID sin filtro de estado (para Gestores)
@@ -20,18 +20,17 @@ import iso25.g05.esi_media.model.Usuario;
  * - Un solo repositorio para operaciones comunes (buscar por email, ID, etc.)
  * - Consultas eficientes con índices compartidos
  * - Mantenimiento simplificado
+ *
+ * La resolución de sesiones (findUsuarioAutenticado, findBySesionToken) está en UsuarioRepositoryCustom.
  */
 @Repository
-public interface UsuarioRepository extends MongoRepository<Usuario, String> {
+public interface UsuarioRepository extends MongoRepository<Usuario, String>, UsuarioRepositoryCustom {
     @Query("{'email': ?0}")
     Optional<Usuario> findByEmail(String email);
     
     @Query(value = "{'email': ?0}", exists = true)
     boolean existsByEmail(String email);
 
-    @Query("{ $or: [ {'sesionstoken.token': ?0}, {'sesionstoken.value': ?0}, {'sesionstoken': ?0} ] }")
-    Optional<Usuario> findBySesionToken(String token);
-
     @Query("{'activationToken': ?0}")
     Optional<Usuario> findByActivationToken(String token);
 
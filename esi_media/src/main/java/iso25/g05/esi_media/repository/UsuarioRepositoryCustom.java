@@ -0,0 +1,24 @@
+package iso25.g05.esi_media.repository;
+
+import java.util.Optional;
+
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
+
+/**
+ * Consultas de UsuarioRepository implementadas a mano (ver {@link UsuarioRepositoryCustomImpl}).
+ */
+public interface UsuarioRepositoryCustom {
+
+    /**
+     * Permisos del usuario con esa sesión activa. Solo lee la colección "sesiones" (nunca "users")
+     * y pasa por {@link CacheSesiones}: es lo que debe usar la autenticación.
+     */
+    Optional<UsuarioAutenticado> findUsuarioAutenticado(String token);
+
+    /**
+     * Usuario completo (con sus DBRef) de esa sesión activa, con {@code sesionstoken} relleno con el
+     * token y su caducidad. Lee "users" en cada llamada: solo para quien necesita el usuario entero.
+     */
+    Optional<Usuario> findBySesionToken(String token);
+}
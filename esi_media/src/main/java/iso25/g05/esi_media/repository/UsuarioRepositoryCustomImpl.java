@@ -0,0 +1,61 @@
+package iso25.g05.esi_media.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import iso25.g05.esi_media.model.Sesion;
+import iso25.g05.esi_media.model.Token;
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
+
+/**
+ * Resuelve el token de sesión desde {@link CacheSesiones} y, si no está, leyendo la sesión por _id
+ * (el hash del token).
+ */
+public class UsuarioRepositoryCustomImpl implements UsuarioRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+    private final CacheSesiones cacheSesiones;
+
+    public UsuarioRepositoryCustomImpl(MongoTemplate mongoTemplate, CacheSesiones cacheSesiones) {
+        this.mongoTemplate = mongoTemplate;
+        this.cacheSesiones = cacheSesiones;
+    }
+
+    @Override
+    public Optional<UsuarioAutenticado> findUsuarioAutenticado(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        Optional<UsuarioAutenticado> cacheado = cacheSesiones.obtener(token);
+        if (cacheado.isPresent()) {
+            return cacheado;
+        }
+        long generacion = cacheSesiones.generacion();
+        Sesion sesion = mongoTemplate.findById(Sesion.idDeToken(token), Sesion.class);
+        // El TTL de Mongo no borra al instante: una sesión vencida puede seguir ahí un rato
+        if (sesion == null || sesion.caducada()) {
+            return Optional.empty();
+        }
+        UsuarioAutenticado usuario = UsuarioAutenticado.de(sesion);
+        cacheSesiones.guardar(token, usuario, generacion);
+        return Optional.of(usuario);
+    }
+
+    @Override
+    public Optional<Usuario> findBySesionToken(String token) {
+        return findUsuarioAutenticado(token).flatMap(autenticado -> {
+            Usuario usuario = mongoTemplate.findById(autenticado.id(), Usuario.class);
+            if (usuario == null) {
+                return Optional.empty();
+            }
+            // Quien valida la sesión (ListaService) la lee del usuario
+            Token sesionToken = new Token();
+            sesionToken.setToken(token);
+            sesionToken.setFechaExpiracion(autenticado.expiraEn());
+            usuario.setSesionstoken(sesionToken);
+            return Optional.of(usuario);
+        });
+    }
+}
@@ -0,0 +1,375 @@
+package iso25.g05.esi_media.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Analizador incremental de ficheros MP3 (MPEG-1/2/2.5, capas I-III).
+ *
+ * Qué hace:
+ * - Salta la etiqueta ID3v2 inicial y recorre las cabeceras de frame sin decodificar audio.
+ * - Detecta el frame informativo Xing/Info o VBRI (ficheros VBR) y usa su número de frames.
+ * - Construye una tabla de búsqueda con el offset del frame que contiene cada segundo.
+ * - En capa III guarda el {@code global_gain} de cada frame (de la side info): una envolvente
+ *   de volumen sin decodificar el audio, base de la forma de onda ({@link FormaOnda}).
+ *
+ * Es incremental: se alimenta con los bytes según pasan por la subida ({@link #observar(InputStream)}),
+ * así que el análisis no necesita una segunda lectura del fichero ni cargarlo en memoria.
+ * No es seguro entre hilos: una instancia por fichero.
+ */
+public final class AnalizadorMp3 {
+
+    private static final int BYTES_ID3 = 10;
+    private static final int BYTES_CAPTURA_PRIMER_FRAME = 64;
+
+    private static final int[][] BITRATES_KBPS = {
+        // MPEG-1 capa I, II, III
+        {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+        {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+        // MPEG-2/2.5 capa I, II/III
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+        {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+    };
+    private static final int[][] FRECUENCIAS = {
+        {11025, 12000, 8000},  // MPEG-2.5
+        null,                  // reservado
+        {22050, 24000, 16000}, // MPEG-2
+        {44100, 48000, 32000}, // MPEG-1
+    };
+
+    // Estado de lectura
+    private final byte[] cabeceraId3 = new byte[BYTES_ID3];
+    private long posicion;
+    private long finBloqueActual = -1;   // bytes anteriores a esta posición no son cabeceras
+    private int ventana;
+    private int bytesVentana;
+    private long inicioVentana;
+
+    // Formato fijado por el primer frame válido (evita falsas sincronizaciones)
+    private int version = -1;
+    private int capa = -1;
+    private int frecuencia;
+    private int muestrasPorFrame;
+
+    // Primer frame: puede ser el frame informativo Xing/Info/VBRI en lugar de audio
+    private final byte[] primerFrame = new byte[BYTES_CAPTURA_PRIMER_FRAME];
+    private int bytesPrimerFrame;
+    private long finPrimerFrame = -1;
+    private boolean primerFrameRevisado;
+    private int framesSegunCabecera = -1;
+
+    // Side info del frame actual (solo capa III) para leer global_gain
+    private final byte[] ladoInfo = new byte[32];
+    private long inicioLadoInfo = -1;
+    private int longitudLadoInfo;
+    private int bytesLadoInfo;
+    private int canalesLadoInfo;
+
+    // Acumulados
+    private byte[] ganancias = new byte[256];
+    private int frames;
+    private long muestras;
+    private int[] tabla = new int[64];
+    private int entradasTabla;
+
+    /**
+     * Analiza un stream completo. Útil para ficheros ya almacenados.
+     */
+    public static Optional<IndiceMp3> analizar(InputStream in) throws IOException {
+        AnalizadorMp3 analizador = new AnalizadorMp3();
+        byte[] buffer = new byte[8192];
+        int leidos;
+        while ((leidos = in.read(buffer)) >= 0) {
+            analizador.alimentar(buffer, 0, leidos);
+        }
+        return analizador.resultado();
+    }
+
+    /**
+     * Envuelve un stream para analizar los bytes a medida que otro los consume.
+     */
+    public InputStream observar(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    alimentar((byte) b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    alimentar(b, off, n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) {
+                // Saltar bytes rompería el análisis
+                return 0;
+            }
+        };
+    }
+
+    public void alimentar(byte[] datos, int desde, int longitud) {
+        for (int i = desde; i < desde + longitud; i++) {
+            alimentar(datos[i]);
+        }
+    }
+
+    private void alimentar(byte b) {
+        long p = posicion++;
+        if (p < BYTES_ID3) {
+            cabeceraId3[(int) p] = b;
+            if (p == BYTES_ID3 - 1) {
+                decidirInicio();
+            }
+            return;
+        }
+        procesar(b, p);
+    }
+
+    /**
+     * Con los 10 primeros bytes se sabe si hay etiqueta ID3v2 y cuánto ocupa.
+     */
+    private void decidirInicio() {
+        if (cabeceraId3[0] == 'I' && cabeceraId3[1] == 'D' && cabeceraId3[2] == '3') {
+            long tamano = ((cabeceraId3[6] & 0x7F) << 21) | ((cabeceraId3[7] & 0x7F) << 14)
+                | ((cabeceraId3[8] & 0x7F) << 7) | (cabeceraId3[9] & 0x7F);
+            boolean pie = (cabeceraId3[5] & 0x10) != 0;
+            finBloqueActual = BYTES_ID3 + tamano + (pie ? BYTES_ID3 : 0);
+        } else {
+            // Sin ID3: los 10 bytes ya leídos pertenecen al audio
+            finBloqueActual = 0;
+            for (int i = 0; i < BYTES_ID3; i++) {
+                procesar(cabeceraId3[i], i);
+            }
+        }
+    }
+
+    private void procesar(byte b, long p) {
+        if (p < finBloqueActual) {
+            if (p < finPrimerFrame && bytesPrimerFrame < primerFrame.length) {
+                primerFrame[bytesPrimerFrame++] = b;
+            }
+            if (inicioLadoInfo >= 0 && p >= inicioLadoInfo) {
+                ladoInfo[bytesLadoInfo++] = b;
+                if (bytesLadoInfo == longitudLadoInfo) {
+                    inicioLadoInfo = -1;
+                    anadirGanancia(leerGananciaGlobal());
+                }
+            }
+            return;
+        }
+
+        if (bytesVentana == 0) {
+            inicioVentana = p;
+        }
+        ventana = (ventana << 8) | (b & 0xFF);
+        bytesVentana++;
+        if (bytesVentana < 4) {
+            return;
+        }
+
+        int longitudFrame = longitudFrame(ventana);
+        if (longitudFrame > 0) {
+            registrarFrame(inicioVentana, ventana, longitudFrame);
+            finBloqueActual = inicioVentana + longitudFrame;
+            bytesVentana = 0;
+        } else {
+            // Sin sincronía: desplazar la ventana un byte y seguir buscando
+            bytesVentana = 3;
+            inicioVentana++;
+        }
+    }
+
+    /**
+     * Devuelve la longitud del frame si la cabecera es válida (y compatible con el primer frame), o 0.
+     */
+    private int longitudFrame(int h) {
+        if ((h >>> 21 & 0x7FF) != 0x7FF) {
+            return 0;
+        }
+        int v = h >>> 19 & 3;
+        int c = h >>> 17 & 3;
+        int indiceBitrate = h >>> 12 & 0xF;
+        int indiceFrecuencia = h >>> 10 & 3;
+        if (v == 1 || c == 0 || indiceBitrate == 0 || indiceBitrate == 15 || indiceFrecuencia == 3) {
+            return 0;
+        }
+        if (version >= 0 && (v != version || c != capa || FRECUENCIAS[v][indiceFrecuencia] != frecuencia)) {
+            return 0;
+        }
+        int capaNumero = 4 - c; // 1, 2 o 3
+        boolean mpeg1 = v == 3;
+        int tablaBitrate = mpeg1 ? capaNumero - 1 : (capaNumero == 1 ? 3 : 4);
+        int bitrate = BITRATES_KBPS[tablaBitrate][indiceBitrate] * 1000;
+        int hz = FRECUENCIAS[v][indiceFrecuencia];
+        int relleno = h >>> 9 & 1;
+        if (capaNumero == 1) {
+            return (12 * bitrate / hz + relleno) * 4;
+        }
+        int coeficiente = (capaNumero == 3 && !mpeg1) ? 72 : 144;
+        return coeficiente * bitrate / hz + relleno;
+    }
+
+    private void registrarFrame(long offset, int h, int longitud) {
+        if (version < 0) {
+            version = h >>> 19 & 3;
+            capa = h >>> 17 & 3;
+            frecuencia = FRECUENCIAS[version][h >>> 10 & 3];
+            int capaNumero = 4 - capa;
+            muestrasPorFrame = capaNumero == 1 ? 384 : (capaNumero == 2 || version == 3 ? 1152 : 576);
+
+            // Guardar el inicio del primer frame para buscar Xing/Info/VBRI
+            primerFrame[0] = (byte) (h >>> 24);
+            primerFrame[1] = (byte) (h >>> 16);
+            primerFrame[2] = (byte) (h >>> 8);
+            primerFrame[3] = (byte) h;
+            bytesPrimerFrame = 4;
+            finPrimerFrame = offset + longitud;
+        } else if (!primerFrameRevisado) {
+            revisarPrimerFrame();
+        }
+
+        if (capa == 1) {
+            // Capa III: la side info va tras la cabecera (y tras el CRC de 2 bytes si lo hay)
+            boolean crc = (h >>> 16 & 1) == 0;
+            boolean mono = (h >>> 6 & 3) == 3;
+            inicioLadoInfo = offset + 4 + (crc ? 2 : 0);
+            longitudLadoInfo = version == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+            canalesLadoInfo = mono ? 1 : 2;
+            bytesLadoInfo = 0;
+        }
+
+        frames++;
+        // Entradas para cada segundo que empieza dentro de este frame
+        long finMuestras = muestras + muestrasPorFrame;
+        while ((long) entradasTabla * frecuencia < finMuestras) {
+            anadirEntrada((int) offset);
+        }
+        muestras = finMuestras;
+    }
+
+    /**
+     * Si el primer frame es un frame informativo (Xing/Info/VBRI) no contiene audio:
+     * se descuenta y se toma de él el número total de frames.
+     */
+    private void revisarPrimerFrame() {
+        primerFrameRevisado = true;
+        boolean mono = (primerFrame[3] >>> 6 & 3) == 3;
+        int ladoInfo = version == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        int xing = 4 + ladoInfo;
+        int vbri = 4 + 32;
+
+        if (contieneEtiqueta(xing, "Xing") || contieneEtiqueta(xing, "Info")) {
+            int flags = leerEntero(xing + 4);
+            if ((flags & 1) != 0 && xing + 12 <= bytesPrimerFrame) {
+                framesSegunCabecera = leerEntero(xing + 8);
+            }
+            descontarPrimerFrame();
+        } else if (contieneEtiqueta(vbri, "VBRI") && vbri + 18 <= bytesPrimerFrame) {
+            framesSegunCabecera = leerEntero(vbri + 14);
+            descontarPrimerFrame();
+        }
+    }
+
+    private void descontarPrimerFrame() {
+        // Solo se ha registrado el primer frame: se reinicia la tabla y los acumulados
+        // (su side info ya se ha leído: la del frame actual aún no)
+        frames = 0;
+        muestras = 0;
+        entradasTabla = 0;
+    }
+
+    private boolean contieneEtiqueta(int desde, String etiqueta) {
+        if (desde + etiqueta.length() > bytesPrimerFrame) {
+            return false;
+        }
+        for (int i = 0; i < etiqueta.length(); i++) {
+            if (primerFrame[desde + i] != etiqueta.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int leerEntero(int desde) {
+        if (desde + 4 > bytesPrimerFrame) {
+            return 0;
+        }
+        return (primerFrame[desde] & 0xFF) << 24 | (primerFrame[desde + 1] & 0xFF) << 16
+            | (primerFrame[desde + 2] & 0xFF) << 8 | (primerFrame[desde + 3] & 0xFF);
+    }
+
+    /**
+     * Máximo global_gain (8 bits) entre gránulos y canales de la side info capturada.
+     * MPEG-1: 2 gránulos, bloques de 59 bits; MPEG-2/2.5: 1 gránulo, bloques de 63 bits.
+     */
+    private int leerGananciaGlobal() {
+        boolean mpeg1 = version == 3;
+        int canales = canalesLadoInfo;
+        int bit = mpeg1 ? 9 + (canales == 1 ? 5 : 3) + 4 * canales : 8 + canales;
+        int granulos = mpeg1 ? 2 : 1;
+        int bloque = mpeg1 ? 59 : 63;
+        int maximo = 0;
+        for (int i = 0; i < granulos * canales; i++) {
+            // part2_3_length (12) + big_values (9) preceden a global_gain
+            maximo = Math.max(maximo, leerBits(bit + 21, 8));
+            bit += bloque;
+        }
+        return maximo;
+    }
+
+    private int leerBits(int desde, int cuantos) {
+        int valor = 0;
+        for (int i = desde; i < desde + cuantos; i++) {
+            valor = valor << 1 | (ladoInfo[i >> 3] >> (7 - (i & 7)) & 1);
+        }
+        return valor;
+    }
+
+    private void anadirGanancia(int ganancia) {
+        // Un valor por frame contado: alineado con frames tras descontar el frame Xing
+        if (frames == 0) {
+            return;
+        }
+        if (frames > ganancias.length) {
+            ganancias = Arrays.copyOf(ganancias, Math.max(frames, ganancias.length * 2));
+        }
+        ganancias[frames - 1] = (byte) ganancia;
+    }
+
+    private void anadirEntrada(int offset) {
+        if (entradasTabla == tabla.length) {
+            tabla = Arrays.copyOf(tabla, tabla.length * 2);
+        }
+        tabla[entradasTabla++] = offset;
+    }
+
+    /**
+     * Resultado del análisis, o vacío si no se encontró ningún frame MPEG de audio.
+     */
+    public Optional<IndiceMp3> resultado() {
+        if (version >= 0 && !primerFrameRevisado && frames == 1) {
+            // Fichero de un solo frame: puede ser únicamente el frame informativo
+            revisarPrimerFrame();
+        }
+        if (frames == 0) {
+            return Optional.empty();
+        }
+        long totalFrames = framesSegunCabecera > 0 ? framesSegunCabecera : frames;
+        double duracion = (double) totalFrames * muestrasPorFrame / frecuencia;
+        byte[] envolvente = capa == 1 ? Arrays.copyOf(ganancias, frames) : new byte[0];
+        return Optional.of(new IndiceMp3(duracion, (int) totalFrames, Arrays.copyOf(tabla, entradasTabla), envolvente));
+    }
+}
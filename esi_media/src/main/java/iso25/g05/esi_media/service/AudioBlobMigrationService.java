@@ -0,0 +1,160 @@
+package iso25.g05.esi_media.service;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Migración en caliente de los audios con binario embebido ("fichero") al almacén de blobs.
+ *
+ * Cómo funciona:
+ * - Busca por lotes, en orden de _id, los ids de audios que todavía tienen el campo "fichero"
+ *   (solo proyecta el _id). Cada lote empieza tras el último id del anterior, así que la
+ *   migración avanza aunque un lote entero no migre nada (binarios corruptos, otra instancia
+ *   que se adelantó) y termina aunque algún documento no se pudiera actualizar.
+ * - Para cada id carga únicamente el binario, lo sube al almacén de blobs y actualiza el documento
+ *   con blobId/checksum/tamanoBytes quitando el "fichero".
+ * - La actualización solo se aplica si el documento sigue teniendo "fichero", así que puede
+ *   ejecutarse con la aplicación sirviendo tráfico y es idempotente si se relanza.
+ */
+@Service
+public class AudioBlobMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioBlobMigrationService.class);
+
+    private static final String COLLECTION_CONTENIDOS = "contenidos";
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_FICHERO = "fichero";
+    private static final String FIELD_MIME_TYPE = "mimeType";
+    private static final String FIELD_TITULO = "titulo";
+
+    private final MongoTemplate mongoTemplate;
+    private final BlobStorage blobStorage;
+    private final int tamanoLote;
+
+    public AudioBlobMigrationService(MongoTemplate mongoTemplate,
+                                     BlobStorage blobStorage,
+                                     @Value("${app.audio.migracion-blobs.lote:20}") int tamanoLote) {
+        this.mongoTemplate = mongoTemplate;
+        this.blobStorage = blobStorage;
+        this.tamanoLote = Math.max(1, tamanoLote);
+    }
+
+    /**
+     * Ejecuta la migración completa en segundo plano, lote a lote.
+     */
+    @Async
+    public void migrarEnSegundoPlano() {
+        try {
+            int procesados = 0;
+            int migrados = 0;
+            Lote lote = migrarLote(null);
+            while (lote.procesados() > 0) {
+                procesados += lote.procesados();
+                migrados += lote.migrados();
+                lote = migrarLote(lote.ultimoId());
+            }
+            logger.info("Migración de audios a blobs finalizada. Audios procesados: {}, migrados: {}",
+                procesados, migrados);
+        } catch (Exception e) {
+            logger.error("Error durante la migración de audios a blobs: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Migra el siguiente lote de audios con binario embebido.
+     *
+     * @param desdeId último _id del lote anterior (null para empezar)
+     * @return ids procesados en este lote (0 cuando ya no quedan), cuántos se migraron y el último id
+     */
+    public Lote migrarLote(Object desdeId) {
+        Criteria criterio = Criteria.where(FIELD_FICHERO).exists(true);
+        if (desdeId != null) {
+            criterio = criterio.and(FIELD_ID).gt(desdeId);
+        }
+        Query pendientes = new Query(criterio).with(Sort.by(FIELD_ID)).limit(tamanoLote);
+        pendientes.fields().include(FIELD_ID);
+        List<Document> ids = mongoTemplate.find(pendientes, Document.class, COLLECTION_CONTENIDOS);
+
+        int migrados = 0;
+        for (Document doc : ids) {
+            if (migrarAudio(doc.get(FIELD_ID))) {
+                migrados++;
+            }
+        }
+        return new Lote(ids.isEmpty() ? desdeId : ids.get(ids.size() - 1).get(FIELD_ID), ids.size(), migrados);
+    }
+
+    /**
+     * Resultado de un lote: procesados incluye los audios corruptos (se les quita el binario)
+     * y los que otra instancia migró antes.
+     */
+    public record Lote(Object ultimoId, int procesados, int migrados) { }
+
+    private boolean migrarAudio(Object id) {
+        Query porId = new Query(Criteria.where(FIELD_ID).is(id).and(FIELD_FICHERO).exists(true));
+        porId.fields().include(FIELD_FICHERO).include(FIELD_MIME_TYPE).include(FIELD_TITULO);
+        Document doc = mongoTemplate.findOne(porId, Document.class, COLLECTION_CONTENIDOS);
+        if (doc == null) {
+            return false; // Ya migrado por otro proceso
+        }
+
+        byte[] datos = extraerBytes(doc.get(FIELD_FICHERO));
+        String mimeType = doc.getString(FIELD_MIME_TYPE) != null ? doc.getString(FIELD_MIME_TYPE) : "audio/mpeg";
+        if (datos == null || datos.length == 0) {
+            // Binario vacío o corrupto: se elimina el campo para no reintentarlo indefinidamente
+            mongoTemplate.updateFirst(porId, new Update().unset(FIELD_FICHERO), COLLECTION_CONTENIDOS);
+            logger.warn("Audio {} sin binario válido: se elimina el campo fichero", id);
+            return false;
+        }
+
+        AnalizadorMp3 analizador = new AnalizadorMp3();
+        BlobInfo blob = blobStorage.guardar(analizador.observar(new ByteArrayInputStream(datos)),
+            doc.getString(FIELD_TITULO), mimeType);
+
+        Update update = new Update()
+            .set("blobId", blob.id())
+            .set("checksum", blob.sha256())
+            .set("tamanoBytes", blob.tamanoBytes())
+            .unset(FIELD_FICHERO);
+        // De paso, índice de búsqueda, duración real y forma de onda para los audios legados
+        analizador.resultado().ifPresent(indice -> update
+            .set("duracion", indice.duracionSegundos())
+            .set("tablaBusqueda", indice.tablaBusqueda())
+            .set("picos", FormaOnda.calcularPicos(indice.ganancias(), FormaOnda.PUNTOS)));
+        UpdateResult resultado = mongoTemplate.updateFirst(porId, update, COLLECTION_CONTENIDOS);
+
+        if (resultado.getModifiedCount() == 0) {
+            // Otro proceso se adelantó: no dejamos el blob huérfano (salvo que otro audio idéntico lo use)
+            if (!mongoTemplate.exists(Query.query(Criteria.where("blobId").is(blob.id())), COLLECTION_CONTENIDOS)) {
+                blobStorage.eliminar(blob.id());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private byte[] extraerBytes(Object fichero) {
+        if (fichero instanceof Binary binary) {
+            return binary.getData();
+        }
+        if (fichero instanceof byte[] bytes) {
+            return bytes;
+        }
+        return null;
+    }
+}
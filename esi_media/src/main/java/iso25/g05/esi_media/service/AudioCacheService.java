@@ -0,0 +1,265 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.dto.EstadisticasCacheDTO;
+import iso25.g05.esi_media.model.Audio;
+
+/**
+ * Caché LRU de audios calientes, limitada por bytes totales.
+ *
+ * Por qué existe: las pistas populares se reproducen miles de veces al día y cada
+ * reproducción volvía a leer el documento de Mongo y el blob. Aquí se guardan el documento
+ * (sin binario) y los bytes del fichero en buffers directos, fuera del heap, para que la
+ * caché no alargue las pausas del GC.
+ *
+ * Reglas:
+ * - Límite por bytes ({@code app.audio.cache.capacidad-bytes}); al superarlo se expulsan
+ *   las entradas menos usadas recientemente.
+ * - Ficheros mayores que {@code app.audio.cache.max-bytes-entrada} no se cachean.
+ * - Un fallo se sirve directamente del almacén. El audio solo entra en la caché cuando acumula
+ *   {@code app.audio.cache.umbral-accesos} fallos, así que un recorrido del catálogo no expulsa
+ *   las pistas calientes. La carga se hace en un pool propio y acotado, una sola vez por audio
+ *   aunque lleguen varios fallos a la vez; si la cola está llena se reintenta en el siguiente fallo.
+ * - La caché no decide permisos: {@code MultimediaService} valida VIP/edad en cada petición,
+ *   también cuando el documento sale de aquí.
+ * - Cualquier cambio del contenido (edición, borrado) debe llamar a {@link #invalidar(String)}.
+ */
+@Service
+public class AudioCacheService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioCacheService.class);
+
+    /** Audios no cacheados de los que se recuerdan los fallos (los más antiguos se olvidan). */
+    private static final int MAX_CANDIDATOS = 10_000;
+
+    private final long capacidadBytes;
+    private final long maxBytesEntrada;
+    private final int umbralAccesos;
+    private final ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+
+    /** Orden de acceso: la primera entrada es la menos usada recientemente. */
+    private final LinkedHashMap<String, AudioEnCache> entradas = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesResidentes;
+
+    /** Fallos acumulados por audio aún no cacheado, en orden de acceso y con tamaño acotado. */
+    private final LinkedHashMap<String, Integer> candidatos = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> mayor) {
+            return size() > MAX_CANDIDATOS;
+        }
+    };
+    /** Audios con una carga pendiente, para no leer dos veces el mismo fichero. */
+    private final Set<String> enCurso = ConcurrentHashMap.newKeySet();
+    /** Sube con cada invalidación: una carga empezada antes no llega a insertarse. */
+    private final AtomicLong generacion = new AtomicLong();
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong expulsiones = new AtomicLong();
+
+    public AudioCacheService(@Value("${app.audio.cache.capacidad-bytes:268435456}") long capacidadBytes,
+                             @Value("${app.audio.cache.max-bytes-entrada:16777216}") long maxBytesEntrada,
+                             @Value("${app.audio.cache.umbral-accesos:2}") int umbralAccesos,
+                             @Value("${app.audio.cache.hilos:1}") int hilos,
+                             @Value("${app.audio.cache.cola:32}") int cola) {
+        this.capacidadBytes = Math.max(0, capacidadBytes);
+        this.maxBytesEntrada = Math.min(maxBytesEntrada, this.capacidadBytes);
+        this.umbralAccesos = Math.max(1, umbralAccesos);
+        ejecutor.setThreadNamePrefix("cache-audio-");
+        ejecutor.setCorePoolSize(Math.max(1, hilos));
+        ejecutor.setMaxPoolSize(Math.max(1, hilos));
+        ejecutor.setQueueCapacity(Math.max(0, cola));
+        ejecutor.setAllowCoreThreadTimeOut(true);
+        ejecutor.initialize();
+    }
+
+    /**
+     * Devuelve el documento del audio si está en caché, sin contar acierto/fallo
+     * (las métricas miden los bytes servidos, no las consultas de metadatos).
+     */
+    public synchronized Optional<Audio> obtenerMetadatos(String id) {
+        AudioEnCache entrada = entradas.get(id);
+        return entrada != null ? Optional.of(entrada.metadatos()) : Optional.empty();
+    }
+
+    /**
+     * Busca el audio en caché y actualiza las métricas de aciertos.
+     */
+    public Optional<AudioEnCache> obtener(String id) {
+        AudioEnCache entrada;
+        synchronized (this) {
+            entrada = entradas.get(id);
+        }
+        (entrada != null ? aciertos : fallos).incrementAndGet();
+        return Optional.ofNullable(entrada);
+    }
+
+    /**
+     * Indica si un fichero de ese tamaño cabe en la caché.
+     */
+    public boolean admite(long longitud) {
+        return longitud > 0 && longitud <= maxBytesEntrada;
+    }
+
+    /**
+     * Anota un fallo de caché que se va a servir desde el almacén. Al llegar al umbral de
+     * accesos encola la carga del fichero; quien llama nunca espera a esa lectura.
+     *
+     * @param audio documento del audio
+     * @param fuente origen de los bytes (debe poder leerse desde otro hilo)
+     */
+    public void registrarFallo(Audio audio, FuenteBinaria fuente) {
+        String id = audio.getId();
+        if (id == null || !admite(fuente.longitud())) {
+            return;
+        }
+        long generacionInicio;
+        synchronized (this) {
+            if (entradas.containsKey(id) || candidatos.merge(id, 1, Integer::sum) < umbralAccesos) {
+                return;
+            }
+            generacionInicio = generacion.get();
+        }
+        if (!enCurso.add(id)) {
+            return;
+        }
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    cargar(audio, fuente, generacionInicio);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("No se pudo cachear el audio {}: {}", id, e.getMessage());
+                } finally {
+                    enCurso.remove(id);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            enCurso.remove(id);
+            log.debug("Cola de carga de la caché de audios llena, se reintentará el audio {} en el siguiente fallo", id);
+        }
+    }
+
+    /**
+     * Carga el fichero completo en un buffer directo y lo inserta en la caché,
+     * expulsando las entradas menos usadas hasta volver por debajo del límite.
+     *
+     * @param audio documento del audio (se guarda una copia sin binario embebido)
+     * @param fuente origen de los bytes
+     * @return la entrada insertada
+     * @throws IOException si falla la lectura del fichero
+     */
+    public AudioEnCache guardar(Audio audio, FuenteBinaria fuente) throws IOException {
+        return cargar(audio, fuente, generacion.get());
+    }
+
+    /**
+     * Lee el fichero e inserta la entrada solo si el audio no se ha invalidado desde
+     * {@code generacionInicio}; si se invalidó, devuelve la entrada sin guardarla.
+     */
+    private AudioEnCache cargar(Audio audio, FuenteBinaria fuente, long generacionInicio) throws IOException {
+        long longitud = fuente.longitud();
+        if (!admite(longitud)) {
+            throw new IllegalArgumentException("El fichero no cabe en la caché: " + longitud + " bytes");
+        }
+
+        // La lectura se hace fuera del bloqueo: puede tardar y no debe frenar a otros hilos
+        ByteBuffer datos = ByteBuffer.allocateDirect((int) longitud);
+        try (InputStream in = fuente.abrirDesde(0);
+             ReadableByteChannel canal = Channels.newChannel(in)) {
+            while (datos.hasRemaining()) {
+                if (canal.read(datos) < 0) {
+                    throw new IOException("Fin de fichero inesperado al cachear el audio " + audio.getId());
+                }
+            }
+        }
+        datos.flip();
+
+        AudioEnCache entrada = new AudioEnCache(copiarSinBinario(audio, longitud), datos.asReadOnlyBuffer());
+        synchronized (this) {
+            if (generacion.get() != generacionInicio) {
+                return entrada;
+            }
+            candidatos.remove(audio.getId());
+            AudioEnCache anterior = entradas.put(audio.getId(), entrada);
+            if (anterior != null) {
+                bytesResidentes -= anterior.longitud();
+            }
+            bytesResidentes += longitud;
+            expulsarSobrantes();
+        }
+        return entrada;
+    }
+
+    /**
+     * Elimina el audio de la caché (si estaba).
+     */
+    public synchronized void invalidar(String id) {
+        if (id == null) {
+            return;
+        }
+        generacion.incrementAndGet();
+        candidatos.remove(id);
+        AudioEnCache anterior = entradas.remove(id);
+        if (anterior != null) {
+            bytesResidentes -= anterior.longitud();
+        }
+    }
+
+    public synchronized EstadisticasCacheDTO estadisticas() {
+        return new EstadisticasCacheDTO(aciertos.get(), fallos.get(), entradas.size(),
+            bytesResidentes, capacidadBytes, expulsiones.get());
+    }
+
+    @Override
+    public void destroy() {
+        ejecutor.shutdown();
+    }
+
+    private void expulsarSobrantes() {
+        Iterator<Map.Entry<String, AudioEnCache>> it = entradas.entrySet().iterator();
+        while (bytesResidentes > capacidadBytes && it.hasNext()) {
+            AudioEnCache expulsada = it.next().getValue();
+            it.remove();
+            bytesResidentes -= expulsada.longitud();
+            expulsiones.incrementAndGet();
+        }
+    }
+
+    /**
+     * Copia del documento sin el binario embebido: los bytes ya están en el buffer directo
+     * y no queremos duplicarlos en el heap.
+     */
+    private static Audio copiarSinBinario(Audio a, long longitud) {
+        Audio copia = new Audio(a.getId(), a.gettitulo(), a.getdescripcion(), a.gettags(), a.getduracion(),
+            a.isvip(), a.isestado(), a.getfechaestadoautomatico(), a.getfechadisponiblehasta(),
+            a.getedadvisualizacion(), a.getcaratula(), a.getnvisualizaciones(), null, a.getmimeType(),
+            longitud, a.getgestorId());
+        copia.setblobId(a.getblobId());
+        copia.setchecksum(a.getchecksum());
+        copia.settablaBusqueda(a.gettablaBusqueda());
+        copia.setsegmentos(a.getsegmentos());
+        copia.setpicos(a.getpicos());
+        copia.setimagenCaratula(a.getimagenCaratula());
+        return copia;
+    }
+}
@@ -0,0 +1,18 @@
+package iso25.g05.esi_media.service;
+
+import java.nio.ByteBuffer;
+
+import iso25.g05.esi_media.model.Audio;
+
+/**
+ * Entrada de la caché de audios calientes.
+ *
+ * @param metadatos documento del audio sin binario embebido (no modificar: es compartido)
+ * @param datos bytes del fichero en un buffer directo (fuera del heap); usar {@code duplicate()} para leer
+ */
+public record AudioEnCache(Audio metadatos, ByteBuffer datos) {
+
+    public long longitud() {
+        return datos.capacity();
+    }
+}
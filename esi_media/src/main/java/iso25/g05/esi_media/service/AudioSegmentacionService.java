@@ -0,0 +1,222 @@
+package iso25.g05.esi_media.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.SegmentoAudio;
+
+/**
+ * Entrega segmentada de audio al estilo HLS: lista de reproducción + segmentos de ~10 s.
+ *
+ * Qué resuelve:
+ * - Cortar cada MP3 en segmentos en frontera de frame (con la tabla de búsqueda del MP3),
+ *   de forma perezosa en la primera reproducción, y guardarlos como blobs propios.
+ * - Generar el manifiesto M3U8 que apunta a esos segmentos.
+ *
+ * Los segmentos se direccionan por su SHA-256 y son inmutables, así que navegadores y
+ * proxies pueden cachearlos por separado; el primer byte llega antes que con el fichero entero.
+ *
+ * Cada segmento empieza con una etiqueta ID3 con el frame PRIV
+ * {@code com.apple.streaming.transportStreamTimestamp} (RFC 8216 §3.4): el instante de su primera
+ * muestra en el reloj de 90 kHz, tomado del segundo de la tabla de búsqueda donde empieza. Sin ella
+ * los reproductores no saben colocar un segmento de audio empaquetado en la línea de tiempo.
+ */
+@Service
+public class AudioSegmentacionService {
+
+    public static final String TIPO_MANIFIESTO = "application/vnd.apple.mpegurl";
+
+    static final String PROPIETARIO_TIMESTAMP = "com.apple.streaming.transportStreamTimestamp";
+    private static final long RELOJ_MPEG_HZ = 90_000;
+    /** El timestamp MPEG-2 tiene 33 bits. */
+    private static final long MASCARA_33_BITS = 0x1_FFFF_FFFFL;
+
+    private final BlobStorage blobStorage;
+    private final AudioStreamingService audioStreamingService;
+    private final AudioCacheService audioCache;
+    private final MongoTemplate mongoTemplate;
+    private final int segundosPorSegmento;
+
+    /** Segmentaciones en curso: peticiones simultáneas del mismo audio esperan a la primera. */
+    private final ConcurrentHashMap<String, CompletableFuture<List<SegmentoAudio>>> enCurso = new ConcurrentHashMap<>();
+
+    public AudioSegmentacionService(BlobStorage blobStorage,
+                                    AudioStreamingService audioStreamingService,
+                                    AudioCacheService audioCache,
+                                    MongoTemplate mongoTemplate,
+                                    @Value("${app.audio.segmentos.segundos:10}") int segundosPorSegmento) {
+        this.blobStorage = blobStorage;
+        this.audioStreamingService = audioStreamingService;
+        this.audioCache = audioCache;
+        this.mongoTemplate = mongoTemplate;
+        this.segundosPorSegmento = Math.max(1, segundosPorSegmento);
+    }
+
+    /**
+     * Devuelve los segmentos del audio, creándolos si es la primera vez que se piden.
+     */
+    public List<SegmentoAudio> obtenerSegmentos(Audio audio) {
+        if (audio.getsegmentos() != null && !audio.getsegmentos().isEmpty()) {
+            return audio.getsegmentos();
+        }
+        CompletableFuture<List<SegmentoAudio>> nueva = new CompletableFuture<>();
+        CompletableFuture<List<SegmentoAudio>> existente = enCurso.putIfAbsent(audio.getId(), nueva);
+        if (existente != null) {
+            return esperar(existente);
+        }
+        try {
+            List<SegmentoAudio> segmentos = segmentar(audio);
+            nueva.complete(segmentos);
+            return segmentos;
+        } catch (RuntimeException e) {
+            nueva.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(audio.getId(), nueva);
+        }
+    }
+
+    /**
+     * Devuelve el segmento del audio con ese SHA-256.
+     *
+     * @throws RecursoNoEncontradoException si el audio no tiene ese segmento
+     */
+    public SegmentoAudio obtenerSegmento(Audio audio, String checksum) {
+        return obtenerSegmentos(audio).stream()
+            .filter(s -> s.getchecksum().equals(checksum))
+            .findFirst()
+            .orElseThrow(() -> new RecursoNoEncontradoException("Segmento no encontrado"));
+    }
+
+    /**
+     * Lista de reproducción M3U8 (VOD) con rutas relativas a {@code /multimedia/audio/{id}/}.
+     */
+    public String generarManifiesto(List<SegmentoAudio> segmentos) {
+        double maxima = segmentos.stream().mapToDouble(SegmentoAudio::getduracion).max().orElse(0);
+        StringBuilder sb = new StringBuilder()
+            .append("#EXTM3U\n")
+            .append("#EXT-X-VERSION:3\n")
+            .append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+            .append("#EXT-X-TARGETDURATION:").append((long) Math.ceil(maxima)).append('\n')
+            .append("#EXT-X-MEDIA-SEQUENCE:0\n");
+        for (SegmentoAudio segmento : segmentos) {
+            sb.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", segmento.getduracion()))
+              .append("segmentos/").append(segmento.getchecksum()).append('\n');
+        }
+        return sb.append("#EXT-X-ENDLIST\n").toString();
+    }
+
+    private List<SegmentoAudio> esperar(CompletableFuture<List<SegmentoAudio>> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private List<SegmentoAudio> segmentar(Audio audio) {
+        FuenteBinaria fuente = audioStreamingService.obtenerFuente(audio);
+        long longitud = fuente.longitud();
+        try {
+            int[] tabla = audio.gettablaBusqueda();
+            double duracion = audio.getduracion();
+            if (tabla == null || tabla.length == 0) {
+                // Audio subido antes de indexar los frames: se analiza ahora una única vez
+                Optional<IndiceMp3> indice;
+                try (InputStream in = fuente.abrirDesde(0)) {
+                    indice = AnalizadorMp3.analizar(in);
+                }
+                if (indice.isPresent()) {
+                    tabla = indice.get().tablaBusqueda();
+                    duracion = indice.get().duracionSegundos();
+                } else {
+                    tabla = new int[]{0};
+                }
+            }
+
+            List<SegmentoAudio> segmentos = new ArrayList<>();
+            for (int segundo = 0; segundo < tabla.length; segundo += segundosPorSegmento) {
+                // El primer segmento incluye la cabecera ID3 del fichero (offset 0, tras la etiqueta PRIV);
+                // el resto empieza en un frame
+                long inicio = segundo == 0 ? 0 : tabla[segundo];
+                int siguiente = segundo + segundosPorSegmento;
+                long fin = siguiente < tabla.length ? tabla[siguiente] : longitud;
+                double duracionSegmento = siguiente < tabla.length
+                    ? segundosPorSegmento
+                    : Math.max(0, duracion - segundo);
+                segmentos.add(guardarSegmento(audio, fuente, segmentos.size(), inicio, fin, segundo, duracionSegmento));
+            }
+
+            Update update = new Update()
+                .set("segmentos", segmentos)
+                .set("tablaBusqueda", tabla)
+                .set("duracion", duracion);
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(audio.getId())), update, Contenido.class);
+            // La copia en caché no tiene los segmentos: se recargará en la siguiente petición
+            audioCache.invalidar(audio.getId());
+            return segmentos;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo segmentar el audio " + audio.getId(), e);
+        }
+    }
+
+    private SegmentoAudio guardarSegmento(Audio audio, FuenteBinaria fuente, int indice,
+                                          long inicio, long fin, int segundoInicio, double duracion) throws IOException {
+        // Un segmento son ~10 s de audio (unos cientos de KB): se lee completo
+        byte[] datos;
+        try (InputStream in = fuente.abrirDesde(inicio)) {
+            datos = in.readNBytes((int) (fin - inicio));
+        }
+        InputStream conEtiqueta = new SequenceInputStream(
+            new ByteArrayInputStream(etiquetaTimestamp(segundoInicio * RELOJ_MPEG_HZ)),
+            new ByteArrayInputStream(datos));
+        BlobInfo blob = blobStorage.guardar(conEtiqueta, audio.getId() + "-" + indice + ".mp3", "audio/mpeg");
+        return new SegmentoAudio(blob.id(), blob.sha256(), duracion, blob.tamanoBytes());
+    }
+
+    /**
+     * Etiqueta ID3v2.4 con un único frame PRIV: propietario, byte nulo y el timestamp de 33 bits
+     * en 8 bytes big-endian. Los tamaños son menores de 128, así que su forma synchsafe es la normal.
+     */
+    static byte[] etiquetaTimestamp(long timestamp90kHz) {
+        byte[] propietario = PROPIETARIO_TIMESTAMP.getBytes(StandardCharsets.ISO_8859_1);
+        int datosFrame = propietario.length + 1 + Long.BYTES;
+        ByteBuffer etiqueta = ByteBuffer.allocate(10 + 10 + datosFrame);
+        etiqueta.put("ID3".getBytes(StandardCharsets.ISO_8859_1))
+            .put((byte) 4).put((byte) 0)   // versión 2.4.0
+            .put((byte) 0)                 // sin flags
+            .putInt(10 + datosFrame)       // tamaño sin la cabecera
+            .put("PRIV".getBytes(StandardCharsets.ISO_8859_1))
+            .putInt(datosFrame)
+            .putShort((short) 0)           // flags del frame
+            .put(propietario)
+            .put((byte) 0)
+            .putLong(timestamp90kHz & MASCARA_33_BITS);
+        return etiqueta.array();
+    }
+}
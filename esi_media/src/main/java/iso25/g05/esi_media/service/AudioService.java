@@ -1,16 +1,22 @@
 package iso25.g05.esi_media.service;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.Optional;
 
-import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import iso25.g05.esi_media.dto.AudioUploadDTO;
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
 import iso25.g05.esi_media.model.Audio;
 import iso25.g05.esi_media.model.GestordeContenido;
+import iso25.g05.esi_media.model.ImagenCaratula;
 import iso25.g05.esi_media.repository.AudioRepository;
 import iso25.g05.esi_media.repository.GestorDeContenidoRepository;
 
@@ -21,7 +27,9 @@ import iso25.g05.esi_media.repository.GestorDeContenidoRepository;
 @Service
 public class AudioService {
     
+    private static final Logger logger = LoggerFactory.getLogger(AudioService.class);
     private static final long MAX_FILE_SIZE = 2L * 1024 * 1024; // 2MB
+    private static final int BYTES_CABECERA = 12; // Bytes necesarios para detectar el formato
     private static final String[] ALLOWED_MIME_TYPES = {"audio/mpeg", "audio/mp3"};
     
     @Autowired
@@ -32,6 +40,24 @@ public class AudioService {
 
     @Autowired
     private VideoService videoService;
+
+    @Autowired
+    private BlobStorage blobStorage;
+
+    @Autowired
+    private CaratulaService caratulaService;
+
+    @Autowired
+    private BorradoBlobsService borradoBlobs;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private IndiceTitulosService indiceTitulos;
+
+    @Autowired
+    private CacheListadosService cacheListados;
     
     /**
      * Sube un nuevo archivo de audio validando el token de autorización
@@ -68,13 +94,48 @@ public class AudioService {
         // 2.1. Validar carátula si está presente
         validarCaratula(audioDTO.getCaratula());
         
-        // 3. Crear entidad Audio
-        Audio audio = crearAudioDesdeDTO(audioDTO, archivo, gestorId);
+        // 3. Subida en una sola pasada: se abre el stream una vez, se comprueban los magic bytes
+        //    de la cabecera y el resto se envía al almacén de blobs (que calcula el SHA-256 y
+        //    reutiliza el blob si ya existía uno idéntico) sin cargar el fichero en memoria.
+        //    En la misma pasada se recorren los frames MP3 para el índice de búsqueda
+        AnalizadorMp3 analizador = new AnalizadorMp3();
+        BlobInfo blob;
+        try (InputStream entrada = analizador.observar(abrirYValidarCabecera(archivo))) {
+            blob = blobStorage.guardar(entrada, archivo.getOriginalFilename(), archivo.getContentType());
+        }
         
-        // 4. Guardar en base de datos
-        Audio audioGuardado = audioRepository.save(audio);
+        // 4. Crear entidad Audio con la referencia al blob
+        Audio audio = crearAudioDesdeDTO(audioDTO, archivo, blob, gestorId);
+        aplicarIndice(audio, analizador.resultado());
+        CamposBusqueda.aplicar(audio);
+        
+        // 5. Guardar en base de datos (si falla, no dejamos el blob huérfano)
+        Audio audioGuardado;
+        try {
+            audioGuardado = audioRepository.save(audio);
+        } catch (RuntimeException e) {
+            // El blob puede ser compartido con otro audio idéntico (deduplicación por SHA-256)
+            borradoBlobs.eliminarSiHuerfano(blob.id(), "blobId");
+            // La carátula se guardó al crear la entidad: tampoco se deja huérfana
+            caratulaService.eliminarSiHuerfana(audio.getimagenCaratula());
+            throw e;
+        }
+
+        // 5.1. Si el blob se reutilizó de otro audio idéntico, ese audio pudo darse de baja entre la
+        //      subida y el save y llevarse el blob por huérfano (aún nadie lo referenciaba). Se cancela
+        //      el borrado que no haya empezado, se espera al que ya empezó y, si el blob ya no está,
+        //      se vuelve a subir (ver BorradoBlobsService)
+        borradoBlobs.confirmarReferencia(blob.id());
+        if (!existeBlob(blob.id())) {
+            audioGuardado = resubirBlob(audioGuardado, archivo);
+        }
         
-        // 5. Actualizar lista de contenidos del gestor
+        catalogoService.sincronizar(audioGuardado);
+        indiceTitulos.actualizar(audioGuardado);
+        cacheListados.invalidar(null, CacheListadosService.Visibilidad.de(audioGuardado));
+        caratulaService.programarMiniaturas(audioGuardado);
+
+        // 6. Actualizar lista de contenidos del gestor
         gestor.getContenidos_subidos().add(audioGuardado.getId());
         gestorRepository.save(gestor);
         
@@ -154,7 +215,7 @@ public class AudioService {
      * 1. Validación básica (tamaño, nombre)
      * 2. Verificación de MIME type (audio/mpeg, audio/mp3)
      * 3. Verificación de extensión (.mp3)
-     * 4. Verificación de magic bytes (cabeceras del archivo)
+     * La verificación de magic bytes se hace sobre el mismo stream de la subida.
      */
     private void validarArchivo(MultipartFile archivo) throws IOException {
         if (archivo == null || archivo.isEmpty()) {
@@ -195,19 +256,56 @@ public class AudioService {
         if (!filename.toLowerCase().endsWith(".mp3")) {
             throw new IllegalArgumentException("Extensión de archivo no válida. Se requiere archivo con extensión .mp3");
         }
-        
-        // Validar magic bytes (cabeceras del archivo)
-        validarMagicBytes(archivo);
+        // Los magic bytes se validan al abrir el stream de subida (abrirYValidarCabecera)
     }
     
+    private boolean existeBlob(String blobId) {
+        try {
+            blobStorage.obtenerInfo(blobId);
+            return true;
+        } catch (RecursoNoEncontradoException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sube otra vez el archivo y apunta el audio al blob nuevo (mismos bytes, mismo checksum).
+     */
+    private Audio resubirBlob(Audio audio, MultipartFile archivo) throws IOException {
+        logger.warn("El blob {} del audio {} se borró antes de referenciarlo; se vuelve a subir",
+            audio.getblobId(), audio.getId());
+        BlobInfo blob;
+        try (InputStream entrada = abrirYValidarCabecera(archivo)) {
+            blob = blobStorage.guardar(entrada, archivo.getOriginalFilename(), archivo.getContentType());
+        }
+        audio.setblobId(blob.id());
+        return audioRepository.save(audio);
+    }
+
+    /**
+     * Abre el stream del archivo una única vez y valida sus magic bytes.
+     * Los primeros bytes se devuelven al stream, que además corta la subida si se
+     * supera MAX_FILE_SIZE (el tamaño declarado por el cliente no es fiable).
+     */
+    private InputStream abrirYValidarCabecera(MultipartFile archivo) throws IOException {
+        PushbackInputStream entrada = new PushbackInputStream(archivo.getInputStream(), BYTES_CABECERA);
+        try {
+            // Leer los primeros 12 bytes para análisis de cabeceras
+            byte[] bytes = entrada.readNBytes(BYTES_CABECERA);
+            validarMagicBytes(bytes);
+            entrada.unread(bytes);
+        } catch (IOException | RuntimeException e) {
+            entrada.close();
+            throw e;
+        }
+        return new EntradaLimitada(entrada, MAX_FILE_SIZE);
+    }
+
     /**
      * Valida los magic bytes (cabeceras) del archivo MP3
      * Verifica que el archivo sea realmente un MP3 analizando sus primeros bytes
      */
-    private void validarMagicBytes(MultipartFile archivo) throws IOException {
-        // Leer los primeros 12 bytes para análisis de cabeceras
-        byte[] bytes = archivo.getInputStream().readNBytes(12);
-        
+    private void validarMagicBytes(byte[] bytes) {
         if (bytes.length < 4) {
             throw new IllegalArgumentException("Archivo demasiado pequeño para ser un MP3 válido");
         }
@@ -268,23 +366,18 @@ public class AudioService {
     }
     
     /**
-     * Crea la entidad Audio desde el DTO
+     * Crea la entidad Audio desde el DTO.
+     * El binario no se embebe: el documento solo guarda la referencia al blob.
      */
-    private Audio crearAudioDesdeDTO(AudioUploadDTO dto, MultipartFile archivo, String gestorId) throws IOException {
-        Binary audioBinary = new Binary(archivo.getBytes());
-        
-        // Procesar carátula si está presente
-        Object caratula = null;
+    private Audio crearAudioDesdeDTO(AudioUploadDTO dto, MultipartFile archivo, BlobInfo blob, String gestorId) throws IOException {
+        // La carátula se guarda como blob propio; el documento solo lleva la referencia
+        ImagenCaratula caratula = null;
         MultipartFile caratulaFile = dto.getCaratula();
         if (caratulaFile != null && !caratulaFile.isEmpty()) {
-            // Convertir la carátula a base64 string para mantener consistencia con video
-            byte[] caratulaBytes = caratulaFile.getBytes();
-            String base64String = java.util.Base64.getEncoder().encodeToString(caratulaBytes);
-            String mimeType = caratulaFile.getContentType();
-            caratula = "data:" + mimeType + ";base64," + base64String;
+            caratula = caratulaService.guardar(caratulaFile);
         }
         
-        return new Audio(
+        Audio audio = new Audio(
             null, // ID será generado por MongoDB
             dto.getTitulo(),
             dto.getDescripcion(),
@@ -295,13 +388,30 @@ public class AudioService {
             null,
             dto.getFechaDisponibleHasta(),
             dto.getEdadVisualizacion(),
-            caratula,
+            null,
             0, // Número de visualizaciones inicial
-            audioBinary,
+            null, // Sin binario embebido
             archivo.getContentType(),
-            archivo.getSize(),
+            blob.tamanoBytes(),
             gestorId
         );
+        audio.setblobId(blob.id());
+        audio.setchecksum(blob.sha256());
+        audio.setimagenCaratula(caratula);
+        return audio;
+    }
+    
+    /**
+     * La duración calculada a partir de los frames sustituye a la declarada por el cliente.
+     * Si no se encontraron frames MPEG se conserva la declarada y no hay tabla de búsqueda.
+     * La forma de onda sale de la misma pasada (envolvente de ganancia, sin decodificar).
+     */
+    private void aplicarIndice(Audio audio, Optional<IndiceMp3> indice) {
+        indice.ifPresent(i -> {
+            audio.setduracion(i.duracionSegundos());
+            audio.settablaBusqueda(i.tablaBusqueda());
+            audio.setpicos(FormaOnda.calcularPicos(i.ganancias(), FormaOnda.PUNTOS));
+        });
     }
     
     /**
@@ -317,4 +427,42 @@ public class AudioService {
         return audioRepository.findAllById(gestorOpt.get().getContenidos_subidos());
     }
     
-}
\ No newline at end of file
+    /**
+     * Stream que corta la lectura en cuanto se supera el tamaño máximo permitido,
+     * para que un cliente que declara un tamaño falso no pueda llenar el almacén.
+     */
+    private static final class EntradaLimitada extends FilterInputStream {
+        private final long maximo;
+        private long leidos;
+
+        EntradaLimitada(InputStream in, long maximo) {
+            super(in);
+            this.maximo = maximo;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                contar(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                contar(n);
+            }
+            return n;
+        }
+
+        private void contar(int n) {
+            leidos += n;
+            if (leidos > maximo) {
+                throw new IllegalArgumentException("El archivo excede el tamaño máximo de 2MB");
+            }
+        }
+    }
+}
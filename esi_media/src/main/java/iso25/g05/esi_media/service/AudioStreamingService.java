@@ -0,0 +1,306 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.exception.PeticionInvalidaException;
+import iso25.g05.esi_media.exception.RangoNoSatisfacibleException;
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+import iso25.g05.esi_media.model.Audio;
+
+/**
+ * Lógica de streaming de audio con soporte de rangos HTTP (RFC 7233).
+ *
+ * Qué resuelve:
+ * - Interpretar las cabeceras Range / If-Range y decidir si se responde 200 (completo),
+ *   206 (uno o varios rangos) o 416 (rango no satisfacible).
+ * - Escribir el cuerpo en trozos de tamaño fijo leyendo directamente del almacén,
+ *   sin materializar el fichero completo en el heap.
+ * - Servir los audios más reproducidos desde {@link AudioCacheService}.
+ * - Traducir una posición en segundos a un rango de bytes con la tabla de búsqueda MP3.
+ */
+@Service
+public class AudioStreamingService {
+
+    /** Máximo de rangos admitidos en una petición (tras fusionar solapados). */
+    private static final int MAX_RANGOS = 20;
+    private static final String CRLF = "\r\n";
+
+    private final BlobStorage blobStorage;
+    private final AudioCacheService audioCache;
+    private final int tamanoTrozo;
+
+    public AudioStreamingService(BlobStorage blobStorage,
+                                 AudioCacheService audioCache,
+                                 @Value("${app.streaming.chunk-bytes:65536}") int tamanoTrozo) {
+        this.blobStorage = blobStorage;
+        this.audioCache = audioCache;
+        this.tamanoTrozo = Math.max(1024, tamanoTrozo);
+    }
+
+    /**
+     * Devuelve la fuente de bytes del audio.
+     *
+     * Orden de búsqueda:
+     * - Caché de audios calientes (buffers directos fuera del heap).
+     * - Blob referenciado (fichero local o GridFS) o, para documentos aún no migrados,
+     *   el binario embebido. El primer byte nunca espera a la caché: la carga del fichero
+     *   se encola aparte ({@link AudioCacheService#registrarFallo}).
+     *
+     * @throws RecursoNoEncontradoException si el audio no tiene binario almacenado
+     */
+    public FuenteBinaria obtenerFuente(Audio audio) {
+        if (audio.getId() != null) {
+            Optional<AudioEnCache> enCache = audioCache.obtener(audio.getId());
+            if (enCache.isPresent()) {
+                return new FuenteBuffer(enCache.get().datos());
+            }
+        }
+
+        FuenteBinaria fuente = fuenteAlmacenada(audio);
+        if (audio.getId() != null) {
+            // El fallo se sirve del almacén; si el audio está caliente la caché se llena en segundo plano
+            audioCache.registrarFallo(audio, fuente);
+        }
+        return fuente;
+    }
+
+    private FuenteBinaria fuenteAlmacenada(Audio audio) {
+        if (audio.getfichero() != null && audio.getfichero().length() > 0) {
+            return new FuenteBuffer(ByteBuffer.wrap(audio.getfichero().getData()));
+        }
+        if (audio.getblobId() != null) {
+            return fuenteBlob(audio.getblobId(), audio.gettamanoBytes());
+        }
+        throw new RecursoNoEncontradoException("El audio no tiene fichero almacenado");
+    }
+
+    /**
+     * Fuente de bytes de un blob del almacén (fichero local si el backend lo permite).
+     *
+     * @param blobId identificador del blob
+     * @param tamanoBytes tamaño conocido; si es 0 se consulta al almacén
+     */
+    public FuenteBinaria fuenteBlob(String blobId, long tamanoBytes) {
+        long longitud = tamanoBytes > 0 ? tamanoBytes : blobStorage.obtenerInfo(blobId).tamanoBytes();
+        Path ruta = blobStorage.rutaLocal(blobId);
+        if (ruta != null) {
+            return new FuenteFichero(ruta, longitud);
+        }
+        return new FuenteBinaria() {
+            @Override
+            public long longitud() {
+                return longitud;
+            }
+
+            @Override
+            public InputStream abrirDesde(long posicion) throws IOException {
+                return blobStorage.abrirDesde(blobId, posicion);
+            }
+        };
+    }
+
+    /**
+     * ETag fuerte del audio derivado del checksum del contenido (null si no se conoce).
+     */
+    public String etag(Audio audio) {
+        return audio.getchecksum() != null ? "\"" + audio.getchecksum() + "\"" : null;
+    }
+
+    /**
+     * Indica si la cabecera If-None-Match coincide con el ETag actual, es decir, si el
+     * cliente ya tiene esta versión y se puede responder 304 sin cuerpo.
+     * Usa comparación débil (RFC 7232, sección 3.2): se ignora el prefijo {@code W/}.
+     */
+    public boolean coincideIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*")) {
+                return true;
+            }
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resuelve la cabecera Range contra la longitud del fichero.
+     *
+     * Reglas:
+     * - Sin Range, Range mal formado o If-Range que no coincide con el ETag: lista vacía (respuesta completa).
+     * - Rangos no satisfacibles se descartan; si no queda ninguno se lanza 416.
+     * - Rangos solapados o contiguos se fusionan y se ordenan.
+     *
+     * @param rangeHeader valor de la cabecera Range (puede ser null)
+     * @param ifRangeHeader valor de la cabecera If-Range (puede ser null)
+     * @param etag ETag actual del recurso (puede ser null)
+     * @param longitud tamaño total del fichero
+     * @return rangos a servir; vacía si se debe servir el fichero completo
+     * @throws RangoNoSatisfacibleException si ningún rango es satisfacible
+     */
+    public List<RangoBytes> resolverRangos(String rangeHeader, String ifRangeHeader, String etag, long longitud) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+        if (ifRangeHeader != null && !ifRangeCoincide(ifRangeHeader.trim(), etag)) {
+            return List.of();
+        }
+
+        List<HttpRange> solicitados;
+        try {
+            solicitados = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // Cabecera sintácticamente inválida: se ignora (RFC 7233, sección 3.1)
+            return List.of();
+        }
+
+        List<RangoBytes> rangos = new ArrayList<>();
+        for (HttpRange r : solicitados) {
+            try {
+                rangos.add(new RangoBytes(r.getRangeStart(longitud), r.getRangeEnd(longitud)));
+            } catch (IllegalArgumentException e) {
+                // Rango fuera del fichero: se descarta
+            }
+        }
+        if (rangos.isEmpty()) {
+            throw new RangoNoSatisfacibleException("Rango no satisfacible", longitud);
+        }
+
+        List<RangoBytes> fusionados = fusionar(rangos);
+        if (fusionados.size() > MAX_RANGOS) {
+            throw new RangoNoSatisfacibleException("Demasiados rangos en la petición", longitud);
+        }
+        return fusionados;
+    }
+
+    /**
+     * Traduce una posición temporal ({@code ?t=segundos}) al rango que empieza en el frame
+     * que contiene ese instante, de modo que buscar es una única lectura desde ese offset.
+     *
+     * Reglas:
+     * - Con tabla de búsqueda (calculada al subir) el offset es exacto a nivel de frame.
+     * - Audios sin analizar: estimación proporcional a la duración (exacta solo en CBR).
+     * - Segundos negativos: 400. Instante posterior al final del audio: 416.
+     *
+     * @param audio audio solicitado
+     * @param segundos instante pedido
+     * @param longitud tamaño total del fichero
+     * @return rango desde el frame hasta el final del fichero
+     */
+    public RangoBytes rangoDesdeInstante(Audio audio, double segundos, long longitud) {
+        if (Double.isNaN(segundos) || segundos < 0) {
+            throw new PeticionInvalidaException("El parámetro t debe ser un número de segundos no negativo");
+        }
+        double duracion = audio.getduracion();
+        if (duracion > 0 && segundos >= duracion) {
+            throw new RangoNoSatisfacibleException("El instante pedido supera la duración del audio", longitud);
+        }
+
+        long inicio;
+        int[] tabla = audio.gettablaBusqueda();
+        if (tabla != null && tabla.length > 0) {
+            inicio = tabla[(int) Math.min((long) segundos, tabla.length - 1L)];
+        } else if (duracion > 0) {
+            inicio = (long) (longitud * (segundos / duracion));
+        } else {
+            inicio = 0;
+        }
+        if (inicio >= longitud) {
+            throw new RangoNoSatisfacibleException("El instante pedido supera la duración del audio", longitud);
+        }
+        return new RangoBytes(inicio, longitud - 1);
+    }
+
+    /**
+     * Calcula el Content-Length de una respuesta multipart/byteranges.
+     */
+    public long longitudMultiparte(List<RangoBytes> rangos, String mimeType, String boundary, long longitudTotal) {
+        long total = 0;
+        for (RangoBytes r : rangos) {
+            total += cabeceraParte(r, mimeType, boundary, longitudTotal).length + r.longitud() + CRLF.length();
+        }
+        return total + ("--" + boundary + "--" + CRLF).length();
+    }
+
+    /**
+     * Escribe un único rango (o el fichero completo) en el stream de salida por trozos.
+     * Cada fuente elige la copia más barata: {@code transferTo} para ficheros locales,
+     * escritura directa del buffer para la caché y lectura por trozos para GridFS.
+     */
+    public void escribirRango(FuenteBinaria fuente, RangoBytes rango, OutputStream out) throws IOException {
+        fuente.escribirRango(rango, Channels.newChannel(out), tamanoTrozo);
+        out.flush();
+    }
+
+    /**
+     * Escribe varios rangos como cuerpo multipart/byteranges.
+     */
+    public void escribirMultiparte(FuenteBinaria fuente, List<RangoBytes> rangos, String mimeType,
+                                   String boundary, OutputStream out) throws IOException {
+        for (RangoBytes r : rangos) {
+            out.write(cabeceraParte(r, mimeType, boundary, fuente.longitud()));
+            escribirRango(fuente, r, out);
+            out.write(CRLF.getBytes(StandardCharsets.US_ASCII));
+        }
+        out.write(("--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private byte[] cabeceraParte(RangoBytes r, String mimeType, String boundary, long longitudTotal) {
+        String cabecera = "--" + boundary + CRLF
+            + "Content-Type: " + mimeType + CRLF
+            + "Content-Range: " + r.contentRange(longitudTotal) + CRLF
+            + CRLF;
+        return cabecera.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * If-Range solo se acepta con comparación fuerte de ETag. Una fecha nunca coincide
+     * porque no exponemos Last-Modified, así que en ese caso se sirve el fichero completo.
+     */
+    private boolean ifRangeCoincide(String ifRange, String etag) {
+        if (etag == null || ifRange.startsWith("W/")) {
+            return false;
+        }
+        return ifRange.equals(etag);
+    }
+
+    private List<RangoBytes> fusionar(List<RangoBytes> rangos) {
+        List<RangoBytes> ordenados = new ArrayList<>(rangos);
+        ordenados.sort(Comparator.comparingLong(RangoBytes::inicio));
+
+        List<RangoBytes> resultado = new ArrayList<>();
+        RangoBytes actual = ordenados.get(0);
+        for (int i = 1; i < ordenados.size(); i++) {
+            RangoBytes siguiente = ordenados.get(i);
+            if (siguiente.inicio() <= actual.fin() + 1) {
+                actual = new RangoBytes(actual.inicio(), Math.max(actual.fin(), siguiente.fin()));
+            } else {
+                resultado.add(actual);
+                actual = siguiente;
+            }
+        }
+        resultado.add(actual);
+        return resultado;
+    }
+}
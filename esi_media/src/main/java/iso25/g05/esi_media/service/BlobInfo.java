@@ -0,0 +1,12 @@
+package iso25.g05.esi_media.service;
+
+/**
+ * Metadatos de un fichero guardado en el almacén de blobs.
+ *
+ * @param id identificador del blob dentro del almacén
+ * @param tamanoBytes tamaño total en bytes
+ * @param sha256 checksum SHA-256 del contenido en hexadecimal
+ * @param mimeType tipo MIME con el que se guardó
+ */
+public record BlobInfo(String id, long tamanoBytes, String sha256, String mimeType) {
+}
@@ -0,0 +1,71 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Almacén de ficheros binarios (audios, carátulas) fuera de los documentos de contenido.
+ *
+ * Hay dos implementaciones intercambiables mediante {@code app.blobs.backend}:
+ * - {@code gridfs} (por defecto): {@link GridFsBlobStorage}, los bytes viven en MongoDB.
+ * - {@code local}: {@link LocalDiskBlobStorage}, ficheros en disco direccionados por SHA-256.
+ *
+ * En ambos casos MongoDB solo guarda en el contenido la referencia (blobId) y los metadatos.
+ */
+public interface BlobStorage {
+
+    /**
+     * Guarda el contenido del stream calculando el SHA-256 mientras se escribe.
+     *
+     * @param contenido stream con los bytes del fichero (no se cierra aquí)
+     * @param nombre nombre original del fichero (informativo)
+     * @param mimeType tipo MIME del fichero
+     * @return metadatos del blob guardado
+     */
+    BlobInfo guardar(InputStream contenido, String nombre, String mimeType);
+
+    /**
+     * Abre un stream de lectura sobre el blob. El llamador es responsable de cerrarlo.
+     *
+     * @throws iso25.g05.esi_media.exception.RecursoNoEncontradoException si el blob no existe
+     */
+    InputStream abrir(String blobId);
+
+    /**
+     * Abre un stream de lectura posicionado en el byte indicado.
+     */
+    InputStream abrirDesde(String blobId, long posicion) throws IOException;
+
+    /**
+     * Devuelve los metadatos del blob sin leer su contenido.
+     *
+     * @throws iso25.g05.esi_media.exception.RecursoNoEncontradoException si el blob no existe
+     */
+    BlobInfo obtenerInfo(String blobId);
+
+    /**
+     * Elimina el blob. Si no existe no hace nada.
+     */
+    void eliminar(String blobId);
+
+    /**
+     * Ruta del fichero en disco si el almacén es local, o null si los bytes no viven
+     * en el sistema de ficheros. Permite servir rangos con {@code FileChannel.transferTo}.
+     */
+    default Path rutaLocal(String blobId) {
+        return null;
+    }
+
+    /**
+     * Lee el blob completo en memoria. Pensado para ficheros pequeños o compatibilidad.
+     */
+    default byte[] leerCompleto(String blobId) {
+        try (InputStream in = abrir(blobId)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo el blob " + blobId, e);
+        }
+    }
+}
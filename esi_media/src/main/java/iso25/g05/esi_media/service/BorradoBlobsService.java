@@ -0,0 +1,123 @@
+package iso25.g05.esi_media.service;
+
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+
+import iso25.g05.esi_media.model.Contenido;
+
+/**
+ * Borrado de blobs compartidos (audios idénticos reutilizan el mismo blob por SHA-256).
+ *
+ * Por qué existe: comprobar "nadie lo referencia" y borrar no es atómico. Una subida idéntica
+ * podía reutilizar el blob, guardar su audio y comprobar que el blob existía justo entre la
+ * comprobación y el borrado, y quedarse apuntando a un blob borrado.
+ *
+ * Protocolo, con un documento por blob en {@value #COLECCION}:
+ * - Quien borra crea la marca, comprueba que ningún contenido referencia el blob y la reclama
+ *   de forma condicional ({@code borrando: false -> true}). Solo si la reclama borra el blob;
+ *   al terminar quita la marca.
+ * - La subida, con su contenido ya guardado, llama a {@link #confirmarReferencia(String)}: retira
+ *   la marca si aún no se ha reclamado (ese borrado se cancela) y, si ya se reclamó, espera a que
+ *   termine. Después comprueba que el blob existe y si no lo vuelve a subir.
+ *
+ * Si la subida retira la marca antes de la reclamación, el borrado no ocurre; si llega después,
+ * espera al borrado y lo ve. Si un borrado se interrumpe con la marca reclamada, la espera se corta
+ * a los {@code app.blobs.espera-borrado-ms}.
+ */
+@Service
+public class BorradoBlobsService {
+
+    private static final Logger log = LoggerFactory.getLogger(BorradoBlobsService.class);
+
+    static final String COLECCION = "blobs_en_borrado";
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_BORRANDO = "borrando";
+    private static final long PAUSA_ESPERA_MS = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private final BlobStorage blobStorage;
+    private final long esperaMaxMs;
+
+    public BorradoBlobsService(MongoTemplate mongoTemplate, BlobStorage blobStorage,
+                               @Value("${app.blobs.espera-borrado-ms:5000}") long esperaMaxMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.blobStorage = blobStorage;
+        this.esperaMaxMs = Math.max(0, esperaMaxMs);
+    }
+
+    /**
+     * Borra el blob si ningún contenido lo referencia en {@code campo}.
+     *
+     * @param blobId blob candidato
+     * @param campo campo de {@link Contenido} que guarda la referencia ("blobId", "segmentos.blobId")
+     * @return true si se borró
+     */
+    public boolean eliminarSiHuerfano(String blobId, String campo) {
+        if (blobId == null) {
+            return false;
+        }
+        mongoTemplate.upsert(porId(blobId),
+            new Update().setOnInsert(FIELD_BORRANDO, false).setOnInsert("desde", new Date()), COLECCION);
+
+        if (mongoTemplate.exists(new Query(Criteria.where(campo).is(blobId)), Contenido.class)) {
+            mongoTemplate.remove(sinReclamar(blobId), COLECCION);
+            return false;
+        }
+        UpdateResult reclamada = mongoTemplate.updateFirst(sinReclamar(blobId),
+            Update.update(FIELD_BORRANDO, true), COLECCION);
+        if (reclamada.getModifiedCount() == 0) {
+            // Una subida retiró la marca (vuelve a estar en uso) u otro borrado ya la reclamó
+            return false;
+        }
+        try {
+            blobStorage.eliminar(blobId);
+        } finally {
+            mongoTemplate.remove(porId(blobId), COLECCION);
+        }
+        return true;
+    }
+
+    /**
+     * Anuncia que un contenido ya guardado referencia el blob: cancela un borrado aún no reclamado
+     * y espera a que termine uno en curso. Quien llama debe comprobar después que el blob existe.
+     */
+    public void confirmarReferencia(String blobId) {
+        if (blobId == null) {
+            return;
+        }
+        mongoTemplate.remove(sinReclamar(blobId), COLECCION);
+
+        long limite = System.currentTimeMillis() + esperaMaxMs;
+        Query enCurso = new Query(Criteria.where(FIELD_ID).is(blobId).and(FIELD_BORRANDO).is(true));
+        while (mongoTemplate.exists(enCurso, COLECCION)) {
+            if (System.currentTimeMillis() >= limite) {
+                log.warn("El borrado del blob {} sigue marcado tras {} ms; se continúa sin esperar", blobId, esperaMaxMs);
+                return;
+            }
+            try {
+                Thread.sleep(PAUSA_ESPERA_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static Query porId(String blobId) {
+        return new Query(Criteria.where(FIELD_ID).is(blobId));
+    }
+
+    private static Query sinReclamar(String blobId) {
+        return new Query(Criteria.where(FIELD_ID).is(blobId).and(FIELD_BORRANDO).is(false));
+    }
+}
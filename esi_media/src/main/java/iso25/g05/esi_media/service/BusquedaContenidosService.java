@@ -0,0 +1,193 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.bson.Document;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.model.IndexOptions;
+
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.repository.ContenidoRepository;
+
+/**
+ * Búsqueda de contenidos por texto con un índice de texto de MongoDB.
+ *
+ * Por qué existe: los métodos search* de ContenidoRepository hacen {@code $regex} sin anclar
+ * y sin distinguir mayúsculas sobre título y descripción, que siempre recorre la colección
+ * entera; el coste crecía con el catálogo. El índice de texto resuelve las palabras buscadas
+ * y ordena por relevancia.
+ *
+ * Reglas:
+ * - Índice "contenidos_texto" ({@link #crearIndice()}) con pesos título (10) > descripción (4) > tags (2), en español:
+ *   raíces ("canciones" encuentra "canción") y sin palabras vacías ("de", "la"...).
+ * - Se busca por palabras completas o su raíz, no por fragmentos: el autocompletado por prefijo
+ *   es otra cosa.
+ * - Sin orden explícito se ordena por puntuación de texto; con {@code sort} se respeta el del cliente.
+ * - Visibilidad, VIP, edad y tipo se aplican igual que en las consultas search* de siempre.
+ * - Si el índice no existe (no se pudo crear) se busca por prefijo anclado en las palabras
+ *   normalizadas (ver {@link CamposBusqueda}): sin tildes ni mayúsculas y con índice, todas las
+ *   palabras buscadas tienen que empezar alguna palabra del contenido.
+ * - Si tampoco están rellenas las palabras normalizadas, los métodos devuelven vacío y el
+ *   llamador usa las consultas search* de ContenidoRepository.
+ */
+@Service
+public class BusquedaContenidosService {
+
+    static final String INDICE_TEXTO = "contenidos_texto";
+    private static final String IDIOMA = "spanish";
+
+    private static final String FIELD_ESTADO = "estado";
+    private static final String FIELD_VIP = "vip";
+    private static final String FIELD_EDAD = "edadvisualizacion";
+    private static final String TIPO_VIDEO = "VIDEO";
+    private static final String TIPO_AUDIO = "AUDIO";
+
+    /** Campos del resumen (los mismos que la proyección de los listados paginados). */
+    private static final List<String> CAMPOS_RESUMEN =
+        List.copyOf(Document.parse(ContenidoRepository.CAMPOS_RESUMEN).keySet());
+
+    private final MongoTemplate mongoTemplate;
+
+    /** True cuando el índice de texto existe y las búsquedas pueden usar {@code $text}. */
+    private volatile boolean indiceListo;
+    /** True cuando todos los contenidos tienen palabrasBusqueda (NormalizacionContenidosService). */
+    private volatile boolean camposNormalizados;
+
+    public BusquedaContenidosService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public boolean indiceListo() {
+        return indiceListo;
+    }
+
+    public void marcarCamposNormalizados() {
+        camposNormalizados = true;
+    }
+
+    /**
+     * Crea el índice de texto de "contenidos" (la creación automática está desactivada en
+     * MongoRegistroConfig). Solo puede haber uno por colección; si ya hay otro distinto falla.
+     *
+     * Estado, VIP y edad van como claves de sufijo: el filtro de visibilidad se resuelve en el
+     * propio índice, sin leer los documentos que no se pueden ver.
+     */
+    public void crearIndice() {
+        Document claves = new Document("titulo", "text")
+            .append("descripcion", "text")
+            .append("tags", "text")
+            .append(FIELD_ESTADO, 1)
+            .append(FIELD_VIP, 1)
+            .append(FIELD_EDAD, 1);
+        IndexOptions opciones = new IndexOptions()
+            .name(INDICE_TEXTO)
+            .weights(new Document("titulo", 10).append("descripcion", 4).append("tags", 2))
+            .defaultLanguage(IDIOMA)
+            // Contenido no tiene campo de idioma: así un "language" suelto no cambia el análisis
+            .languageOverride("idiomaBusqueda");
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Contenido.class)).createIndex(claves, opciones);
+        indiceListo = true;
+    }
+
+    /**
+     * Búsqueda para visualizadores: visibles, permitidos para su edad y, si no es VIP, sin VIP.
+     *
+     * @return la página (ordenada por relevancia si hay índice de texto), o vacío si hay que usar
+     *         las consultas $regex
+     */
+    public Optional<Page<Contenido>> buscarParaVisualizador(String texto, int edad, boolean vip, String tipo,
+                                                            Pageable pageable) {
+        return consulta(texto, tipo, pageable).map(query -> {
+            query.addCriteria(Criteria.where(FIELD_ESTADO).is(true))
+                .addCriteria(Criteria.where(FIELD_EDAD).lte(edad));
+            if (!vip) {
+                query.addCriteria(Criteria.where(FIELD_VIP).is(false));
+            }
+            return pagina(query, pageable);
+        });
+    }
+
+    /**
+     * Búsqueda para gestores: todos los contenidos, también los ocultos.
+     *
+     * @return la página (ordenada por relevancia si hay índice de texto), o vacío si hay que usar
+     *         las consultas $regex
+     */
+    public Optional<Page<Contenido>> buscarParaGestor(String texto, String tipo, Pageable pageable) {
+        return consulta(texto, tipo, pageable).map(query -> pagina(query, pageable));
+    }
+
+    /**
+     * Criterio {@code $text} con el idioma del índice, para agregaciones que filtran por texto.
+     *
+     * @return el criterio, o vacío si el índice no existe
+     */
+    public Optional<TextCriteria> criterioTexto(String texto) {
+        if (!indiceListo) {
+            return Optional.empty();
+        }
+        return Optional.of(TextCriteria.forLanguage(IDIOMA).matching(texto));
+    }
+
+    /**
+     * Criterio por palabras normalizadas: cada palabra buscada es un prefijo anclado
+     * ({@code ^cancion}) de alguna palabra del contenido.
+     *
+     * @return el criterio, o vacío si los campos aún no están rellenos o el texto no tiene palabras
+     */
+    public Optional<Criteria> criterioPalabras(String texto) {
+        if (!camposNormalizados) {
+            return Optional.empty();
+        }
+        List<String> palabras = CamposBusqueda.palabras(texto);
+        if (palabras.isEmpty()) {
+            return Optional.empty();
+        }
+        // Las palabras solo tienen letras y dígitos: el prefijo no necesita escaparse
+        Object[] prefijos = palabras.stream().map(p -> Pattern.compile("^" + p)).toArray();
+        return Optional.of(Criteria.where(CamposBusqueda.FIELD_PALABRAS).all(prefijos));
+    }
+
+    private Optional<Query> consulta(String texto, String tipo, Pageable pageable) {
+        Query query;
+        if (indiceListo) {
+            TextQuery textQuery = TextQuery.queryText(TextCriteria.forLanguage(IDIOMA).matching(texto));
+            if (pageable.getSort().isUnsorted()) {
+                textQuery.sortByScore();
+            }
+            query = textQuery;
+        } else {
+            Optional<Criteria> palabras = criterioPalabras(texto);
+            if (palabras.isEmpty()) {
+                return Optional.empty();
+            }
+            query = new Query(palabras.get());
+        }
+        // Mismo criterio de tipo que las consultas search* (campos característicos de cada clase)
+        if (TIPO_VIDEO.equalsIgnoreCase(tipo)) {
+            query.addCriteria(Criteria.where("url").exists(true));
+        } else if (TIPO_AUDIO.equalsIgnoreCase(tipo)) {
+            query.addCriteria(Criteria.where("mimeType").exists(true));
+        }
+        CAMPOS_RESUMEN.forEach(query.fields()::include);
+        return Optional.of(query);
+    }
+
+    private Page<Contenido> pagina(Query query, Pageable pageable) {
+        // Query.of conserva la puntuación de TextQuery en la proyección y el orden
+        List<Contenido> contenidos = mongoTemplate.find(Query.of(query).with(pageable), Contenido.class);
+        return PageableExecutionUtils.getPage(contenidos, pageable,
+            () -> mongoTemplate.count(Query.of(query).skip(-1).limit(-1), Contenido.class));
+    }
+}
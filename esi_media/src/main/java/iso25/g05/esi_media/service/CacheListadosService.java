@@ -0,0 +1,206 @@
+package iso25.g05.esi_media.service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.dto.ContenidoResumenDTO;
+import iso25.g05.esi_media.dto.EstadisticasCacheListadosDTO;
+import iso25.g05.esi_media.mapper.CatalogoMapper;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.TipoContenido;
+import iso25.g05.esi_media.service.ConteosCatalogo.Forma;
+
+/**
+ * Caché LRU con TTL de las páginas de los listados y búsquedas (resúmenes ya mapeados).
+ *
+ * Por qué existe: miles de usuarios con los mismos permisos piden las mismas páginas y cada
+ * petición repetía la consulta. La respuesta solo depende del tramo de permisos
+ * ({@link ConteosCatalogo.Forma}: rol, tipo, VIP y tramo de edad), el texto buscado y la
+ * página, así que la clave es esa y no el usuario.
+ *
+ * Reglas:
+ * - Límite por número de páginas ({@code app.catalogo.cache-paginas.max-entradas}); al superarlo
+ *   se expulsan las menos usadas recientemente. Con 0 la caché no guarda nada.
+ * - Cada alta, modificación, ocultación o baja de un contenido llama a {@link #invalidar} con su
+ *   estado anterior y el nuevo: se descartan las páginas de los tramos que podían verlo antes o
+ *   pueden verlo ahora (todas las de ese tramo, porque el cambio desplaza las páginas siguientes
+ *   y cambia los totales), y el resto se conserva.
+ * - El TTL ({@code app.catalogo.cache-paginas.ttl-segundos}) cubre lo que no pasa por aquí:
+ *   escrituras de otra instancia, el contador de visualizaciones (orden "más vistos") y la
+ *   migración de carátulas (la URL antigua sigue sirviendo la imagen).
+ * - Una página calculada mientras hubo una invalidación no se guarda (puede no incluir el cambio).
+ * - Las páginas se comparten entre peticiones: quien las recibe no debe modificar sus elementos.
+ */
+@Service
+public class CacheListadosService {
+
+    /**
+     * Clave de una página: tramo de permisos, texto buscado (null sin búsqueda) y paginación.
+     */
+    record Clave(Forma forma, String texto, int pagina, int tamano, Sort orden) {
+
+        /** @return la clave, o null si la petición no es paginada (no se cachea) */
+        static Clave gestor(String tipo, String texto, Pageable pageable) {
+            return de(Forma.gestor(TipoContenido.desde(tipo)), texto, pageable);
+        }
+
+        /** @return la clave, o null si la petición no es paginada (no se cachea) */
+        static Clave visualizador(String tipo, boolean vip, int edad, String texto, Pageable pageable) {
+            return de(Forma.visualizador(TipoContenido.desde(tipo), vip, edad), texto, pageable);
+        }
+
+        private static Clave de(Forma forma, String texto, Pageable pageable) {
+            if (pageable == null || pageable.isUnpaged()) {
+                return null;
+            }
+            return new Clave(forma, normalizarTexto(texto), pageable.getPageNumber(), pageable.getPageSize(),
+                pageable.getSort());
+        }
+
+        /**
+         * Todas las búsquedas ignoran mayúsculas, pero no los espacios: $regex los tiene en cuenta.
+         */
+        private static String normalizarTexto(String texto) {
+            return texto == null || texto.isBlank() ? null : texto.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Atributos de un contenido que deciden qué tramos lo ven.
+     */
+    record Visibilidad(TipoContenido tipo, boolean estado, boolean vip, int edad) {
+
+        /** @return la visibilidad del contenido, o null si no hay contenido */
+        static Visibilidad de(Contenido contenido) {
+            if (contenido == null) {
+                return null;
+            }
+            return new Visibilidad(CatalogoMapper.tipoDe(contenido), contenido.isestado(), contenido.isvip(),
+                ConteosCatalogo.tramoEdad(contenido.getedadvisualizacion()));
+        }
+
+        boolean visiblePara(Forma forma) {
+            // Sin tipo conocido se trata como visible en cualquier filtro de tipo
+            if (tipo != null && forma.tipo() != null && forma.tipo() != tipo) {
+                return false;
+            }
+            if (forma.gestor()) {
+                return true;
+            }
+            return estado && (forma.vip() || !vip) && edad <= forma.tramoEdad();
+        }
+    }
+
+    private record PaginaEnCache(Page<ContenidoResumenDTO> pagina, long expiraNanos) {}
+
+    private final int maxEntradas;
+    private final long ttlNanos;
+
+    /** Orden de acceso: la primera entrada es la menos usada recientemente. */
+    private final LinkedHashMap<Clave, PaginaEnCache> paginas = new LinkedHashMap<>(256, 0.75f, true);
+    /** Cambia en cada invalidación; una página calculada con otra generación no se guarda. */
+    private final AtomicLong generacion = new AtomicLong();
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong expulsiones = new AtomicLong();
+    private final AtomicLong caducadas = new AtomicLong();
+    private final AtomicLong invalidadas = new AtomicLong();
+
+    public CacheListadosService(@Value("${app.catalogo.cache-paginas.max-entradas:5000}") int maxEntradas,
+                                @Value("${app.catalogo.cache-paginas.ttl-segundos:60}") long ttlSegundos) {
+        this.maxEntradas = Math.max(0, maxEntradas);
+        this.ttlNanos = Math.max(0, ttlSegundos) * 1_000_000_000L;
+    }
+
+    /**
+     * Generación actual: se lee antes de calcular una página y se pasa a {@link #guardar}.
+     */
+    long generacion() {
+        return generacion.get();
+    }
+
+    /**
+     * Busca la página en caché y actualiza las métricas de aciertos.
+     */
+    Optional<Page<ContenidoResumenDTO>> obtener(Clave clave) {
+        if (clave == null || maxEntradas == 0) {
+            return Optional.empty();
+        }
+        PaginaEnCache guardada;
+        synchronized (this) {
+            guardada = paginas.get(clave);
+            if (guardada != null && guardada.expiraNanos() - System.nanoTime() <= 0) {
+                paginas.remove(clave);
+                caducadas.incrementAndGet();
+                guardada = null;
+            }
+        }
+        (guardada != null ? aciertos : fallos).incrementAndGet();
+        return guardada != null ? Optional.of(guardada.pagina()) : Optional.empty();
+    }
+
+    /**
+     * Guarda la página calculada, salvo que haya habido una invalidación desde {@code generacionAlCalcular}.
+     */
+    void guardar(Clave clave, Page<ContenidoResumenDTO> pagina, long generacionAlCalcular) {
+        if (clave == null || pagina == null || maxEntradas == 0) {
+            return;
+        }
+        PaginaEnCache nueva = new PaginaEnCache(pagina, System.nanoTime() + ttlNanos);
+        synchronized (this) {
+            // invalidar() incrementa la generación con el mismo bloqueo: o se ve aquí o borra la página
+            if (generacion.get() != generacionAlCalcular) {
+                return;
+            }
+            paginas.put(clave, nueva);
+            Iterator<PaginaEnCache> it = paginas.values().iterator();
+            while (paginas.size() > maxEntradas && it.hasNext()) {
+                it.next();
+                it.remove();
+                expulsiones.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Descarta las páginas de los tramos que veían el contenido antes del cambio o lo ven después.
+     *
+     * @param antes estado anterior (null en un alta)
+     * @param despues estado nuevo (null en una baja)
+     */
+    synchronized void invalidar(Visibilidad antes, Visibilidad despues) {
+        generacion.incrementAndGet();
+        if (antes == null && despues == null) {
+            return;
+        }
+        // Hay pocas formas distintas: se decide una vez por forma
+        Map<Forma, Boolean> afectadas = new HashMap<>();
+        Iterator<Clave> it = paginas.keySet().iterator();
+        while (it.hasNext()) {
+            Forma forma = it.next().forma();
+            boolean afectada = afectadas.computeIfAbsent(forma,
+                f -> (antes != null && antes.visiblePara(f)) || (despues != null && despues.visiblePara(f)));
+            if (afectada) {
+                it.remove();
+                invalidadas.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized EstadisticasCacheListadosDTO estadisticas() {
+        return new EstadisticasCacheListadosDTO(aciertos.get(), fallos.get(), paginas.size(), maxEntradas,
+            expulsiones.get(), caducadas.get(), invalidadas.get());
+    }
+}
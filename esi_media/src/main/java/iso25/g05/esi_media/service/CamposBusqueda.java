@@ -0,0 +1,102 @@
+package iso25.g05.esi_media.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.data.mongodb.core.query.Update;
+
+import iso25.g05.esi_media.model.Contenido;
+
+/**
+ * Copias normalizadas de título, descripción y tags para buscar sin distinguir tildes ni
+ * mayúsculas ("cancion" encuentra "Canción").
+ *
+ * Un $regex con la opción 'i' no iguala "o" y "ó", y tampoco puede usar un índice. Por eso cada
+ * contenido guarda, además, sus textos en minúsculas y sin marcas diacríticas, y la lista de sus
+ * palabras (palabrasBusqueda). Una palabra buscada se resuelve con un prefijo anclado
+ * ({@code ^cancion}) sobre esa lista, que usa el índice "contenidos_palabras".
+ *
+ * Los servicios que guardan contenidos llaman a {@link #aplicar} antes de cada save; los
+ * contenidos anteriores los rellena NormalizacionContenidosService.
+ */
+public final class CamposBusqueda {
+
+    static final String FIELD_TITULO_NORMALIZADO = "tituloNormalizado";
+    static final String FIELD_DESCRIPCION_NORMALIZADA = "descripcionNormalizada";
+    static final String FIELD_TAGS_NORMALIZADOS = "tagsNormalizados";
+    static final String FIELD_PALABRAS = "palabrasBusqueda";
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    /** Tope de palabras por contenido (las descripciones largas no hinchan el índice). */
+    private static final int MAX_PALABRAS = 300;
+
+    private CamposBusqueda() { }
+
+    /** Minúsculas, sin tildes ni diéresis y con los espacios reducidos a uno. */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinMarcas = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinMarcas.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * @return las palabras normalizadas del texto, sin repetir y en orden de aparición (solo
+     *         letras y dígitos, así que se pueden usar tal cual en un prefijo de $regex)
+     */
+    public static List<String> palabras(String texto) {
+        Set<String> palabras = new LinkedHashSet<>();
+        anadirPalabras(texto, palabras);
+        return new ArrayList<>(palabras);
+    }
+
+    /** Rellena las copias normalizadas a partir de título, descripción y tags del contenido. */
+    public static void aplicar(Contenido contenido) {
+        contenido.settituloNormalizado(normalizar(contenido.gettitulo()));
+        contenido.setdescripcionNormalizada(normalizar(contenido.getdescripcion()));
+        List<String> tags = new ArrayList<>();
+        if (contenido.gettags() != null) {
+            for (String tag : contenido.gettags()) {
+                String normalizado = normalizar(tag);
+                if (!normalizado.isEmpty()) {
+                    tags.add(normalizado);
+                }
+            }
+        }
+        contenido.settagsNormalizados(tags);
+
+        Set<String> palabras = new LinkedHashSet<>();
+        anadirPalabras(contenido.gettitulo(), palabras);
+        tags.forEach(tag -> anadirPalabras(tag, palabras));
+        anadirPalabras(contenido.getdescripcion(), palabras);
+        contenido.setpalabrasBusqueda(new ArrayList<>(palabras));
+    }
+
+    /** $set de las copias normalizadas (ya calculadas con {@link #aplicar}). */
+    static Update actualizacion(Contenido contenido) {
+        return new Update()
+            .set(FIELD_TITULO_NORMALIZADO, contenido.gettituloNormalizado())
+            .set(FIELD_DESCRIPCION_NORMALIZADA, contenido.getdescripcionNormalizada())
+            .set(FIELD_TAGS_NORMALIZADOS, contenido.gettagsNormalizados())
+            .set(FIELD_PALABRAS, contenido.getpalabrasBusqueda());
+    }
+
+    private static void anadirPalabras(String texto, Set<String> palabras) {
+        for (String palabra : SEPARADORES.split(normalizar(texto))) {
+            if (palabras.size() == MAX_PALABRAS) {
+                return;
+            }
+            if (!palabra.isEmpty()) {
+                palabras.add(palabra);
+            }
+        }
+    }
+}
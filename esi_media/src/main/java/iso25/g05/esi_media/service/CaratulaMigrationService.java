@@ -0,0 +1,85 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * Migración en caliente de las carátulas guardadas como data URI ("caratula") al almacén de blobs.
+ *
+ * Cómo funciona:
+ * - Busca por lotes los ids de contenidos cuya carátula empieza por "data:" (solo proyecta el _id).
+ * - Para cada id carga únicamente la carátula y la pasa a blob con {@link CaratulaService#migrar},
+ *   que solo actualiza si el documento no ha cambiado entretanto (idempotente si se relanza).
+ */
+@Service
+public class CaratulaMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaratulaMigrationService.class);
+
+    private static final String COLLECTION_CONTENIDOS = "contenidos";
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_CARATULA = "caratula";
+    private static final String REGEX_DATA_URI = "^data:";
+
+    private final MongoTemplate mongoTemplate;
+    private final CaratulaService caratulaService;
+    private final int tamanoLote;
+
+    public CaratulaMigrationService(MongoTemplate mongoTemplate,
+                                    CaratulaService caratulaService,
+                                    @Value("${app.caratulas.migracion.lote:50}") int tamanoLote) {
+        this.mongoTemplate = mongoTemplate;
+        this.caratulaService = caratulaService;
+        this.tamanoLote = Math.max(1, tamanoLote);
+    }
+
+    /**
+     * Ejecuta la migración completa en segundo plano, lote a lote.
+     */
+    @Async
+    public void migrarEnSegundoPlano() {
+        try {
+            int total = 0;
+            int procesados;
+            do {
+                procesados = migrarLote();
+                total += procesados;
+            } while (procesados > 0);
+            logger.info("Migración de carátulas a blobs finalizada. Contenidos procesados: {}", total);
+        } catch (Exception e) {
+            logger.error("Error durante la migración de carátulas a blobs: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Migra un lote de carátulas en data URI.
+     *
+     * @return número de contenidos procesados en este lote (0 cuando ya no quedan). Incluye las
+     *         carátulas corruptas, que se eliminan para no volver a procesarlas.
+     */
+    public int migrarLote() {
+        Query pendientes = new Query(Criteria.where(FIELD_CARATULA).regex(REGEX_DATA_URI)).limit(tamanoLote);
+        pendientes.fields().include(FIELD_ID);
+        List<Document> ids = mongoTemplate.find(pendientes, Document.class, COLLECTION_CONTENIDOS);
+
+        for (Document doc : ids) {
+            Object id = doc.get(FIELD_ID);
+            Query porId = new Query(Criteria.where(FIELD_ID).is(id).and(FIELD_CARATULA).regex(REGEX_DATA_URI));
+            porId.fields().include(FIELD_CARATULA);
+            Document conCaratula = mongoTemplate.findOne(porId, Document.class, COLLECTION_CONTENIDOS);
+            if (conCaratula != null) {
+                caratulaService.migrar(id.toString(), conCaratula.getString(FIELD_CARATULA));
+            }
+        }
+        return ids.size();
+    }
+}
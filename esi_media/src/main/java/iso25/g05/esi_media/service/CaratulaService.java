@@ -0,0 +1,337 @@
+package iso25.g05.esi_media.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.mongodb.client.result.UpdateResult;
+
+import iso25.g05.esi_media.exception.PeticionInvalidaException;
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.VarianteCaratula;
+
+/**
+ * Carátulas de los contenidos guardadas en el almacén de blobs.
+ *
+ * Por qué existe: la carátula se guardaba como data URI en base64 dentro del documento y
+ * se copiaba en cada ContenidoResumenDTO, así que una página de 20 tarjetas pesaba megas de
+ * JSON. Ahora la imagen es un blob aparte, el documento solo guarda su referencia
+ * ({@link ImagenCaratula}) y los DTOs llevan la URL de {@code GET /multimedia/{id}/caratula}.
+ *
+ * Reglas:
+ * - La URL lleva {@code ?v=} con el principio del SHA-256: si la carátula cambia, cambia la URL,
+ *   y la respuesta se puede cachear un año como inmutable.
+ * - Los listados piden la miniatura de {@value #ANCHO_TARJETA} px ({@code &tam=}); las miniaturas
+ *   las genera {@link MiniaturaService} en segundo plano y, mientras no existan, se sirve la original.
+ * - Una carátula en forma de URL externa (http/https) se guarda y devuelve tal cual.
+ * - Los data URI que queden en documentos antiguos se migran al pedir la carátula o con
+ *   {@link CaratulaMigrationService}.
+ */
+@Service
+public class CaratulaService {
+
+    private static final Logger log = LoggerFactory.getLogger(CaratulaService.class);
+
+    private static final String PREFIJO_DATA_URI = "data:";
+    private static final String SUFIJO_BASE64 = ";base64";
+    private static final long MAX_BYTES = 1024L * 1024L;
+    private static final String CAMPO_CARATULA = "caratula";
+    private static final String CAMPO_IMAGEN = "imagenCaratula";
+    private static final String TIPO_PNG = "image/png";
+    private static final String TIPO_JPEG = "image/jpeg";
+    /** Tipo con el que se sirve una imagen guardada con un tipo no permitido (p. ej. SVG antiguo). */
+    private static final String TIPO_DESCONOCIDO = "application/octet-stream";
+    private static final byte[] FIRMA_PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] FIRMA_JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    /** Ancho con el que se pintan las tarjetas de los listados. */
+    static final int ANCHO_TARJETA = 160;
+
+    private final BlobStorage blobStorage;
+    private final MongoTemplate mongoTemplate;
+    private final MiniaturaService miniaturas;
+    private final CatalogoService catalogo;
+    private final String urlBase;
+
+    public CaratulaService(BlobStorage blobStorage, MongoTemplate mongoTemplate, MiniaturaService miniaturas,
+                           CatalogoService catalogo, @Value("${app.backend.url}") String urlBase) {
+        this.blobStorage = blobStorage;
+        this.mongoTemplate = mongoTemplate;
+        this.miniaturas = miniaturas;
+        this.catalogo = catalogo;
+        this.urlBase = urlBase.endsWith("/") ? urlBase.substring(0, urlBase.length() - 1) : urlBase;
+    }
+
+    /**
+     * Guarda la carátula subida como fichero (ya validada por el llamador).
+     */
+    public ImagenCaratula guardar(MultipartFile archivo) throws IOException {
+        try (InputStream in = archivo.getInputStream()) {
+            String tipo = tipoServible(archivo.getContentType());
+            BlobInfo blob = blobStorage.guardar(in, archivo.getOriginalFilename(), tipo);
+            return new ImagenCaratula(blob.id(), blob.sha256(), tipo, blob.tamanoBytes());
+        }
+    }
+
+    /**
+     * Asigna la carátula recibida en JSON: un data URI se guarda como blob y una URL externa
+     * se guarda tal cual. La imagen anterior no se borra aquí (ver {@link #eliminarSiHuerfana}).
+     * Si el cliente reenvía la URL de la carátula actual (la que recibió en el DTO) no cambia nada.
+     *
+     * @throws PeticionInvalidaException si el data URI no es un PNG o JPEG en base64 o supera 1 MB
+     */
+    public void asignar(Contenido contenido, Object caratula) {
+        if (caratula instanceof String s && contenido.getId() != null
+                && s.startsWith(urlEndpoint(contenido))) {
+            return;
+        }
+        if (esDataUri(caratula)) {
+            DataUri imagen = decodificar((String) caratula);
+            if (imagen.bytes().length > MAX_BYTES) {
+                throw new PeticionInvalidaException("La carátula no puede superar 1MB");
+            }
+            ImagenCaratula nueva = guardar(imagen, contenido.gettitulo());
+            ImagenCaratula actual = contenido.getimagenCaratula();
+            // La misma imagen vuelve al mismo blob: se conserva la referencia con sus miniaturas
+            if (actual == null || !nueva.getblobId().equals(actual.getblobId())) {
+                contenido.setimagenCaratula(nueva);
+            }
+            contenido.setcaratula(null);
+        } else {
+            contenido.setcaratula(caratula);
+            contenido.setimagenCaratula(null);
+        }
+    }
+
+    /**
+     * Encola la generación de miniaturas de la carátula recién guardada (el contenido ya debe tener id).
+     */
+    public void programarMiniaturas(Contenido contenido) {
+        if (contenido.getimagenCaratula() != null) {
+            miniaturas.programar(contenido.getId(), contenido.getimagenCaratula());
+        }
+    }
+
+    /**
+     * URL de la carátula a tamaño original que se envía al cliente en los DTOs de detalle
+     * (null si el contenido no tiene carátula).
+     */
+    public String url(Contenido contenido) {
+        return url(contenido, null);
+    }
+
+    /**
+     * URL de la miniatura para las tarjetas de los listados.
+     */
+    public String urlMiniatura(Contenido contenido) {
+        return url(contenido, ANCHO_TARJETA);
+    }
+
+    private String url(Contenido contenido, Integer ancho) {
+        String tam = ancho != null ? "tam=" + ancho : null;
+        ImagenCaratula imagen = contenido.getimagenCaratula();
+        if (imagen != null) {
+            return urlEndpoint(contenido) + "?v=" + version(imagen) + (tam != null ? "&" + tam : "");
+        }
+        if (esDataUri(contenido.getcaratula())) {
+            // Documento aún sin migrar: el endpoint lo migra en la primera petición
+            return urlEndpoint(contenido) + (tam != null ? "?" + tam : "");
+        }
+        return contenido.getcaratula() instanceof String externa && !externa.isBlank() ? externa : null;
+    }
+
+    /** Versión corta de la imagen para el parámetro {@code v} de la URL. */
+    public static String version(ImagenCaratula imagen) {
+        String checksum = imagen.getchecksum();
+        return checksum.length() > 16 ? checksum.substring(0, 16) : checksum;
+    }
+
+    public String etag(ImagenCaratula imagen) {
+        return "\"" + imagen.getchecksum() + "\"";
+    }
+
+    /**
+     * Devuelve la carátula guardada del contenido, migrando al vuelo la que siga como data URI.
+     * Solo lee del documento los campos de la carátula.
+     *
+     * @throws RecursoNoEncontradoException si el contenido no existe o no tiene carátula propia
+     */
+    public ImagenCaratula obtener(String contenidoId) {
+        Query porId = new Query(Criteria.where("_id").is(contenidoId));
+        porId.fields().include(CAMPO_IMAGEN).include(CAMPO_CARATULA).include("_class");
+        Contenido contenido = mongoTemplate.findOne(porId, Contenido.class);
+        if (contenido == null) {
+            throw new RecursoNoEncontradoException("Contenido no encontrado");
+        }
+        if (contenido.getimagenCaratula() != null) {
+            return contenido.getimagenCaratula();
+        }
+        if (esDataUri(contenido.getcaratula())) {
+            // Si otro proceso se adelanta, el documento ya tiene la imagen: se vuelve a leer
+            return migrar(contenidoId, (String) contenido.getcaratula())
+                .orElseGet(() -> obtener(contenidoId));
+        }
+        throw new RecursoNoEncontradoException("El contenido no tiene carátula");
+    }
+
+    /**
+     * Elige qué imagen servir para el ancho pedido: la miniatura más pequeña que lo cubra, o la
+     * original si no hay ninguna. Si las miniaturas aún no existen se programan y se sirve la original.
+     *
+     * @param ancho ancho pedido en píxeles, o null para la original
+     * @throws PeticionInvalidaException si el ancho no es positivo
+     */
+    public ImagenCaratula seleccionar(String contenidoId, ImagenCaratula imagen, Integer ancho) {
+        if (ancho == null) {
+            return imagen;
+        }
+        if (ancho <= 0) {
+            throw new PeticionInvalidaException("El tamaño de la carátula debe ser positivo");
+        }
+        if (imagen.getvariantes() == null) {
+            miniaturas.programar(contenidoId, imagen);
+            return imagen;
+        }
+        for (VarianteCaratula variante : imagen.getvariantes()) {
+            if (variante.getancho() >= ancho) {
+                return new ImagenCaratula(variante.getblobId(), variante.getchecksum(),
+                    variante.getmimeType(), variante.gettamanoBytes());
+            }
+        }
+        return imagen;
+    }
+
+    /**
+     * Tipo con el que se sirve una carátula: PNG o JPEG (normalizando {@code image/jpg}); cualquier
+     * otro valor guardado se sirve como binario genérico para que el navegador nunca lo interprete
+     * (un SVG desde el origen de la API ejecutaría sus scripts).
+     */
+    public static String tipoServible(String mimeType) {
+        if (mimeType == null) {
+            return TIPO_DESCONOCIDO;
+        }
+        return switch (mimeType.trim().toLowerCase(Locale.ROOT)) {
+            case TIPO_PNG -> TIPO_PNG;
+            case TIPO_JPEG, "image/jpg" -> TIPO_JPEG;
+            default -> TIPO_DESCONOCIDO;
+        };
+    }
+
+    public byte[] leer(ImagenCaratula imagen) {
+        return blobStorage.leerCompleto(imagen.getblobId());
+    }
+
+    /**
+     * Pasa a blob el data URI de un documento. Solo actualiza si el documento sigue teniendo
+     * ese mismo valor, así que es idempotente y se puede lanzar con tráfico.
+     *
+     * @return la imagen guardada, o vacío si otro proceso se adelantó o el data URI no era válido
+     */
+    public Optional<ImagenCaratula> migrar(String contenidoId, String dataUri) {
+        Query pendiente = new Query(Criteria.where("_id").is(contenidoId).and(CAMPO_CARATULA).is(dataUri));
+        ImagenCaratula imagen;
+        try {
+            imagen = guardar(decodificar(dataUri), contenidoId);
+        } catch (PeticionInvalidaException e) {
+            // Carátula corrupta: se quita para no reintentarla indefinidamente
+            if (mongoTemplate.updateFirst(pendiente, new Update().unset(CAMPO_CARATULA), Contenido.class)
+                    .getModifiedCount() > 0) {
+                catalogo.actualizarCaratula(contenidoId, null);
+            }
+            log.warn("Contenido {} con carátula no válida: se elimina ({})", contenidoId, e.getMessage());
+            return Optional.empty();
+        }
+
+        UpdateResult resultado = mongoTemplate.updateFirst(pendiente,
+            new Update().set(CAMPO_IMAGEN, imagen).unset(CAMPO_CARATULA), Contenido.class);
+        if (resultado.getModifiedCount() == 0) {
+            eliminarSiHuerfana(imagen);
+            return Optional.empty();
+        }
+        catalogo.actualizarCaratula(contenidoId, imagen);
+        miniaturas.programar(contenidoId, imagen);
+        return Optional.of(imagen);
+    }
+
+    /**
+     * Borra el blob de una carátula que ya no usa ningún contenido (imágenes idénticas comparten blob),
+     * y el de sus miniaturas.
+     */
+    public void eliminarSiHuerfana(ImagenCaratula imagen) {
+        if (imagen == null || imagen.getblobId() == null) {
+            return;
+        }
+        miniaturas.eliminarHuerfanas(imagen.getvariantes());
+        if (!mongoTemplate.exists(new Query(Criteria.where(CAMPO_IMAGEN + ".blobId").is(imagen.getblobId())),
+                Contenido.class)) {
+            blobStorage.eliminar(imagen.getblobId());
+        }
+    }
+
+    private String urlEndpoint(Contenido contenido) {
+        return urlBase + "/multimedia/" + contenido.getId() + "/caratula";
+    }
+
+    private ImagenCaratula guardar(DataUri imagen, String nombre) {
+        BlobInfo blob = blobStorage.guardar(new ByteArrayInputStream(imagen.bytes()), nombre, imagen.mimeType());
+        return new ImagenCaratula(blob.id(), blob.sha256(), imagen.mimeType(), blob.tamanoBytes());
+    }
+
+    private static boolean esDataUri(Object caratula) {
+        return caratula instanceof String s && s.startsWith(PREFIJO_DATA_URI);
+    }
+
+    /**
+     * Decodifica {@code data:image/png;base64,...} o {@code data:image/jpeg;base64,...}.
+     * Los mismos tipos que admite la subida como fichero; el tipo que se guarda sale de los
+     * magic bytes, no de lo que declara el cliente.
+     */
+    private static DataUri decodificar(String dataUri) {
+        int coma = dataUri.indexOf(',');
+        String cabecera = coma > 0 ? dataUri.substring(PREFIJO_DATA_URI.length(), coma) : "";
+        if (!cabecera.endsWith(SUFIJO_BASE64)) {
+            throw new PeticionInvalidaException("La carátula debe ser una imagen codificada en base64");
+        }
+        String declarado = tipoServible(cabecera.substring(0, cabecera.length() - SUFIJO_BASE64.length()));
+        if (TIPO_DESCONOCIDO.equals(declarado)) {
+            throw new PeticionInvalidaException("La carátula debe ser una imagen PNG o JPEG");
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getMimeDecoder().decode(dataUri.substring(coma + 1));
+        } catch (IllegalArgumentException e) {
+            throw new PeticionInvalidaException("La carátula no es base64 válido");
+        }
+        if (bytes.length == 0) {
+            throw new PeticionInvalidaException("La carátula está vacía");
+        }
+        if (empiezaPor(bytes, FIRMA_PNG)) {
+            return new DataUri(TIPO_PNG, bytes);
+        }
+        if (empiezaPor(bytes, FIRMA_JPEG)) {
+            return new DataUri(TIPO_JPEG, bytes);
+        }
+        throw new PeticionInvalidaException("El contenido de la carátula no es una imagen PNG o JPEG");
+    }
+
+    private static boolean empiezaPor(byte[] bytes, byte[] firma) {
+        return bytes.length >= firma.length && Arrays.equals(bytes, 0, firma.length, firma, 0, firma.length);
+    }
+
+    private record DataUri(String mimeType, byte[] bytes) { }
+}
@@ -0,0 +1,594 @@
+package iso25.g05.esi_media.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.dto.PaginaCursorDTO;
+import iso25.g05.esi_media.exception.PeticionInvalidaException;
+import iso25.g05.esi_media.mapper.CatalogoMapper;
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.EntradaCatalogo;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.OrdenCatalogo;
+import iso25.g05.esi_media.model.TipoContenido;
+import iso25.g05.esi_media.model.Video;
+import iso25.g05.esi_media.repository.CatalogoRepository;
+
+/**
+ * Modelo de lectura "catalogo" para los listados paginados.
+ *
+ * Por qué existe: en "contenidos" el tipo solo se deduce de _class, y si la página salía
+ * mezclada se repetía la consulta con {@code url}/{@code mimeType} {@code $exists}, que ningún
+ * índice resuelve; muchas peticiones costaban dos consultas y leían documentos enteros.
+ * El catálogo guarda una entrada compacta por contenido con un {@link TipoContenido} explícito,
+ * la edad normalizada (0 en lugar de ausente) y las claves de orden, con un índice compuesto
+ * por cada forma de listado (ver {@link #crearIndices()}).
+ *
+ * Reglas:
+ * - Cada escritura de un contenido llama a {@link #sincronizar}, {@link #eliminar} o a la
+ *   actualización parcial correspondiente. Si una sincronización falla, los listados vuelven a
+ *   leer de "contenidos" y se programa una reconstrucción ({@link #reconstruirSiDesincronizado()}).
+ *   Un fallo al sumar una visualización no desactiva el catálogo: la reconstrucción corrige el número.
+ * - Al arrancar se reconstruye por lotes ({@link #reconstruirEnSegundoPlano()}); mientras tanto
+ *   también se lee de "contenidos", salvo que el catálogo ya tenga el mismo número de entradas.
+ *   Un lote leído antes de una escritura concurrente podría pisarla (o resucitar una entrada
+ *   borrada), así que los ids escritos durante la reconstrucción se anotan y se vuelven a copiar
+ *   desde "contenidos" tras cada lote, igual que hace {@code IndiceTitulosService.construir}.
+ * - Los listados con un orden que el catálogo no conoce devuelven vacío y el llamador usa
+ *   las consultas de siempre.
+ * - La paginación por cursor ({@link #listarVisualizadorPorCursor}) no cuenta ni salta
+ *   documentos: continúa desde la clave de orden y el _id del último elemento devuelto.
+ * - Los totales de la paginación por página se cachean por forma de filtro
+ *   ({@link ConteosCatalogo}) y se invalidan en cada escritura del catálogo. El listado de
+ *   gestor sin filtros usa {@code estimatedDocumentCount}, que sale de los metadatos.
+ */
+@Service
+public class CatalogoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogoService.class);
+
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_ESTADO = "estado";
+    private static final String FIELD_VIP = "vip";
+    private static final String FIELD_TIPO = "tipo";
+    private static final String FIELD_EDAD = "edadvisualizacion";
+    private static final String FIELD_TITULO = "titulo";
+    private static final String FIELD_NVISUALIZACIONES = "nvisualizaciones";
+    private static final String FIELD_CARATULA = "caratula";
+    private static final String FIELD_IMAGEN_CARATULA = "imagenCaratula";
+    private static final String FIELD_SINCRONIZADO = "sincronizadoEn";
+
+    /** Propiedades de orden que existen en el catálogo (con el mismo nombre que en Contenido). */
+    private static final Set<String> ORDENES_SOPORTADOS = Set.of(
+        "id", FIELD_ID, FIELD_TITULO, FIELD_NVISUALIZACIONES, FIELD_EDAD, FIELD_VIP, FIELD_ESTADO);
+
+    /** Tamaño máximo de una página por cursor. */
+    static final int MAX_TAMANO_CURSOR = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final CatalogoRepository catalogoRepository;
+    private final int tamanoLote;
+    private final ConteosCatalogo conteos;
+    private final boolean conteoEstimadoGestor;
+
+    /** True cuando el catálogo está completo y los listados pueden leer de él. */
+    private volatile boolean listo;
+    /** True desde que se lanzó la reconstrucción de arranque (el catálogo está en uso). */
+    private volatile boolean activo;
+    private final AtomicBoolean reconstruccionPendiente = new AtomicBoolean();
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean();
+    /** True mientras {@link #reconstruir()} copia lotes: las escrituras anotan su id en {@code escritosDurante}. */
+    private volatile boolean copiandoLotes;
+    private final Set<String> escritosDurante = ConcurrentHashMap.newKeySet();
+
+    public CatalogoService(MongoTemplate mongoTemplate,
+                           CatalogoRepository catalogoRepository,
+                           @Value("${app.catalogo.lote:500}") int tamanoLote,
+                           @Value("${app.catalogo.conteos.ttl-segundos:300}") long ttlConteos,
+                           @Value("${app.catalogo.conteos.estimado-gestor:true}") boolean conteoEstimadoGestor) {
+        this.mongoTemplate = mongoTemplate;
+        this.catalogoRepository = catalogoRepository;
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.conteos = new ConteosCatalogo(ttlConteos);
+        this.conteoEstimadoGestor = conteoEstimadoGestor;
+    }
+
+    public boolean listo() {
+        return listo;
+    }
+
+    /**
+     * Listado para visualizadores: visibles, permitidos para su edad y, si no es VIP, sin VIP.
+     *
+     * @return la página, o vacío si hay que leer de "contenidos" (catálogo no listo u orden no soportado)
+     */
+    public Optional<Page<Contenido>> listarParaVisualizador(int edad, boolean vip, String tipo, Pageable pageable) {
+        if (!disponiblePara(pageable)) {
+            return Optional.empty();
+        }
+        TipoContenido filtro = TipoContenido.desde(tipo);
+        int tramo = ConteosCatalogo.tramoEdad(edad);
+        List<EntradaCatalogo> entradas;
+        if (vip) {
+            entradas = filtro != null
+                ? catalogoRepository.findByEstadoTrueAndTipoAndEdadvisualizacionLessThanEqual(filtro, tramo, pageable)
+                : catalogoRepository.findByEstadoTrueAndEdadvisualizacionLessThanEqual(tramo, pageable);
+        } else {
+            entradas = filtro != null
+                ? catalogoRepository.findByEstadoTrueAndVipFalseAndTipoAndEdadvisualizacionLessThanEqual(filtro, tramo, pageable)
+                : catalogoRepository.findByEstadoTrueAndVipFalseAndEdadvisualizacionLessThanEqual(tramo, pageable);
+        }
+        ConteosCatalogo.Forma forma = ConteosCatalogo.Forma.visualizador(filtro, vip, edad);
+        return Optional.of(pagina(entradas, pageable, forma, filtrosVisualizador(tramo, vip, filtro, true)));
+    }
+
+    /**
+     * Listado para gestores: todos los contenidos, también los ocultos.
+     *
+     * @return la página, o vacío si hay que leer de "contenidos"
+     */
+    public Optional<Page<Contenido>> listarParaGestor(String tipo, Pageable pageable) {
+        if (!disponiblePara(pageable)) {
+            return Optional.empty();
+        }
+        TipoContenido filtro = TipoContenido.desde(tipo);
+        List<EntradaCatalogo> entradas = filtro != null
+            ? catalogoRepository.findByTipo(filtro, pageable)
+            : catalogoRepository.findAllBy(pageable);
+        return Optional.of(pagina(entradas, pageable, ConteosCatalogo.Forma.gestor(filtro), filtrosGestor(filtro, true)));
+    }
+
+    /**
+     * Monta la página con el total cacheado. PageableExecutionUtils ni siquiera lo pide cuando
+     * la página lo deja claro (primera página incompleta o última página).
+     */
+    private Page<Contenido> pagina(List<EntradaCatalogo> entradas, Pageable pageable,
+                                   ConteosCatalogo.Forma forma, List<Criteria> filtros) {
+        List<Contenido> contenidos = entradas.stream().map(CatalogoMapper::aContenido).toList();
+        return PageableExecutionUtils.getPage(contenidos, pageable, () -> conteos.obtener(forma, () -> contar(filtros)));
+    }
+
+    private long contar(List<Criteria> filtros) {
+        if (filtros.isEmpty() && conteoEstimadoGestor) {
+            // Sin filtros el total es el de la colección: se lee de los metadatos, sin recorrer nada
+            return mongoTemplate.estimatedCount(EntradaCatalogo.class);
+        }
+        Query query = new Query(filtros.isEmpty() ? new Criteria() : new Criteria().andOperator(filtros));
+        return mongoTemplate.count(query, EntradaCatalogo.class);
+    }
+
+    private boolean disponiblePara(Pageable pageable) {
+        if (!listo) {
+            return false;
+        }
+        for (Sort.Order orden : pageable.getSort()) {
+            if (!ORDENES_SOPORTADOS.contains(orden.getProperty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Listado por cursor para visualizadores, con los mismos filtros que {@link #listarParaVisualizador}.
+     *
+     * @param orden  "fecha" (por defecto), "vistas" o "titulo"
+     * @param cursor el {@code siguienteCursor} de la página anterior, o null/vacío para la primera
+     */
+    public PaginaCursorDTO<Contenido> listarVisualizadorPorCursor(int edad, boolean vip, String tipo,
+                                                                 String orden, String cursor, int tamano) {
+        OrdenCatalogo ordenPedido = ordenDe(orden);
+        boolean desdeCatalogo = listo;
+        List<Criteria> filtros = filtrosVisualizador(edad, vip, TipoContenido.desde(tipo), desdeCatalogo);
+        return paginarPorCursor(filtros, ordenPedido, cursor, tamano, desdeCatalogo);
+    }
+
+    /**
+     * Listado por cursor para gestores: todos los contenidos, también los ocultos.
+     */
+    public PaginaCursorDTO<Contenido> listarGestorPorCursor(String tipo, String orden, String cursor, int tamano) {
+        OrdenCatalogo ordenPedido = ordenDe(orden);
+        boolean desdeCatalogo = listo;
+        List<Criteria> filtros = filtrosGestor(TipoContenido.desde(tipo), desdeCatalogo);
+        return paginarPorCursor(filtros, ordenPedido, cursor, tamano, desdeCatalogo);
+    }
+
+    /**
+     * Filtros del visualizador: visibles, permitidos para su edad y, si no es VIP, sin VIP.
+     * La lista es mutable para añadir la posición del cursor.
+     */
+    private static List<Criteria> filtrosVisualizador(int edad, boolean vip, TipoContenido tipo, boolean desdeCatalogo) {
+        List<Criteria> filtros = new ArrayList<>();
+        filtros.add(Criteria.where(FIELD_ESTADO).is(true));
+        if (!vip) {
+            filtros.add(Criteria.where(FIELD_VIP).is(false));
+        }
+        if (tipo != null) {
+            filtros.add(filtroTipo(tipo, desdeCatalogo));
+        }
+        if (desdeCatalogo) {
+            filtros.add(Criteria.where(FIELD_EDAD).lte(edad));
+        } else {
+            // En "contenidos" la edad puede faltar (equivale a 0)
+            filtros.add(new Criteria().orOperator(
+                Criteria.where(FIELD_EDAD).lte(edad), Criteria.where(FIELD_EDAD).exists(false)));
+        }
+        return filtros;
+    }
+
+    private static List<Criteria> filtrosGestor(TipoContenido tipo, boolean desdeCatalogo) {
+        List<Criteria> filtros = new ArrayList<>();
+        if (tipo != null) {
+            filtros.add(filtroTipo(tipo, desdeCatalogo));
+        }
+        return filtros;
+    }
+
+    private static OrdenCatalogo ordenDe(String orden) {
+        OrdenCatalogo ordenPedido = OrdenCatalogo.desde(orden);
+        if (ordenPedido == null) {
+            throw new PeticionInvalidaException("Orden no soportado: " + orden + " (fecha, vistas o titulo)");
+        }
+        return ordenPedido;
+    }
+
+    private static Criteria filtroTipo(TipoContenido tipo, boolean desdeCatalogo) {
+        if (desdeCatalogo) {
+            return Criteria.where(FIELD_TIPO).is(tipo);
+        }
+        return Criteria.where("_class").is(tipo == TipoContenido.VIDEO ? Video.class.getName() : Audio.class.getName());
+    }
+
+    /**
+     * Pide un elemento más de los necesarios: si llega, hay página siguiente y su cursor es la
+     * posición del último devuelto. Sin count ni skip, cada página cuesta lo mismo.
+     * Mientras el catálogo no está listo se lee de "contenidos" con la misma forma de consulta.
+     */
+    private PaginaCursorDTO<Contenido> paginarPorCursor(List<Criteria> filtros, OrdenCatalogo orden, String cursor,
+                                                       int tamano, boolean desdeCatalogo) {
+        int limite = Math.min(Math.max(tamano, 1), MAX_TAMANO_CURSOR);
+        if (cursor != null && !cursor.isBlank()) {
+            filtros.add(despuesDe(CursorCatalogo.decodificar(cursor.trim(), orden)));
+        }
+        Query query = new Query(filtros.isEmpty() ? new Criteria() : new Criteria().andOperator(filtros))
+            .with(ordenacion(orden))
+            .limit(limite + 1);
+
+        List<Contenido> filas;
+        if (desdeCatalogo) {
+            filas = mongoTemplate.find(query, EntradaCatalogo.class).stream()
+                .map(CatalogoMapper::aContenido)
+                .toList();
+        } else {
+            query.fields().include(FIELD_TITULO, "_class", FIELD_VIP, FIELD_NVISUALIZACIONES, "resolucion",
+                FIELD_CARATULA, "imagenCaratula.blobId", "imagenCaratula.checksum");
+            filas = mongoTemplate.find(query, Contenido.class);
+        }
+
+        if (filas.size() <= limite) {
+            return new PaginaCursorDTO<>(filas, null);
+        }
+        List<Contenido> pagina = filas.subList(0, limite);
+        return new PaginaCursorDTO<>(pagina, posicionDe(orden, pagina.get(limite - 1)).codificar());
+    }
+
+    private static Sort ordenacion(OrdenCatalogo orden) {
+        return switch (orden) {
+            case FECHA -> Sort.by(Sort.Direction.DESC, FIELD_ID);
+            case VISTAS -> Sort.by(Sort.Direction.DESC, FIELD_NVISUALIZACIONES, FIELD_ID);
+            case TITULO -> Sort.by(Sort.Direction.ASC, FIELD_TITULO, FIELD_ID);
+        };
+    }
+
+    private static CursorCatalogo posicionDe(OrdenCatalogo orden, Contenido ultimo) {
+        String clave = switch (orden) {
+            case FECHA -> null;
+            case VISTAS -> String.valueOf(ultimo.getnvisualizaciones());
+            case TITULO -> ultimo.gettitulo();
+        };
+        return new CursorCatalogo(orden, ultimo.getId(), clave);
+    }
+
+    /**
+     * Elementos estrictamente posteriores a la posición del cursor en el orden indicado:
+     * clave más allá, o la misma clave y _id más allá. Mongo ordena null/ausente antes que
+     * cualquier valor, así que en orden ascendente van al principio y en descendente al final.
+     */
+    private static Criteria despuesDe(CursorCatalogo cursor) {
+        boolean ascendente = cursor.orden() == OrdenCatalogo.TITULO;
+        Criteria porId = ascendente
+            ? Criteria.where(FIELD_ID).gt(cursor.id())
+            : Criteria.where(FIELD_ID).lt(cursor.id());
+        if (cursor.orden() == OrdenCatalogo.FECHA) {
+            return porId;
+        }
+        String campo = cursor.orden() == OrdenCatalogo.VISTAS ? FIELD_NVISUALIZACIONES : FIELD_TITULO;
+        if (cursor.clave() == null) {
+            Criteria mismaClave = new Criteria().andOperator(Criteria.where(campo).is(null), porId);
+            return ascendente
+                ? new Criteria().orOperator(Criteria.where(campo).ne(null), mismaClave)
+                : mismaClave;
+        }
+        Object clave = cursor.orden() == OrdenCatalogo.VISTAS ? Integer.valueOf(cursor.clave()) : cursor.clave();
+        Criteria mismaClave = new Criteria().andOperator(Criteria.where(campo).is(clave), porId);
+        if (ascendente) {
+            return new Criteria().orOperator(Criteria.where(campo).gt(clave), mismaClave);
+        }
+        return new Criteria().orOperator(Criteria.where(campo).lt(clave), mismaClave, Criteria.where(campo).is(null));
+    }
+
+    /**
+     * Copia el contenido recién guardado al catálogo (inserta o reemplaza su entrada).
+     */
+    public void sincronizar(Contenido contenido) {
+        EntradaCatalogo entrada = CatalogoMapper.aEntrada(contenido, new Date());
+        if (entrada == null || entrada.getId() == null) {
+            return;
+        }
+        try {
+            mongoTemplate.save(entrada);
+        } catch (RuntimeException e) {
+            desincronizado(contenido.getId(), e);
+        } finally {
+            anotarEscritura(entrada.getId());
+            conteos.invalidar();
+        }
+    }
+
+    public void eliminar(String contenidoId) {
+        try {
+            mongoTemplate.remove(new Query(Criteria.where(FIELD_ID).is(contenidoId)), EntradaCatalogo.class);
+        } catch (RuntimeException e) {
+            desincronizado(contenidoId, e);
+        } finally {
+            anotarEscritura(contenidoId);
+            conteos.invalidar();
+        }
+    }
+
+    /**
+     * Refleja el {@code $inc} de visualizaciones (clave de orden "más vistos").
+     * Si falla, la entrada solo se queda con una visualización de menos hasta la siguiente
+     * reconstrucción: no es motivo para dejar de leer del catálogo.
+     */
+    public void incrementarVisualizaciones(String contenidoId) {
+        try {
+            mongoTemplate.updateFirst(new Query(Criteria.where(FIELD_ID).is(contenidoId)),
+                new Update().inc(FIELD_NVISUALIZACIONES, 1), EntradaCatalogo.class);
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo sumar la visualización del contenido {} en el catálogo: {}", contenidoId, e.getMessage());
+        }
+    }
+
+    /**
+     * Refleja la migración de una carátula en data URI (imagen null si se descartó por corrupta).
+     */
+    public void actualizarCaratula(String contenidoId, ImagenCaratula imagen) {
+        Update update = new Update().unset(FIELD_CARATULA);
+        if (imagen != null) {
+            update.set(FIELD_IMAGEN_CARATULA,
+                new ImagenCaratula(imagen.getblobId(), imagen.getchecksum(), imagen.getmimeType(), imagen.gettamanoBytes()));
+        }
+        try {
+            mongoTemplate.updateFirst(new Query(Criteria.where(FIELD_ID).is(contenidoId)), update, EntradaCatalogo.class);
+        } catch (RuntimeException e) {
+            desincronizado(contenidoId, e);
+        } finally {
+            anotarEscritura(contenidoId);
+        }
+    }
+
+    private void desincronizado(String contenidoId, RuntimeException e) {
+        listo = false;
+        reconstruccionPendiente.set(true);
+        logger.error("No se pudo sincronizar el catálogo para el contenido {}; los listados leerán de contenidos "
+            + "hasta la próxima reconstrucción: {}", contenidoId, e.getMessage());
+    }
+
+    /**
+     * Crea los índices compuestos de las formas de listado (igualdad, orden y por último el rango
+     * de edad). La creación automática de índices está desactivada en MongoRegistroConfig.
+     */
+    public void crearIndices() {
+        IndexOperations indices = mongoTemplate.indexOps(EntradaCatalogo.class);
+        // Visualizador sin filtro de tipo. El VIP no fija "vip", pero el índice se recorre igual
+        indices.ensureIndex(new Index().named("catalogo_visualizador")
+            .on(FIELD_ESTADO, Sort.Direction.ASC).on(FIELD_VIP, Sort.Direction.ASC)
+            .on(FIELD_EDAD, Sort.Direction.ASC));
+        // Visualizador filtrando por tipo
+        indices.ensureIndex(new Index().named("catalogo_visualizador_tipo")
+            .on(FIELD_ESTADO, Sort.Direction.ASC).on(FIELD_TIPO, Sort.Direction.ASC)
+            .on(FIELD_VIP, Sort.Direction.ASC).on(FIELD_EDAD, Sort.Direction.ASC));
+        // Orden alfabético, "más vistos" y más recientes sin ordenar en memoria. El _id tras la
+        // clave de orden es el desempate de la paginación por cursor
+        indices.ensureIndex(new Index().named("catalogo_visualizador_titulo")
+            .on(FIELD_ESTADO, Sort.Direction.ASC).on(FIELD_VIP, Sort.Direction.ASC)
+            .on(FIELD_TITULO, Sort.Direction.ASC).on(FIELD_ID, Sort.Direction.ASC)
+            .on(FIELD_EDAD, Sort.Direction.ASC));
+        indices.ensureIndex(new Index().named("catalogo_visualizador_populares")
+            .on(FIELD_ESTADO, Sort.Direction.ASC).on(FIELD_VIP, Sort.Direction.ASC)
+            .on(FIELD_NVISUALIZACIONES, Sort.Direction.DESC).on(FIELD_ID, Sort.Direction.DESC)
+            .on(FIELD_EDAD, Sort.Direction.ASC));
+        indices.ensureIndex(new Index().named("catalogo_visualizador_fecha")
+            .on(FIELD_ESTADO, Sort.Direction.ASC).on(FIELD_VIP, Sort.Direction.ASC)
+            .on(FIELD_ID, Sort.Direction.DESC).on(FIELD_EDAD, Sort.Direction.ASC));
+        // Gestor filtrando por tipo (sin filtro usa el _id)
+        indices.ensureIndex(new Index().named("catalogo_gestor_tipo")
+            .on(FIELD_TIPO, Sort.Direction.ASC).on(FIELD_ID, Sort.Direction.ASC));
+        indices.ensureIndex(new Index().named("catalogo_gestor_titulo")
+            .on(FIELD_TITULO, Sort.Direction.ASC).on(FIELD_ID, Sort.Direction.ASC));
+        indices.ensureIndex(new Index().named("catalogo_gestor_populares")
+            .on(FIELD_NVISUALIZACIONES, Sort.Direction.DESC).on(FIELD_ID, Sort.Direction.DESC));
+    }
+
+    /**
+     * Reconstruye el catálogo completo en segundo plano y lo marca como listo al terminar.
+     */
+    @Async
+    public void reconstruirEnSegundoPlano() {
+        activo = true;
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (mongoTemplate.estimatedCount(EntradaCatalogo.class) == mongoTemplate.estimatedCount(Contenido.class)) {
+                // Mismo tamaño: se sirve ya desde el catálogo mientras se refresca
+                listo = true;
+            }
+            int total = reconstruir();
+            listo = true;
+            logger.info("Catálogo reconstruido. Contenidos copiados: {}", total);
+        } catch (Exception e) {
+            listo = false;
+            reconstruccionPendiente.set(true);
+            logger.error("Error reconstruyendo el catálogo: {}", e.getMessage(), e);
+        } finally {
+            reconstruyendo.set(false);
+        }
+    }
+
+    /**
+     * Reconstruye el catálogo si una escritura no se pudo sincronizar (o falló la última
+     * reconstrucción), para que los listados no se queden leyendo de "contenidos" hasta reiniciar.
+     * Si vuelve a fallar se reintenta en la siguiente pasada.
+     */
+    @Scheduled(initialDelayString = "${app.catalogo.reintento-ms:60000}",
+               fixedDelayString = "${app.catalogo.reintento-ms:60000}")
+    public void reconstruirSiDesincronizado() {
+        if (!activo || !reconstruccionPendiente.get() || !reconstruyendo.compareAndSet(false, true)) {
+            return;
+        }
+        // Antes de copiar: un fallo durante la reconstrucción vuelve a dejarla pendiente
+        reconstruccionPendiente.set(false);
+        try {
+            int total = reconstruir();
+            listo = true;
+            logger.info("Catálogo resincronizado. Contenidos copiados: {}", total);
+        } catch (Exception e) {
+            reconstruccionPendiente.set(true);
+            logger.error("Error resincronizando el catálogo: {}", e.getMessage(), e);
+        } finally {
+            reconstruyendo.set(false);
+        }
+    }
+
+    /**
+     * Copia todos los contenidos al catálogo por lotes (en orden de _id) y borra las entradas
+     * de contenidos que ya no existen.
+     *
+     * @return número de contenidos copiados
+     */
+    int reconstruir() {
+        Date inicio = new Date();
+        escritosDurante.clear();
+        copiandoLotes = true;
+        try {
+            int total = copiarLotes();
+            mongoTemplate.remove(new Query(Criteria.where(FIELD_SINCRONIZADO).lt(inicio)), EntradaCatalogo.class);
+            return total;
+        } finally {
+            copiandoLotes = false;
+            // Lo anotado justo antes de bajar la marca
+            recopiarEscritosDurante();
+            conteos.invalidar();
+        }
+    }
+
+    private int copiarLotes() {
+        int total = 0;
+        String ultimoId = null;
+        List<Contenido> lote;
+        do {
+            Query siguientes = new Query().with(Sort.by(Sort.Direction.ASC, FIELD_ID)).limit(tamanoLote);
+            if (ultimoId != null) {
+                siguientes.addCriteria(Criteria.where(FIELD_ID).gt(ultimoId));
+            }
+            incluirCamposEntrada(siguientes);
+            lote = mongoTemplate.find(siguientes, Contenido.class);
+            if (lote.isEmpty()) {
+                break;
+            }
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EntradaCatalogo.class);
+            Date ahora = new Date();
+            int copiados = 0;
+            for (Contenido contenido : lote) {
+                EntradaCatalogo entrada = CatalogoMapper.aEntrada(contenido, ahora);
+                if (entrada != null) {
+                    bulk.replaceOne(new Query(Criteria.where(FIELD_ID).is(entrada.getId())), entrada,
+                        FindAndReplaceOptions.options().upsert());
+                    copiados++;
+                }
+            }
+            if (copiados > 0) {
+                bulk.execute();
+                total += copiados;
+            }
+            recopiarEscritosDurante();
+            ultimoId = lote.get(lote.size() - 1).getId();
+        } while (lote.size() == tamanoLote);
+        return total;
+    }
+
+    /**
+     * Vuelve a copiar desde "contenidos" las entradas escritas mientras se copiaba un lote: si el
+     * contenido ya no existe se borra la entrada. Repite hasta que no quede ninguna anotada, porque
+     * una escritura puede llegar mientras se recopia.
+     */
+    private void recopiarEscritosDurante() {
+        while (!escritosDurante.isEmpty()) {
+            for (String id : List.copyOf(escritosDurante)) {
+                escritosDurante.remove(id);
+                Query porId = new Query(Criteria.where(FIELD_ID).is(id));
+                incluirCamposEntrada(porId);
+                Contenido contenido = mongoTemplate.findOne(porId, Contenido.class);
+                EntradaCatalogo entrada = contenido != null ? CatalogoMapper.aEntrada(contenido, new Date()) : null;
+                if (entrada != null) {
+                    mongoTemplate.save(entrada);
+                } else {
+                    mongoTemplate.remove(new Query(Criteria.where(FIELD_ID).is(id)), EntradaCatalogo.class);
+                }
+            }
+        }
+    }
+
+    private static void incluirCamposEntrada(Query query) {
+        query.fields().include("titulo", "_class", FIELD_ESTADO, FIELD_VIP, FIELD_EDAD, "gestorId", "tags",
+            FIELD_NVISUALIZACIONES, "resolucion", FIELD_CARATULA, FIELD_IMAGEN_CARATULA);
+    }
+
+    /**
+     * Anota la escritura si hay una reconstrucción copiando lotes. Se llama después de escribir,
+     * para que la copia posterior lea como mínimo ese estado.
+     */
+    private void anotarEscritura(String contenidoId) {
+        if (copiandoLotes && contenidoId != null) {
+            escritosDurante.add(contenidoId);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package iso25.g05.esi_media.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import iso25.g05.esi_media.model.TipoContenido;
+
+/**
+ * Totales de los listados paginados del catálogo, cacheados por forma de filtro.
+ *
+ * El total de una página solo depende del rol (gestor o visualizador), el tipo, si el
+ * visualizador es VIP y su tramo de edad, así que hay muy pocas formas distintas y todas
+ * las páginas de una misma forma comparten el count.
+ *
+ * Reglas:
+ * - {@link #invalidar()} se llama en cada alta, modificación o baja del catálogo.
+ * - El TTL cubre las escrituras que no pasan por CatalogoService (otra instancia, cambios a mano).
+ * - Un count que estaba en curso cuando se invalidó no se guarda.
+ */
+final class ConteosCatalogo {
+
+    /** Edad mínima más alta que admite un contenido (@Max de los DTO de subida y edición). */
+    static final int EDAD_MAXIMA = 18;
+
+    /**
+     * Forma de filtro de un listado. A partir de {@link #EDAD_MAXIMA} todos los usuarios ven
+     * lo mismo, por eso la edad se guarda acotada (tramo).
+     */
+    record Forma(boolean gestor, TipoContenido tipo, boolean vip, int tramoEdad) {
+
+        static Forma gestor(TipoContenido tipo) {
+            return new Forma(true, tipo, true, EDAD_MAXIMA);
+        }
+
+        static Forma visualizador(TipoContenido tipo, boolean vip, int edad) {
+            return new Forma(false, tipo, vip, tramoEdad(edad));
+        }
+    }
+
+    private record Conteo(long total, long expiraNanos) {}
+
+    private final Map<Forma, Conteo> conteos = new ConcurrentHashMap<>();
+    /** Cambia en cada invalidación; un count calculado con otra generación no se guarda. */
+    private final AtomicLong generacion = new AtomicLong();
+    private final long ttlNanos;
+
+    ConteosCatalogo(long ttlSegundos) {
+        this.ttlNanos = Math.max(0, ttlSegundos) * 1_000_000_000L;
+    }
+
+    static int tramoEdad(int edad) {
+        return Math.max(0, Math.min(edad, EDAD_MAXIMA));
+    }
+
+    /**
+     * @param contar count real, solo se ejecuta si no hay un total vigente para la forma
+     */
+    long obtener(Forma forma, LongSupplier contar) {
+        long ahora = System.nanoTime();
+        Conteo guardado = conteos.get(forma);
+        if (guardado != null && guardado.expiraNanos() - ahora > 0) {
+            return guardado.total();
+        }
+        long antes = generacion.get();
+        long total = contar.getAsLong();
+        Conteo nuevo = new Conteo(total, ahora + ttlNanos);
+        conteos.put(forma, nuevo);
+        if (generacion.get() != antes) {
+            // Se invalidó mientras se contaba: el total puede no incluir esa escritura
+            conteos.remove(forma, nuevo);
+        }
+        return total;
+    }
+
+    void invalidar() {
+        generacion.incrementAndGet();
+        conteos.clear();
+    }
+}
@@ -0,0 +1,43 @@
+package iso25.g05.esi_media.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Cubo de tokens para limitar el ancho de banda de un stream (1 token = 1 byte).
+ *
+ * Se rellena a {@code bytesPorSegundo} hasta {@code rafaga} bytes. Se permite quedar en
+ * negativo: un trozo mayor que la ráfaga se escribe y el siguiente espera a que se pague
+ * la deuda, así no hace falta partir las escrituras.
+ *
+ * No es seguro entre hilos: cada stream tiene el suyo y lo usa un único hilo.
+ */
+final class CuboTokens {
+
+    private final double bytesPorNano;
+    private final long rafaga;
+    private final LongSupplier relojNanos;
+
+    private double tokens;
+    private long ultimaRecarga;
+
+    CuboTokens(long bytesPorSegundo, long rafaga, LongSupplier relojNanos) {
+        this.bytesPorNano = bytesPorSegundo / 1_000_000_000.0;
+        this.rafaga = rafaga;
+        this.relojNanos = relojNanos;
+        this.tokens = rafaga;
+        this.ultimaRecarga = relojNanos.getAsLong();
+    }
+
+    /**
+     * Consume {@code bytes} tokens.
+     *
+     * @return nanosegundos que hay que esperar antes de escribirlos (0 si había tokens)
+     */
+    long consumir(int bytes) {
+        long ahora = relojNanos.getAsLong();
+        tokens = Math.min(rafaga, tokens + (ahora - ultimaRecarga) * bytesPorNano);
+        ultimaRecarga = ahora;
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / bytesPorNano);
+    }
+}
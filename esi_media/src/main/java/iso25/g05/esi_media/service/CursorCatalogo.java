@@ -0,0 +1,58 @@
+package iso25.g05.esi_media.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import iso25.g05.esi_media.exception.PeticionInvalidaException;
+import iso25.g05.esi_media.model.OrdenCatalogo;
+
+/**
+ * Token de continuación de la paginación por cursor: orden, _id y clave de orden del último
+ * elemento devuelto. Para el cliente es opaco (Base64 URL-safe).
+ *
+ * No va firmado: solo indica desde dónde seguir; los filtros de visibilidad se aplican
+ * siempre en el servidor con los permisos del usuario.
+ */
+record CursorCatalogo(OrdenCatalogo orden, String id, String clave) {
+
+    private static final String SEPARADOR = "\n";
+
+    String codificar() {
+        String valor = orden.name() + SEPARADOR + id + (clave != null ? SEPARADOR + clave : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws PeticionInvalidaException si el token está mal formado o es de otro orden
+     */
+    static CursorCatalogo decodificar(String token, OrdenCatalogo esperado) {
+        String valor;
+        try {
+            valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new PeticionInvalidaException("Cursor no válido");
+        }
+        // La clave va al final: puede contener cualquier carácter, también el separador
+        String[] partes = valor.split(SEPARADOR, 3);
+        if (partes.length < 2 || partes[1].isEmpty()) {
+            throw new PeticionInvalidaException("Cursor no válido");
+        }
+        if (!partes[0].equals(esperado.name())) {
+            throw new PeticionInvalidaException("El cursor corresponde a otro orden");
+        }
+        String clave = partes.length == 3 ? partes[2] : null;
+        if (esperado == OrdenCatalogo.VISTAS && !esEntero(clave)) {
+            throw new PeticionInvalidaException("Cursor no válido");
+        }
+        return new CursorCatalogo(esperado, partes[1], clave);
+    }
+
+    private static boolean esEntero(String valor) {
+        try {
+            Integer.parseInt(valor);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
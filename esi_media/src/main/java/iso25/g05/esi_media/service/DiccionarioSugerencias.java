@@ -0,0 +1,255 @@
+package iso25.g05.esi_media.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import iso25.g05.esi_media.dto.SugerenciaDTO;
+
+/**
+ * Diccionario inmutable de sugerencias por prefijo (títulos, tags y nombres de listas).
+ *
+ * Las claves normalizadas están ordenadas en un array: las que empiezan por un prefijo forman un
+ * tramo contiguo que se encuentra con dos búsquedas binarias. Sobre ese orden hay un árbol de
+ * segmentos con, en cada nodo, la entrada más vista de su tramo; las más vistas de un prefijo
+ * se sacan bajando por el árbol con un montículo de nodos, sin recorrer el tramo entero.
+ *
+ * Además del texto completo se indexa cada palabra a partir de la segunda ("del mar" sugiere
+ * "Canción del Mar"). Los objetos de respuesta se crean al construir, así que una consulta solo
+ * reserva el montículo y la lista del resultado.
+ *
+ * Se construye con {@link Constructor} y no cambia: para refrescarlo se construye otro y se
+ * sustituye la referencia.
+ */
+final class DiccionarioSugerencias {
+
+    /** Palabras de un mismo texto que se indexan como comienzo de sugerencia. */
+    private static final int MAX_PALABRAS = 8;
+    /** Hojas que se pueden descartar por permisos antes de dar la respuesta por completa. */
+    private static final int MAX_DESCARTES = 256;
+
+    static final DiccionarioSugerencias VACIO = new Constructor().construir();
+
+    private final String[] claves;
+    private final SugerenciaDTO[] sugerencias;
+    private final long[] pesos;
+    private final boolean[] vip;
+    private final int[] edades;
+    /** Árbol de segmentos: arbol[hojas + i] = i; cada nodo, la entrada de más peso de sus hijos. */
+    private final int[] arbol;
+    private final int hojas;
+
+    private DiccionarioSugerencias(List<Entrada> entradas) {
+        int n = entradas.size();
+        claves = new String[n];
+        sugerencias = new SugerenciaDTO[n];
+        pesos = new long[n];
+        vip = new boolean[n];
+        edades = new int[n];
+        for (int i = 0; i < n; i++) {
+            Entrada e = entradas.get(i);
+            claves[i] = e.clave;
+            sugerencias[i] = e.sugerencia;
+            pesos[i] = e.peso;
+            vip[i] = e.vip;
+            edades[i] = e.edad;
+        }
+        hojas = Integer.highestOneBit(Math.max(1, n - 1)) << 1;
+        arbol = new int[2 * hojas];
+        Arrays.fill(arbol, -1);
+        for (int i = 0; i < n; i++) {
+            arbol[hojas + i] = i;
+        }
+        for (int nodo = hojas - 1; nodo >= 1; nodo--) {
+            arbol[nodo] = mejor(arbol[2 * nodo], arbol[2 * nodo + 1]);
+        }
+    }
+
+    int tamano() {
+        return claves.length;
+    }
+
+    /**
+     * @param vipUsuario el usuario puede ver contenidos VIP
+     * @param edadUsuario edad del usuario (se omiten los contenidos con más edad mínima)
+     * @return hasta {@code limite} sugerencias que empiezan por el texto (o tienen una palabra que
+     *         empieza por él), de más a menos vistas
+     */
+    List<SugerenciaDTO> buscar(String texto, int limite, boolean vipUsuario, int edadUsuario) {
+        String prefijo = CamposBusqueda.normalizar(texto);
+        if (prefijo.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        int desde = primeraMayorOIgual(prefijo);
+        int hasta = primeraSinPrefijo(prefijo, desde);
+        if (desde == hasta) {
+            return List.of();
+        }
+
+        List<SugerenciaDTO> resultado = new ArrayList<>(limite);
+        Monticulo pendientes = new Monticulo(64);
+        for (int l = desde + hojas, r = hasta + hojas; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                pendientes.meter(l++);
+            }
+            if ((r & 1) == 1) {
+                pendientes.meter(--r);
+            }
+        }
+        int descartes = 0;
+        while (!pendientes.vacio() && resultado.size() < limite && descartes < MAX_DESCARTES) {
+            int nodo = pendientes.sacar();
+            if (nodo < hojas) {
+                pendientes.meter(2 * nodo);
+                pendientes.meter(2 * nodo + 1);
+                continue;
+            }
+            int i = arbol[nodo];
+            // El mismo texto entra varias veces si varias de sus palabras empiezan por el prefijo
+            if ((vip[i] && !vipUsuario) || edades[i] > edadUsuario || contieneMismo(resultado, sugerencias[i])) {
+                descartes++;
+            } else {
+                resultado.add(sugerencias[i]);
+            }
+        }
+        return resultado;
+    }
+
+    private static boolean contieneMismo(List<SugerenciaDTO> resultado, SugerenciaDTO sugerencia) {
+        for (SugerenciaDTO s : resultado) {
+            if (s == sugerencia) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int primeraMayorOIgual(String prefijo) {
+        int lo = 0;
+        int hi = claves.length;
+        while (lo < hi) {
+            int mitad = (lo + hi) >>> 1;
+            if (claves[mitad].compareTo(prefijo) < 0) {
+                lo = mitad + 1;
+            } else {
+                hi = mitad;
+            }
+        }
+        return lo;
+    }
+
+    /** Las claves con el prefijo van seguidas a partir de {@code desde}: primera que ya no lo tiene. */
+    private int primeraSinPrefijo(String prefijo, int desde) {
+        int lo = desde;
+        int hi = claves.length;
+        while (lo < hi) {
+            int mitad = (lo + hi) >>> 1;
+            if (claves[mitad].startsWith(prefijo)) {
+                lo = mitad + 1;
+            } else {
+                hi = mitad;
+            }
+        }
+        return lo;
+    }
+
+    /** De dos entradas (o -1), la de más peso; a igual peso, la primera en orden alfabético. */
+    private int mejor(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0 || pesos[a] >= pesos[b]) {
+            return a;
+        }
+        return b;
+    }
+
+    /** Montículo de nodos del árbol ordenado por el peso de su mejor entrada. */
+    private final class Monticulo {
+        private int[] nodos;
+        private int n;
+
+        Monticulo(int capacidad) {
+            nodos = new int[capacidad];
+        }
+
+        boolean vacio() {
+            return n == 0;
+        }
+
+        void meter(int nodo) {
+            if (arbol[nodo] < 0) {
+                return;
+            }
+            if (n == nodos.length) {
+                nodos = Arrays.copyOf(nodos, n * 2);
+            }
+            int i = n++;
+            while (i > 0 && antes(nodo, nodos[(i - 1) / 2])) {
+                nodos[i] = nodos[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            nodos[i] = nodo;
+        }
+
+        int sacar() {
+            int cima = nodos[0];
+            int ultimo = nodos[--n];
+            int i = 0;
+            while (2 * i + 1 < n) {
+                int hijo = 2 * i + 1;
+                if (hijo + 1 < n && antes(nodos[hijo + 1], nodos[hijo])) {
+                    hijo++;
+                }
+                if (!antes(nodos[hijo], ultimo)) {
+                    break;
+                }
+                nodos[i] = nodos[hijo];
+                i = hijo;
+            }
+            nodos[i] = ultimo;
+            return cima;
+        }
+
+        private boolean antes(int nodoA, int nodoB) {
+            int a = arbol[nodoA];
+            int b = arbol[nodoB];
+            return pesos[a] > pesos[b] || (pesos[a] == pesos[b] && a < b);
+        }
+    }
+
+    private record Entrada(String clave, SugerenciaDTO sugerencia, long peso, boolean vip, int edad) { }
+
+    /**
+     * Acumula las sugerencias de una reconstrucción. No es thread-safe (lo usa un solo hilo).
+     */
+    static final class Constructor {
+
+        private final List<Entrada> entradas = new ArrayList<>();
+
+        /**
+         * @param peso popularidad (visualizaciones)
+         * @param vip solo la ven los usuarios VIP
+         * @param edad edad mínima para verla
+         */
+        Constructor anadir(SugerenciaDTO sugerencia, long peso, boolean vip, int edad) {
+            String normalizado = CamposBusqueda.normalizar(sugerencia.getTitulo());
+            if (normalizado.isEmpty()) {
+                return this;
+            }
+            entradas.add(new Entrada(normalizado, sugerencia, peso, vip, edad));
+            int palabras = 1;
+            for (int i = normalizado.indexOf(' '); i >= 0 && palabras < MAX_PALABRAS; i = normalizado.indexOf(' ', i + 1)) {
+                entradas.add(new Entrada(normalizado.substring(i + 1), sugerencia, peso, vip, edad));
+                palabras++;
+            }
+            return this;
+        }
+
+        DiccionarioSugerencias construir() {
+            entradas.sort(Comparator.comparing(Entrada::clave));
+            return new DiccionarioSugerencias(entradas);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package iso25.g05.esi_media.service;
 
+import iso25.g05.esi_media.dto.BusquedaFacetadaDTO;
 import iso25.g05.esi_media.dto.ContenidoDTO;
 import iso25.g05.esi_media.dto.TagStatDTO;
+import iso25.g05.esi_media.exception.AccesoNoAutorizadoException;
+import iso25.g05.esi_media.exception.PeticionInvalidaException;
 import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Visualizador;
 import iso25.g05.esi_media.repository.UsuarioRepository;
 
@@ -11,7 +15,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
 import org.springframework.data.mongodb.core.aggregation.MatchOperation;
 import org.springframework.data.mongodb.core.aggregation.SortOperation;
 import org.springframework.data.mongodb.core.aggregation.LimitOperation;
@@ -19,14 +25,17 @@ import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
 import org.springframework.data.mongodb.core.aggregation.UnwindOperation;
 import org.springframework.data.mongodb.core.aggregation.GroupOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 
 import java.util.*;
+import java.util.regex.Pattern;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import java.util.stream.Collectors;
 
 /**
  * Servicio para el filtrado avanzado de contenidos
- * Implementa las funcionalidades de TOP contenidos y TOP tags
+ * Implementa las funcionalidades de TOP contenidos, TOP tags y la búsqueda con facetas
  */
 @Service
 public class FiltradoContenidosAvanzadoService {
@@ -51,18 +60,38 @@ public class FiltradoContenidosAvanzadoService {
     private static final String TYPE_AUDIO = "audio";
     private static final String TYPE_ALL = "all";
     private static final String TYPE_CONTENIDO = "contenido";
+    private static final String FIELD_VIP = "vip";
+    private static final String FACETA_TIPO = "tipo";
+    private static final String FACETA_VIP = "vip";
+    private static final String FACETA_EDAD = "edad";
+    private static final String FACETA_RESOLUCION = "resolucion";
+    private static final String FACETA_TAGS = "tags";
+    private static final String FACETA_RESULTADOS = "resultados";
+    private static final String FACETA_TOTAL = "total";
+    private static final String COUNT_ALIAS = "n";
+    private static final int MAX_TAGS_FACETA = 10;
     private final UsuarioRepository usuarioRepository;
     private final MongoTemplate mongoTemplate;
     private final ValoracionService valoracionService;
+    private final BusquedaContenidosService busquedaService;
     
     public FiltradoContenidosAvanzadoService(UsuarioRepository usuarioRepository,
                                              MongoTemplate mongoTemplate,
-                                             ValoracionService valoracionService) {
+                                             ValoracionService valoracionService,
+                                             BusquedaContenidosService busquedaService) {
         this.usuarioRepository = usuarioRepository;
         this.mongoTemplate = mongoTemplate;
         this.valoracionService = valoracionService;
+        this.busquedaService = busquedaService;
     }
 
+    /**
+     * Valores elegidos en las facetas de la búsqueda (null = sin filtrar por esa faceta).
+     *
+     * @param tipo "video" o "audio"
+     */
+    public record FiltrosFacetas(String tipo, Boolean vip, Integer edad, String resolucion, String tag) {}
+
     /**
      * Obtiene los TOP N contenidos mejor valorados (por promedio de valoraciones)
      * Se basa en las valoraciones existentes. Contenidos sin valoraciones no se tienen en cuenta.
@@ -346,6 +375,229 @@ public class FiltradoContenidosAvanzadoService {
             .collect(Collectors.toList());
     }
     
+    /**
+     * Busca contenidos y devuelve la página junto a los conteos por faceta (tipo, VIP, edad,
+     * resolución y tags más frecuentes), todo en una sola agregación.
+     *
+     * - El primer $match aplica el texto ($text si existe el índice de texto; si no, prefijos sobre
+     *   las palabras normalizadas o, mientras no están rellenas, $regex sobre título y descripción)
+     *   y lo que el usuario puede ver (como en /multimedia).
+     * - Un $facet calcula a la vez la página, el total y cada faceta. Cada faceta se cuenta con los
+     *   filtros elegidos en las demás pero no con el suyo, para que el frontend pueda mostrar las
+     *   otras opciones de esa faceta con su número.
+     *
+     * @param token token de sesión
+     * @param texto texto buscado (vacío: todos los contenidos visibles)
+     * @param filtros valores elegidos en las facetas
+     * @param page página (desde 0)
+     * @param size tamaño de página
+     * @return resultados, total y facetas
+     * @throws PeticionInvalidaException si no se manda token
+     * @throws AccesoNoAutorizadoException si el token no es válido
+     */
+    public BusquedaFacetadaDTO buscarConFacetas(String token, String texto, FiltrosFacetas filtros, int page, int size) {
+        UsuarioAutenticado usuario = usuarioDeSesion(token);
+
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        boolean porTexto = false;
+        if (texto != null && !texto.isBlank()) {
+            Optional<TextCriteria> criterioTexto = busquedaService.criterioTexto(texto.trim());
+            Optional<Criteria> criterioPalabras = busquedaService.criterioPalabras(texto.trim());
+            if (criterioTexto.isPresent()) {
+                // $text tiene que ir en el primer $match de la agregación
+                pipeline.add(Aggregation.match(criterioTexto.get()));
+                porTexto = true;
+            } else if (criterioPalabras.isPresent()) {
+                pipeline.add(Aggregation.match(criterioPalabras.get()));
+            } else {
+                Pattern patron = Pattern.compile(Pattern.quote(texto.trim()), Pattern.CASE_INSENSITIVE);
+                pipeline.add(Aggregation.match(new Criteria().orOperator(
+                    Criteria.where(FIELD_TITULO).regex(patron),
+                    Criteria.where(FIELD_DESCRIPCION).regex(patron))));
+            }
+        }
+        criterioVisibilidad(usuario).map(Aggregation::match).ifPresent(pipeline::add);
+
+        Map<String, Criteria> elegidos = filtrosElegidos(filtros);
+        AggregationOperation orden = porTexto
+            ? contexto -> new Document("$sort", new Document("score", new Document("$meta", "textScore"))
+                .append(FIELD_NVISUALIZACIONES, -1))
+            : Aggregation.sort(org.springframework.data.domain.Sort.Direction.DESC, FIELD_NVISUALIZACIONES, FIELD_UNDERSCORE_ID);
+
+        FacetOperation facetas = Aggregation.facet(conFiltros(elegidos, null,
+                orden,
+                Aggregation.skip((long) page * size),
+                Aggregation.limit(size),
+                proyeccionContenido())).as(FACETA_RESULTADOS)
+            .and(conFiltros(elegidos, null,
+                Aggregation.count().as(FACETA_TOTAL))).as(FACETA_TOTAL)
+            .and(conFiltros(elegidos, FACETA_TIPO,
+                contarPor(expresionTipo()),
+                Aggregation.sort(org.springframework.data.domain.Sort.Direction.DESC, COUNT_ALIAS))).as(FACETA_TIPO)
+            .and(conFiltros(elegidos, FACETA_VIP,
+                contarPor("$" + FIELD_VIP),
+                Aggregation.sort(org.springframework.data.domain.Sort.Direction.ASC, FIELD_UNDERSCORE_ID))).as(FACETA_VIP)
+            .and(conFiltros(elegidos, FACETA_EDAD,
+                contarPor("$" + FIELD_EDAD_VISUALIZACION),
+                Aggregation.sort(org.springframework.data.domain.Sort.Direction.ASC, FIELD_UNDERSCORE_ID))).as(FACETA_EDAD)
+            .and(conFiltros(elegidos, FACETA_RESOLUCION,
+                Aggregation.match(Criteria.where(FIELD_RESOLUCION).ne(null)),
+                contarPor("$" + FIELD_RESOLUCION),
+                Aggregation.sort(org.springframework.data.domain.Sort.Direction.DESC, COUNT_ALIAS))).as(FACETA_RESOLUCION)
+            .and(conFiltros(elegidos, FACETA_TAGS,
+                Aggregation.unwind(FIELD_TAGS),
+                contarPor("$" + FIELD_TAGS),
+                Aggregation.sort(org.springframework.data.domain.Sort.Direction.DESC, COUNT_ALIAS),
+                Aggregation.limit(MAX_TAGS_FACETA))).as(FACETA_TAGS);
+        pipeline.add(facetas);
+
+        Document fila = mongoTemplate.aggregate(Aggregation.newAggregation(pipeline), COLLECTION_CONTENIDOS, Document.class)
+            .getUniqueMappedResult();
+        if (fila == null) {
+            fila = new Document();
+        }
+
+        List<ContenidoDTO> resultados = listaDe(fila, FACETA_RESULTADOS).stream()
+            .map(this::mapToContenidoDTO)
+            .toList();
+        List<Document> total = listaDe(fila, FACETA_TOTAL);
+        long totalResultados = total.isEmpty() ? 0L : toLongSafe(total.get(0).get(FACETA_TOTAL));
+
+        Map<String, Map<String, Long>> conteos = new LinkedHashMap<>();
+        for (String faceta : List.of(FACETA_TIPO, FACETA_VIP, FACETA_EDAD, FACETA_RESOLUCION, FACETA_TAGS)) {
+            Map<String, Long> valores = new LinkedHashMap<>();
+            for (Document grupo : listaDe(fila, faceta)) {
+                Object valor = grupo.get(FIELD_UNDERSCORE_ID);
+                if (valor != null) {
+                    valores.put(valor.toString(), toLongSafe(grupo.get(COUNT_ALIAS)));
+                }
+            }
+            conteos.put(faceta, valores);
+        }
+        return new BusquedaFacetadaDTO(resultados, totalResultados, page, size, conteos);
+    }
+
+    /**
+     * Valida el token y devuelve los permisos de su sesión (solo visualizadores y gestores de contenido).
+     */
+    private UsuarioAutenticado usuarioDeSesion(String token) {
+        if (token == null || token.isBlank()) {
+            throw new PeticionInvalidaException("Token de autorización requerido");
+        }
+        UsuarioAutenticado usuario = usuarioRepository.findUsuarioAutenticado(token)
+            .orElseThrow(() -> new AccesoNoAutorizadoException("Token no válido"));
+        if (!usuario.esVisualizador() && !usuario.esGestor()) {
+            throw new AccesoNoAutorizadoException("Solo los visualizadores y gestores de contenido pueden buscar contenidos");
+        }
+        return usuario;
+    }
+
+    /**
+     * Lo que puede ver el usuario: un visualizador, contenidos visibles, permitidos para su edad
+     * y, si no es VIP, no VIP; un gestor, todos.
+     */
+    private Optional<Criteria> criterioVisibilidad(UsuarioAutenticado usuario) {
+        if (!usuario.esVisualizador()) {
+            return Optional.empty();
+        }
+        int edad = 200;
+        if (usuario.fechanac() != null) {
+            java.time.LocalDate dob = usuario.fechanac().toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+            edad = java.time.Period.between(dob, java.time.LocalDate.now()).getYears();
+        }
+        Criteria criterio = Criteria.where(FIELD_ESTADO).is(true).and(FIELD_EDAD_VISUALIZACION).lte(edad);
+        if (!usuario.vip()) {
+            criterio = criterio.and(FIELD_VIP).is(false);
+        }
+        return Optional.of(criterio);
+    }
+
+    /** Criterio de cada faceta elegida, por nombre de faceta. */
+    private Map<String, Criteria> filtrosElegidos(FiltrosFacetas filtros) {
+        Map<String, Criteria> elegidos = new LinkedHashMap<>();
+        if (filtros == null) {
+            return elegidos;
+        }
+        if (TYPE_VIDEO.equals(filtros.tipo())) {
+            elegidos.put(FACETA_TIPO, Criteria.where(FIELD_URL).exists(true));
+        } else if (TYPE_AUDIO.equals(filtros.tipo())) {
+            elegidos.put(FACETA_TIPO, Criteria.where(FIELD_MIME_TYPE).exists(true));
+        }
+        if (filtros.vip() != null) {
+            elegidos.put(FACETA_VIP, Criteria.where(FIELD_VIP).is(filtros.vip()));
+        }
+        if (filtros.edad() != null) {
+            elegidos.put(FACETA_EDAD, Criteria.where(FIELD_EDAD_VISUALIZACION).is(filtros.edad()));
+        }
+        if (filtros.resolucion() != null && !filtros.resolucion().isBlank()) {
+            elegidos.put(FACETA_RESOLUCION, Criteria.where(FIELD_RESOLUCION).is(filtros.resolucion()));
+        }
+        if (filtros.tag() != null && !filtros.tag().isBlank()) {
+            elegidos.put(FACETA_TAGS, Criteria.where(FIELD_TAGS).is(filtros.tag()));
+        }
+        return elegidos;
+    }
+
+    /**
+     * Sub-pipeline de una faceta: $match con los filtros elegidos menos el de la propia faceta
+     * ({@code excluida}, null para aplicarlos todos) y después las operaciones dadas.
+     */
+    private static AggregationOperation[] conFiltros(Map<String, Criteria> elegidos, String excluida,
+                                                     AggregationOperation... operaciones) {
+        List<Criteria> aplicados = new ArrayList<>();
+        elegidos.forEach((faceta, criterio) -> {
+            if (!faceta.equals(excluida)) {
+                aplicados.add(criterio);
+            }
+        });
+        List<AggregationOperation> sub = new ArrayList<>();
+        if (!aplicados.isEmpty()) {
+            sub.add(Aggregation.match(new Criteria().andOperator(aplicados.toArray(new Criteria[0]))));
+        }
+        sub.addAll(Arrays.asList(operaciones));
+        return sub.toArray(new AggregationOperation[0]);
+    }
+
+    /** $group que cuenta los documentos por {@code clave} (campo o expresión). */
+    private static AggregationOperation contarPor(Object clave) {
+        return contexto -> new Document("$group", new Document(FIELD_UNDERSCORE_ID, clave)
+            .append(COUNT_ALIAS, new Document("$sum", 1)));
+    }
+
+    /** Tipo por los campos característicos de cada clase, igual que el filtro por tipo. */
+    private static Document expresionTipo() {
+        return new Document("$cond", List.of(
+            new Document("$ne", Arrays.asList(new Document("$type", "$" + FIELD_URL), "missing")),
+            TYPE_VIDEO,
+            new Document("$cond", List.of(
+                new Document("$ne", Arrays.asList(new Document("$type", "$" + FIELD_MIME_TYPE), "missing")),
+                TYPE_AUDIO,
+                TYPE_CONTENIDO))));
+    }
+
+    private static ProjectionOperation proyeccionContenido() {
+        return Aggregation.project()
+            .and(FIELD_UNDERSCORE_ID).as(FIELD_ID)
+            .and(FIELD_TITULO).as(FIELD_TITULO)
+            .and(FIELD_DESCRIPCION).as(FIELD_DESCRIPCION)
+            .and(FIELD_NVISUALIZACIONES).as(FIELD_NVISUALIZACIONES)
+            .and(FIELD_EDAD_VISUALIZACION).as(FIELD_EDAD_VISUALIZACION)
+            .and(FIELD_ESTADO).as(FIELD_ESTADO)
+            .and(FIELD_TAGS).as(FIELD_TAGS)
+            .and(FIELD_URL).as(FIELD_URL)
+            .and(FIELD_RESOLUCION).as(FIELD_RESOLUCION)
+            .and(FIELD_MIME_TYPE).as(FIELD_MIME_TYPE);
+    }
+
+    private static List<Document> listaDe(Document fila, String clave) {
+        List<Document> lista = fila.getList(clave, Document.class);
+        return lista == null ? List.of() : lista;
+    }
+
+    private static long toLongSafe(Object valor) {
+        return valor instanceof Number number ? number.longValue() : 0L;
+    }
+
     /**
      * Determina si un usuario puede ver contenido +18
      * Para usuarios anónimos (userId null), se asume que no pueden ver +18
@@ -0,0 +1,56 @@
+package iso25.g05.esi_media.service;
+
+/**
+ * Cálculo de la forma de onda resumida (picos) de un MP3 a partir de su envolvente de ganancia.
+ *
+ * Formato: pares min/max intercalados en bytes con signo ({@code [min0, max0, min1, max1, ...]}),
+ * como los ficheros .dat de 8 bits habituales en reproductores web. El valor es simétrico
+ * (min = -max) porque la envolvente no distingue semiciclos.
+ *
+ * La envolvente sale del {@code global_gain} de cada frame (pasos de 1,5 dB): se escala
+ * respecto al frame más alto del fichero con un rango dinámico de {@value #RANGO_DB} dB.
+ */
+public final class FormaOnda {
+
+    /** Número de pares min/max por defecto. */
+    public static final int PUNTOS = 1000;
+
+    private static final double DB_POR_PASO = 1.5;
+    private static final double RANGO_DB = 48.0;
+
+    private FormaOnda() { }
+
+    /**
+     * @param ganancias global_gain por frame (sin signo, guardado en byte)
+     * @param puntos número máximo de pares; si hay menos frames se devuelve un par por frame
+     * @return pares min/max intercalados (vacío si no hay ganancias)
+     */
+    public static byte[] calcularPicos(byte[] ganancias, int puntos) {
+        int n = Math.min(puntos, ganancias.length);
+        if (n == 0) {
+            return new byte[0];
+        }
+
+        int[] maximos = new int[n];
+        int maximoFichero = 0;
+        for (int i = 0; i < n; i++) {
+            int desde = (int) ((long) i * ganancias.length / n);
+            int hasta = (int) ((long) (i + 1) * ganancias.length / n);
+            int maximo = 0;
+            for (int j = desde; j < hasta; j++) {
+                maximo = Math.max(maximo, ganancias[j] & 0xFF);
+            }
+            maximos[i] = maximo;
+            maximoFichero = Math.max(maximoFichero, maximo);
+        }
+
+        byte[] picos = new byte[n * 2];
+        for (int i = 0; i < n; i++) {
+            double atenuacionDb = (maximoFichero - maximos[i]) * DB_POR_PASO;
+            int amplitud = maximos[i] == 0 ? 0 : (int) Math.round(127 * Math.max(0, 1 - atenuacionDb / RANGO_DB));
+            picos[2 * i] = (byte) -amplitud;
+            picos[2 * i + 1] = (byte) amplitud;
+        }
+        return picos;
+    }
+}
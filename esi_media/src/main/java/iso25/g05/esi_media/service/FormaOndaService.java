@@ -0,0 +1,71 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.dto.FormaOndaDTO;
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+
+/**
+ * Forma de onda precalculada de los audios.
+ *
+ * Los audios nuevos la traen calculada desde la subida (misma pasada que el índice MP3).
+ * Para los anteriores se calcula la primera vez que se pide y se guarda en el documento.
+ */
+@Service
+public class FormaOndaService {
+
+    private final AudioStreamingService audioStreamingService;
+    private final AudioCacheService audioCache;
+    private final MongoTemplate mongoTemplate;
+
+    public FormaOndaService(AudioStreamingService audioStreamingService,
+                            AudioCacheService audioCache,
+                            MongoTemplate mongoTemplate) {
+        this.audioStreamingService = audioStreamingService;
+        this.audioCache = audioCache;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * ETag de la forma de onda: deriva del contenido del fichero y de la versión del cálculo.
+     */
+    public String etag(Audio audio) {
+        return audio.getchecksum() != null ? "\"picos-v1-" + audio.getchecksum() + "\"" : null;
+    }
+
+    public FormaOndaDTO obtener(Audio audio) {
+        byte[] picos = audio.getpicos() != null ? audio.getpicos() : calcularYGuardar(audio);
+        int[] valores = new int[picos.length];
+        for (int i = 0; i < picos.length; i++) {
+            valores[i] = picos[i];
+        }
+        return new FormaOndaDTO(picos.length / 2, audio.getduracion(), valores);
+    }
+
+    private byte[] calcularYGuardar(Audio audio) {
+        FuenteBinaria fuente = audioStreamingService.obtenerFuente(audio);
+        Optional<IndiceMp3> indice;
+        try (InputStream in = fuente.abrirDesde(0)) {
+            indice = AnalizadorMp3.analizar(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo calcular la forma de onda del audio " + audio.getId(), e);
+        }
+        // Sin frames de capa III se guarda vacía para no repetir el análisis
+        byte[] picos = indice.map(i -> FormaOnda.calcularPicos(i.ganancias(), FormaOnda.PUNTOS)).orElse(new byte[0]);
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(audio.getId())),
+            new Update().set("picos", picos), Contenido.class);
+        audioCache.invalidar(audio.getId());
+        return picos;
+    }
+}
@@ -0,0 +1,49 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Origen de los bytes de un fichero que se sirve por streaming.
+ * Permite leer a partir de cualquier posición sin cargar el fichero entero en memoria.
+ *
+ * Implementaciones:
+ * - {@link FuenteBuffer}: bytes ya en memoria (caché de audios calientes o binario embebido).
+ * - {@link FuenteFichero}: fichero del almacén local, copiado con {@code FileChannel.transferTo}.
+ * - Cualquier almacén que solo sepa abrir streams (GridFS) usa la copia por defecto.
+ */
+public interface FuenteBinaria {
+
+    /** Tamaño total del fichero en bytes. */
+    long longitud();
+
+    /**
+     * Abre un stream posicionado en el byte indicado. El llamador debe cerrarlo.
+     */
+    InputStream abrirDesde(long posicion) throws IOException;
+
+    /**
+     * Escribe el rango en el canal de salida en trozos de como mucho {@code tamanoTrozo} bytes.
+     * Por defecto lee del stream; las fuentes en disco o en memoria lo sobrescriben para
+     * evitar la copia intermedia.
+     */
+    default void escribirRango(RangoBytes rango, WritableByteChannel destino, int tamanoTrozo) throws IOException {
+        try (InputStream in = abrirDesde(rango.inicio())) {
+            byte[] buffer = new byte[(int) Math.min(tamanoTrozo, Math.max(1, rango.longitud()))];
+            long pendiente = rango.longitud();
+            while (pendiente > 0) {
+                int leidos = in.read(buffer, 0, (int) Math.min(buffer.length, pendiente));
+                if (leidos < 0) {
+                    throw new IOException("Fin de fichero inesperado: faltan " + pendiente + " bytes");
+                }
+                ByteBuffer trozo = ByteBuffer.wrap(buffer, 0, leidos);
+                while (trozo.hasRemaining()) {
+                    destino.write(trozo);
+                }
+                pendiente -= leidos;
+            }
+        }
+    }
+}
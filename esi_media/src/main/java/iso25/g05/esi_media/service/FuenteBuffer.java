@@ -0,0 +1,67 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Fuente respaldada por un {@link ByteBuffer} (directo en la caché de audios, de heap para
+ * binarios embebidos). Cada lectura trabaja sobre un {@code duplicate()}, así que el buffer
+ * compartido nunca cambia de posición y puede servirse a varios clientes a la vez.
+ */
+final class FuenteBuffer implements FuenteBinaria {
+
+    private final ByteBuffer datos;
+
+    FuenteBuffer(ByteBuffer datos) {
+        this.datos = datos;
+    }
+
+    @Override
+    public long longitud() {
+        return datos.limit();
+    }
+
+    @Override
+    public InputStream abrirDesde(long posicion) {
+        ByteBuffer vista = datos.duplicate();
+        vista.position((int) posicion);
+        return new InputStream() {
+            @Override
+            public int read() {
+                return vista.hasRemaining() ? vista.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!vista.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, vista.remaining());
+                vista.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return vista.remaining();
+            }
+        };
+    }
+
+    @Override
+    public void escribirRango(RangoBytes rango, WritableByteChannel destino, int tamanoTrozo) throws IOException {
+        ByteBuffer vista = datos.duplicate();
+        long fin = rango.fin() + 1;
+        long posicion = rango.inicio();
+        while (posicion < fin) {
+            int hasta = (int) Math.min(fin, posicion + tamanoTrozo);
+            vista.limit(hasta).position((int) posicion);
+            while (vista.hasRemaining()) {
+                destino.write(vista);
+            }
+            posicion = hasta;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fuente respaldada por un fichero del almacén local. Los rangos se copian con
+ * {@code FileChannel.transferTo}, que delega la copia en el sistema operativo en lugar
+ * de leer los bytes a arrays del heap.
+ */
+final class FuenteFichero implements FuenteBinaria {
+
+    private final Path ruta;
+    private final long longitud;
+
+    FuenteFichero(Path ruta, long longitud) {
+        this.ruta = ruta;
+        this.longitud = longitud;
+    }
+
+    @Override
+    public long longitud() {
+        return longitud;
+    }
+
+    @Override
+    public InputStream abrirDesde(long posicion) throws IOException {
+        FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ);
+        try {
+            canal.position(posicion);
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        return Channels.newInputStream(canal);
+    }
+
+    @Override
+    public void escribirRango(RangoBytes rango, WritableByteChannel destino, int tamanoTrozo) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long posicion = rango.inicio();
+            long pendiente = rango.longitud();
+            while (pendiente > 0) {
+                long enviados = canal.transferTo(posicion, Math.min(pendiente, tamanoTrozo), destino);
+                if (enviados <= 0) {
+                    throw new IOException("Fin de fichero inesperado: faltan " + pendiente + " bytes");
+                }
+                posicion += enviados;
+                pendiente -= enviados;
+            }
+        }
+    }
+}
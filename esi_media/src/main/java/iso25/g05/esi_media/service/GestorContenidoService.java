@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import iso25.g05.esi_media.dto.ContenidoDetalleDTO;
 import iso25.g05.esi_media.dto.ContenidoResumenDTO;
 import iso25.g05.esi_media.dto.ContenidoUpdateDTO;
+import iso25.g05.esi_media.dto.PaginaCursorDTO;
 import iso25.g05.esi_media.exception.AccesoNoAutorizadoException;
 import iso25.g05.esi_media.exception.PeticionInvalidaException;
 import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
@@ -21,7 +22,9 @@ import iso25.g05.esi_media.mapper.ContenidoMapper;
 import iso25.g05.esi_media.model.Audio;
 import iso25.g05.esi_media.model.Contenido;
 import iso25.g05.esi_media.model.GestordeContenido;
-import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.SegmentoAudio;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Video;
 import iso25.g05.esi_media.repository.ContenidoRepository;
 import iso25.g05.esi_media.repository.GestorDeContenidoRepository;
@@ -57,6 +60,30 @@ public class GestorContenidoService {
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    private AudioCacheService audioCache;
+
+    @Autowired
+    private UrlFirmadaService urlFirmadaService;
+
+    @Autowired
+    private CaratulaService caratulaService;
+
+    @Autowired
+    private BorradoBlobsService borradoBlobs;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private IndiceTitulosService indiceTitulos;
+
+    @Autowired
+    private BusquedaContenidosService busquedaService;
+
+    @Autowired
+    private CacheListadosService cacheListados;
+
     /**
      * Lista todos los contenidos gestionables por el Gestor autenticado.
      * Incluye contenidos visibles y no visibles, de audio y vídeo.
@@ -66,16 +93,52 @@ public class GestorContenidoService {
                                             String tipo,
                                             String query) {
         GestordeContenido gestor = validarYObtenerGestor(authHeaderOrToken);
+        logService.registrarAccion("Listado de contenidos por gestor", gestor.getEmail());
+
+        // Todos los gestores ven lo mismo: la página cacheada es común (también con MultimediaService,
+        // que recorta el texto igual, así que " rock" y "rock" comparten entrada)
+        String texto = query != null && !query.trim().isEmpty() ? query.trim() : null;
+        CacheListadosService.Clave clave = CacheListadosService.Clave.gestor(tipo, texto, pageable);
+        Optional<Page<ContenidoResumenDTO>> cacheada = cacheListados.obtener(clave);
+        if (cacheada.isPresent()) {
+            return cacheada.get();
+        }
+        long generacion = cacheListados.generacion();
 
         Page<Contenido> pagina;
-        if (query != null && !query.isBlank()) {
-            pagina = buscarContenidosGestorPorTipo(tipo, query, pageable);
+        if (texto != null) {
+            pagina = busquedaService.buscarParaGestor(texto, tipo, pageable)
+                .orElseGet(() -> buscarContenidosGestorPorTipo(tipo, texto, pageable));
         } else {
-            pagina = listarContenidosGestorPorTipo(tipo, pageable);
+            pagina = catalogoService.listarParaGestor(tipo, pageable)
+                .orElseGet(() -> listarContenidosGestorPorTipo(tipo, pageable));
         }
 
+        // Las entidades solo traen los campos del resumen (del catálogo o con ContenidoRepository.CAMPOS_RESUMEN)
+        Page<ContenidoResumenDTO> resumen = pagina.map(c -> ContenidoMapper.aResumen(c, caratulaService.urlMiniatura(c)));
+        cacheListados.guardar(clave, resumen, generacion);
+        return resumen;
+    }
+
+    /**
+     * Lista los contenidos con paginación por cursor, sin totales.
+     * La búsqueda por texto solo admite la paginación por página de {@link #listar}.
+     */
+    public PaginaCursorDTO<ContenidoResumenDTO> listarPorCursor(String authHeaderOrToken,
+                                                               String tipo,
+                                                               String query,
+                                                               String orden,
+                                                               String cursor,
+                                                               int tamano) {
+        GestordeContenido gestor = validarYObtenerGestor(authHeaderOrToken);
+        if (query != null && !query.isBlank()) {
+            throw new PeticionInvalidaException("La búsqueda por texto solo admite paginación por página (page/size)");
+        }
+
+        PaginaCursorDTO<Contenido> pagina = catalogoService.listarGestorPorCursor(tipo, orden, cursor, tamano);
+
         logService.registrarAccion("Listado de contenidos por gestor", gestor.getEmail());
-        return pagina.map(ContenidoMapper::aResumen);
+        return pagina.map(c -> ContenidoMapper.aResumen(c, caratulaService.urlMiniatura(c)));
     }
 
     /**
@@ -87,8 +150,8 @@ public class GestorContenidoService {
         Contenido contenido = contenidoRepository.findByIdForGestor(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException(CONTENIDO_NO_ENCONTRADO));
 
-        String referencia = construirReferenciaReproduccion(contenido);
-        ContenidoDetalleDTO dto = ContenidoMapper.aDetalle(contenido, referencia);
+        String referencia = construirReferenciaReproduccion(contenido, gestor);
+        ContenidoDetalleDTO dto = ContenidoMapper.aDetalle(contenido, referencia, caratulaService.url(contenido));
 
         // Añadir información del creador (gestor que subió el contenido)
         if (contenido.getgestorId() != null) {
@@ -116,6 +179,7 @@ public class GestorContenidoService {
                 .orElseThrow(() -> new RecursoNoEncontradoException(CONTENIDO_NO_ENCONTRADO));
 
         validarPermisosTipo(gestor, contenido);
+        CacheListadosService.Visibilidad visibilidadAnterior = CacheListadosService.Visibilidad.de(contenido);
 
         // Aplicar cambios permitidos
         contenido.settitulo(dto.getTitulo());
@@ -132,8 +196,9 @@ public class GestorContenidoService {
         }
         contenido.setfechadisponiblehasta(dto.getFechaDisponibleHasta());
 
+        ImagenCaratula caratulaAnterior = contenido.getimagenCaratula();
         if (dto.getCaratula() != null) {
-            contenido.setcaratula(dto.getCaratula());
+            caratulaService.asignar(contenido, dto.getCaratula());
         }
 
         // Si pasa a no visible, actualizar fechaestadoautomatico
@@ -149,12 +214,22 @@ public class GestorContenidoService {
             }
         }
 
+        CamposBusqueda.aplicar(contenido);
         contenidoRepository.save(contenido);
+        catalogoService.sincronizar(contenido);
+        indiceTitulos.actualizar(contenido);
+        // Estado, edad o VIP pueden haber cambiado: la copia cacheada ya no sirve
+        audioCache.invalidar(contenido.getId());
+        cacheListados.invalidar(visibilidadAnterior, CacheListadosService.Visibilidad.de(contenido));
+        if (caratulaAnterior != contenido.getimagenCaratula()) {
+            caratulaService.eliminarSiHuerfana(caratulaAnterior);
+            caratulaService.programarMiniaturas(contenido);
+        }
 
         logService.registrarAccion("Actualización de contenido " + contenido.getId(), gestor.getEmail());
 
-        String referencia = construirReferenciaReproduccion(contenido);
-        return ContenidoMapper.aDetalle(contenido, referencia);
+        String referencia = construirReferenciaReproduccion(contenido, gestor);
+        return ContenidoMapper.aDetalle(contenido, referencia, caratulaService.url(contenido));
     }
 
     /**
@@ -169,6 +244,23 @@ public class GestorContenidoService {
         validarPermisosTipo(gestor, contenido);
 
         contenidoRepository.delete(contenido);
+        catalogoService.eliminar(contenido.getId());
+        indiceTitulos.eliminar(contenido.getId());
+        audioCache.invalidar(contenido.getId());
+        cacheListados.invalidar(CacheListadosService.Visibilidad.de(contenido), null);
+
+        // El binario del audio vive en el almacén de blobs: eliminarlo junto al contenido
+        // salvo que otro audio con el mismo contenido siga (o empiece a) apuntar a él
+        if (contenido instanceof Audio audio) {
+            borradoBlobs.eliminarSiHuerfano(audio.getblobId(), "blobId");
+        }
+        caratulaService.eliminarSiHuerfana(contenido.getimagenCaratula());
+        // Igual con los segmentos de la entrega segmentada (idénticos si el audio lo es)
+        if (contenido instanceof Audio audio && audio.getsegmentos() != null) {
+            for (SegmentoAudio segmento : audio.getsegmentos()) {
+                borradoBlobs.eliminarSiHuerfano(segmento.getblobId(), "segmentos.blobId");
+            }
+        }
 
         // Registrar eliminación en log para trazabilidad
         logService.registrarAccion("Eliminación de contenido " + contenido.getId(), gestor.getEmail());
@@ -178,7 +270,7 @@ public class GestorContenidoService {
      * Devuelve una lista única y ordenada de todos los tags existentes en la plataforma.
      */
     public List<String> obtenerTodosLosTags(String authHeaderOrToken) {
-        validarYObtenerGestor(authHeaderOrToken);
+        validarGestor(authHeaderOrToken);
         List<String> tags = mongoTemplate.query(Contenido.class).distinct("tags").as(String.class).all();
         return tags.stream().sorted().collect(Collectors.toList());
     }
@@ -186,27 +278,31 @@ public class GestorContenidoService {
     // ====================== MÉTODOS PRIVADOS =========================
 
     private GestordeContenido validarYObtenerGestor(String authHeaderOrToken) {
+        UsuarioAutenticado usuario = validarGestor(authHeaderOrToken);
+        // Las operaciones usan el gestor completo (tipo de contenido, email para el log)
+        return gestorRepository.findById(usuario.id())
+            .orElseThrow(() -> new AccesoNoAutorizadoException(OPERACION_NO_PERMITIDA));
+    }
+
+    /**
+     * Comprueba que la sesión es de un gestor no bloqueado, sin cargar el gestor.
+     */
+    private UsuarioAutenticado validarGestor(String authHeaderOrToken) {
         String token = extraerToken(authHeaderOrToken);
         if (token == null || token.isBlank()) {
             throw new PeticionInvalidaException(TOKEN_REQUERIDO);
         }
 
-        Optional<Usuario> usuarioOpt = usuarioRepository.findBySesionToken(token);
+        Optional<UsuarioAutenticado> usuarioOpt = usuarioRepository.findUsuarioAutenticado(token);
         if (usuarioOpt.isEmpty()) {
             throw new AccesoNoAutorizadoException(OPERACION_NO_PERMITIDA);
         }
 
-        Usuario usuario = usuarioOpt.get();
-        if (!(usuario instanceof GestordeContenido gestor)) {
+        UsuarioAutenticado usuario = usuarioOpt.get();
+        if (!usuario.esGestor() || usuario.bloqueado()) {
             throw new AccesoNoAutorizadoException(OPERACION_NO_PERMITIDA);
         }
-
-        if (gestor.isBloqueado()) {
-            throw new AccesoNoAutorizadoException(OPERACION_NO_PERMITIDA);
-        }
-
-        // Asegurarse de tener la versión más reciente del gestor
-        return gestorRepository.findById(gestor.getId()).orElse(gestor);
+        return usuario;
     }
 
     private void validarPermisosTipo(GestordeContenido gestor, Contenido contenido) {
@@ -257,14 +353,14 @@ public class GestorContenidoService {
         return contenidoRepository.searchAllContenidosForGestor(query, pageable);
     }
 
-    private String construirReferenciaReproduccion(Contenido contenido) {
+    private String construirReferenciaReproduccion(Contenido contenido, GestordeContenido gestor) {
         if (contenido instanceof Video v) {
             // En Video el getter está definido como geturl()
             return v.geturl();
         }
         if (contenido instanceof Audio a) {
-            // Usar URL absoluta coherente con MultimediaService
-            return "http://localhost:8080/multimedia/audio/" + a.getId();
+            // URL firmada coherente con MultimediaService (permisos de gestor)
+            return urlFirmadaService.firmarAudio(a.getId(), PermisoStream.deGestor(gestor.getId()));
         }
         return "";
     }
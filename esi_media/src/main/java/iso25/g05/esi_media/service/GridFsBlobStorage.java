@@ -0,0 +1,213 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+
+/**
+ * Almacén de blobs sobre GridFS.
+ *
+ * Por qué existe: los ficheros de audio se guardaban embebidos en el documento
+ * de "contenidos", de modo que cualquier consulta de catálogo arrastraba los
+ * megabytes del MP3. Aquí se guardan troceados en el bucket de GridFS y el
+ * documento solo conserva el id del blob, el tamaño, el checksum y el MIME.
+ */
+@Service
+@ConditionalOnProperty(name = "app.blobs.backend", havingValue = "gridfs", matchIfMissing = true)
+public class GridFsBlobStorage implements BlobStorage {
+
+    private static final int CHUNK_SIZE_BYTES = 255 * 1024;
+    private static final String META_CONTENT_TYPE = "contentType";
+    private static final String META_SHA256 = "sha256";
+
+    private final MongoTemplate mongoTemplate;
+    private final String bucketName;
+    private final Path directorioTemporal;
+    private GridFSBucket bucket;
+
+    public GridFsBlobStorage(MongoTemplate mongoTemplate,
+                             @Value("${app.blobs.gridfs.bucket:audios}") String bucketName,
+                             @Value("${app.blobs.gridfs.temporal:${java.io.tmpdir}/esi_media-subidas}") String directorioTemporal) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketName = bucketName;
+        this.directorioTemporal = Path.of(directorioTemporal);
+    }
+
+    /**
+     * Guarda el contenido del stream en GridFS calculando el SHA-256.
+     *
+     * Los bytes se escriben primero a un temporal en disco ({@code app.blobs.gridfs.temporal})
+     * mientras se calcula el hash, como en {@link LocalDiskBlobStorage}. Si ya existía un blob con
+     * el mismo SHA-256 se devuelve ese y no se escribe ningún chunk: las resubidas idénticas (de
+     * cualquier gestor) comparten blob sin pagar la escritura en Mongo. Si no, se sube el temporal
+     * con el hash ya en los metadatos.
+     * Hasta que el llamador guarde su referencia, el existente puede borrarse por huérfano si se da
+     * de baja el contenido que lo usaba: ver {@link BorradoBlobsService#confirmarReferencia(String)}.
+     *
+     * @param contenido stream con los bytes del fichero (no se cierra aquí)
+     * @param nombre nombre original del fichero (informativo)
+     * @param mimeType tipo MIME del fichero
+     * @return metadatos del blob guardado (o del existente con el mismo contenido)
+     */
+    @Override
+    public BlobInfo guardar(InputStream contenido, String nombre, String mimeType) {
+        MessageDigest digest = nuevoDigestSha256();
+        Path temporal = null;
+        try {
+            Files.createDirectories(directorioTemporal);
+            temporal = Files.createTempFile(directorioTemporal, "subida-", ".part");
+            long tamano = Files.copy(new DigestInputStream(contenido, digest), temporal,
+                StandardCopyOption.REPLACE_EXISTING);
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+
+            GridFSFile existente = getBucket()
+                .find(Filters.eq("metadata." + META_SHA256, sha256))
+                .sort(Sorts.ascending("uploadDate"))
+                .first();
+            if (existente != null) {
+                return new BlobInfo(existente.getObjectId().toHexString(), existente.getLength(), sha256, mimeType);
+            }
+
+            GridFSUploadOptions opciones = new GridFSUploadOptions()
+                .chunkSizeBytes(CHUNK_SIZE_BYTES)
+                .metadata(new Document(META_CONTENT_TYPE, mimeType).append(META_SHA256, sha256));
+            ObjectId id;
+            try (InputStream bytes = Files.newInputStream(temporal)) {
+                id = getBucket().uploadFromStream(nombre != null ? nombre : "blob", bytes, opciones);
+            }
+            return new BlobInfo(id.toHexString(), tamano, sha256, mimeType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo el fichero a subir", e);
+        } finally {
+            // También si falla una validación del stream (p. ej. tamaño máximo)
+            borrarSilencioso(temporal);
+        }
+    }
+
+    /**
+     * Abre un stream de lectura sobre el blob. El llamador es responsable de cerrarlo.
+     *
+     * @throws RecursoNoEncontradoException si el blob no existe
+     */
+    @Override
+    public InputStream abrir(String blobId) {
+        ObjectId id = aObjectId(blobId);
+        buscarFichero(id);
+        return getBucket().openDownloadStream(id);
+    }
+
+    /**
+     * Abre un stream de lectura posicionado en el byte indicado.
+     * GridFS calcula el chunk de destino, así que no se leen los chunks anteriores.
+     */
+    @Override
+    public InputStream abrirDesde(String blobId, long posicion) throws IOException {
+        InputStream in = abrir(blobId);
+        long pendiente = posicion;
+        while (pendiente > 0) {
+            long saltados = in.skip(pendiente);
+            if (saltados <= 0) {
+                in.close();
+                throw new IOException("No se pudo posicionar el blob " + blobId + " en " + posicion);
+            }
+            pendiente -= saltados;
+        }
+        return in;
+    }
+
+    /**
+     * Devuelve los metadatos del blob sin leer su contenido.
+     *
+     * @throws RecursoNoEncontradoException si el blob no existe
+     */
+    @Override
+    public BlobInfo obtenerInfo(String blobId) {
+        GridFSFile fichero = buscarFichero(aObjectId(blobId));
+        Document metadata = fichero.getMetadata();
+        String sha256 = metadata != null ? metadata.getString(META_SHA256) : null;
+        String mimeType = metadata != null ? metadata.getString(META_CONTENT_TYPE) : null;
+        return new BlobInfo(blobId, fichero.getLength(), sha256, mimeType);
+    }
+
+    /**
+     * Elimina el blob. Si no existe no hace nada.
+     */
+    @Override
+    public void eliminar(String blobId) {
+        if (blobId == null || !ObjectId.isValid(blobId)) {
+            return;
+        }
+        ObjectId id = new ObjectId(blobId);
+        if (getBucket().find(Filters.eq("_id", id)).first() != null) {
+            getBucket().delete(id);
+        }
+    }
+
+    private GridFSFile buscarFichero(ObjectId id) {
+        GridFSFile fichero = getBucket().find(Filters.eq("_id", id)).first();
+        if (fichero == null) {
+            throw new RecursoNoEncontradoException("Blob no encontrado: " + id.toHexString());
+        }
+        return fichero;
+    }
+
+    private ObjectId aObjectId(String blobId) {
+        if (blobId == null || !ObjectId.isValid(blobId)) {
+            throw new RecursoNoEncontradoException("Blob no encontrado: " + blobId);
+        }
+        return new ObjectId(blobId);
+    }
+
+    private synchronized GridFSBucket getBucket() {
+        if (bucket == null) {
+            bucket = GridFSBuckets.create(mongoTemplate.getDb(), bucketName);
+            // Búsqueda de duplicados por hash al subir
+            mongoTemplate.getCollection(bucketName + ".files")
+                .createIndex(Indexes.ascending("metadata." + META_SHA256));
+        }
+        return bucket;
+    }
+
+    private static void borrarSilencioso(Path fichero) {
+        if (fichero == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fichero);
+        } catch (IOException e) {
+            // No es crítico: como mucho queda un temporal huérfano
+        }
+    }
+
+    private static MessageDigest nuevoDigestSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible en la JVM", e);
+        }
+    }
+}
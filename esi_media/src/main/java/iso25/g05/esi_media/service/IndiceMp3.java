@@ -0,0 +1,12 @@
+package iso25.g05.esi_media.service;
+
+/**
+ * Resultado del análisis de un MP3: duración real y tabla de búsqueda tiempo → byte.
+ *
+ * @param duracionSegundos duración calculada a partir de los frames (o de la cabecera Xing/VBRI)
+ * @param frames número de frames de audio
+ * @param tablaBusqueda offset en bytes del frame que contiene el segundo i (posición i)
+ * @param ganancias global_gain (0-255, con signo en el byte) de cada frame; vacío si no es capa III
+ */
+public record IndiceMp3(double duracionSegundos, int frames, int[] tablaBusqueda, byte[] ganancias) {
+}
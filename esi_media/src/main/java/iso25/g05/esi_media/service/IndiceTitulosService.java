@@ -0,0 +1,153 @@
+package iso25.g05.esi_media.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.dto.SugerenciaDTO;
+import iso25.g05.esi_media.mapper.CatalogoMapper;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.TipoContenido;
+
+/**
+ * Autocompletado de títulos de contenidos servido desde memoria ({@link IndiceTrigramas}).
+ *
+ * Por qué existe: la búsqueda por título de /contenidos/buscar hacía un $regex y después
+ * cargaba todos los vídeos y audios (con sus binarios) para filtrar en Java. El índice solo
+ * guarda id, título y tipo, y responde sin ir a la base de datos.
+ *
+ * Reglas:
+ * - Al arrancar se construye en segundo plano leyendo solo título y _class por cursor.
+ * - Las altas, modificaciones y bajas de contenidos llaman a {@link #actualizar} y
+ *   {@link #eliminar}. Las que llegan mientras se construye se vuelven a aplicar al terminar.
+ * - Mientras no está construido, {@link #sugerir} devuelve vacío y el llamador usa la base de datos.
+ */
+@Service
+public class IndiceTitulosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceTitulosService.class);
+
+    private static final int LOTE_CURSOR = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndiceTrigramas indice = new IndiceTrigramas();
+    /** Escrituras recibidas durante una construcción (null si no hay ninguna en curso). */
+    private List<Consumer<IndiceTrigramas>> pendientes;
+    private volatile boolean listo;
+
+    public IndiceTitulosService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public boolean listo() {
+        return listo;
+    }
+
+    /**
+     * @return hasta {@code limite} títulos que contienen el texto (sin distinguir mayúsculas ni
+     *         tildes), o vacío si el índice aún no está construido
+     */
+    public Optional<List<SugerenciaDTO>> sugerir(String texto, int limite) {
+        if (!listo) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            return Optional.of(indice.buscar(texto, limite));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Refleja el alta o modificación de un contenido. */
+    public void actualizar(Contenido contenido) {
+        TipoContenido tipo = CatalogoMapper.tipoDe(contenido);
+        if (contenido.getId() == null || tipo == null) {
+            return;
+        }
+        String id = contenido.getId();
+        String titulo = contenido.gettitulo();
+        aplicar(i -> i.poner(id, titulo, tipo.name()));
+    }
+
+    public void eliminar(String contenidoId) {
+        aplicar(i -> i.quitar(contenidoId));
+    }
+
+    private void aplicar(Consumer<IndiceTrigramas> cambio) {
+        lock.writeLock().lock();
+        try {
+            cambio.accept(indice);
+            if (pendientes != null) {
+                pendientes.add(cambio);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Construye el índice completo en segundo plano y lo sustituye al terminar.
+     */
+    @Async
+    public void construirEnSegundoPlano() {
+        try {
+            int total = construir();
+            logger.info("Índice de títulos construido. Contenidos: {}", total);
+        } catch (Exception e) {
+            logger.error("Error construyendo el índice de títulos: {}", e.getMessage(), e);
+            lock.writeLock().lock();
+            try {
+                pendientes = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    int construir() {
+        lock.writeLock().lock();
+        try {
+            pendientes = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        IndiceTrigramas nuevo = new IndiceTrigramas();
+        Query query = new Query().cursorBatchSize(LOTE_CURSOR);
+        query.fields().include("titulo", "_class");
+        try (Stream<Contenido> contenidos = mongoTemplate.stream(query, Contenido.class)) {
+            contenidos.forEach(c -> {
+                TipoContenido tipo = CatalogoMapper.tipoDe(c);
+                if (tipo != null) {
+                    nuevo.poner(c.getId(), c.gettitulo(), tipo.name());
+                }
+            });
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Lo escrito durante la lectura puede no estar en el cursor: se repite en orden
+            pendientes.forEach(cambio -> cambio.accept(nuevo));
+            pendientes = null;
+            indice = nuevo;
+            listo = true;
+            return nuevo.tamano();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
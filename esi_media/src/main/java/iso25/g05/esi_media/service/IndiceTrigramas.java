@@ -0,0 +1,226 @@
+package iso25.g05.esi_media.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import iso25.g05.esi_media.dto.SugerenciaDTO;
+
+/**
+ * Índice invertido de trigramas sobre los títulos, en memoria.
+ *
+ * Cada título se normaliza (minúsculas, sin tildes, espacios simples) y se parte en trigramas;
+ * cada trigrama guarda la lista ordenada de documentos que lo contienen en un {@code int[]}.
+ * Una búsqueda interseca las listas de los trigramas de la consulta y comprueba los candidatos
+ * con {@code contains}, así que encuentra lo mismo que un "contiene" sin distinguir mayúsculas.
+ * Los trigramas se sacan del título con un espacio delante: " ab" marca una palabra que empieza
+ * por "ab", y con eso las consultas de dos letras buscan comienzos de palabra.
+ *
+ * Los documentos se numeran en orden de llegada (las listas quedan ordenadas solo con añadir
+ * al final), y la intersección avanza por todas a la vez sin volver atrás. Modificar o quitar
+ * un título marca el número antiguo como borrado; cuando los borrados pasan de la cuarta parte
+ * de los vivos se compacta.
+ *
+ * No es thread-safe: IndiceTitulosService lo protege con un ReadWriteLock.
+ */
+final class IndiceTrigramas {
+
+    /** Por debajo de esto no se compacta aunque haya muchos borrados en proporción. */
+    private static final int MIN_BORRADOS_COMPACTAR = 1024;
+
+    /** Lista de documentos de un trigrama: int[] ordenado con hueco al final. */
+    private static final class Documentos {
+        private int[] docs = new int[2];
+        private int n;
+
+        void anadir(int doc) {
+            if (n == docs.length) {
+                docs = Arrays.copyOf(docs, n + (n >> 1) + 1);
+            }
+            docs[n++] = doc;
+        }
+
+        /**
+         * Primera posición desde {@code desde} con un documento mayor o igual que {@code doc}
+         * (búsqueda exponencial: los documentos pedidos van en orden creciente).
+         */
+        int avanzar(int desde, int doc) {
+            int paso = 1;
+            int hasta = desde;
+            while (hasta < n && docs[hasta] < doc) {
+                desde = hasta + 1;
+                hasta += paso;
+                paso <<= 1;
+            }
+            int pos = Arrays.binarySearch(docs, desde, Math.min(hasta + 1, n), doc);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+    }
+
+    private final Map<Long, Documentos> trigramas = new HashMap<>();
+    private final Map<String, Integer> docPorId = new HashMap<>();
+    private String[] ids = new String[16];
+    private String[] titulos = new String[16];
+    private String[] normalizados = new String[16];
+    private String[] tipos = new String[16];
+    private final BitSet borrados = new BitSet();
+    private int siguienteDoc;
+
+    /** Añade o sustituye el título del contenido. */
+    void poner(String id, String titulo, String tipo) {
+        quitar(id);
+        if (titulo == null || titulo.isBlank()) {
+            return;
+        }
+        int doc = siguienteDoc++;
+        if (doc == ids.length) {
+            int capacidad = doc + (doc >> 1);
+            ids = Arrays.copyOf(ids, capacidad);
+            titulos = Arrays.copyOf(titulos, capacidad);
+            normalizados = Arrays.copyOf(normalizados, capacidad);
+            tipos = Arrays.copyOf(tipos, capacidad);
+        }
+        String normalizado = CamposBusqueda.normalizar(titulo);
+        ids[doc] = id;
+        titulos[doc] = titulo;
+        normalizados[doc] = normalizado;
+        tipos[doc] = tipo;
+        docPorId.put(id, doc);
+        String conInicio = " " + normalizado;
+        for (int i = 0; i + 3 <= conInicio.length(); i++) {
+            long clave = clave(conInicio, i);
+            // Un título con el mismo trigrama dos veces solo se apunta una
+            Documentos lista = trigramas.computeIfAbsent(clave, k -> new Documentos());
+            if (lista.n == 0 || lista.docs[lista.n - 1] != doc) {
+                lista.anadir(doc);
+            }
+        }
+    }
+
+    void quitar(String id) {
+        Integer doc = docPorId.remove(id);
+        if (doc == null) {
+            return;
+        }
+        borrados.set(doc);
+        titulos[doc] = null;
+        normalizados[doc] = null;
+        if (borrados.cardinality() > Math.max(MIN_BORRADOS_COMPACTAR, docPorId.size() / 4)) {
+            compactar();
+        }
+    }
+
+    int tamano() {
+        return docPorId.size();
+    }
+
+    /**
+     * Con tres o más caracteres busca títulos que contienen el texto; con dos, títulos con una
+     * palabra que empieza por él. Con menos no devuelve nada.
+     *
+     * @return hasta {@code limite} títulos: primero los que empiezan por el texto, después los que
+     *         tienen una palabra que empieza por él y por último el resto
+     */
+    List<SugerenciaDTO> buscar(String texto, int limite) {
+        String consulta = CamposBusqueda.normalizar(texto);
+        if (consulta.length() < 2 || limite <= 0) {
+            return List.of();
+        }
+        Documentos[] listas = listasDe(consulta.length() < 3 ? " " + consulta : consulta);
+        if (listas == null) {
+            return List.of();
+        }
+        List<List<Integer>> porRango = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        Documentos menor = listas[0];
+        int[] posiciones = new int[listas.length];
+        // Los que empiezan por el texto van primero: con esos completos no hace falta seguir
+        for (int i = 0; i < menor.n && porRango.get(0).size() < limite; i++) {
+            int doc = menor.docs[i];
+            if (!borrados.get(doc) && enTodas(listas, posiciones, doc)) {
+                clasificar(doc, consulta, porRango);
+            }
+        }
+
+        List<SugerenciaDTO> resultado = new ArrayList<>(limite);
+        for (List<Integer> rango : porRango) {
+            for (int doc : rango) {
+                if (resultado.size() == limite) {
+                    return resultado;
+                }
+                resultado.add(new SugerenciaDTO(ids[doc], titulos[doc], tipos[doc]));
+            }
+        }
+        return resultado;
+    }
+
+    /** Listas de los trigramas de la consulta, la más corta primero; null si alguno no existe. */
+    private Documentos[] listasDe(String consulta) {
+        Documentos[] listas = new Documentos[consulta.length() - 2];
+        for (int i = 0; i < listas.length; i++) {
+            Documentos lista = trigramas.get(clave(consulta, i));
+            if (lista == null) {
+                return null;
+            }
+            listas[i] = lista;
+        }
+        Arrays.sort(listas, (a, b) -> Integer.compare(a.n, b.n));
+        return listas;
+    }
+
+    private static boolean enTodas(Documentos[] listas, int[] posiciones, int doc) {
+        for (int i = 1; i < listas.length; i++) {
+            Documentos lista = listas[i];
+            posiciones[i] = lista.avanzar(posiciones[i], doc);
+            if (posiciones[i] == lista.n || lista.docs[posiciones[i]] != doc) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clasificar(int doc, String consulta, List<List<Integer>> porRango) {
+        String titulo = normalizados[doc];
+        if (titulo == null || borrados.get(doc)) {
+            return;
+        }
+        int pos = titulo.indexOf(consulta);
+        if (pos < 0) {
+            return;
+        }
+        if (pos == 0) {
+            porRango.get(0).add(doc);
+        } else if (titulo.charAt(pos - 1) == ' ' || titulo.contains(" " + consulta)) {
+            porRango.get(1).add(doc);
+        } else {
+            porRango.get(2).add(doc);
+        }
+    }
+
+    /** Renumera los documentos vivos y rehace las listas sin los borrados. */
+    private void compactar() {
+        List<String[]> vivos = new ArrayList<>(docPorId.size());
+        for (int doc = 0; doc < siguienteDoc; doc++) {
+            if (!borrados.get(doc)) {
+                vivos.add(new String[]{ids[doc], titulos[doc], tipos[doc]});
+            }
+        }
+        trigramas.clear();
+        docPorId.clear();
+        borrados.clear();
+        siguienteDoc = 0;
+        Arrays.fill(ids, null);
+        Arrays.fill(titulos, null);
+        Arrays.fill(normalizados, null);
+        Arrays.fill(tipos, null);
+        for (String[] vivo : vivos) {
+            poner(vivo[0], vivo[1], vivo[2]);
+        }
+    }
+
+    private static long clave(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
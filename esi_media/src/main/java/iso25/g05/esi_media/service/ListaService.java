@@ -54,6 +54,9 @@ public class ListaService {
     @Autowired
     private VisualizadorRepository visualizadorRepository;
 
+    @Autowired
+    private CaratulaService caratulaService;
+
     // ==================== MÉTODOS PRIVADOS DE UTILIDAD ====================
     
     /**
@@ -1112,7 +1115,7 @@ public class ListaService {
             contenido.getId(),
             contenido.gettitulo(),
             tipo,
-            contenido.getcaratula(),
+            caratulaService.urlMiniatura(contenido),
             contenido.isvip(),
             (contenido instanceof iso25.g05.esi_media.model.Video) ? ((iso25.g05.esi_media.model.Video) contenido).getresolucion() : null
         );
@@ -0,0 +1,166 @@
+package iso25.g05.esi_media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+
+/**
+ * Almacén de blobs en disco local, direccionado por contenido.
+ *
+ * Cada fichero se guarda con su SHA-256 como nombre ({@code <dir>/ab/cd/abcd...}), así que
+ * el blobId es el propio hash: dos subidas idénticas acaban en el mismo fichero y MongoDB
+ * solo guarda la referencia y los metadatos. Al vivir en el sistema de ficheros, los rangos
+ * se sirven con {@code FileChannel.transferTo} sin pasar los bytes por buffers del heap.
+ */
+@Service
+@ConditionalOnProperty(name = "app.blobs.backend", havingValue = "local")
+public class LocalDiskBlobStorage implements BlobStorage {
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+    private static final String DIR_TEMPORAL = "tmp";
+
+    private final Path directorio;
+
+    public LocalDiskBlobStorage(@Value("${app.blobs.local.directorio:./data/blobs}") String directorio) {
+        this.directorio = Paths.get(directorio).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.directorio.resolve(DIR_TEMPORAL));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el directorio de blobs " + this.directorio, e);
+        }
+    }
+
+    /**
+     * Escribe primero a un temporal mientras se calcula el hash y después lo mueve a su
+     * ruta definitiva. Si ya existía un fichero con el mismo hash se descarta el temporal.
+     */
+    @Override
+    public BlobInfo guardar(InputStream contenido, String nombre, String mimeType) {
+        MessageDigest digest = nuevoDigestSha256();
+        Path temporal = null;
+        try {
+            temporal = Files.createTempFile(directorio.resolve(DIR_TEMPORAL), "subida-", ".part");
+            long tamano = Files.copy(new DigestInputStream(contenido, digest), temporal,
+                StandardCopyOption.REPLACE_EXISTING);
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            Path destino = ruta(sha256);
+            if (Files.exists(destino)) {
+                // Mismo contenido ya almacenado: nos quedamos con el existente
+                Files.delete(temporal);
+            } else {
+                Files.createDirectories(destino.getParent());
+                // Mismo sistema de ficheros: el rename es atómico y nunca se ve un fichero a medias
+                Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new BlobInfo(sha256, tamano, sha256, mimeType);
+        } catch (IOException e) {
+            borrarSilencioso(temporal);
+            throw new UncheckedIOException("Error guardando el blob en disco", e);
+        } catch (RuntimeException e) {
+            // Validaciones del stream (p. ej. tamaño máximo): no dejar el temporal a medias
+            borrarSilencioso(temporal);
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream abrir(String blobId) {
+        try {
+            return abrirDesde(blobId, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error abriendo el blob " + blobId, e);
+        }
+    }
+
+    @Override
+    public InputStream abrirDesde(String blobId, long posicion) throws IOException {
+        Path fichero = rutaExistente(blobId);
+        FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ);
+        try {
+            canal.position(posicion);
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        return Channels.newInputStream(canal);
+    }
+
+    @Override
+    public BlobInfo obtenerInfo(String blobId) {
+        Path fichero = rutaExistente(blobId);
+        try {
+            return new BlobInfo(blobId, Files.size(fichero), blobId, null);
+        } catch (NoSuchFileException e) {
+            throw new RecursoNoEncontradoException("Blob no encontrado: " + blobId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo el blob " + blobId, e);
+        }
+    }
+
+    @Override
+    public void eliminar(String blobId) {
+        if (blobId == null || !SHA256_HEX.matcher(blobId).matches()) {
+            return;
+        }
+        borrarSilencioso(ruta(blobId));
+    }
+
+    @Override
+    public Path rutaLocal(String blobId) {
+        return rutaExistente(blobId);
+    }
+
+    private Path rutaExistente(String blobId) {
+        // Solo se aceptan hashes: evita que un id manipulado salga del directorio de blobs
+        if (blobId == null || !SHA256_HEX.matcher(blobId).matches()) {
+            throw new RecursoNoEncontradoException("Blob no encontrado: " + blobId);
+        }
+        Path fichero = ruta(blobId);
+        if (!Files.isRegularFile(fichero)) {
+            throw new RecursoNoEncontradoException("Blob no encontrado: " + blobId);
+        }
+        return fichero;
+    }
+
+    private Path ruta(String sha256) {
+        return directorio.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    private static void borrarSilencioso(Path fichero) {
+        if (fichero == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fichero);
+        } catch (IOException e) {
+            // No es crítico: como mucho queda un fichero huérfano
+        }
+    }
+
+    private static MessageDigest nuevoDigestSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible en la JVM", e);
+        }
+    }
+}
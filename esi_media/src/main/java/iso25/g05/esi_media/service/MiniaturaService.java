@@ -0,0 +1,267 @@
+package iso25.g05.esi_media.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.VarianteCaratula;
+
+/**
+ * Genera las miniaturas de las carátulas en segundo plano.
+ *
+ * Por qué existe: las tarjetas del catálogo pintan la carátula a 160 px, pero el cliente
+ * descargaba siempre la imagen subida (hasta 1 MB). Cada carátula se decodifica una sola vez,
+ * se reduce a los anchos de {@code app.caratulas.miniaturas.anchos}, se recomprime y las
+ * miniaturas se guardan como blobs junto a la original ({@link ImagenCaratula#getvariantes()}).
+ *
+ * Reglas:
+ * - Se trabaja en un pool propio y acotado ({@code hilos} y {@code cola}): la subida nunca espera
+ *   al redimensionado. Si la cola está llena la tarea se descarta y se vuelve a programar cuando
+ *   alguien pida la miniatura.
+ * - Solo se generan anchos menores que el original y que pesen menos que él.
+ * - JPEG con la calidad configurada, o PNG si la imagen tiene transparencia.
+ * - Las variantes se escriben solo si el contenido sigue teniendo la misma carátula.
+ * - Una imagen que ImageIO no sabe leer (p. ej. WebP) queda con la lista vacía y se sirve la original.
+ */
+@Service
+public class MiniaturaService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MiniaturaService.class);
+
+    private static final String CAMPO_VARIANTES = "imagenCaratula.variantes";
+    /** Por encima de esto no se decodifica (protege de imágenes pequeñas en bytes pero enormes en píxeles). */
+    private static final long MAX_PIXELES = 40_000_000L;
+
+    private final BlobStorage blobStorage;
+    private final MongoTemplate mongoTemplate;
+    private final int[] anchos;
+    private final float calidadJpeg;
+    private final ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+    /** Contenidos con una tarea pendiente, para no encolar dos veces la misma carátula. */
+    private final Set<String> enCurso = ConcurrentHashMap.newKeySet();
+
+    public MiniaturaService(BlobStorage blobStorage, MongoTemplate mongoTemplate,
+                            @Value("${app.caratulas.miniaturas.anchos:160,320,640}") int[] anchos,
+                            @Value("${app.caratulas.miniaturas.calidad-jpeg:0.8}") float calidadJpeg,
+                            @Value("${app.caratulas.miniaturas.hilos:2}") int hilos,
+                            @Value("${app.caratulas.miniaturas.cola:100}") int cola) {
+        this.blobStorage = blobStorage;
+        this.mongoTemplate = mongoTemplate;
+        this.anchos = Arrays.stream(anchos).filter(a -> a > 0).sorted().distinct().toArray();
+        this.calidadJpeg = calidadJpeg;
+        ejecutor.setThreadNamePrefix("miniaturas-");
+        ejecutor.setCorePoolSize(Math.max(1, hilos));
+        ejecutor.setMaxPoolSize(Math.max(1, hilos));
+        ejecutor.setQueueCapacity(Math.max(0, cola));
+        ejecutor.setAllowCoreThreadTimeOut(true);
+        ejecutor.initialize();
+    }
+
+    /**
+     * Encola la generación de miniaturas de la carátula del contenido. No hace nada si ya
+     * están generadas o ya hay una tarea pendiente para ese contenido.
+     */
+    public void programar(String contenidoId, ImagenCaratula imagen) {
+        if (contenidoId == null || imagen == null || imagen.getblobId() == null || imagen.getvariantes() != null) {
+            return;
+        }
+        if (!enCurso.add(contenidoId)) {
+            return;
+        }
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    generar(contenidoId, imagen);
+                } catch (RuntimeException e) {
+                    log.warn("No se pudieron generar las miniaturas del contenido {}: {}", contenidoId, e.getMessage());
+                } finally {
+                    enCurso.remove(contenidoId);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            enCurso.remove(contenidoId);
+            log.debug("Cola de miniaturas llena, se reintentará el contenido {} más adelante", contenidoId);
+        }
+    }
+
+    /**
+     * Genera y guarda las miniaturas en el hilo actual.
+     *
+     * @return las variantes escritas en el contenido, o vacío si la carátula cambió mientras tanto
+     */
+    List<VarianteCaratula> generar(String contenidoId, ImagenCaratula imagen) {
+        List<VarianteCaratula> variantes = crearVariantes(imagen);
+
+        Query mismaCaratula = new Query(Criteria.where("_id").is(contenidoId)
+            .and("imagenCaratula.blobId").is(imagen.getblobId()));
+        UpdateResult resultado = mongoTemplate.updateFirst(mismaCaratula,
+            new Update().set(CAMPO_VARIANTES, variantes), Contenido.class);
+        if (resultado.getMatchedCount() == 0) {
+            eliminarHuerfanas(variantes);
+            return List.of();
+        }
+        return variantes;
+    }
+
+    /**
+     * Borra los blobs de las miniaturas que ya no usa ningún contenido.
+     */
+    public void eliminarHuerfanas(List<VarianteCaratula> variantes) {
+        if (variantes == null) {
+            return;
+        }
+        for (VarianteCaratula variante : variantes) {
+            if (!mongoTemplate.exists(new Query(Criteria.where(CAMPO_VARIANTES + ".blobId").is(variante.getblobId())),
+                    Contenido.class)) {
+                blobStorage.eliminar(variante.getblobId());
+            }
+        }
+    }
+
+    private List<VarianteCaratula> crearVariantes(ImagenCaratula imagen) {
+        BufferedImage original = decodificar(blobStorage.leerCompleto(imagen.getblobId()));
+        if (original == null) {
+            return List.of();
+        }
+        boolean transparente = original.getColorModel().hasAlpha();
+        String mimeType = transparente ? "image/png" : "image/jpeg";
+
+        List<VarianteCaratula> variantes = new ArrayList<>();
+        for (int ancho : anchos) {
+            if (ancho >= original.getWidth()) {
+                break;
+            }
+            byte[] bytes = codificar(redimensionar(original, ancho), transparente);
+            if (bytes.length >= imagen.gettamanoBytes()) {
+                // Recomprimida pesa más que la original (p. ej. un PNG muy optimizado): no compensa
+                continue;
+            }
+            BlobInfo blob = blobStorage.guardar(new ByteArrayInputStream(bytes), "caratula-" + ancho, mimeType);
+            variantes.add(new VarianteCaratula(ancho, blob.id(), blob.sha256(), mimeType, blob.tamanoBytes()));
+        }
+        return variantes;
+    }
+
+    /**
+     * Decodifica la imagen una sola vez. Si es mucho más grande que la mayor miniatura se
+     * submuestrea al leer, así no se carga en memoria a tamaño completo.
+     *
+     * @return la imagen, o null si el formato no está soportado o es demasiado grande
+     */
+    private BufferedImage decodificar(byte[] bytes) {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int ancho = lector.getWidth(0);
+                if ((long) ancho * lector.getHeight(0) > MAX_PIXELES) {
+                    return null;
+                }
+                ImageReadParam param = lector.getDefaultReadParam();
+                int mayor = anchos.length > 0 ? anchos[anchos.length - 1] : ancho;
+                // Se deja al menos el doble del ancho mayor para que el reescalado final conserve detalle
+                int paso = Math.max(1, ancho / (mayor * 2));
+                param.setSourceSubsampling(paso, paso, 0, 0);
+                return lector.read(0, param);
+            } finally {
+                lector.dispose();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reduce la imagen al ancho indicado manteniendo la proporción. Se divide a la mitad en
+     * varios pasos bilineales, que da un resultado mucho más limpio que un único salto.
+     */
+    static BufferedImage redimensionar(BufferedImage origen, int ancho) {
+        int alto = Math.max(1, Math.round(origen.getHeight() * (float) ancho / origen.getWidth()));
+        int tipo = origen.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage actual = origen;
+        int w = origen.getWidth();
+        int h = origen.getHeight();
+        do {
+            w = Math.max(ancho, w / 2);
+            h = Math.max(alto, h / 2);
+            BufferedImage siguiente = new BufferedImage(w, h, tipo);
+            Graphics2D g = siguiente.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(actual, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            actual = siguiente;
+        } while (w != ancho || h != alto);
+        return actual;
+    }
+
+    private byte[] codificar(BufferedImage imagen, boolean transparente) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try {
+            if (transparente) {
+                ImageIO.write(imagen, "png", salida);
+                return salida.toByteArray();
+            }
+            ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream destino = ImageIO.createImageOutputStream(salida)) {
+                escritor.setOutput(destino);
+                ImageWriteParam param = escritor.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(calidadJpeg);
+                escritor.write(null, new IIOImage(imagen, null, null), param);
+            } finally {
+                escritor.dispose();
+            }
+            return salida.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Error codificando la miniatura", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        ejecutor.shutdown();
+    }
+}
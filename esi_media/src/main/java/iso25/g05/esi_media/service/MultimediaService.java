@@ -4,25 +4,31 @@ import java.time.LocalDate;
 import java.time.Period;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import iso25.g05.esi_media.dto.ContenidoDetalleDTO;
 import iso25.g05.esi_media.dto.ContenidoResumenDTO;
+import iso25.g05.esi_media.dto.PaginaCursorDTO;
+import iso25.g05.esi_media.dto.SugerenciaDTO;
 import iso25.g05.esi_media.exception.AccesoNoAutorizadoException;
 import iso25.g05.esi_media.exception.PeticionInvalidaException;
 import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
 import iso25.g05.esi_media.mapper.ContenidoMapper;
 import iso25.g05.esi_media.model.Audio;
 import iso25.g05.esi_media.model.Contenido;
-import iso25.g05.esi_media.model.GestordeContenido;
-import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Video;
-import iso25.g05.esi_media.model.Visualizador;
 import iso25.g05.esi_media.repository.ContenidoRepository;
 import iso25.g05.esi_media.repository.UsuarioRepository;
 
@@ -49,7 +55,30 @@ public class MultimediaService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
-    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AudioCacheService audioCache;
+
+    @Autowired
+    private UrlFirmadaService urlFirmadaService;
+
+    @Autowired
+    private CaratulaService caratulaService;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private BusquedaContenidosService busquedaService;
+
+    @Autowired
+    private SugerenciasService sugerenciasService;
+
+    @Autowired
+    private CacheListadosService cacheListados;
+
 
     /**
      * Lista contenidos visibles y accesibles para el visualizador autenticado.
@@ -67,23 +96,13 @@ public class MultimediaService {
      * @throws AccesoNoAutorizadoException si el token no es válido o no es visualizador
      */
     public Page<ContenidoResumenDTO> listarContenidos(Pageable pageable, String authHeaderOrToken, String tipo) {
-        Usuario usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
-        
-        // Si es Gestor de Contenido, puede ver todos los contenidos sin restricciones
-        if (usuario instanceof GestordeContenido) {
-            return listarTodosLosContenidos(pageable, tipo);
-        }
-        
-        // Si es Visualizador, aplicar las restricciones normales
-        Visualizador visualizador = (Visualizador) usuario;
-        int edad = calcularEdad(visualizador.getFechaNac());
-
-        Page<Contenido> pagina = obtenerPaginaContenidosConFiltroTipo(visualizador, edad, tipo, pageable);
-        return pagina.map(ContenidoMapper::aResumen);
+        return listarContenidos(pageable, authHeaderOrToken, tipo, null);
     }
 
     /**
      * Obtiene página de contenidos filtrada por tipo con manejo de clases mixtas.
+     * Lee del catálogo (una consulta indexada) y, si no está disponible, de "contenidos".
+     * Las entidades solo traen los campos del resumen (ContenidoRepository.CAMPOS_RESUMEN).
      * 
      * @param visualizador usuario visualizador
      * @param edad edad calculada del usuario
@@ -91,7 +110,13 @@ public class MultimediaService {
      * @param pageable parámetros de paginación
      * @return página de contenidos filtrada
      */
-    private Page<Contenido> obtenerPaginaContenidosConFiltroTipo(Visualizador visualizador, int edad, String tipo, Pageable pageable) {
+    private Page<Contenido> obtenerPaginaContenidosConFiltroTipo(UsuarioAutenticado visualizador, int edad, String tipo, Pageable pageable) {
+        Optional<Page<Contenido>> desdeCatalogo =
+            catalogoService.listarParaVisualizador(edad, visualizador.vip(), tipo, pageable);
+        if (desdeCatalogo.isPresent()) {
+            return desdeCatalogo.get();
+        }
+
         String className = obtenerClassNamePorTipo(tipo);
         
         if (className == null) {
@@ -127,8 +152,8 @@ public class MultimediaService {
     /**
      * Obtiene contenidos sin filtro de tipo.
      */
-    private Page<Contenido> obtenerContenidosSinFiltroTipo(Visualizador visualizador, int edad, Pageable pageable) {
-        return visualizador.isVip()
+    private Page<Contenido> obtenerContenidosSinFiltroTipo(UsuarioAutenticado visualizador, int edad, Pageable pageable) {
+        return visualizador.vip()
             ? contenidoRepository.findByEstadoTrueAndEdadvisualizacionLessThanEqual(edad, pageable)
             : contenidoRepository.findByEstadoTrueAndVipFalseAndEdadvisualizacionLessThanEqual(edad, pageable);
     }
@@ -136,8 +161,8 @@ public class MultimediaService {
     /**
      * Obtiene contenidos filtrados por className.
      */
-    private Page<Contenido> obtenerContenidosPorClassName(Visualizador visualizador, int edad, String className, Pageable pageable) {
-        return visualizador.isVip()
+    private Page<Contenido> obtenerContenidosPorClassName(UsuarioAutenticado visualizador, int edad, String className, Pageable pageable) {
+        return visualizador.vip()
             ? contenidoRepository.findByEstadoTrueAndEdadvisualizacionLessThanEqualAndClass(edad, className, pageable)
             : contenidoRepository.findByEstadoTrueAndVipFalseAndEdadvisualizacionLessThanEqualAndClass(edad, className, pageable);
     }
@@ -156,14 +181,14 @@ public class MultimediaService {
     /**
      * Obtiene contenidos usando métodos fallback por campos característicos.
      */
-    private Page<Contenido> obtenerContenidosFallback(Visualizador visualizador, int edad, String tipo, Pageable pageable) {
+    private Page<Contenido> obtenerContenidosFallback(UsuarioAutenticado visualizador, int edad, String tipo, Pageable pageable) {
         if (TIPO_VIDEO.equalsIgnoreCase(tipo)) {
-            return visualizador.isVip()
+            return visualizador.vip()
                 ? contenidoRepository.findVideos(edad, pageable)
                 : contenidoRepository.findVideosNoVip(edad, pageable);
         }
         if (TIPO_AUDIO.equalsIgnoreCase(tipo)) {
-            return visualizador.isVip()
+            return visualizador.vip()
                 ? contenidoRepository.findAudios(edad, pageable)
                 : contenidoRepository.findAudiosNoVip(edad, pageable);
         }
@@ -183,33 +208,85 @@ public class MultimediaService {
      * @return página de contenidos en formato resumen
      */
     public Page<ContenidoResumenDTO> listarContenidos(Pageable pageable, String authHeaderOrToken, String tipo, String query) {
-        Usuario usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
+        UsuarioAutenticado usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
+        String texto = query != null && !query.trim().isEmpty() ? query.trim() : null;
         
         // Si es Gestor de Contenido, puede ver todos los contenidos sin restricciones
-        if (usuario instanceof GestordeContenido) {
-            // Si hay query de búsqueda
-            if (query != null && !query.trim().isEmpty()) {
-                return buscarTodosLosContenidos(pageable, tipo, query.trim());
-            }
-            return listarTodosLosContenidos(pageable, tipo);
+        if (usuario.esGestor()) {
+            CacheListadosService.Clave clave = CacheListadosService.Clave.gestor(tipo, texto, pageable);
+            return desdeCache(clave, () -> texto != null
+                ? buscarTodosLosContenidos(pageable, tipo, texto)
+                : listarTodosLosContenidos(pageable, tipo));
         }
         
         // Si es Visualizador, aplicar las restricciones normales
-        Visualizador visualizador = (Visualizador) usuario;
-        int edad = calcularEdad(visualizador.getFechaNac());
+        int edad = calcularEdad(usuario.fechanac());
 
+        // Usuarios con los mismos permisos comparten la página cacheada
+        CacheListadosService.Clave clave =
+            CacheListadosService.Clave.visualizador(tipo, usuario.vip(), edad, texto, pageable);
+        return desdeCache(clave, () -> listarParaVisualizador(pageable, usuario, edad, tipo, texto));
+    }
+
+    /**
+     * Devuelve la página cacheada o la calcula y la guarda (ver {@link CacheListadosService}).
+     */
+    private Page<ContenidoResumenDTO> desdeCache(CacheListadosService.Clave clave,
+                                                 Supplier<Page<ContenidoResumenDTO>> calcular) {
+        Optional<Page<ContenidoResumenDTO>> cacheada = cacheListados.obtener(clave);
+        if (cacheada.isPresent()) {
+            return cacheada.get();
+        }
+        long generacion = cacheListados.generacion();
+        Page<ContenidoResumenDTO> pagina = calcular.get();
+        cacheListados.guardar(clave, pagina, generacion);
+        return pagina;
+    }
+
+    private Page<ContenidoResumenDTO> listarParaVisualizador(Pageable pageable, UsuarioAutenticado visualizador, int edad,
+                                                             String tipo, String query) {
         // Si hay query de búsqueda, usar métodos específicos de búsqueda
-        if (query != null && !query.trim().isEmpty()) {
-            return buscarContenidosConFiltros(pageable, visualizador, edad, tipo, query.trim());
+        if (query != null) {
+            return buscarContenidosConFiltros(pageable, visualizador, edad, tipo, query);
         }
 
         // Si no hay query, usar la lógica existente
         Page<Contenido> pagina = obtenerPaginaContenidosConFiltroTipo(visualizador, edad, tipo, pageable);
-        return pagina.map(ContenidoMapper::aResumen);
+        return pagina.map(c -> ContenidoMapper.aResumen(c, caratulaService.urlMiniatura(c)));
+    }
+
+    /**
+     * Lista contenidos con paginación por cursor (sin totales ni count sobre el conjunto filtrado).
+     *
+     * Qué hace: aplica las mismas reglas que {@link #listarContenidos(Pageable, String, String, String)}
+     * y devuelve la página junto al cursor de la siguiente.
+     *
+     * @param orden "fecha" (por defecto), "vistas" o "titulo"
+     * @param cursor el {@code siguienteCursor} de la respuesta anterior, o vacío para la primera página
+     * @param tamano elementos por página
+     * @throws PeticionInvalidaException si hay búsqueda por texto (solo admite paginación por offset),
+     *         el orden no existe o el cursor no es válido
+     */
+    public PaginaCursorDTO<ContenidoResumenDTO> listarContenidosPorCursor(String authHeaderOrToken, String tipo, String query,
+                                                                         String orden, String cursor, int tamano) {
+        UsuarioAutenticado usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
+        if (query != null && !query.trim().isEmpty()) {
+            throw new PeticionInvalidaException("La búsqueda por texto solo admite paginación por página (page/size)");
+        }
+
+        PaginaCursorDTO<Contenido> pagina;
+        if (usuario.esGestor()) {
+            pagina = catalogoService.listarGestorPorCursor(tipo, orden, cursor, tamano);
+        } else {
+            int edad = calcularEdad(usuario.fechanac());
+            pagina = catalogoService.listarVisualizadorPorCursor(edad, usuario.vip(), tipo, orden, cursor, tamano);
+        }
+        return pagina.map(c -> ContenidoMapper.aResumen(c, caratulaService.urlMiniatura(c)));
     }
 
     /**
      * Método auxiliar para buscar contenidos con texto y aplicar todos los filtros.
+     * Usa el índice de texto (ordenado por relevancia) y, si no está disponible, las consultas $regex.
      * 
      * @param pageable parámetros de paginación
      * @param visualizador usuario autenticado
@@ -218,15 +295,16 @@ public class MultimediaService {
      * @param query texto de búsqueda
      * @return página de contenidos filtrados
      */
-    private Page<ContenidoResumenDTO> buscarContenidosConFiltros(Pageable pageable, Visualizador visualizador, int edad, String tipo, String query) {
-        Page<Contenido> pagina = buscarContenidosPorTipo(visualizador, edad, tipo, query, pageable);
-        return pagina.map(ContenidoMapper::aResumen);
+    private Page<ContenidoResumenDTO> buscarContenidosConFiltros(Pageable pageable, UsuarioAutenticado visualizador, int edad, String tipo, String query) {
+        Page<Contenido> pagina = busquedaService.buscarParaVisualizador(query, edad, visualizador.vip(), tipo, pageable)
+            .orElseGet(() -> buscarContenidosPorTipo(visualizador, edad, tipo, query, pageable));
+        return pagina.map(c -> ContenidoMapper.aResumen(c, caratulaService.urlMiniatura(c)));
     }
     
     /**
      * Busca contenidos según el tipo solicitado.
      */
-    private Page<Contenido> buscarContenidosPorTipo(Visualizador visualizador, int edad, String tipo, String query, Pageable pageable) {
+    private Page<Contenido> buscarContenidosPorTipo(UsuarioAutenticado visualizador, int edad, String tipo, String query, Pageable pageable) {
         if (tipo == null || tipo.isBlank()) {
             return buscarTodosLosContenidosVisualizador(visualizador, edad, query, pageable);
         }
@@ -242,20 +320,20 @@ public class MultimediaService {
         return buscarTodosLosContenidosVisualizador(visualizador, edad, query, pageable);
     }
     
-    private Page<Contenido> buscarVideos(Visualizador visualizador, int edad, String query, Pageable pageable) {
-        return visualizador.isVip()
+    private Page<Contenido> buscarVideos(UsuarioAutenticado visualizador, int edad, String query, Pageable pageable) {
+        return visualizador.vip()
             ? contenidoRepository.searchVideos(query, edad, pageable)
             : contenidoRepository.searchVideosNoVip(query, edad, pageable);
     }
     
-    private Page<Contenido> buscarAudios(Visualizador visualizador, int edad, String query, Pageable pageable) {
-        return visualizador.isVip()
+    private Page<Contenido> buscarAudios(UsuarioAutenticado visualizador, int edad, String query, Pageable pageable) {
+        return visualizador.vip()
             ? contenidoRepository.searchAudios(query, edad, pageable)
             : contenidoRepository.searchAudiosNoVip(query, edad, pageable);
     }
     
-    private Page<Contenido> buscarTodosLosContenidosVisualizador(Visualizador visualizador, int edad, String query, Pageable pageable) {
-        return visualizador.isVip()
+    private Page<Contenido> buscarTodosLosContenidosVisualizador(UsuarioAutenticado visualizador, int edad, String query, Pageable pageable) {
+        return visualizador.vip()
             ? contenidoRepository.searchContenidos(query, edad, pageable)
             : contenidoRepository.searchContenidosNoVip(query, edad, pageable);
     }
@@ -289,31 +367,36 @@ public class MultimediaService {
             throw new PeticionInvalidaException(ERR_ID_OBLIGATORIO);
         }
 
-        Usuario usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
-
-        Optional<Contenido> opt;
-        // Si es Gestor de Contenido, puede acceder a contenidos con cualquier estado
-        if (usuario instanceof GestordeContenido) {
-            opt = contenidoRepository.findByIdForGestor(id);
-        } else {
-            // Para Visualizadores, solo contenidos con estado true
-            opt = contenidoRepository.findByIdAndEstadoTrue(id);
+        UsuarioAutenticado usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
+
+        // Audios calientes: el documento sale de la caché y nos ahorramos la lectura en Mongo.
+        // Las comprobaciones de estado, edad y VIP se aplican igual que con el documento de BD.
+        Optional<Contenido> opt = audioCache.obtenerMetadatos(id)
+            .filter(a -> usuario.esGestor() || a.isestado())
+            .map(Contenido.class::cast);
+        if (opt.isEmpty()) {
+            // Si es Gestor de Contenido, puede acceder a contenidos con cualquier estado
+            if (usuario.esGestor()) {
+                opt = contenidoRepository.findByIdForGestor(id);
+            } else {
+                // Para Visualizadores, solo contenidos con estado true
+                opt = contenidoRepository.findByIdAndEstadoTrue(id);
+            }
         }
         
         Contenido contenido = opt.orElseThrow(() -> new RecursoNoEncontradoException(ERR_CONTENIDO_NO_ENCONTRADO));
 
         // Si es Gestor de Contenido, puede acceder sin restricciones
-        if (usuario instanceof GestordeContenido) {
-            String referencia = construirReferenciaReproduccion(contenido);
-            return ContenidoMapper.aDetalle(contenido, referencia);
+        if (usuario.esGestor()) {
+            String referencia = construirReferenciaReproduccion(contenido, usuario);
+            return ContenidoMapper.aDetalle(contenido, referencia, caratulaService.url(contenido));
         }
         
         // Si es Visualizador, aplicar validaciones de acceso
-        Visualizador visualizador = (Visualizador) usuario;
-        validarAcceso(contenido, visualizador);
+        validarAcceso(contenido, usuario);
 
-        String referencia = construirReferenciaReproduccion(contenido);
-        return ContenidoMapper.aDetalle(contenido, referencia);
+        String referencia = construirReferenciaReproduccion(contenido, usuario);
+        return ContenidoMapper.aDetalle(contenido, referencia, caratulaService.url(contenido));
     }
 
     /**
@@ -328,16 +411,16 @@ public class MultimediaService {
      * @param visualizador usuario autenticado que intenta acceder
      * @throws AccesoNoAutorizadoException si no cumple requisitos
      */
-    public void validarAcceso(Contenido contenido, Visualizador visualizador) {
+    public void validarAcceso(Contenido contenido, UsuarioAutenticado visualizador) {
         // Edad mínima
         int edadMin = contenido.getedadvisualizacion();
-        int edadUsuario = calcularEdad(visualizador.getFechaNac());
+        int edadUsuario = calcularEdad(visualizador.fechanac());
         if (edadMin > 0 && edadUsuario < edadMin) {
             throw new AccesoNoAutorizadoException("Contenido restringido por edad");
         }
 
         // VIP
-        if (contenido.isvip() && !visualizador.isVip()) {
+        if (contenido.isvip() && !visualizador.vip()) {
             throw new AccesoNoAutorizadoException("Contenido disponible solo para usuarios VIP");
         }
     }
@@ -346,27 +429,69 @@ public class MultimediaService {
      * Construye la referencia de reproducción dependiendo del tipo.
      * 
      * Qué hace: retorna la URL externa para vídeo (para embeber en el frontend)
-     * o el endpoint interno para audio (stream desde nuestro backend).
+     * o la URL firmada del endpoint de audio (stream desde nuestro backend).
      * 
      * Por qué: el frontend necesita una referencia única y directa para reproducir.
+     * En audio la URL lleva firmados los permisos del usuario, así las peticiones
+     * Range de la reproducción no vuelven a buscar al usuario por su token.
      * 
      * Nota sobre vídeos: aunque el archivo no esté en BD, se reproducen en la
      * propia aplicación embebiendo la URL (iframe/player) del proveedor externo.
      * 
      * @param contenido entidad de contenido (Audio o Video)
+     * @param usuario usuario ya validado que pide el detalle
      * @return referencia reproducible para el cliente
      */
-    public String construirReferenciaReproduccion(Contenido contenido) {
+    public String construirReferenciaReproduccion(Contenido contenido, UsuarioAutenticado usuario) {
         if (contenido instanceof Video v) {
             return v.geturl();
         }
         if (contenido instanceof Audio a) {
-            // Usar URL absoluta para evitar que el <audio> la trate como ruta relativa en 4200
-            return "http://localhost:8080/multimedia/audio/" + a.getId();
+            // URL absoluta (app.backend.url) para que el <audio> no la trate como ruta relativa en 4200
+            return urlFirmadaService.firmarAudio(a.getId(), permisoDe(usuario));
         }
         return ""; // por defecto vacío si no es tipo reconocido
     }
 
+    /**
+     * Permisos que se firman en la URL de streaming según el tipo de usuario.
+     */
+    private PermisoStream permisoDe(UsuarioAutenticado usuario) {
+        if (usuario.esVisualizador()) {
+            return new PermisoStream(usuario.id(), usuario.vip(), calcularEdad(usuario.fechanac()), false);
+        }
+        return PermisoStream.deGestor(usuario.id());
+    }
+
+    /**
+     * Valida el token de sesión y devuelve los permisos de streaming del usuario
+     * (los mismos que se firmarían en la URL), para reproducir sin URL firmada.
+     *
+     * @param authHeaderOrToken Authorization ("Bearer x" o token) o token en bruto
+     * @return permisos del usuario autenticado
+     * @throws PeticionInvalidaException si no se manda token
+     * @throws AccesoNoAutorizadoException si el token es inválido
+     */
+    public PermisoStream permisoParaStreaming(String authHeaderOrToken) {
+        return permisoDe(validarYObtenerUsuarioAutorizado(authHeaderOrToken));
+    }
+
+    /**
+     * Sugerencias de autocompletado para lo escrito: títulos, tags y listas públicas que el
+     * usuario puede ver, de más a menos vistas.
+     *
+     * Se responden desde memoria (SugerenciasService); mientras el diccionario no está construido
+     * la lista sale vacía en lugar de consultar la base de datos.
+     *
+     * @param authHeaderOrToken Authorization ("Bearer x" o token) o token en bruto
+     * @param texto lo escrito hasta ahora
+     * @param limite número máximo de sugerencias
+     */
+    public List<SugerenciaDTO> sugerir(String authHeaderOrToken, String texto, int limite) {
+        PermisoStream permiso = permisoParaStreaming(authHeaderOrToken);
+        return sugerenciasService.sugerir(texto, limite, permiso).orElse(List.of());
+    }
+
     /**
      * Valida acceso del visualizador y devuelve el Audio listo para streaming.
      *
@@ -382,15 +507,41 @@ public class MultimediaService {
             throw new PeticionInvalidaException(ERR_ID_OBLIGATORIO);
         }
 
-        Usuario usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
+        return obtenerAudioConPermiso(id, permisoParaStreaming(authHeaderOrToken));
+    }
 
-        Optional<Contenido> opt;
-        // Si es Gestor de Contenido, puede acceder a contenidos con cualquier estado
-        if (usuario instanceof GestordeContenido) {
-            opt = contenidoRepository.findByIdForGestor(id);
-        } else {
-            // Para Visualizadores, solo contenidos con estado true
-            opt = contenidoRepository.findByIdAndEstadoTrue(id);
+    /**
+     * Devuelve el Audio para streaming a partir de los permisos firmados en la URL,
+     * sin buscar al usuario (la firma ya la ha verificado {@link UrlFirmadaService}).
+     *
+     * Los permisos se comparan con el estado actual del contenido: si después de emitir la
+     * URL el audio pasa a ser VIP, a tener más edad mínima o deja de estar visible, se rechaza.
+     *
+     * @param id id del contenido Audio
+     * @param permiso permisos firmados del usuario
+     * @return entidad Audio
+     * @throws PeticionInvalidaException si id es inválido o el contenido no es audio
+     * @throws RecursoNoEncontradoException si no existe o no está visible
+     * @throws AccesoNoAutorizadoException si no cumple edad/VIP
+     */
+    public Audio obtenerAudioConPermiso(String id, PermisoStream permiso) {
+        if (id == null || id.isBlank()) {
+            throw new PeticionInvalidaException(ERR_ID_OBLIGATORIO);
+        }
+
+        // Audios calientes: el documento sale de la caché y nos ahorramos la lectura en Mongo.
+        // Las comprobaciones de estado, edad y VIP se aplican igual que con el documento de BD.
+        Optional<Contenido> opt = audioCache.obtenerMetadatos(id)
+            .filter(a -> permiso.gestor() || a.isestado())
+            .map(Contenido.class::cast);
+        if (opt.isEmpty()) {
+            // Si es Gestor de Contenido, puede acceder a contenidos con cualquier estado
+            if (permiso.gestor()) {
+                opt = contenidoRepository.findByIdForGestor(id);
+            } else {
+                // Para Visualizadores, solo contenidos con estado true
+                opt = contenidoRepository.findByIdAndEstadoTrue(id);
+            }
         }
         
         Contenido contenido = opt.orElseThrow(() -> new RecursoNoEncontradoException(ERR_CONTENIDO_NO_ENCONTRADO));
@@ -400,37 +551,42 @@ public class MultimediaService {
         }
 
         // Si es Gestor de Contenido, puede acceder sin restricciones
-        if (usuario instanceof GestordeContenido) {
+        if (permiso.gestor()) {
             return audio;
         }
         
-        // Si es Visualizador, aplicar validaciones de acceso
-        Visualizador visualizador = (Visualizador) usuario;
-        validarAcceso(contenido, visualizador);
+        // Si es Visualizador, aplicar validaciones de acceso (mismas reglas que validarAcceso)
+        int edadMin = contenido.getedadvisualizacion();
+        if (edadMin > 0 && permiso.edad() < edadMin) {
+            throw new AccesoNoAutorizadoException("Contenido restringido por edad");
+        }
+        if (contenido.isvip() && !permiso.vip()) {
+            throw new AccesoNoAutorizadoException("Contenido disponible solo para usuarios VIP");
+        }
         return audio;
     }
 
     /**
-     * Valida el token y devuelve el Usuario autorizado (Visualizador o GestordeContenido).
+     * Valida el token y devuelve los permisos de su sesión (Visualizador o GestordeContenido), sin leer "users".
      * 
      * @param authHeaderOrToken cabecera Authorization o token en bruto
      * @return usuario autenticado (Visualizador o GestordeContenido)
      * @throws PeticionInvalidaException si no se manda token
      * @throws AccesoNoAutorizadoException si el token es inválido o no es un tipo de usuario autorizado
      */
-    private Usuario validarYObtenerUsuarioAutorizado(String authHeaderOrToken) {
+    private UsuarioAutenticado validarYObtenerUsuarioAutorizado(String authHeaderOrToken) {
         String token = extraerToken(authHeaderOrToken);
         if (token == null || token.isBlank()) {
             throw new PeticionInvalidaException("Token de autorización requerido");
         }
 
-        Optional<Usuario> usuarioOpt = usuarioRepository.findBySesionToken(token);
+        Optional<UsuarioAutenticado> usuarioOpt = usuarioRepository.findUsuarioAutenticado(token);
         if (usuarioOpt.isEmpty()) {
             throw new AccesoNoAutorizadoException("Token no válido");
         }
 
-        Usuario usuario = usuarioOpt.get();
-        if (!(usuario instanceof Visualizador) && !(usuario instanceof GestordeContenido)) {
+        UsuarioAutenticado usuario = usuarioOpt.get();
+        if (!usuario.esVisualizador() && !usuario.esGestor()) {
             throw new AccesoNoAutorizadoException("Solo los visualizadores y gestores de contenido pueden acceder a contenidos multimedia");
         }
 
@@ -445,21 +601,26 @@ public class MultimediaService {
      * @return página de contenidos en formato resumen
      */
     private Page<ContenidoResumenDTO> listarTodosLosContenidos(Pageable pageable, String tipo) {
+        Page<Contenido> pagina = catalogoService.listarParaGestor(tipo, pageable)
+            .orElseGet(() -> obtenerTodosLosContenidos(tipo, pageable));
+        return pagina.map(c -> ContenidoMapper.aResumen(c, caratulaService.urlMiniatura(c)));
+    }
+
+    /**
+     * Lista para gestor desde "contenidos" (cuando el catálogo no está disponible).
+     */
+    private Page<Contenido> obtenerTodosLosContenidos(String tipo, Pageable pageable) {
         String className = obtenerClassNamePorTipo(tipo);
-        Page<Contenido> pagina;
-        
-        if (className != null) {
-            pagina = contenidoRepository.findAllContenidosByClassForGestor(className, pageable);
-            // Si la página viene mezclada, usar fallback
-            if (esPaginaMezclada(pagina, tipo)) {
-                pagina = obtenerContenidosFallbackGestor(tipo, pageable);
-            }
-        } else {
+        if (className == null) {
             // Buscar TODOS los contenidos SIN restricciones de estado (para Gestores)
-            pagina = contenidoRepository.findAllContenidosForGestor(pageable);
+            return contenidoRepository.findAllContenidosForGestor(pageable);
         }
-
-        return pagina.map(ContenidoMapper::aResumen);
+        Page<Contenido> pagina = contenidoRepository.findAllContenidosByClassForGestor(className, pageable);
+        // Si la página viene mezclada, usar fallback
+        if (esPaginaMezclada(pagina, tipo)) {
+            pagina = obtenerContenidosFallbackGestor(tipo, pageable);
+        }
+        return pagina;
     }
     
     /**
@@ -484,8 +645,9 @@ public class MultimediaService {
      * @return página de contenidos filtrados
      */
     private Page<ContenidoResumenDTO> buscarTodosLosContenidos(Pageable pageable, String tipo, String query) {
-        Page<Contenido> pagina = buscarContenidosGestorPorTipo(tipo, query, pageable);
-        return pagina.map(ContenidoMapper::aResumen);
+        Page<Contenido> pagina = busquedaService.buscarParaGestor(query, tipo, pageable)
+            .orElseGet(() -> buscarContenidosGestorPorTipo(tipo, query, pageable));
+        return pagina.map(c -> ContenidoMapper.aResumen(c, caratulaService.urlMiniatura(c)));
     }
     
     /**
@@ -556,11 +718,11 @@ public class MultimediaService {
             throw new PeticionInvalidaException(ERR_ID_OBLIGATORIO);
         }
 
-        Usuario usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
+        UsuarioAutenticado usuario = validarYObtenerUsuarioAutorizado(authHeaderOrToken);
 
         Optional<Contenido> opt;
         // Gestor: puede acceder siempre; Visualizador: solo visibles
-        if (usuario instanceof GestordeContenido) {
+        if (usuario.esGestor()) {
             opt = contenidoRepository.findByIdForGestor(id);
         } else {
             opt = contenidoRepository.findByIdAndEstadoTrue(id);
@@ -568,14 +730,18 @@ public class MultimediaService {
 
         Contenido contenido = opt.orElseThrow(() -> new RecursoNoEncontradoException(ERR_CONTENIDO_NO_ENCONTRADO));
 
-        if (usuario instanceof Visualizador v) {
-            validarAcceso(contenido, v);
+        if (usuario.esVisualizador()) {
+            validarAcceso(contenido, usuario);
         }
 
-        // Incrementar contador de visualizaciones de forma simple
+        // Incremento atómico ($inc): no reescribe el documento completo ni pisa
+        // cambios concurrentes (p. ej. la migración del binario al almacén de blobs)
         int current = Math.max(0, contenido.getnvisualizaciones());
-        contenido.setnvisualizaciones(current + 1);
-        contenidoRepository.save(contenido);
-        return contenido.getnvisualizaciones();
+        mongoTemplate.updateFirst(
+            new Query(Criteria.where("_id").is(contenido.getId())),
+            new Update().inc("nvisualizaciones", 1),
+            Contenido.class);
+        catalogoService.incrementarVisualizaciones(contenido.getId());
+        return current + 1;
     }
 }
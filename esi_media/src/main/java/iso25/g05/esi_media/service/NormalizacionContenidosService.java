@@ -0,0 +1,100 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.model.Contenido;
+
+/**
+ * Relleno de las copias normalizadas de búsqueda ({@link CamposBusqueda}) en los contenidos
+ * guardados antes de que existieran.
+ *
+ * Reglas:
+ * - Crea los índices de los campos normalizados (la creación automática está desactivada).
+ * - Recorre por lotes los contenidos sin palabrasBusqueda, leyendo solo título, descripción y
+ *   tags, y escribe las copias con $set en un bulk (no reescribe el documento).
+ * - El $set exige que el campo siga sin existir: si un gestor edita el contenido mientras tanto,
+ *   gana lo que escribió él.
+ * - Al terminar avisa a BusquedaContenidosService, que desde entonces busca por prefijo en las
+ *   palabras normalizadas cuando no hay índice de texto.
+ */
+@Service
+public class NormalizacionContenidosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NormalizacionContenidosService.class);
+
+    private static final String FIELD_ID = "_id";
+
+    private final MongoTemplate mongoTemplate;
+    private final BusquedaContenidosService busquedaService;
+    private final int tamanoLote;
+
+    public NormalizacionContenidosService(MongoTemplate mongoTemplate,
+                                          BusquedaContenidosService busquedaService,
+                                          @Value("${app.busqueda.normalizacion.lote:500}") int tamanoLote) {
+        this.mongoTemplate = mongoTemplate;
+        this.busquedaService = busquedaService;
+        this.tamanoLote = tamanoLote;
+    }
+
+    public void crearIndices() {
+        IndexOperations indices = mongoTemplate.indexOps(Contenido.class);
+        indices.ensureIndex(new Index().named("contenidos_palabras")
+            .on(CamposBusqueda.FIELD_PALABRAS, Sort.Direction.ASC));
+        indices.ensureIndex(new Index().named("contenidos_titulo_normalizado")
+            .on(CamposBusqueda.FIELD_TITULO_NORMALIZADO, Sort.Direction.ASC));
+    }
+
+    /**
+     * Crea los índices y rellena en segundo plano los contenidos que no tienen las copias.
+     */
+    @Async
+    public void rellenarEnSegundoPlano() {
+        try {
+            crearIndices();
+            int total = rellenar();
+            busquedaService.marcarCamposNormalizados();
+            logger.info("Campos de búsqueda normalizados. Contenidos rellenados: {}", total);
+        } catch (Exception e) {
+            logger.error("Error rellenando los campos de búsqueda normalizados: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return número de contenidos rellenados
+     */
+    int rellenar() {
+        int total = 0;
+        List<Contenido> lote;
+        do {
+            Query pendientes = new Query(Criteria.where(CamposBusqueda.FIELD_PALABRAS).exists(false)).limit(tamanoLote);
+            pendientes.fields().include("titulo", "descripcion", "tags");
+            lote = mongoTemplate.find(pendientes, Contenido.class);
+            if (lote.isEmpty()) {
+                break;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Contenido.class);
+            for (Contenido contenido : lote) {
+                CamposBusqueda.aplicar(contenido);
+                bulk.updateOne(new Query(Criteria.where(FIELD_ID).is(contenido.getId())
+                        .and(CamposBusqueda.FIELD_PALABRAS).exists(false)),
+                    CamposBusqueda.actualizacion(contenido));
+            }
+            bulk.execute();
+            total += lote.size();
+        } while (lote.size() == tamanoLote);
+        return total;
+    }
+}
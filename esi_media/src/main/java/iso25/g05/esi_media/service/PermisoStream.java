@@ -0,0 +1,17 @@
+package iso25.g05.esi_media.service;
+
+/**
+ * Permisos del usuario firmados dentro de una URL de streaming.
+ *
+ * @param usuarioId id del usuario (el planificador de streams reparte los cupos por usuario)
+ * @param vip el usuario es VIP
+ * @param edad edad del usuario al emitir la URL
+ * @param gestor el usuario es gestor de contenido (accede también a contenidos no visibles)
+ */
+public record PermisoStream(String usuarioId, boolean vip, int edad, boolean gestor) {
+
+    /** Permisos de un gestor de contenido: sin restricciones de VIP, edad ni visibilidad. */
+    public static PermisoStream deGestor(String usuarioId) {
+        return new PermisoStream(usuarioId, true, 200, true);
+    }
+}
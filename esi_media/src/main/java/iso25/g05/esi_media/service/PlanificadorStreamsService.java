@@ -0,0 +1,256 @@
+package iso25.g05.esi_media.service;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import iso25.g05.esi_media.dto.EstadisticasStreamingDTO;
+import iso25.g05.esi_media.exception.DemasiadosStreamsException;
+import iso25.g05.esi_media.exception.ServicioSaturadoException;
+
+/**
+ * Planificador de streams de audio: admisión con cupos y limitación de ancho de banda.
+ *
+ * Por qué existe: cada oyente con una conexión lenta mantenía ocupado un hilo mientras se
+ * le enviaba el fichero, y unos pocos clientes podían agotar el pool del servidor. Ahora
+ * este servicio decide cuántos streams se sirven a la vez y a qué ritmo, y los bytes se
+ * escriben en un pool propio ({@link #programar}) con tantos hilos como cupo global: un
+ * stream admitido nunca espera a un hilo y el resto de peticiones asíncronas de Spring MVC
+ * siguen con su ejecutor y su timeout por defecto.
+ *
+ * Reglas:
+ * - Cupo global de {@code app.streaming.max-concurrentes} streams. Si está lleno se responde
+ *   503 con Retry-After al momento: el hilo de Tomcat nunca se queda esperando un hueco.
+ * - Cupo por usuario: {@code app.streaming.max-por-usuario}, o
+ *   {@code app.streaming.max-por-usuario-vip} para VIP y gestores. Si lo supera, 429.
+ *   Así un único usuario no acapara el cupo global.
+ * - Cada stream tiene su cubo de tokens: {@code app.streaming.bytes-por-segundo} con una
+ *   ráfaga inicial de {@code app.streaming.rafaga-bytes} para que la reproducción arranque
+ *   rápido. Con 0 bytes por segundo no se limita.
+ * - Cada stream puede durar como mucho {@code app.streaming.timeout-ms}; solo afecta a estas tareas.
+ * - El turno se libera al terminar de escribir el cuerpo (también si el cliente corta) y en
+ *   los callbacks de fin, timeout y error de la petición, aunque el cuerpo no llegue a escribirse.
+ */
+@Service
+public class PlanificadorStreamsService implements DisposableBean {
+
+    private static final long REINTENTAR_SEGUNDOS = 5;
+
+    private final int maxConcurrentes;
+    private final int maxPorUsuario;
+    private final int maxPorUsuarioVip;
+    private final long bytesPorSegundo;
+    private final long rafagaBytes;
+    private final long timeoutMs;
+
+    private final Semaphore global;
+    private final ConcurrentHashMap<String, Integer> porUsuario = new ConcurrentHashMap<>();
+    /** No se registra como bean para no sustituir al ejecutor por defecto de {@code @Async} ni de Spring MVC. */
+    private final ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+
+    private final AtomicInteger limitadosAhora = new AtomicInteger();
+    private final AtomicLong totalLimitados = new AtomicLong();
+    private final AtomicLong rechazadosPorUsuario = new AtomicLong();
+    private final AtomicLong rechazadosPorSaturacion = new AtomicLong();
+
+    public PlanificadorStreamsService(@Value("${app.streaming.max-concurrentes:200}") int maxConcurrentes,
+                                      @Value("${app.streaming.max-por-usuario:3}") int maxPorUsuario,
+                                      @Value("${app.streaming.max-por-usuario-vip:6}") int maxPorUsuarioVip,
+                                      @Value("${app.streaming.bytes-por-segundo:262144}") long bytesPorSegundo,
+                                      @Value("${app.streaming.rafaga-bytes:1048576}") long rafagaBytes,
+                                      @Value("${app.streaming.timeout-ms:3600000}") long timeoutMs) {
+        this.maxConcurrentes = Math.max(1, maxConcurrentes);
+        this.maxPorUsuario = Math.max(1, maxPorUsuario);
+        this.maxPorUsuarioVip = Math.max(this.maxPorUsuario, maxPorUsuarioVip);
+        this.bytesPorSegundo = Math.max(0, bytesPorSegundo);
+        this.rafagaBytes = Math.max(1, rafagaBytes);
+        this.timeoutMs = Math.max(1, timeoutMs);
+        this.global = new Semaphore(this.maxConcurrentes);
+        ejecutor.setThreadNamePrefix("streaming-");
+        ejecutor.setCorePoolSize(this.maxConcurrentes);
+        ejecutor.setMaxPoolSize(this.maxConcurrentes);
+        // Un turno se libera un instante antes que su hilo: la cola solo absorbe ese solape
+        ejecutor.setQueueCapacity(this.maxConcurrentes);
+        ejecutor.setAllowCoreThreadTimeOut(true);
+        ejecutor.initialize();
+    }
+
+    /**
+     * Reserva un turno de streaming para el usuario. Debe cerrarse al terminar de escribir.
+     *
+     * @param permiso permisos del usuario (id y VIP deciden su cupo)
+     * @return turno admitido
+     * @throws DemasiadosStreamsException si el usuario ya tiene todos sus streams abiertos (429)
+     * @throws ServicioSaturadoException si no queda hueco global (503)
+     */
+    public Turno admitir(PermisoStream permiso) {
+        String usuario = permiso.usuarioId() != null ? permiso.usuarioId() : "";
+        int cupo = permiso.vip() ? maxPorUsuarioVip : maxPorUsuario;
+        if (!reservarCupoUsuario(usuario, cupo)) {
+            rechazadosPorUsuario.incrementAndGet();
+            throw new DemasiadosStreamsException("Se ha alcanzado el máximo de " + cupo + " reproducciones simultáneas");
+        }
+
+        if (!global.tryAcquire()) {
+            liberarCupoUsuario(usuario);
+            rechazadosPorSaturacion.incrementAndGet();
+            throw new ServicioSaturadoException("Demasiadas reproducciones en curso, inténtalo de nuevo en unos segundos",
+                REINTENTAR_SEGUNDOS);
+        }
+        return new Turno(usuario);
+    }
+
+    /**
+     * Prepara la escritura de un stream admitido en el pool de streaming, con el timeout de
+     * los streams. Los bytes van directamente a la respuesta (sin copias intermedias), con la
+     * salida limitada del turno. El turno se cierra al acabar la escritura y también al
+     * completarse, caducar o fallar la petición, aunque la tarea no llegue a ejecutarse.
+     *
+     * @param turno turno devuelto por {@link #admitir}
+     * @param response respuesta con el estado y las cabeceras ya puestos
+     * @param cuerpo escribe los bytes de la respuesta
+     * @return tarea para devolver desde el controlador
+     */
+    public WebAsyncTask<Void> programar(Turno turno, HttpServletResponse response, StreamingResponseBody cuerpo) {
+        WebAsyncTask<Void> tarea = new WebAsyncTask<>(timeoutMs, ejecutor, () -> {
+            try (turno) {
+                OutputStream salida = response.getOutputStream();
+                cuerpo.writeTo(turno.limitar(salida));
+                salida.flush();
+            }
+            return null;
+        });
+        // Los callbacks quedan registrados antes de que Spring MVC envíe la tarea al pool
+        tarea.onCompletion(turno::close);
+        // null deja que Spring resuelva el timeout y el error como en cualquier otra petición asíncrona
+        tarea.onTimeout(() -> {
+            turno.close();
+            return null;
+        });
+        tarea.onError(() -> {
+            turno.close();
+            return null;
+        });
+        return tarea;
+    }
+
+    public EstadisticasStreamingDTO estadisticas() {
+        // En cola: streams admitidos que aún esperan un hilo de escritura en el pool
+        return new EstadisticasStreamingDTO(maxConcurrentes - global.availablePermits(), maxConcurrentes,
+            ejecutor.getThreadPoolExecutor().getQueue().size(), limitadosAhora.get(), totalLimitados.get(),
+            rechazadosPorUsuario.get(), rechazadosPorSaturacion.get());
+    }
+
+    @Override
+    public void destroy() {
+        ejecutor.shutdown();
+    }
+
+    private boolean reservarCupoUsuario(String usuario, int cupo) {
+        AtomicBoolean reservado = new AtomicBoolean();
+        porUsuario.compute(usuario, (k, abiertos) -> {
+            int actuales = abiertos != null ? abiertos : 0;
+            if (actuales >= cupo) {
+                return abiertos;
+            }
+            reservado.set(true);
+            return actuales + 1;
+        });
+        return reservado.get();
+    }
+
+    private void liberarCupoUsuario(String usuario) {
+        // Se borra la entrada al llegar a 0 para que el mapa no crezca con cada usuario que pasa
+        porUsuario.computeIfPresent(usuario, (k, abiertos) -> abiertos <= 1 ? null : abiertos - 1);
+    }
+
+    /**
+     * Turno admitido de un stream. Cerrarlo varias veces no tiene efecto.
+     */
+    public final class Turno implements Closeable {
+
+        private final String usuario;
+        private final AtomicBoolean cerrado = new AtomicBoolean();
+        private boolean limitado;
+
+        private Turno(String usuario) {
+            this.usuario = usuario;
+        }
+
+        /**
+         * Envuelve la salida de la respuesta para escribir al ritmo del cubo de tokens.
+         */
+        public OutputStream limitar(OutputStream salida) {
+            if (bytesPorSegundo == 0) {
+                return salida;
+            }
+            return new SalidaLimitada(salida, new CuboTokens(bytesPorSegundo, rafagaBytes, System::nanoTime));
+        }
+
+        @Override
+        public void close() {
+            if (cerrado.compareAndSet(false, true)) {
+                global.release();
+                liberarCupoUsuario(usuario);
+            }
+        }
+
+        private void esperar(long nanos) throws InterruptedIOException {
+            if (nanos <= 0) {
+                return;
+            }
+            if (!limitado) {
+                limitado = true;
+                totalLimitados.incrementAndGet();
+            }
+            limitadosAhora.incrementAndGet();
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Stream interrumpido mientras esperaba ancho de banda");
+            } finally {
+                limitadosAhora.decrementAndGet();
+            }
+        }
+
+        private final class SalidaLimitada extends FilterOutputStream {
+
+            private final CuboTokens cubo;
+
+            SalidaLimitada(OutputStream salida, CuboTokens cubo) {
+                super(salida);
+                this.cubo = cubo;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                esperar(cubo.consumir(1));
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                esperar(cubo.consumir(len));
+                out.write(b, off, len);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package iso25.g05.esi_media.service;
+
+/**
+ * Rango de bytes inclusivo [inicio, fin] dentro de un fichero.
+ */
+public record RangoBytes(long inicio, long fin) {
+
+    public long longitud() {
+        return fin - inicio + 1;
+    }
+
+    /** Valor para la cabecera Content-Range, p. ej. "bytes 0-99/1000". */
+    public String contentRange(long longitudTotal) {
+        return "bytes " + inicio + "-" + fin + "/" + longitudTotal;
+    }
+}
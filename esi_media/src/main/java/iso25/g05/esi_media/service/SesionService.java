@@ -0,0 +1,160 @@
+package iso25.g05.esi_media.service;
+
+import java.util.Date;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+
+import iso25.g05.esi_media.model.Sesion;
+import iso25.g05.esi_media.model.Token;
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.repository.CacheSesiones;
+
+/**
+ * Alta y cierre de sesiones en la colección "sesiones" (ver {@link Sesion}).
+ *
+ * - Iniciar sesión es un insert pequeño: el documento del usuario no se toca.
+ * - Un usuario puede tener varias sesiones a la vez (una por dispositivo); cerrar una no afecta al resto.
+ * - Cualquier save de un usuario refresca la copia de permisos de sus sesiones, y su baja las borra.
+ * - Las sesiones vencidas las borra Mongo por el índice TTL sobre expiraEn.
+ */
+@Service
+public class SesionService extends AbstractMongoEventListener<Usuario> {
+
+    private static final String FIELD_USUARIO_ID = "usuarioId";
+    private static final String FIELD_EXPIRA_EN = "expiraEn";
+
+    private final MongoTemplate mongoTemplate;
+    private final CacheSesiones cacheSesiones;
+    private final long duracionMs;
+
+    public SesionService(MongoTemplate mongoTemplate, CacheSesiones cacheSesiones,
+                         @Value("${app.sesiones.duracion-horas:8}") long duracionHoras) {
+        this.mongoTemplate = mongoTemplate;
+        this.cacheSesiones = cacheSesiones;
+        this.duracionMs = Math.max(1, duracionHoras) * 3600_000L;
+    }
+
+    /**
+     * Abre una sesión nueva para el usuario.
+     *
+     * @return el token en claro (solo lo conoce el cliente) y su caducidad
+     */
+    public Token crear(Usuario usuario) {
+        Token token = new Token();
+        Date ahora = new Date();
+        token.setFechaExpiracion(new Date(ahora.getTime() + duracionMs));
+
+        Sesion sesion = new Sesion();
+        sesion.setId(Sesion.idDeToken(token.getToken()));
+        sesion.copiarPermisos(usuario);
+        sesion.setcreadaEn(ahora);
+        sesion.setexpiraEn(token.getFechaExpiracion());
+        mongoTemplate.insert(sesion);
+        return token;
+    }
+
+    /**
+     * Cierra la sesión de ese token.
+     *
+     * @return true si existía
+     */
+    public boolean cerrar(String token) {
+        if (token == null) {
+            return false;
+        }
+        boolean existia = mongoTemplate.remove(Query.query(Criteria.where("_id").is(Sesion.idDeToken(token))),
+            Sesion.class).getDeletedCount() > 0;
+        cacheSesiones.invalidarToken(token);
+        return existia;
+    }
+
+    /**
+     * Cierra todas las sesiones del usuario (en todos sus dispositivos).
+     */
+    public void cerrarTodas(String usuarioId) {
+        if (usuarioId == null) {
+            return;
+        }
+        mongoTemplate.remove(Query.query(Criteria.where(FIELD_USUARIO_ID).is(usuarioId)), Sesion.class);
+        cacheSesiones.invalidarUsuario(usuarioId);
+    }
+
+    /**
+     * Copia en las sesiones abiertas del usuario sus datos de permisos actuales.
+     *
+     * @return número de sesiones actualizadas
+     */
+    public long actualizarPermisos(Usuario usuario) {
+        if (usuario == null || usuario.getId() == null) {
+            return 0;
+        }
+        Sesion permisos = new Sesion();
+        permisos.copiarPermisos(usuario);
+        Update update = new Update()
+            .set("rol", permisos.getrol())
+            .set("vip", permisos.isvip())
+            .set("fechanac", permisos.getfechanac())
+            .set("bloqueado", permisos.isbloqueado())
+            .set("tipocontenido", permisos.gettipocontenido());
+        UpdateResult resultado = mongoTemplate.updateMulti(
+            Query.query(Criteria.where(FIELD_USUARIO_ID).is(usuario.getId())), update, Sesion.class);
+        // Después de escribir: lo que se cargue a partir de aquí ya ve los permisos nuevos
+        cacheSesiones.invalidarUsuario(usuario.getId());
+        return resultado.getModifiedCount();
+    }
+
+    /**
+     * Índice TTL (Mongo borra la sesión al pasar expiraEn) y el de sesiones por usuario.
+     * La creación automática de índices está desactivada en MongoRegistroConfig.
+     */
+    public void crearIndices() {
+        IndexOperations indices = mongoTemplate.indexOps(Sesion.class);
+        indices.ensureIndex(new Index().named("sesiones_caducidad")
+            .on(FIELD_EXPIRA_EN, Sort.Direction.ASC).expire(0));
+        indices.ensureIndex(new Index().named("sesiones_usuario")
+            .on(FIELD_USUARIO_ID, Sort.Direction.ASC));
+    }
+
+    /**
+     * Borra de "users" las sesiones embebidas de antes de la colección "sesiones".
+     * Una vez limpiados no queda ninguno con sesionstoken y los arranques siguientes no escriben.
+     *
+     * @return número de usuarios limpiados
+     */
+    public long eliminarSesionesEmbebidas() {
+        Query embebidas = Query.query(Criteria.where("sesionstoken").exists(true));
+        if (!mongoTemplate.exists(embebidas, Usuario.class)) {
+            return 0;
+        }
+        UpdateResult resultado = mongoTemplate.updateMulti(embebidas, new Update().unset("sesionstoken"), Usuario.class);
+        return resultado.getModifiedCount();
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Usuario> event) {
+        actualizarPermisos(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Usuario> event) {
+        Object id = event.getSource().get("_id");
+        // Borrados por otro filtro: sus sesiones caducan solas y la búsqueda no encuentra al usuario
+        if (id instanceof String || id instanceof ObjectId) {
+            cerrarTodas(id.toString());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package iso25.g05.esi_media.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+
+import iso25.g05.esi_media.dto.SugerenciaDTO;
+import iso25.g05.esi_media.model.EntradaCatalogo;
+import iso25.g05.esi_media.model.Lista;
+
+/**
+ * Autocompletado por prefijo para los visualizadores: títulos de contenidos, tags y nombres de
+ * listas públicas, ordenados por visualizaciones.
+ *
+ * Por qué existe: cada pulsación de tecla es una petición; responder desde un diccionario
+ * inmutable en memoria ({@link DiccionarioSugerencias}) evita ir a la base de datos.
+ *
+ * Reglas:
+ * - Se reconstruye cada app.sugerencias.refresco-ms en el hilo del planificador, leyendo el
+ *   catálogo (solo contenidos visibles) y las listas visibles, y se sustituye de golpe.
+ * - El peso de un título son sus visualizaciones; el de un tag o una lista, la suma de las de
+ *   sus contenidos.
+ * - Un tag solo es VIP si todos sus contenidos lo son, y pide la menor edad de ellos.
+ * - Mientras no hay diccionario, {@link #sugerir} devuelve vacío.
+ */
+@Service
+public class SugerenciasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SugerenciasService.class);
+
+    private static final int LOTE_CURSOR = 1000;
+    public static final String TIPO_TAG = "TAG";
+    public static final String TIPO_LISTA = "LISTA";
+
+    private final MongoTemplate mongoTemplate;
+    private final CatalogoService catalogoService;
+    private final boolean habilitado;
+
+    private volatile DiccionarioSugerencias diccionario;
+
+    public SugerenciasService(MongoTemplate mongoTemplate,
+                              CatalogoService catalogoService,
+                              @Value("${app.sugerencias.habilitado:true}") boolean habilitado) {
+        this.mongoTemplate = mongoTemplate;
+        this.catalogoService = catalogoService;
+        this.habilitado = habilitado;
+    }
+
+    /**
+     * @return hasta {@code limite} sugerencias que el usuario puede ver, o vacío si el diccionario
+     *         aún no está construido
+     */
+    public Optional<List<SugerenciaDTO>> sugerir(String texto, int limite, PermisoStream permiso) {
+        DiccionarioSugerencias actual = diccionario;
+        if (actual == null) {
+            return Optional.empty();
+        }
+        return Optional.of(actual.buscar(texto, limite, permiso.vip(), permiso.edad()));
+    }
+
+    @Scheduled(initialDelayString = "${app.sugerencias.espera-inicial-ms:30000}",
+               fixedDelayString = "${app.sugerencias.refresco-ms:300000}")
+    public void refrescar() {
+        if (!habilitado) {
+            return;
+        }
+        if (!catalogoService.listo()) {
+            logger.debug("Sugerencias: el catálogo aún no está listo, se espera al siguiente refresco");
+            return;
+        }
+        try {
+            diccionario = construir();
+            logger.info("Diccionario de sugerencias construido. Entradas: {}", diccionario.tamano());
+        } catch (Exception e) {
+            // Se sigue sirviendo el diccionario anterior
+            logger.error("Error construyendo el diccionario de sugerencias: {}", e.getMessage(), e);
+        }
+    }
+
+    DiccionarioSugerencias construir() {
+        DiccionarioSugerencias.Constructor constructor = new DiccionarioSugerencias.Constructor();
+        Map<String, Integer> vistasPorId = new HashMap<>();
+        Map<String, Tag> tags = new HashMap<>();
+
+        Query query = new Query(Criteria.where("estado").is(true)).cursorBatchSize(LOTE_CURSOR);
+        query.fields().include("tipo", "titulo", "vip", "edadvisualizacion", "tags", "nvisualizaciones");
+        try (Stream<EntradaCatalogo> entradas = mongoTemplate.stream(query, EntradaCatalogo.class)) {
+            entradas.forEach(e -> {
+                int vistas = e.getnvisualizaciones();
+                vistasPorId.put(e.getId(), vistas);
+                if (e.gettitulo() != null && e.gettipo() != null) {
+                    constructor.anadir(new SugerenciaDTO(e.getId(), e.gettitulo(), e.gettipo().name()),
+                        vistas, e.isvip(), e.getedadvisualizacion());
+                }
+                if (e.gettags() != null) {
+                    for (String tag : e.gettags()) {
+                        if (tag != null && !tag.isBlank()) {
+                            tags.computeIfAbsent(tag, t -> new Tag()).sumar(vistas, e.isvip(), e.getedadvisualizacion());
+                        }
+                    }
+                }
+            });
+        }
+        tags.forEach((tag, t) -> constructor.anadir(new SugerenciaDTO(null, tag, TIPO_TAG), t.vistas, t.soloVip, t.edad));
+
+        // Documentos en bruto: con la entidad se resolverían todas las DBRef de los contenidos
+        String coleccionListas = mongoTemplate.getCollectionName(Lista.class);
+        for (Document lista : mongoTemplate.getCollection(coleccionListas)
+                .find(Filters.eq("visible", true))
+                .projection(Projections.include("nombre", "contenidos"))
+                .batchSize(LOTE_CURSOR)) {
+            String nombre = lista.getString("nombre");
+            if (nombre != null) {
+                constructor.anadir(new SugerenciaDTO(String.valueOf(lista.get("_id")), nombre, TIPO_LISTA),
+                    vistasDe(lista.getList("contenidos", Object.class), vistasPorId), false, 0);
+            }
+        }
+        return constructor.construir();
+    }
+
+    private static long vistasDe(List<Object> contenidos, Map<String, Integer> vistasPorId) {
+        long vistas = 0;
+        if (contenidos != null) {
+            for (Object referencia : contenidos) {
+                if (referencia instanceof DBRef dbRef) {
+                    vistas += vistasPorId.getOrDefault(String.valueOf(dbRef.getId()), 0);
+                }
+            }
+        }
+        return vistas;
+    }
+
+    /** Acumulado de un tag durante la construcción. */
+    private static final class Tag {
+        private long vistas;
+        private boolean soloVip = true;
+        private int edad = Integer.MAX_VALUE;
+
+        void sumar(int vistasContenido, boolean vip, int edadContenido) {
+            vistas += vistasContenido;
+            soloVip &= vip;
+            edad = Math.min(edad, edadContenido);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package iso25.g05.esi_media.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import iso25.g05.esi_media.exception.AccesoNoAutorizadoException;
+
+/**
+ * URLs de streaming firmadas con HMAC-SHA256 y de vida corta.
+ *
+ * Por qué existe: una reproducción genera decenas de peticiones Range y cada una volvía a
+ * buscar al usuario por su token de sesión (consulta a Mongo + carga de @DBRef). Al pedir el
+ * detalle ya se ha validado al usuario, así que se emite una URL que lleva firmados el id del
+ * contenido, la caducidad, el id del usuario y sus permisos (VIP, edad, gestor). El endpoint de
+ * streaming la verifica en memoria, sin tocar la colección de usuarios.
+ *
+ * Reglas:
+ * - La base de la URL sale de {@code app.backend.url}.
+ * - El secreto es {@code app.streaming.firma.secreto}; si está vacío se genera uno aleatorio
+ *   al arrancar (las URLs solo valen en esta instancia: con varias réplicas hay que fijarlo).
+ * - Caducidad de {@code app.streaming.firma.ttl-segundos} desde la emisión.
+ */
+@Service
+public class UrlFirmadaService {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlFirmadaService.class);
+    private static final String ALGORITMO = "HmacSHA256";
+
+    private final String urlBase;
+    private final SecretKeySpec clave;
+    private final long ttlSegundos;
+    private final Clock reloj;
+
+    @Autowired
+    public UrlFirmadaService(@Value("${app.backend.url}") String urlBase,
+                             @Value("${app.streaming.firma.secreto:}") String secreto,
+                             @Value("${app.streaming.firma.ttl-segundos:1800}") long ttlSegundos) {
+        this(urlBase, secreto, ttlSegundos, Clock.systemUTC());
+    }
+
+    UrlFirmadaService(String urlBase, String secreto, long ttlSegundos, Clock reloj) {
+        this.urlBase = urlBase.endsWith("/") ? urlBase.substring(0, urlBase.length() - 1) : urlBase;
+        this.clave = new SecretKeySpec(bytesSecreto(secreto), ALGORITMO);
+        this.ttlSegundos = ttlSegundos;
+        this.reloj = reloj;
+    }
+
+    /**
+     * Construye la URL firmada de streaming de un audio.
+     *
+     * @param audioId id del audio
+     * @param permiso permisos ya validados del usuario que la pide
+     * @return URL absoluta con los parámetros exp, u, vip, edad, gestor y firma
+     */
+    public String firmarAudio(String audioId, PermisoStream permiso) {
+        long exp = reloj.instant().getEpochSecond() + ttlSegundos;
+        String firma = calcularFirma(audioId, exp, permiso);
+        return urlBase + "/multimedia/audio/" + audioId
+            + "?exp=" + exp
+            + "&u=" + permiso.usuarioId()
+            + "&vip=" + (permiso.vip() ? 1 : 0)
+            + "&edad=" + permiso.edad()
+            + "&gestor=" + (permiso.gestor() ? 1 : 0)
+            + "&firma=" + firma;
+    }
+
+    /**
+     * Verifica la firma y la caducidad de una URL de streaming.
+     *
+     * @return los permisos firmados
+     * @throws AccesoNoAutorizadoException si falta algún parámetro, la firma no cuadra o ha caducado
+     */
+    public PermisoStream verificar(String audioId, Long exp, String usuarioId, Integer vip, Integer edad,
+                                   Integer gestor, String firma) {
+        if (audioId == null || exp == null || usuarioId == null || vip == null || edad == null
+                || gestor == null || firma == null) {
+            throw new AccesoNoAutorizadoException("URL de reproducción incompleta");
+        }
+        PermisoStream permiso = new PermisoStream(usuarioId, vip == 1, edad, gestor == 1);
+        byte[] esperada = calcularFirma(audioId, exp, permiso).getBytes(StandardCharsets.US_ASCII);
+        // Comparación en tiempo constante para no filtrar la firma byte a byte
+        if (!MessageDigest.isEqual(esperada, firma.getBytes(StandardCharsets.US_ASCII))) {
+            throw new AccesoNoAutorizadoException("Firma de la URL de reproducción no válida");
+        }
+        if (reloj.instant().getEpochSecond() > exp) {
+            throw new AccesoNoAutorizadoException("La URL de reproducción ha caducado");
+        }
+        return permiso;
+    }
+
+    private String calcularFirma(String audioId, long exp, PermisoStream permiso) {
+        String mensaje = audioId + '\n' + exp + '\n' + permiso.usuarioId() + '\n' + (permiso.vip() ? 1 : 0) + '\n'
+            + permiso.edad() + '\n' + (permiso.gestor() ? 1 : 0);
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(clave);
+            byte[] hmac = mac.doFinal(mensaje.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hmac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible", e);
+        }
+    }
+
+    private static byte[] bytesSecreto(String secreto) {
+        if (secreto != null && !secreto.isBlank()) {
+            return secreto.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("app.streaming.firma.secreto no configurado: se usa un secreto aleatorio (URLs válidas solo en esta instancia)");
+        byte[] aleatorio = new byte[32];
+        new SecureRandom().nextBytes(aleatorio);
+        return aleatorio;
+    }
+}
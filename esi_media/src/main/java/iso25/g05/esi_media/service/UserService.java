@@ -33,7 +33,6 @@ import iso25.g05.esi_media.repository.ContraseniaComunRepository;
 import iso25.g05.esi_media.repository.ContraseniaRepository;
 import iso25.g05.esi_media.repository.GestorDeContenidoRepository;
 import iso25.g05.esi_media.repository.IpLoginAttemptRepository;
-import iso25.g05.esi_media.repository.TokenRepository;
 import iso25.g05.esi_media.repository.UsuarioRepository;
 import iso25.g05.esi_media.repository.VisualizadorRepository;
 
@@ -43,9 +42,6 @@ public class UserService {
     @Autowired
     private AdministradorRepository administradorRepository;
 
-    @Autowired
-    private TokenRepository tokenRepository;
-
     @Autowired
     private UsuarioRepository usuarioRepository;
 
@@ -70,6 +66,9 @@ public class UserService {
     @Autowired
     private IpLoginAttemptRepository ipLoginAttemptRepository;
 
+    @Autowired
+    private SesionService sesionService;
+
     private final PasswordEncoder encoder = new BCryptPasswordEncoder(10);
 
     @Autowired
@@ -159,10 +158,14 @@ public class UserService {
     }
 
     // Hacemos público el método para evitar uso de reflexión desde otros servicios.
+    /**
+     * Abre una sesión nueva (colección "sesiones") sin guardar el usuario. Las sesiones de otros
+     * dispositivos siguen abiertas.
+     */
     public Token generateAndSaveToken(Usuario user) {
-        Token token = new Token();
+        Token token = sesionService.crear(user);
+        // Solo en memoria: el login devuelve el token desde el usuario
         user.setSesionstoken(token);
-        this.usuarioRepository.save(user);
         return token;
     }
 
@@ -185,6 +188,7 @@ public class UserService {
 
             if (!user.isThreeFactorAutenticationEnabled()) {
                 user.setThreeFactorAutenticationEnabled(true);
+                usuarioRepository.save(user);
             }
 
             return generateAndSaveToken(user);
@@ -215,19 +219,11 @@ public class UserService {
         return null;
     }
 
+    /**
+     * Cierra solo la sesión de ese token (las de otros dispositivos siguen abiertas).
+     */
     public boolean logout(String token){
-        boolean res = false;
-
-        Optional<Usuario> optU = usuarioRepository.findBySesionToken(token);
-
-        if(optU.isPresent()){
-            Usuario u = optU.get();
-            u.setSesionstoken(null);
-            usuarioRepository.save(u);
-            res = true;
-        }
-
-        return res;
+        return sesionService.cerrar(token);
     }
 
     /**
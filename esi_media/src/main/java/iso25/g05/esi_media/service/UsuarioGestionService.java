@@ -1,6 +1,5 @@
 package iso25.g05.esi_media.service;
 
-import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -16,10 +15,9 @@ import iso25.g05.esi_media.dto.GestorGestionDTO;
 import iso25.g05.esi_media.dto.VisualizadorGestionDTO;
 import iso25.g05.esi_media.model.Administrador;
 import iso25.g05.esi_media.model.GestordeContenido;
-import iso25.g05.esi_media.model.Token;
-import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Visualizador;
-import iso25.g05.esi_media.repository.TokenRepository;
+import iso25.g05.esi_media.repository.UsuarioRepository;
 
 /**
  * Servicio para gestión de usuarios por administradores
@@ -32,7 +30,7 @@ public class UsuarioGestionService {
     private MongoTemplate mongoTemplate;
     
     @Autowired
-    private TokenRepository tokenRepository;
+    private UsuarioRepository usuarioRepository;
 
     private String VISUALIZADOR = "iso25.g05.esi_media.model.Visualizador";
     private String CLASE = "_class";
@@ -50,25 +48,17 @@ public class UsuarioGestionService {
         }
         
         String token = authHeader.substring(7);
-        Optional<Token> tokenOpt = tokenRepository.findByToken(token);
+        // Las sesiones caducadas no se encuentran
+        Optional<UsuarioAutenticado> usuarioOpt = usuarioRepository.findUsuarioAutenticado(token);
         
-        if (tokenOpt.isEmpty()) {
+        if (usuarioOpt.isEmpty()) {
             throw new RuntimeException("Token inválido");
         }
         
-        Token tokenObj = tokenOpt.get();
-        if (tokenObj.getFechaExpiracion().before(new Date())) {
-            throw new RuntimeException("Token expirado");
-        }
-        
-        // Verificar que el usuario es administrador
-        Usuario usuario = tokenObj.getUsuario();
-        if (usuario == null) {
-            throw new RuntimeException("Token inválido - usuario no encontrado");
-        }
+        UsuarioAutenticado usuario = usuarioOpt.get();
         
-        // Verificar que el usuario es una instancia de Administrador
-        if (!(usuario instanceof Administrador)) {
+        // Verificar que el usuario es un Administrador
+        if (!usuario.esAdministrador()) {
             throw new RuntimeException("Solo los administradores pueden gestionar usuarios");
         }
     }
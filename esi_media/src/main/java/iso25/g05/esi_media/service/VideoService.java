@@ -2,7 +2,6 @@ package iso25.g05.esi_media.service;
 
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Date;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,8 +9,7 @@ import org.springframework.stereotype.Service;
 
 import iso25.g05.esi_media.dto.VideoUploadDTO;
 import iso25.g05.esi_media.model.GestordeContenido;
-import iso25.g05.esi_media.model.Token;
-import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Video;
 import iso25.g05.esi_media.repository.GestorDeContenidoRepository;
 import iso25.g05.esi_media.repository.UsuarioRepository;
@@ -32,6 +30,18 @@ public class VideoService {
     
     @Autowired
     private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private CaratulaService caratulaService;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private IndiceTitulosService indiceTitulos;
+
+    @Autowired
+    private CacheListadosService cacheListados;
     
     /**
      * Sube un nuevo video por URL validando el token de autorización
@@ -67,7 +77,12 @@ public class VideoService {
         Video video = crearVideoDesdeDTO(videoDTO, gestorId);
         // 4. Guardar en base de datos
         video.setId(null);
+        CamposBusqueda.aplicar(video);
         Video videoGuardado = videoRepository.save(video);
+        catalogoService.sincronizar(videoGuardado);
+        indiceTitulos.actualizar(videoGuardado);
+        cacheListados.invalidar(null, CacheListadosService.Visibilidad.de(videoGuardado));
+        caratulaService.programarMiniaturas(videoGuardado);
         
         // 5. Actualizar lista de contenidos del gestor
         gestor.getContenidos_subidos().add(videoGuardado.getId());
@@ -125,7 +140,7 @@ public class VideoService {
      * Crea la entidad Video desde el DTO
      */
     private Video crearVideoDesdeDTO(VideoUploadDTO dto, String gestorId) {
-        return new Video(
+        Video video = new Video(
             null, // ID será generado por MongoDB
             dto.getTitulo(),
             dto.getDescripcion(),
@@ -136,12 +151,15 @@ public class VideoService {
             null,
             dto.getFechaDisponibleHasta(),
             dto.getEdadVisualizacion(),
-            dto.getCaratula(),
+            null,
             0, // Número de visualizaciones inicial
             dto.getUrl(),
             dto.getResolucion(),
             gestorId
         );
+        // Una carátula en data URI se guarda como blob; una URL externa se deja tal cual
+        caratulaService.asignar(video, dto.getCaratula());
+        return video;
     }
     
     /**
@@ -173,29 +191,24 @@ public class VideoService {
 
         String token1 = tokenValue.replace("Bearer ", "").trim();
         
-        // 2. Buscar token en la base de datos
-        Optional<Usuario> usuarioOpt = usuarioRepository.findBySesionToken(token1);
+        // 2. Buscar la sesión (solo sus permisos: el gestor lo carga quien lo necesita)
+        Optional<UsuarioAutenticado> usuarioOpt = usuarioRepository.findUsuarioAutenticado(token1);
         if (usuarioOpt.isEmpty()) {
             throw new IllegalArgumentException("Token no válido");
         }
 
-        Usuario usuario = usuarioOpt.get();
-        
-        Token token = usuario.getSesionstoken();
-            
+        UsuarioAutenticado usuario = usuarioOpt.get();
 
-        if (token.getFechaExpiracion().before(new Date())) {
+        if (usuario.caducada()) {
             throw new IllegalArgumentException("Token expirado");
         }
         
         
         // 5. Verificar que el usuario es un gestor de contenido
-        Optional<GestordeContenido> gestorOpt = gestorRepository.findById(usuario.getId());
-        
-        if (gestorOpt.isEmpty()) {
+        if (!usuario.esGestor()) {
             throw new IllegalArgumentException("El usuario no es un gestor de contenido");
         }
         
-        return usuario.getId();
+        return usuario.id();
     }
 }
\ No newline at end of file
@@ -28,6 +28,7 @@ import iso25.g05.esi_media.model.Contrasenia;
 import iso25.g05.esi_media.model.Contenido;
 import iso25.g05.esi_media.model.Token;
 import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Visualizador;
 import iso25.g05.esi_media.repository.ContenidoRepository;
 import iso25.g05.esi_media.repository.ValoracionRepository;
@@ -73,6 +74,9 @@ public class VisualizadorService {
     @Autowired
     private LogService logService;
 
+    @Autowired
+    private CaratulaService caratulaService;
+
     /**
      * Repositorio general para operaciones de usuario (unicidad de email, etc.)
      */
@@ -238,8 +242,8 @@ public class VisualizadorService {
     }
 
     /**
-     * Si el usuario con ese email ya ha activado su cuenta, genera y devuelve
-     * un token de sesión. Si no está activado, devuelve null.
+     * Si el usuario con ese email ya ha activado su cuenta, abre una sesión y devuelve
+     * su token. Si no está activado, devuelve null.
      */
     public String tokenSiActivado(String email) {
         if (email == null) return null;
@@ -247,13 +251,7 @@ public class VisualizadorService {
         if (userOpt.isPresent()) {
             Usuario u = userOpt.get();
             if (Boolean.TRUE.equals(u.isHasActivated())) {
-                // Si ya tiene un token de sesión válido y no expirado, reutilizarlo
-                Token existing = u.getSesionstoken();
-                if (existing != null && !existing.isExpirado() && existing.getFechaExpiracion() != null
-                        && existing.getFechaExpiracion().after(new java.util.Date())) {
-                    return existing.getToken();
-                }
-                // Si no hay token válido, generar uno nuevo y devolverlo
+                // Siempre una sesión nueva: de las abiertas solo se guarda el hash del token
                 Token t = userServicePublicToken(u);
                 return t != null ? t.getToken() : null;
             }
@@ -547,7 +545,7 @@ public class VisualizadorService {
      * @throws iso25.g05.esi_media.exception.AccesoNoAutorizadoException si el token es inválido o el usuario no es un visualizador.
      */
     public void eliminarMiCuenta(String authHeaderOrToken) {
-        Visualizador visualizador = obtenerVisualizadorAutenticado(authHeaderOrToken);
+        Visualizador visualizador = recargarVisualizadorAutenticado(authHeaderOrToken);
 
         if (!visualizador.isTwoFactorAutenticationEnabled()) {
             throw new AccesoNoAutorizadoException("No autorizado para eliminar la cuenta");
@@ -562,14 +560,14 @@ public class VisualizadorService {
     }
 
     public List<ContenidoResumenDTO> obtenerFavoritos(String authHeaderOrToken) {
-        Visualizador visualizador = obtenerVisualizadorAutenticado(authHeaderOrToken);
+        Visualizador visualizador = recargarVisualizadorAutenticado(authHeaderOrToken);
         if (visualizador.getContenidofav() == null || visualizador.getContenidofav().isEmpty()) {
             return List.of();
         }
 
         return visualizador.getContenidofav().stream()
                 .filter(Contenido::isestado)
-                .map(ContenidoMapper::aResumen)
+                .map(c -> ContenidoMapper.aResumen(c, caratulaService.urlMiniatura(c)))
                 .collect(Collectors.toList());
     }
 
@@ -577,7 +575,7 @@ public class VisualizadorService {
         if (contenidoId == null || contenidoId.isBlank()) {
             throw new PeticionInvalidaException("ID de contenido requerido");
         }
-        Visualizador visualizador = obtenerVisualizadorAutenticado(authHeaderOrToken);
+        Visualizador visualizador = recargarVisualizadorAutenticado(authHeaderOrToken);
         Contenido contenido = contenidoRepository.findByIdAndEstadoTrue(contenidoId)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Contenido no encontrado"));
 
@@ -604,7 +602,7 @@ public class VisualizadorService {
         if (contenidoId == null || contenidoId.isBlank()) {
             throw new PeticionInvalidaException("ID de contenido requerido");
         }
-        Visualizador visualizador = obtenerVisualizadorAutenticado(authHeaderOrToken);
+        Visualizador visualizador = recargarVisualizadorAutenticado(authHeaderOrToken);
         List<Contenido> favoritos = visualizador.getContenidofav();
         if (favoritos == null || favoritos.isEmpty()) {
             return;
@@ -620,18 +618,30 @@ public class VisualizadorService {
         }
     }
 
-    private Visualizador obtenerVisualizadorAutenticado(String authHeaderOrToken) {
+    private UsuarioAutenticado obtenerVisualizadorAutenticado(String authHeaderOrToken) {
         String token = userService.extraerToken(authHeaderOrToken);
         if (token == null || token.isBlank()) {
             throw new PeticionInvalidaException("Token de autorización requerido");
         }
-        Usuario usuario = usuarioRepository.findBySesionToken(token)
+        UsuarioAutenticado usuario = usuarioRepository.findUsuarioAutenticado(token)
                 .orElseThrow(() -> new AccesoNoAutorizadoException("Token no válido"));
 
-        if (!(usuario instanceof Visualizador visualizador)) {
+        if (!usuario.esVisualizador()) {
             throw new AccesoNoAutorizadoException("Solo los visualizadores pueden realizar esta operación");
         }
 
-        return visualizador;
+        return usuario;
+    }
+
+    /**
+     * Visualizador autenticado leído por id, para las operaciones que necesitan el documento
+     * completo (favoritos, contraseña, 2FA): la sesión solo guarda sus permisos.
+     */
+    private Visualizador recargarVisualizadorAutenticado(String authHeaderOrToken) {
+        UsuarioAutenticado sesion = obtenerVisualizadorAutenticado(authHeaderOrToken);
+        return usuarioRepository.findById(sesion.id())
+                .filter(Visualizador.class::isInstance)
+                .map(Visualizador.class::cast)
+                .orElseThrow(() -> new AccesoNoAutorizadoException("Token no válido"));
     }
 }
@@ -4,6 +4,7 @@ import iso25.g05.esi_media.model.Administrador;
 import iso25.g05.esi_media.model.Contrasenia;
 import iso25.g05.esi_media.model.Usuario;
 import iso25.g05.esi_media.model.Visualizador;
+import iso25.g05.esi_media.repository.CacheSesiones;
 import iso25.g05.esi_media.repository.UsuarioRepository;
 import iso25.g05.esi_media.service.LogService;
 import org.junit.jupiter.api.BeforeEach;
@@ -46,6 +47,8 @@ public class BloqueoUsuarioControllerTest {
     private LogService logService;
     @Mock
     private UsuarioRepository usuarioRepository;
+    @Mock
+    private CacheSesiones cacheSesiones;
 
     @InjectMocks
     private BloqueoUsuarioController bloqueoController;
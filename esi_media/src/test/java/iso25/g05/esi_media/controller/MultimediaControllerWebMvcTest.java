@@ -1,5 +1,6 @@
 package iso25.g05.esi_media.controller;
 
+import java.io.ByteArrayInputStream;
 import java.util.List;
 
 import org.bson.BsonBinarySubType;
@@ -7,12 +8,15 @@ import org.bson.types.Binary;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -26,36 +30,80 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import jakarta.servlet.http.Cookie;
 import iso25.g05.esi_media.dto.ContenidoDetalleDTO;
 import iso25.g05.esi_media.dto.ContenidoResumenDTO;
+import iso25.g05.esi_media.dto.FormaOndaDTO;
+import iso25.g05.esi_media.dto.PaginaCursorDTO;
+import iso25.g05.esi_media.dto.SugerenciaDTO;
 import iso25.g05.esi_media.exception.AccesoNoAutorizadoException;
 import iso25.g05.esi_media.exception.PeticionInvalidaException;
 import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
 import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.VarianteCaratula;
+import iso25.g05.esi_media.model.SegmentoAudio;
+import iso25.g05.esi_media.service.AudioCacheService;
+import iso25.g05.esi_media.service.AudioSegmentacionService;
+import iso25.g05.esi_media.service.AudioStreamingService;
+import iso25.g05.esi_media.service.BlobStorage;
+import iso25.g05.esi_media.service.CaratulaService;
+import iso25.g05.esi_media.service.FormaOndaService;
 import iso25.g05.esi_media.service.MultimediaService;
 import iso25.g05.esi_media.service.LoggingService;
+import iso25.g05.esi_media.service.PermisoStream;
+import iso25.g05.esi_media.service.PlanificadorStreamsService;
+import iso25.g05.esi_media.service.UrlFirmadaService;
 
 @WebMvcTest(controllers = MultimediaController.class)
-@Import({GlobalExceptionHandler.class})
+@Import({GlobalExceptionHandler.class, AudioStreamingService.class, AudioCacheService.class, UrlFirmadaService.class,
+        PlanificadorStreamsService.class})
 @DisplayName("WebMvcTest: MultimediaController + GlobalExceptionHandler")
 class MultimediaControllerWebMvcTest {
 
         @Autowired
         private MockMvc mockMvc;
 
+        @Autowired
+        private UrlFirmadaService urlFirmadaService;
+
+        @Autowired
+        private AudioCacheService audioCache;
+
         @MockitoBean
                 private MultimediaService multimediaService;
                 
         @MockitoBean
                 private LoggingService loggingService;
 
+        @MockitoBean
+                private BlobStorage blobStorage;
+
+        @MockitoBean
+                private AudioSegmentacionService audioSegmentacionService;
+
+        @MockitoBean
+                private FormaOndaService formaOndaService;
+
+        @MockitoBean
+                private CaratulaService caratulaService;
+
+    @BeforeEach
+    void sesionDeVisualizador() {
+        // Con cookie de sesión el controlador pide los permisos de streaming del usuario
+        when(multimediaService.permisoParaStreaming(anyString()))
+                .thenReturn(new PermisoStream("v1", false, 30, false));
+    }
+
     @Test
     @DisplayName("GET /multimedia devuelve 200 y una página de contenidos")
     void listarContenidos_ok() throws Exception {
@@ -86,6 +134,38 @@ class MultimediaControllerWebMvcTest {
         verify(multimediaService, times(1)).listarContenidos(any(), anyString(), isNull(), isNull());
     }
 
+    @Test
+    @DisplayName("GET /multimedia?cursor= devuelve la página por cursor sin totales")
+    void listarContenidos_cursor() throws Exception {
+        PaginaCursorDTO<ContenidoResumenDTO> pagina = new PaginaCursorDTO<>(List.of(
+                new ContenidoResumenDTO("c1", "Canción 1", "AUDIO", null, false, null)), "abc");
+        when(multimediaService.listarContenidosPorCursor("test-token", null, null, "vistas", "", 1))
+                .thenReturn(pagina);
+
+        mockMvc.perform(get("/multimedia?cursor=&orden=vistas&size=1")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contenidos", hasSize(1)))
+                .andExpect(jsonPath("$.siguienteCursor", is("abc")))
+                .andExpect(jsonPath("$.hayMas", is(true)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        verify(multimediaService, never()).listarContenidos(any(), anyString(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/sugerencias acota el límite y devuelve las sugerencias")
+    void sugerencias_ok() throws Exception {
+        when(multimediaService.sugerir("test-token", "can", 20))
+                .thenReturn(List.of(new SugerenciaDTO("c1", "Canción 1", "AUDIO")));
+
+        mockMvc.perform(get("/multimedia/sugerencias?q=can&limit=500")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].titulo", is("Canción 1")));
+    }
+
     @Test
     @DisplayName("GET /multimedia/{id} devuelve 200 con detalle")
     void obtenerDetalle_ok() throws Exception {
@@ -119,24 +199,398 @@ class MultimediaControllerWebMvcTest {
         audio.setmimeType("audio/mpeg");
         audio.settamanoBytes(bytes.length);
 
-        when(multimediaService.validarYObtenerAudioParaStreaming(eq("a1"), anyString()))
+        when(multimediaService.obtenerAudioConPermiso(eq("a1"), any()))
                 .thenReturn(audio);
 
-        mockMvc.perform(get("/multimedia/audio/a1")
+        MvcResult resultado = mockMvc.perform(get("/multimedia/audio/a1")
                         .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "audio/mpeg"))
                 .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, String.valueOf(bytes.length)))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
                 .andExpect(content().bytes(bytes));
     }
 
+    @Test
+    @DisplayName("GET /multimedia/audio/{id} sirve el audio desde el almacén de blobs")
+    void streamAudio_ok_desdeBlob() throws Exception {
+        byte[] bytes = new byte[]{9, 8, 7};
+        Audio audio = new Audio();
+        audio.setblobId("blob1");
+        audio.setchecksum("abc");
+        audio.setmimeType("audio/mpeg");
+        audio.settamanoBytes(bytes.length);
+
+        when(multimediaService.obtenerAudioConPermiso(eq("a3"), any()))
+                .thenReturn(audio);
+        when(blobStorage.abrirDesde("blob1", 0L)).thenReturn(new ByteArrayInputStream(bytes));
+
+        MvcResult resultado = mockMvc.perform(get("/multimedia/audio/a3")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, String.valueOf(bytes.length)))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(content().bytes(bytes));
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id} con Range devuelve 206 y Content-Range")
+    void streamAudio_rangoUnico_206() throws Exception {
+        byte[] bytes = new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        Audio audio = new Audio();
+        audio.setfichero(new Binary(BsonBinarySubType.BINARY, bytes));
+        audio.setmimeType("audio/mpeg");
+
+        when(multimediaService.obtenerAudioConPermiso(eq("a1"), any()))
+                .thenReturn(audio);
+
+        MvcResult resultado = mockMvc.perform(get("/multimedia/audio/a1")
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "4"))
+                .andExpect(content().bytes(new byte[]{2, 3, 4, 5}));
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id} con varios rangos devuelve multipart/byteranges")
+    void streamAudio_multiRango_206() throws Exception {
+        byte[] bytes = new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        Audio audio = new Audio();
+        audio.setfichero(new Binary(BsonBinarySubType.BINARY, bytes));
+        audio.setmimeType("audio/mpeg");
+
+        when(multimediaService.obtenerAudioConPermiso(eq("a1"), any()))
+                .thenReturn(audio);
+
+        MvcResult resultado = mockMvc.perform(get("/multimedia/audio/a1")
+                        .header(HttpHeaders.RANGE, "bytes=0-1,-2")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, containsString("multipart/byteranges")))
+                .andExpect(content().string(containsString("Content-Range: bytes 0-1/10")))
+                .andExpect(content().string(containsString("Content-Range: bytes 8-9/10")));
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id} con If-Range distinto del ETag devuelve el fichero completo")
+    void streamAudio_ifRangeNoCoincide_200() throws Exception {
+        byte[] bytes = new byte[]{1, 2, 3, 4};
+        Audio audio = new Audio();
+        audio.setfichero(new Binary(BsonBinarySubType.BINARY, bytes));
+        audio.setchecksum("actual");
+        audio.setmimeType("audio/mpeg");
+
+        when(multimediaService.obtenerAudioConPermiso(eq("a1"), any()))
+                .thenReturn(audio);
+
+        MvcResult resultado = mockMvc.perform(get("/multimedia/audio/a1")
+                        .header(HttpHeaders.RANGE, "bytes=1-2")
+                        .header(HttpHeaders.IF_RANGE, "\"antiguo\"")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(bytes));
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id} con rango fuera del fichero devuelve 416")
+    void streamAudio_rangoNoSatisfacible_416() throws Exception {
+        byte[] bytes = new byte[]{1, 2, 3, 4};
+        Audio audio = new Audio();
+        audio.setfichero(new Binary(BsonBinarySubType.BINARY, bytes));
+        audio.setmimeType("audio/mpeg");
+
+        when(multimediaService.obtenerAudioConPermiso(eq("a1"), any()))
+                .thenReturn(audio);
+
+        mockMvc.perform(get("/multimedia/audio/a1")
+                        .header(HttpHeaders.RANGE, "bytes=50-60")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */4"));
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id} con URL firmada se sirve sin cookie ni búsqueda del usuario")
+    void streamAudio_urlFirmada_sinSesion() throws Exception {
+        byte[] bytes = new byte[]{1, 2, 3};
+        Audio audio = new Audio();
+        audio.setfichero(new Binary(BsonBinarySubType.BINARY, bytes));
+        audio.setmimeType("audio/mpeg");
+        PermisoStream permiso = new PermisoStream("v1", false, 30, false);
+        when(multimediaService.obtenerAudioConPermiso("a1", permiso)).thenReturn(audio);
+
+        String url = urlFirmadaService.firmarAudio("a1", permiso);
+        MvcResult resultado = mockMvc.perform(get(url.substring(url.indexOf("/multimedia"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(bytes));
+        verify(multimediaService, never()).permisoParaStreaming(anyString());
+
+        // Firma manipulada (se eleva el permiso VIP): 403
+        mockMvc.perform(get(url.substring(url.indexOf("/multimedia")).replace("vip=0", "vip=1")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id}?t= devuelve 206 desde el frame de la tabla de búsqueda")
+    void streamAudio_busquedaPorTiempo_206() throws Exception {
+        byte[] bytes = new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        Audio audio = new Audio();
+        audio.setfichero(new Binary(BsonBinarySubType.BINARY, bytes));
+        audio.setmimeType("audio/mpeg");
+        audio.setduracion(3.0);
+        audio.settablaBusqueda(new int[]{0, 4, 7});
+
+        when(multimediaService.obtenerAudioConPermiso(eq("a1"), any()))
+                .thenReturn(audio);
+
+        MvcResult resultado = mockMvc.perform(get("/multimedia/audio/a1?t=1.5")
+                        .header(HttpHeaders.RANGE, "bytes=0-1")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-9/10"))
+                .andExpect(content().bytes(new byte[]{4, 5, 6, 7, 8, 9}));
+
+        mockMvc.perform(get("/multimedia/audio/a1?t=3")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id}/manifest.m3u8 devuelve la lista de reproducción sin caché compartida")
+    void manifiestoAudio_ok() throws Exception {
+        Audio audio = new Audio();
+        List<SegmentoAudio> segmentos = List.of(new SegmentoAudio("b1", "sha1", 10.0, 100));
+        when(multimediaService.validarYObtenerAudioParaStreaming(eq("a1"), anyString())).thenReturn(audio);
+        when(audioSegmentacionService.obtenerSegmentos(audio)).thenReturn(segmentos);
+        when(audioSegmentacionService.generarManifiesto(segmentos)).thenReturn("#EXTM3U\n");
+
+        mockMvc.perform(get("/multimedia/audio/a1/manifest.m3u8")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, containsString("application/vnd.apple.mpegurl")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("private")))
+                .andExpect(content().string("#EXTM3U\n"));
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id}/segmentos/{sha} sirve el segmento como objeto inmutable")
+    void segmentoAudio_inmutable() throws Exception {
+        byte[] bytes = new byte[]{9, 8, 7};
+        Audio audio = new Audio();
+        SegmentoAudio segmento = new SegmentoAudio("b1", "sha1", 10.0, bytes.length);
+        when(multimediaService.validarYObtenerAudioParaStreaming(eq("a1"), anyString())).thenReturn(audio);
+        when(audioSegmentacionService.obtenerSegmento(audio, "sha1")).thenReturn(segmento);
+        when(blobStorage.abrirDesde("b1", 0L)).thenReturn(new ByteArrayInputStream(bytes));
+
+        MvcResult resultado = mockMvc.perform(get("/multimedia/audio/a1/segmentos/sha1")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"sha1\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(content().bytes(bytes));
+
+        mockMvc.perform(get("/multimedia/audio/a1/segmentos/sha1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"sha1\"")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id}/picos devuelve la forma de onda con caché de larga duración")
+    void formaOndaAudio_ok() throws Exception {
+        Audio audio = new Audio();
+        audio.setchecksum("abc");
+        when(multimediaService.validarYObtenerAudioParaStreaming(eq("a1"), anyString())).thenReturn(audio);
+        when(formaOndaService.etag(audio)).thenReturn("\"picos-v1-abc\"");
+        when(formaOndaService.obtener(audio)).thenReturn(new FormaOndaDTO(1, 2.5, new int[]{-100, 100}));
+
+        mockMvc.perform(get("/multimedia/audio/a1/picos")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"picos-v1-abc\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=31536000")))
+                .andExpect(jsonPath("$.puntos", is(1)))
+                .andExpect(jsonPath("$.picos[1]", is(100)));
+
+        mockMvc.perform(get("/multimedia/audio/a1/picos")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"picos-v1-abc\"")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/{id}/caratula sirve la imagen: inmutable con ?v= actual y 304 con el ETag")
+    void caratula_okYRevalidacion() throws Exception {
+        byte[] png = new byte[]{(byte) 0x89, 'P', 'N', 'G'};
+        ImagenCaratula imagen = new ImagenCaratula("blobC", "0123456789abcdef0123", "image/png", png.length);
+        when(caratulaService.obtener("c1")).thenReturn(imagen);
+        when(caratulaService.seleccionar(eq("c1"), eq(imagen), any())).thenReturn(imagen);
+        when(caratulaService.etag(imagen)).thenReturn("\"0123456789abcdef0123\"");
+        when(caratulaService.leer(imagen)).thenReturn(png);
+
+        mockMvc.perform(get("/multimedia/c1/caratula?v=0123456789abcdef"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(png))
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+
+        // Versión antigua: se revalida en lugar de cachear un año
+        mockMvc.perform(get("/multimedia/c1/caratula?v=viejo"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+
+        mockMvc.perform(get("/multimedia/c1/caratula")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0123456789abcdef0123\""))
+                .andExpect(status().isNotModified());
+        verify(caratulaService, times(2)).leer(imagen);
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/{id}/caratula nunca sirve un SVG guardado como imagen")
+    void caratula_tipoNoPermitidoSeSirveComoBinario() throws Exception {
+        byte[] svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"><script>alert(1)</script></svg>".getBytes();
+        ImagenCaratula imagen = new ImagenCaratula("blobS", "0123456789abcdef0123", "image/svg+xml", svg.length);
+        when(caratulaService.obtener("c3")).thenReturn(imagen);
+        when(caratulaService.seleccionar(eq("c3"), eq(imagen), any())).thenReturn(imagen);
+        when(caratulaService.etag(imagen)).thenReturn("\"0123456789abcdef0123\"");
+        when(caratulaService.leer(imagen)).thenReturn(svg);
+
+        mockMvc.perform(get("/multimedia/c3/caratula"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"));
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/{id}/caratula?tam= sirve la miniatura; sin miniaturas aún, la original sin caché larga")
+    void caratula_miniatura() throws Exception {
+        byte[] jpg = new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+        ImagenCaratula imagen = new ImagenCaratula("blobC", "0123456789abcdef0123", "image/png", 1000);
+        ImagenCaratula miniatura = new ImagenCaratula("blobM", "fedcba9876543210", "image/jpeg", jpg.length);
+        imagen.setvariantes(List.of(
+            new VarianteCaratula(160, "blobM", "fedcba9876543210", "image/jpeg", jpg.length)));
+        when(caratulaService.obtener("c1")).thenReturn(imagen);
+        when(caratulaService.seleccionar("c1", imagen, 160)).thenReturn(miniatura);
+        when(caratulaService.etag(miniatura)).thenReturn("\"fedcba9876543210\"");
+        when(caratulaService.leer(miniatura)).thenReturn(jpg);
+
+        mockMvc.perform(get("/multimedia/c1/caratula?v=0123456789abcdef&tam=160"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().bytes(jpg))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"fedcba9876543210\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+
+        // Miniaturas pendientes: la URL de la tarjeta no debe quedarse cacheada con la original
+        ImagenCaratula pendiente = new ImagenCaratula("blobP", "aaaabbbbccccdddd", "image/png", 1000);
+        when(caratulaService.obtener("c2")).thenReturn(pendiente);
+        when(caratulaService.seleccionar("c2", pendiente, 160)).thenReturn(pendiente);
+        when(caratulaService.etag(pendiente)).thenReturn("\"aaaabbbbccccdddd\"");
+        when(caratulaService.leer(pendiente)).thenReturn(new byte[]{1});
+
+        mockMvc.perform(get("/multimedia/c2/caratula?v=aaaabbbbccccdddd&tam=160"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id} con If-None-Match igual al ETag devuelve 304 sin leer el blob")
+    void streamAudio_ifNoneMatch_304() throws Exception {
+        Audio audio = new Audio();
+        audio.setblobId("blob1");
+        audio.setchecksum("abc");
+        audio.setmimeType("audio/mpeg");
+        audio.settamanoBytes(3);
+
+        when(multimediaService.obtenerAudioConPermiso(eq("a3"), any()))
+                .thenReturn(audio);
+
+        mockMvc.perform(get("/multimedia/audio/a3")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc\"")
+                        .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""));
+
+        verify(blobStorage, never()).abrirDesde(anyString(), anyLong());
+    }
+
+    @Test
+    @DisplayName("GET /multimedia/audio/{id} sirve del almacén hasta que el audio está caliente y después desde la caché")
+    void streamAudio_audioCalienteSeSirveDesdeCache() throws Exception {
+        byte[] bytes = new byte[]{4, 5, 6};
+        Audio audio = new Audio();
+        audio.setId("cache1");
+        audio.setblobId("blob1");
+        audio.setchecksum("abc");
+        audio.setmimeType("audio/mpeg");
+        audio.settamanoBytes(bytes.length);
+
+        when(multimediaService.obtenerAudioConPermiso(eq("cache1"), any()))
+                .thenReturn(audio);
+        when(blobStorage.abrirDesde("blob1", 0L)).thenAnswer(inv -> new ByteArrayInputStream(bytes));
+
+        for (int i = 0; i < 3; i++) {
+            if (i == 2) {
+                // El segundo fallo encola la carga en segundo plano: se espera a que termine
+                for (int intentos = 0; intentos < 500 && audioCache.obtenerMetadatos("cache1").isEmpty(); intentos++) {
+                    Thread.sleep(10);
+                }
+            }
+            MvcResult resultado = mockMvc.perform(get("/multimedia/audio/cache1")
+                            .cookie(new jakarta.servlet.http.Cookie("SESSION_TOKEN", "test-token")))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(bytes));
+        }
+
+        // Dos peticiones servidas del almacén y una lectura para llenar la caché; la tercera no lo toca
+        verify(blobStorage, times(3)).abrirDesde("blob1", 0L);
+    }
+
     @Test
     @DisplayName("GET /multimedia/audio/{id} devuelve 404 si el binario está vacío")
     void streamAudio_notFound_whenBinaryMissing() throws Exception {
         Audio audio = new Audio();
         audio.setfichero(null); // Simula audio sin binario almacenado
 
-        when(multimediaService.validarYObtenerAudioParaStreaming(eq("a2"), anyString()))
+        when(multimediaService.obtenerAudioConPermiso(eq("a2"), any()))
                 .thenReturn(audio);
 
         mockMvc.perform(get("/multimedia/audio/a2")
@@ -147,7 +601,7 @@ class MultimediaControllerWebMvcTest {
     @Test
     @DisplayName("Errores se mapean a ErrorRespuestaDTO: 400 Bad Request")
     void errores_mapeo_400() throws Exception {
-        when(multimediaService.validarYObtenerAudioParaStreaming(eq("bad"), anyString()))
+        when(multimediaService.obtenerAudioConPermiso(eq("bad"), any()))
                 .thenThrow(new PeticionInvalidaException("El contenido solicitado no es de tipo audio"));
 
         mockMvc.perform(get("/multimedia/audio/bad")
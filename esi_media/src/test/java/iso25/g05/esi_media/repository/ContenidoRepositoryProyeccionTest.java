@@ -0,0 +1,34 @@
+package iso25.g05.esi_media.repository;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.mongodb.repository.Query;
+
+/**
+ * Comprueba que todos los listados paginados de contenidos usan la proyección de resumen,
+ * para que un método nuevo no vuelva a leer los documentos completos.
+ */
+@DisplayName("Proyección de los listados de ContenidoRepository")
+class ContenidoRepositoryProyeccionTest {
+
+    @Test
+    void testListadosPaginadosUsanCamposResumen() {
+        List<Method> listados = Arrays.stream(ContenidoRepository.class.getDeclaredMethods())
+            .filter(m -> Page.class.equals(m.getReturnType()))
+            .toList();
+
+        assertFalse(listados.isEmpty());
+        for (Method metodo : listados) {
+            Query query = metodo.getAnnotation(Query.class);
+            assertEquals(ContenidoRepository.CAMPOS_RESUMEN, query != null ? query.fields() : null,
+                "Sin proyección de resumen: " + metodo.getName());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package iso25.g05.esi_media.repository;
+
+import java.util.Date;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+import iso25.g05.esi_media.model.Sesion;
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
+import iso25.g05.esi_media.model.Visualizador;
+
+/**
+ * Tests de findUsuarioAutenticado / findBySesionToken (colección "sesiones") y de la caché que tienen delante.
+ */
+class UsuarioRepositoryCacheSesionesTest {
+
+    private static final String ID = new ObjectId().toHexString();
+
+    private MongoTemplate mongoTemplate;
+    private CacheSesiones cache;
+    private UsuarioRepositoryCustomImpl repositorio;
+    private Visualizador visualizador;
+    private Sesion sesion;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        cache = new CacheSesiones(100, 60);
+        repositorio = new UsuarioRepositoryCustomImpl(mongoTemplate, cache);
+        visualizador = new Visualizador();
+        visualizador.setId(ID);
+        sesion = new Sesion();
+        sesion.setusuarioId(ID);
+        sesion.setrol("Visualizador");
+        sesion.setvip(true);
+        sesion.setexpiraEn(new Date(System.currentTimeMillis() + 3600_000));
+        when(mongoTemplate.findById(anyString(), eq(Sesion.class))).thenReturn(sesion);
+        when(mongoTemplate.findById(ID, Usuario.class)).thenReturn(visualizador);
+    }
+
+    private void consultasAMongo(int veces) {
+        verify(mongoTemplate, times(veces)).findById(anyString(), eq(Sesion.class));
+    }
+
+    @Test
+    void testBuscaLaSesionPorElHashDelTokenYRellenaSuCaducidad() {
+        Usuario usuario = repositorio.findBySesionToken("tok").orElseThrow();
+
+        verify(mongoTemplate).findById(Sesion.idDeToken("tok"), Sesion.class);
+        assertEquals("tok", usuario.getSesionstoken().getToken());
+        assertEquals(sesion.getexpiraEn(), usuario.getSesionstoken().getFechaExpiracion());
+    }
+
+    @Test
+    void testUsuarioAutenticadoSaleSoloDeLaSesionSinLeerUsers() {
+        UsuarioAutenticado usuario = repositorio.findUsuarioAutenticado("tok").orElseThrow();
+
+        assertEquals(ID, usuario.id());
+        assertTrue(usuario.esVisualizador());
+        assertTrue(usuario.vip());
+        assertEquals(sesion.getexpiraEn(), usuario.expiraEn());
+        verify(mongoTemplate, never()).findById(anyString(), eq(Usuario.class));
+    }
+
+    @Test
+    void testElUsuarioCompletoSeLeeEnCadaLlamadaYLaSesionDeLaCache() {
+        repositorio.findBySesionToken("tok");
+        repositorio.findBySesionToken("tok");
+
+        consultasAMongo(1);
+        verify(mongoTemplate, times(2)).findById(ID, Usuario.class);
+    }
+
+    @Test
+    void testSegundaConsultaSaleDeLaCacheHastaQueSeInvalida() {
+        UsuarioAutenticado primero = repositorio.findUsuarioAutenticado("tok").orElseThrow();
+        assertEquals(primero, repositorio.findUsuarioAutenticado("tok").orElseThrow());
+        consultasAMongo(1);
+
+        // Bloqueo, cambio de suscripción o nuevo token
+        cache.invalidarUsuario(ID);
+        repositorio.findUsuarioAutenticado("tok");
+        consultasAMongo(2);
+
+        // Cierre de sesión
+        cache.invalidarToken("tok");
+        repositorio.findUsuarioAutenticado("tok");
+        consultasAMongo(3);
+    }
+
+    @Test
+    void testCualquierSaveOBorradoDelUsuarioInvalidaSusSesiones() {
+        repositorio.findUsuarioAutenticado("tok");
+        cache.onAfterSave(new AfterSaveEvent<>(visualizador, new Document(), "users"));
+        repositorio.findUsuarioAutenticado("tok");
+        consultasAMongo(2);
+
+        cache.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", new ObjectId(ID)), Usuario.class, "users"));
+        repositorio.findUsuarioAutenticado("tok");
+        consultasAMongo(3);
+    }
+
+    @Test
+    void testNoDevuelveSesionesCaducadasNiTokensDesconocidos() {
+        // El TTL de Mongo aún no la ha borrado
+        sesion.setexpiraEn(new Date(System.currentTimeMillis() - 1000));
+        assertTrue(repositorio.findUsuarioAutenticado("tok").isEmpty());
+        assertTrue(repositorio.findBySesionToken("tok").isEmpty());
+        consultasAMongo(2);
+
+        when(mongoTemplate.findById(anyString(), eq(Sesion.class))).thenReturn(null);
+        assertTrue(repositorio.findUsuarioAutenticado("otro").isEmpty());
+        assertTrue(repositorio.findUsuarioAutenticado(null).isEmpty());
+    }
+
+    @Test
+    void testExpulsaLaSesionMenosUsada() {
+        CacheSesiones pequena = new CacheSesiones(1, 60);
+        UsuarioRepositoryCustomImpl conPoca = new UsuarioRepositoryCustomImpl(mongoTemplate, pequena);
+        conPoca.findUsuarioAutenticado("tok");
+        conPoca.findUsuarioAutenticado("tok2");
+        conPoca.findUsuarioAutenticado("tok");
+        consultasAMongo(3);
+
+        Optional<UsuarioAutenticado> cacheado = pequena.obtener("tok");
+        assertTrue(cacheado.isPresent());
+        assertTrue(pequena.obtener("tok2").isEmpty());
+    }
+}
@@ -35,7 +35,7 @@ import iso25.g05.esi_media.model.Visualizador;
  * operaciones MongoDB se realicen en la base de datos de pruebas.
  */
 @DataMongoTest
-@Import(MongoTestConfig.class)
+@Import({MongoTestConfig.class, CacheSesiones.class})
 @ActiveProfiles("test")
 @DisplayName("Pruebas de repositorio de visualizadores")
 public class VisualizadorRepositoryTest {
@@ -0,0 +1,130 @@
+package iso25.g05.esi_media.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests del análisis de frames MP3 (duración y tabla de búsqueda).
+ */
+class AnalizadorMp3Test {
+
+    // MPEG-1 capa III, 128 kbps, 44100 Hz, estéreo, sin relleno: 417 bytes y 1152 muestras por frame
+    private static final byte[] CABECERA_128K = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+    private static final int LONGITUD_FRAME = 417;
+
+    private static byte[] frame(byte[] cabecera) {
+        byte[] frame = new byte[LONGITUD_FRAME];
+        System.arraycopy(cabecera, 0, frame, 0, 4);
+        return frame;
+    }
+
+    private static byte[] mp3(byte[] prefijo, int frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(prefijo);
+        for (int i = 0; i < frames; i++) {
+            out.writeBytes(frame(CABECERA_128K));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void testCbrSinEtiquetas() throws IOException {
+        // 100 frames * 1152 / 44100 = 2.612 s
+        Optional<IndiceMp3> indice = AnalizadorMp3.analizar(new ByteArrayInputStream(mp3(new byte[0], 100)));
+
+        assertEquals(100, indice.get().frames());
+        assertEquals(100 * 1152 / 44100.0, indice.get().duracionSegundos(), 1e-9);
+        // Segundo 1 = muestra 44100 -> frame 38 (38*1152 = 43776 <= 44100 < 44928)
+        assertArrayEquals(new int[]{0, 38 * LONGITUD_FRAME, 76 * LONGITUD_FRAME}, indice.get().tablaBusqueda());
+    }
+
+    @Test
+    void testSaltaId3v2YCalculaOffsetsAbsolutos() throws IOException {
+        byte[] id3 = new byte[10 + 20];
+        id3[0] = 'I';
+        id3[1] = 'D';
+        id3[2] = '3';
+        id3[3] = 3;
+        id3[9] = 20; // tamaño syncsafe
+        id3[15] = (byte) 0xFF; // falsa sincronía dentro de la etiqueta
+        id3[16] = (byte) 0xFB;
+
+        IndiceMp3 indice = AnalizadorMp3.analizar(new ByteArrayInputStream(mp3(id3, 40))).get();
+
+        assertEquals(40, indice.frames());
+        assertEquals(30, indice.tablaBusqueda()[0]);
+        assertEquals(30 + 38 * LONGITUD_FRAME, indice.tablaBusqueda()[1]);
+    }
+
+    @Test
+    void testFrameXingAportaElNumeroDeFramesYNoCuentaComoAudio() throws IOException {
+        byte[] xing = frame(CABECERA_128K);
+        int desde = 4 + 32; // MPEG-1 estéreo
+        System.arraycopy("Xing".getBytes(), 0, xing, desde, 4);
+        xing[desde + 7] = 1; // flag: número de frames presente
+        xing[desde + 11] = (byte) 200;
+
+        IndiceMp3 indice = AnalizadorMp3.analizar(new ByteArrayInputStream(mp3(xing, 10))).get();
+
+        assertEquals(200, indice.frames());
+        assertEquals(200 * 1152 / 44100.0, indice.duracionSegundos(), 1e-9);
+        // El primer segundo empieza en el primer frame de audio, tras el frame Xing
+        assertEquals(LONGITUD_FRAME, indice.tablaBusqueda()[0]);
+    }
+
+    @Test
+    void testObservarAnalizaMientrasOtroConsumeElStream() throws IOException {
+        byte[] datos = mp3(new byte[0], 50);
+        AnalizadorMp3 analizador = new AnalizadorMp3();
+
+        try (InputStream in = analizador.observar(new ByteArrayInputStream(datos))) {
+            assertArrayEquals(datos, in.readAllBytes());
+        }
+
+        assertEquals(50, analizador.resultado().get().frames());
+    }
+
+    @Test
+    void testSinFramesNoHayIndice() throws IOException {
+        assertFalse(AnalizadorMp3.analizar(new ByteArrayInputStream(new byte[500])).isPresent());
+    }
+
+    @Test
+    void testLeeElGlobalGainDeLaSideInfoDeCadaFrame() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int ganancia : new int[]{200, 150}) {
+            byte[] frame = frame(CABECERA_128K);
+            // MPEG-1 estéreo: global_gain del gránulo 0, canal 0 en el bit 41 de la side info
+            escribirBits(frame, 4 * 8 + 41, 8, ganancia);
+            out.writeBytes(frame);
+        }
+
+        IndiceMp3 indice = AnalizadorMp3.analizar(new ByteArrayInputStream(out.toByteArray())).get();
+
+        assertArrayEquals(new byte[]{(byte) 200, (byte) 150}, indice.ganancias());
+    }
+
+    @Test
+    void testPicosSimetricosRelativosAlFrameMasAlto() {
+        // 4 frames en 2 puntos: máximos 200 y 184 (16 pasos * 1,5 dB = 24 dB -> mitad de amplitud)
+        byte[] picos = FormaOnda.calcularPicos(new byte[]{(byte) 200, 10, 0, (byte) 184}, 2);
+
+        assertArrayEquals(new byte[]{-127, 127, -64, 64}, picos);
+    }
+
+    private static void escribirBits(byte[] datos, int desde, int cuantos, int valor) {
+        for (int i = 0; i < cuantos; i++) {
+            int bit = valor >> (cuantos - 1 - i) & 1;
+            int pos = desde + i;
+            datos[pos >> 3] |= (byte) (bit << (7 - (pos & 7)));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Tests de la migración por lotes de los audios con binario embebido.
+ */
+class AudioBlobMigrationServiceTest {
+
+    private static final String CONTENIDOS = "contenidos";
+
+    @Test
+    void testUnLoteEnteroDeAudiosCorruptosNoDetieneLaMigracion() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BlobStorage blobStorage = mock(BlobStorage.class);
+        AudioBlobMigrationService servicio = new AudioBlobMigrationService(mongoTemplate, blobStorage, 2);
+
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(CONTENIDOS))).thenReturn(
+            List.of(new Document("_id", 1), new Document("_id", 2)),
+            List.of(new Document("_id", 3)),
+            List.of());
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(CONTENIDOS))).thenReturn(
+            new Document("_id", 1).append("fichero", new Binary(new byte[0])),
+            new Document("_id", 2).append("fichero", "no es binario"),
+            new Document("_id", 3).append("fichero", new Binary(new byte[]{1, 2, 3})));
+        UpdateResult actualizado = mock(UpdateResult.class);
+        when(actualizado.getModifiedCount()).thenReturn(1L);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(CONTENIDOS))).thenReturn(actualizado);
+        when(blobStorage.guardar(any(), any(), anyString())).thenReturn(new BlobInfo("blob3", 3, "abc", "audio/mpeg"));
+
+        servicio.migrarEnSegundoPlano();
+
+        // El primer lote no migra nada (los dos binarios se descartan) y aun así se procesa el siguiente
+        verify(blobStorage, times(1)).guardar(any(), any(), anyString());
+        verify(mongoTemplate, times(3)).updateFirst(any(Query.class), any(Update.class), eq(CONTENIDOS));
+
+        ArgumentCaptor<Query> lotes = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(3)).find(lotes.capture(), eq(Document.class), eq(CONTENIDOS));
+        assertEquals(2, lotes.getAllValues().get(1).getQueryObject().get("_id", Document.class).get("$gt"));
+        assertTrue(lotes.getAllValues().get(2).getQueryObject().toJson().contains("$gt"));
+    }
+}
@@ -0,0 +1,155 @@
+package iso25.g05.esi_media.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import iso25.g05.esi_media.dto.EstadisticasCacheDTO;
+import iso25.g05.esi_media.model.Audio;
+
+/**
+ * Tests de la caché LRU de audios calientes (límite por bytes).
+ */
+class AudioCacheServiceTest {
+
+    private static AudioCacheService cache(long capacidad, long maxEntrada) {
+        return new AudioCacheService(capacidad, maxEntrada, 2, 1, 32);
+    }
+
+    /** Fuente que cuenta las lecturas y no entrega bytes hasta que se abre el cerrojo. */
+    private static FuenteBinaria fuenteContada(int tamano, AtomicInteger aperturas, CountDownLatch cerrojo) {
+        return new FuenteBinaria() {
+            @Override
+            public long longitud() {
+                return tamano;
+            }
+
+            @Override
+            public InputStream abrirDesde(long posicion) throws IOException {
+                aperturas.incrementAndGet();
+                try {
+                    cerrojo.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+                return new ByteArrayInputStream(new byte[tamano], (int) posicion, tamano);
+            }
+        };
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicion.getAsBoolean() && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertTrue(condicion.getAsBoolean());
+    }
+
+    private static Audio audio(String id) {
+        Audio a = new Audio();
+        a.setId(id);
+        a.setmimeType("audio/mpeg");
+        return a;
+    }
+
+    private static FuenteBinaria fuente(int tamano) {
+        return new FuenteBuffer(ByteBuffer.wrap(new byte[tamano]));
+    }
+
+    @Test
+    void testExpulsaLaMenosUsadaAlSuperarLaCapacidad() throws IOException {
+        AudioCacheService cache = cache(10, 10);
+        cache.guardar(audio("a"), fuente(4));
+        cache.guardar(audio("b"), fuente(4));
+        cache.obtener("a"); // "a" pasa a ser la más reciente
+        cache.guardar(audio("c"), fuente(4));
+
+        assertTrue(cache.obtener("a").isPresent());
+        assertFalse(cache.obtener("b").isPresent());
+        assertTrue(cache.obtener("c").isPresent());
+
+        EstadisticasCacheDTO stats = cache.estadisticas();
+        assertEquals(8, stats.getBytesResidentes());
+        assertEquals(1, stats.getExpulsiones());
+        assertEquals(2, stats.getEntradas());
+    }
+
+    @Test
+    void testNoAdmiteFicherosMayoresQueElMaximoPorEntrada() {
+        AudioCacheService cache = cache(100, 10);
+
+        assertTrue(cache.admite(10));
+        assertFalse(cache.admite(11));
+        assertFalse(cache.admite(0));
+    }
+
+    @Test
+    void testGuardaBuffersDirectosYMetadatosSinBinario() throws IOException {
+        AudioCacheService cache = cache(100, 100);
+        AudioEnCache entrada = cache.guardar(audio("a"), fuente(5));
+
+        assertTrue(entrada.datos().isDirect());
+        assertEquals(5, entrada.longitud());
+        assertNull(entrada.metadatos().getfichero());
+        assertEquals(5, entrada.metadatos().gettamanoBytes());
+    }
+
+    @Test
+    void testRatioDeAciertosEInvalidacion() throws IOException {
+        AudioCacheService cache = cache(100, 100);
+        cache.guardar(audio("a"), fuente(3));
+
+        cache.obtener("a");
+        cache.obtener("x");
+        assertEquals(0.5, cache.estadisticas().getRatioAciertos());
+
+        cache.invalidar("a");
+        assertFalse(cache.obtenerMetadatos("a").isPresent());
+        assertEquals(0, cache.estadisticas().getBytesResidentes());
+    }
+
+    @Test
+    void testUnPrimerFalloNoCargaNadaYElSegundoLlenaLaCacheEnSegundoPlano() throws InterruptedException {
+        AudioCacheService cache = cache(100, 100);
+        AtomicInteger aperturas = new AtomicInteger();
+        FuenteBinaria fuente = fuenteContada(5, aperturas, new CountDownLatch(0));
+
+        cache.registrarFallo(audio("a"), fuente);
+        assertEquals(0, aperturas.get());
+        assertFalse(cache.obtenerMetadatos("a").isPresent());
+
+        cache.registrarFallo(audio("a"), fuente);
+        esperarHasta(() -> cache.obtenerMetadatos("a").isPresent());
+        assertEquals(1, aperturas.get());
+        cache.destroy();
+    }
+
+    @Test
+    void testFallosSimultaneosCarganElFicheroUnaSolaVez() throws InterruptedException {
+        AudioCacheService cache = cache(100, 100);
+        AtomicInteger aperturas = new AtomicInteger();
+        CountDownLatch cerrojo = new CountDownLatch(1);
+        FuenteBinaria fuente = fuenteContada(5, aperturas, cerrojo);
+
+        for (int i = 0; i < 5; i++) {
+            cache.registrarFallo(audio("a"), fuente);
+        }
+        cerrojo.countDown();
+
+        esperarHasta(() -> cache.obtenerMetadatos("a").isPresent());
+        assertEquals(1, aperturas.get());
+        cache.destroy();
+    }
+}
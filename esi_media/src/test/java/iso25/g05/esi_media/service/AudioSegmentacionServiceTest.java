@@ -0,0 +1,156 @@
+package iso25.g05.esi_media.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.bson.BsonBinarySubType;
+import org.bson.types.Binary;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.SegmentoAudio;
+
+/**
+ * Tests de la entrega segmentada (corte en frontera de frame y manifiesto M3U8).
+ */
+class AudioSegmentacionServiceTest {
+
+    // MPEG-1 capa III, 128 kbps, 44100 Hz: 417 bytes y 1152 muestras por frame
+    private static final int LONGITUD_FRAME = 417;
+    // Cabecera ID3 (10) + cabecera del frame PRIV (10) + propietario, nulo y timestamp (44 + 1 + 8)
+    private static final int LONGITUD_ETIQUETA = 73;
+
+    @TempDir
+    Path directorio;
+
+    private LocalDiskBlobStorage blobStorage;
+    private MongoTemplate mongoTemplate;
+    private AudioSegmentacionService servicio;
+
+    @BeforeEach
+    void setUp() {
+        blobStorage = new LocalDiskBlobStorage(directorio.toString());
+        AudioCacheService cache = new AudioCacheService(0, 0, 2, 1, 1);
+        mongoTemplate = mock(MongoTemplate.class);
+        servicio = new AudioSegmentacionService(blobStorage,
+            new AudioStreamingService(blobStorage, cache, 65536), cache, mongoTemplate, 10);
+    }
+
+    private static byte[] mp3(int frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) {
+            byte[] frame = new byte[LONGITUD_FRAME];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            frame[4] = (byte) i; // contenido distinto en cada frame
+            out.writeBytes(frame);
+        }
+        return out.toByteArray();
+    }
+
+    private static Audio audioLegado(byte[] datos) {
+        Audio audio = new Audio();
+        audio.setId("a1");
+        audio.setfichero(new Binary(BsonBinarySubType.BINARY, datos));
+        audio.settamanoBytes(datos.length);
+        return audio;
+    }
+
+    @Test
+    void testCortaEnSegmentosDeDiezSegundosQueRecomponenElFichero() throws IOException {
+        // 1000 frames * 1152 / 44100 = 26.12 s -> segmentos de 10, 10 y 6.12 s
+        byte[] datos = mp3(1000);
+
+        List<SegmentoAudio> segmentos = servicio.obtenerSegmentos(audioLegado(datos));
+
+        assertEquals(3, segmentos.size());
+        assertEquals(10.0, segmentos.get(0).getduracion());
+        assertEquals(1000 * 1152 / 44100.0 - 20, segmentos.get(2).getduracion(), 1e-9);
+
+        ByteArrayOutputStream recompuesto = new ByteArrayOutputStream();
+        for (SegmentoAudio segmento : segmentos) {
+            assertEquals(0, (recompuesto.size()) % LONGITUD_FRAME); // cada corte cae en un frame
+            try (InputStream in = blobStorage.abrir(segmento.getblobId())) {
+                in.skipNBytes(LONGITUD_ETIQUETA); // etiqueta PRIV con el timestamp
+                in.transferTo(recompuesto);
+            }
+        }
+        assertArrayEquals(datos, recompuesto.toByteArray());
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(Contenido.class));
+    }
+
+    @Test
+    void testCadaSegmentoEmpiezaConSuTimestampDe90kHz() throws IOException {
+        List<SegmentoAudio> segmentos = servicio.obtenerSegmentos(audioLegado(mp3(1000)));
+
+        for (int i = 1; i < segmentos.size(); i++) {
+            byte[] cabecera;
+            try (InputStream in = blobStorage.abrir(segmentos.get(i).getblobId())) {
+                cabecera = in.readNBytes(LONGITUD_ETIQUETA);
+            }
+            ByteBuffer etiqueta = ByteBuffer.wrap(cabecera);
+            assertEquals("ID3", new String(cabecera, 0, 3, StandardCharsets.ISO_8859_1));
+            assertEquals(4, cabecera[3]);
+            assertEquals(LONGITUD_ETIQUETA - 10, etiqueta.getInt(6));
+            assertEquals("PRIV", new String(cabecera, 10, 4, StandardCharsets.ISO_8859_1));
+            String propietario = AudioSegmentacionService.PROPIETARIO_TIMESTAMP;
+            assertEquals(propietario, new String(cabecera, 20, propietario.length(), StandardCharsets.ISO_8859_1));
+            assertEquals(0, cabecera[20 + propietario.length()]);
+            // El segmento i empieza en el segundo 10 * i
+            assertEquals(10L * i * 90_000, etiqueta.getLong(LONGITUD_ETIQUETA - 8));
+            // Tras la etiqueta viene directamente un frame MPEG
+            try (InputStream in = blobStorage.abrir(segmentos.get(i).getblobId())) {
+                in.skipNBytes(LONGITUD_ETIQUETA);
+                assertEquals(0xFF, in.read());
+            }
+        }
+        assertEquals(3, segmentos.size());
+    }
+
+    @Test
+    void testSegmentosYaCalculadosNoSeRecalculan() {
+        Audio audio = audioLegado(mp3(10));
+        List<SegmentoAudio> existentes = List.of(new SegmentoAudio("b", "abc", 0.26, 4170));
+        audio.setsegmentos(existentes);
+
+        assertSame(existentes, servicio.obtenerSegmentos(audio));
+        assertEquals("abc", servicio.obtenerSegmento(audio, "abc").getchecksum());
+        assertThrows(RecursoNoEncontradoException.class, () -> servicio.obtenerSegmento(audio, "otro"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Contenido.class));
+    }
+
+    @Test
+    void testManifiestoVod() {
+        String manifiesto = servicio.generarManifiesto(List.of(
+            new SegmentoAudio("b1", "sha1", 10.0, 100),
+            new SegmentoAudio("b2", "sha2", 4.5, 50)));
+
+        assertTrue(manifiesto.startsWith("#EXTM3U\n"));
+        assertTrue(manifiesto.contains("#EXT-X-TARGETDURATION:10\n"));
+        assertTrue(manifiesto.contains("#EXTINF:10.000,\nsegmentos/sha1\n#EXTINF:4.500,\nsegmentos/sha2\n"));
+        assertTrue(manifiesto.endsWith("#EXT-X-ENDLIST\n"));
+    }
+}
@@ -5,9 +5,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,18 +17,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
 import iso25.g05.esi_media.dto.AudioUploadDTO;
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
 import iso25.g05.esi_media.model.Audio;
 import iso25.g05.esi_media.model.GestordeContenido;
+import iso25.g05.esi_media.model.ImagenCaratula;
 import iso25.g05.esi_media.model.Token;
 import iso25.g05.esi_media.model.Usuario;
 import iso25.g05.esi_media.repository.AudioRepository;
@@ -48,9 +55,27 @@ class AudioServiceTest {
     @Mock
     private VideoService videoService;
 
+    @Mock
+    private BlobStorage blobStorage;
+
     @Mock
     private MultipartFile archivoMock;
 
+    @Mock
+    private CaratulaService caratulaService;
+
+    @Mock
+    private BorradoBlobsService borradoBlobs;
+
+    @Mock
+    private CatalogoService catalogoService;
+
+    @Mock
+    private IndiceTitulosService indiceTitulos;
+
+    @Mock
+    private CacheListadosService cacheListados;
+
     @InjectMocks
     private AudioService audioService;
 
@@ -99,12 +124,12 @@ class AudioServiceTest {
         when(archivoMock.getSize()).thenReturn(1024L);
         when(archivoMock.getContentType()).thenReturn("audio/mpeg");
         when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
-        when(archivoMock.getBytes()).thenReturn(new byte[]{1, 2, 3});
         
         // Mock magic bytes de MP3 (ID3 tag)
         byte[] mp3Bytes = {0x49, 0x44, 0x33, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
         when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(mp3Bytes));
         
+        when(blobStorage.guardar(any(), any(), any())).thenReturn(new BlobInfo("blob123", 3L, "abc123", "audio/mpeg"));
         when(audioRepository.save(any(Audio.class))).thenReturn(audioMock);
         when(gestorRepository.save(any(GestordeContenido.class))).thenReturn(gestorMock);
 
@@ -118,6 +143,39 @@ class AudioServiceTest {
         verify(gestorRepository, times(1)).save(any(GestordeContenido.class));
     }
 
+    @Test
+    void testSubirAudioVuelveASubirSiElBlobReutilizadoSeBorro() throws IOException {
+        // Arrange
+        when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
+        when(archivoMock.isEmpty()).thenReturn(false);
+        when(archivoMock.getSize()).thenReturn(1024L);
+        when(archivoMock.getContentType()).thenReturn("audio/mpeg");
+        when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
+        byte[] mp3Bytes = {0x49, 0x44, 0x33, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
+        when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(mp3Bytes),
+            new java.io.ByteArrayInputStream(mp3Bytes));
+
+        // El blob deduplicado desaparece (baja del otro audio) antes de que este lo referencie
+        when(blobStorage.guardar(any(), any(), any()))
+            .thenReturn(new BlobInfo("blob123", 3L, "abc123", "audio/mpeg"))
+            .thenReturn(new BlobInfo("blob456", 3L, "abc123", "audio/mpeg"));
+        when(blobStorage.obtenerInfo("blob123")).thenThrow(new RecursoNoEncontradoException("Blob no encontrado: blob123"));
+        when(audioRepository.save(any(Audio.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(gestorRepository.save(any(GestordeContenido.class))).thenReturn(gestorMock);
+
+        // Act
+        Audio resultado = audioService.subirAudio(audioDTO, "gestor123");
+
+        // Assert
+        assertEquals("blob456", resultado.getblobId());
+        verify(blobStorage, times(2)).guardar(any(), any(), any());
+        verify(audioRepository, times(2)).save(any(Audio.class));
+        // Se comprueba el blob después de cancelar (o esperar) cualquier borrado pendiente
+        InOrder orden = inOrder(borradoBlobs, blobStorage);
+        orden.verify(borradoBlobs).confirmarReferencia("blob123");
+        orden.verify(blobStorage).obtenerInfo("blob123");
+    }
+
     @Test
     void testSubirAudioGestorNoEncontrado() {
         // Arrange
@@ -207,12 +265,12 @@ class AudioServiceTest {
         when(archivoMock.getSize()).thenReturn(1024L);
         when(archivoMock.getContentType()).thenReturn("audio/mpeg");
         when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
-        when(archivoMock.getBytes()).thenReturn(new byte[]{1, 2, 3});
         
         // Mock magic bytes de MP3 (ID3 tag)
         byte[] mp3Bytes = {0x49, 0x44, 0x33, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
         when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(mp3Bytes));
         
+        when(blobStorage.guardar(any(), any(), any())).thenReturn(new BlobInfo("blob123", 3L, "abc123", "audio/mpeg"));
         when(audioRepository.save(any(Audio.class))).thenReturn(audioMock);
         when(gestorRepository.save(any(GestordeContenido.class))).thenReturn(gestorMock);
 
@@ -276,8 +334,8 @@ class AudioServiceTest {
     void testValidacionesDeSeguridad() throws IOException {
         // Arrange
         when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
+        when(blobStorage.guardar(any(), any(), any())).thenReturn(new BlobInfo("blob123", 3L, "abc123", "audio/mpeg"));
         when(audioRepository.save(any(Audio.class))).thenReturn(audioMock);
-        when(archivoMock.getBytes()).thenReturn(new byte[1024]);
         when(archivoMock.getContentType()).thenReturn("audio/mpeg");
         when(archivoMock.getSize()).thenReturn(1024L);
         when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
@@ -317,4 +375,153 @@ class AudioServiceTest {
         // Verificar que NO se guardó el audio
         verify(audioRepository, never()).save(any(Audio.class));
     }
+
+    @Test
+    void testSubirAudioGuardaBinarioEnAlmacenDeBlobs() throws IOException {
+        // Arrange
+        when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
+        when(archivoMock.isEmpty()).thenReturn(false);
+        when(archivoMock.getSize()).thenReturn(1024L);
+        when(archivoMock.getContentType()).thenReturn("audio/mpeg");
+        when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
+        byte[] mp3Bytes = {0x49, 0x44, 0x33, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
+        when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(mp3Bytes));
+        when(blobStorage.guardar(any(), any(), any())).thenReturn(new BlobInfo("blob123", 3L, "abc123", "audio/mpeg"));
+        when(audioRepository.save(any(Audio.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        Audio resultado = audioService.subirAudio(audioDTO, "gestor123");
+
+        // Assert: el documento solo guarda la referencia al blob, no el binario
+        assertNull(resultado.getfichero());
+        assertEquals("blob123", resultado.getblobId());
+        assertEquals("abc123", resultado.getchecksum());
+        assertEquals(3L, resultado.gettamanoBytes());
+    }
+
+    @Test
+    void testSubirAudioEliminaBlobSiFallaElGuardado() throws IOException {
+        // Arrange
+        when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
+        when(archivoMock.isEmpty()).thenReturn(false);
+        when(archivoMock.getSize()).thenReturn(1024L);
+        when(archivoMock.getContentType()).thenReturn("audio/mpeg");
+        when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
+        byte[] mp3Bytes = {0x49, 0x44, 0x33, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
+        when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(mp3Bytes));
+        when(blobStorage.guardar(any(), any(), any())).thenReturn(new BlobInfo("blob123", 3L, "abc123", "audio/mpeg"));
+        when(audioRepository.save(any(Audio.class))).thenThrow(new IllegalStateException("BD caída"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> audioService.subirAudio(audioDTO, "gestor123"));
+        verify(borradoBlobs).eliminarSiHuerfano("blob123", "blobId");
+    }
+
+    @Test
+    void testSubirAudioEliminaLaCaratulaSiFallaElGuardado() throws IOException {
+        // Arrange: la carátula ya está en el almacén cuando falla el save del audio
+        when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
+        when(archivoMock.isEmpty()).thenReturn(false);
+        when(archivoMock.getSize()).thenReturn(1024L);
+        when(archivoMock.getContentType()).thenReturn("audio/mpeg");
+        when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
+        byte[] mp3Bytes = {0x49, 0x44, 0x33, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
+        when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(mp3Bytes));
+        MockMultipartFile caratula = new MockMultipartFile("caratula", "c.png", "image/png", new byte[] {1, 2, 3});
+        audioDTO.setCaratula(caratula);
+        ImagenCaratula imagen = new ImagenCaratula("car123", "def456", "image/png", 3L);
+        when(caratulaService.guardar(caratula)).thenReturn(imagen);
+        when(blobStorage.guardar(any(), any(), any())).thenReturn(new BlobInfo("blob123", 3L, "abc123", "audio/mpeg"));
+        when(audioRepository.save(any(Audio.class))).thenThrow(new IllegalStateException("BD caída"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> audioService.subirAudio(audioDTO, "gestor123"));
+        verify(caratulaService).eliminarSiHuerfana(imagen);
+    }
+
+    @Test
+    void testSubirAudioEnviaAlAlmacenElStreamCompletoSinCargarloEnMemoria() throws IOException {
+        // Arrange
+        when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
+        when(archivoMock.isEmpty()).thenReturn(false);
+        when(archivoMock.getSize()).thenReturn(16L);
+        when(archivoMock.getContentType()).thenReturn("audio/mpeg");
+        when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
+        byte[] mp3Bytes = {0x49, 0x44, 0x33, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 1, 2, 3, 4};
+        when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(mp3Bytes));
+        byte[][] recibido = new byte[1][];
+        when(blobStorage.guardar(any(), any(), any())).thenAnswer(inv -> {
+            recibido[0] = inv.<java.io.InputStream>getArgument(0).readAllBytes();
+            return new BlobInfo("blob123", recibido[0].length, "abc123", "audio/mpeg");
+        });
+        when(audioRepository.save(any(Audio.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        audioService.subirAudio(audioDTO, "gestor123");
+
+        // Assert: la cabecera leída para los magic bytes se reinyecta en el stream
+        assertArrayEquals(mp3Bytes, recibido[0]);
+        verify(archivoMock, times(1)).getInputStream();
+        verify(archivoMock, never()).getBytes();
+    }
+
+    @Test
+    void testSubirAudioCortaLaSubidaSiElStreamSuperaElMaximo() throws IOException {
+        // Arrange: el cliente declara 1KB pero envía más de 2MB
+        when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
+        when(archivoMock.isEmpty()).thenReturn(false);
+        when(archivoMock.getSize()).thenReturn(1024L);
+        when(archivoMock.getContentType()).thenReturn("audio/mpeg");
+        when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
+        byte[] grande = new byte[3 * 1024 * 1024];
+        grande[0] = 0x49;
+        grande[1] = 0x44;
+        grande[2] = 0x33;
+        when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(grande));
+        when(blobStorage.guardar(any(), any(), any())).thenAnswer(inv -> {
+            inv.<java.io.InputStream>getArgument(0).readAllBytes();
+            return new BlobInfo("blob123", 0L, "abc123", "audio/mpeg");
+        });
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> audioService.subirAudio(audioDTO, "gestor123"));
+        assertTrue(exception.getMessage().contains("tamaño máximo"));
+        verify(audioRepository, never()).save(any(Audio.class));
+    }
+
+    @Test
+    void testSubirAudioUsaLaDuracionCalculadaDeLosFramesYGuardaLaTablaDeBusqueda() throws IOException {
+        // Arrange: ID3 vacío + 100 frames MPEG-1 capa III a 128 kbps/44.1 kHz (417 bytes cada uno)
+        when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
+        when(archivoMock.isEmpty()).thenReturn(false);
+        when(archivoMock.getSize()).thenReturn(10L + 100 * 417);
+        when(archivoMock.getContentType()).thenReturn("audio/mpeg");
+        when(archivoMock.getOriginalFilename()).thenReturn("test.mp3");
+        byte[] mp3Bytes = new byte[10 + 100 * 417];
+        mp3Bytes[0] = 0x49;
+        mp3Bytes[1] = 0x44;
+        mp3Bytes[2] = 0x33;
+        mp3Bytes[3] = 0x03;
+        for (int i = 0; i < 100; i++) {
+            int offset = 10 + i * 417;
+            mp3Bytes[offset] = (byte) 0xFF;
+            mp3Bytes[offset + 1] = (byte) 0xFB;
+            mp3Bytes[offset + 2] = (byte) 0x90;
+        }
+        when(archivoMock.getInputStream()).thenReturn(new java.io.ByteArrayInputStream(mp3Bytes));
+        when(blobStorage.guardar(any(), any(), any())).thenAnswer(inv -> {
+            long leidos = inv.<java.io.InputStream>getArgument(0).readAllBytes().length;
+            return new BlobInfo("blob123", leidos, "abc123", "audio/mpeg");
+        });
+        when(audioRepository.save(any(Audio.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        Audio resultado = audioService.subirAudio(audioDTO, "gestor123");
+
+        // Assert: la duración declarada (180 s) se sustituye por la real
+        assertEquals(100 * 1152 / 44100.0, resultado.getduracion(), 1e-9);
+        assertArrayEquals(new int[]{10, 10 + 38 * 417, 10 + 76 * 417}, resultado.gettablaBusqueda());
+    }
 }
@@ -0,0 +1,95 @@
+package iso25.g05.esi_media.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.UpdateResult;
+
+import iso25.g05.esi_media.model.Contenido;
+
+/**
+ * Tests del borrado condicional de blobs compartidos frente a subidas concurrentes.
+ */
+class BorradoBlobsServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private BlobStorage blobStorage;
+    private BorradoBlobsService servicio;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        blobStorage = mock(BlobStorage.class);
+        servicio = new BorradoBlobsService(mongoTemplate, blobStorage, 5_000);
+    }
+
+    private void reclamacion(long modificados) {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(BorradoBlobsService.COLECCION)))
+            .thenReturn(UpdateResult.acknowledged(modificados, modificados, null));
+    }
+
+    @Test
+    void testBlobReferenciadoNoSeBorraYSeRetiraLaMarca() {
+        when(mongoTemplate.exists(any(Query.class), eq(Contenido.class))).thenReturn(true);
+
+        assertFalse(servicio.eliminarSiHuerfano("blob1", "blobId"));
+
+        verify(blobStorage, never()).eliminar(anyString());
+        verify(mongoTemplate).remove(any(Query.class), eq(BorradoBlobsService.COLECCION));
+    }
+
+    @Test
+    void testBlobHuerfanoSeBorraSoloTrasReclamarLaMarca() {
+        when(mongoTemplate.exists(any(Query.class), eq(Contenido.class))).thenReturn(false);
+        reclamacion(1);
+
+        assertTrue(servicio.eliminarSiHuerfano("blob1", "blobId"));
+
+        verify(blobStorage).eliminar("blob1");
+        verify(mongoTemplate).remove(any(Query.class), eq(BorradoBlobsService.COLECCION));
+    }
+
+    @Test
+    void testSiUnaSubidaRetiraLaMarcaElBorradoSeCancela() {
+        // Nadie lo referenciaba al comprobarlo, pero una subida idéntica retiró la marca antes de reclamarla
+        when(mongoTemplate.exists(any(Query.class), eq(Contenido.class))).thenReturn(false);
+        reclamacion(0);
+
+        assertFalse(servicio.eliminarSiHuerfano("blob1", "blobId"));
+
+        verify(blobStorage, never()).eliminar(anyString());
+    }
+
+    @Test
+    void testConfirmarReferenciaEsperaAlBorradoYaReclamado() {
+        when(mongoTemplate.exists(any(Query.class), eq(BorradoBlobsService.COLECCION))).thenReturn(true, true, false);
+
+        servicio.confirmarReferencia("blob1");
+
+        verify(mongoTemplate).remove(any(Query.class), eq(BorradoBlobsService.COLECCION));
+        verify(mongoTemplate, times(3)).exists(any(Query.class), eq(BorradoBlobsService.COLECCION));
+    }
+
+    @Test
+    void testConfirmarReferenciaNoEsperaMasDelMaximo() {
+        servicio = new BorradoBlobsService(mongoTemplate, blobStorage, 0);
+        when(mongoTemplate.exists(any(Query.class), eq(BorradoBlobsService.COLECCION))).thenReturn(true);
+
+        servicio.confirmarReferencia("blob1");
+
+        verify(mongoTemplate, times(1)).exists(any(Query.class), eq(BorradoBlobsService.COLECCION));
+    }
+}
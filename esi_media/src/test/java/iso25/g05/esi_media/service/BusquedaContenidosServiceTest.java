@@ -0,0 +1,121 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.bson.Document;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+
+/**
+ * Tests de la búsqueda por índice de texto (forma de la consulta y vuelta a $regex).
+ */
+class BusquedaContenidosServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private MongoCollection<Document> coleccion;
+    private BusquedaContenidosService servicio;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        coleccion = mock(MongoCollection.class);
+        when(mongoTemplate.getCollectionName(Contenido.class)).thenReturn("contenidos");
+        when(mongoTemplate.getCollection("contenidos")).thenReturn(coleccion);
+        servicio = new BusquedaContenidosService(mongoTemplate);
+    }
+
+    @Test
+    void testSinIndiceVuelveARegex() {
+        assertTrue(servicio.buscarParaVisualizador("rock", 18, true, null, PageRequest.of(0, 10)).isEmpty());
+        assertTrue(servicio.buscarParaGestor("rock", null, PageRequest.of(0, 10)).isEmpty());
+        verifyNoInteractions(coleccion);
+    }
+
+    @Test
+    void testIndicePonderadoEnEspanolConFiltrosDeSufijo() {
+        servicio.crearIndice();
+
+        ArgumentCaptor<Document> claves = ArgumentCaptor.forClass(Document.class);
+        ArgumentCaptor<IndexOptions> opciones = ArgumentCaptor.forClass(IndexOptions.class);
+        verify(coleccion).createIndex(claves.capture(), opciones.capture());
+        assertEquals(List.of("titulo", "descripcion", "tags", "estado", "vip", "edadvisualizacion"),
+            List.copyOf(claves.getValue().keySet()));
+        assertEquals("spanish", opciones.getValue().getDefaultLanguage());
+        assertEquals(10, ((Document) opciones.getValue().getWeights()).get("titulo"));
+        assertTrue(servicio.indiceListo());
+    }
+
+    @Test
+    void testVisualizadorNoVipOrdenaPorRelevancia() {
+        servicio.crearIndice();
+        Audio audio = new Audio();
+        audio.setId("a1");
+        ArgumentCaptor<Query> consulta = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(consulta.capture(), eq(Contenido.class))).thenReturn(List.of(audio));
+
+        Page<Contenido> pagina = servicio.buscarParaVisualizador("canciones de rock", 12, false, "audio",
+            PageRequest.of(0, 10)).orElseThrow();
+
+        assertEquals(1, pagina.getTotalElements());
+        Document filtro = consulta.getValue().getQueryObject();
+        assertEquals("canciones de rock", filtro.get("$text", Document.class).get("$search"));
+        assertEquals("spanish", filtro.get("$text", Document.class).get("$language"));
+        assertEquals(true, filtro.get("estado"));
+        assertEquals(false, filtro.get("vip"));
+        assertTrue(filtro.containsKey("mimeType"));
+        assertTrue(consulta.getValue().getSortObject().toJson().contains("textScore"));
+        assertFalse(consulta.getValue().getFieldsObject().containsKey("descripcion"));
+    }
+
+    @Test
+    void testConOrdenExplicitoSeRespetaElDelCliente() {
+        servicio.crearIndice();
+        ArgumentCaptor<Query> consulta = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(consulta.capture(), eq(Contenido.class))).thenReturn(List.of());
+
+        servicio.buscarParaGestor("rock", null, PageRequest.of(0, 10, Sort.by("titulo")));
+
+        assertEquals(new Document("titulo", 1), consulta.getValue().getSortObject());
+        assertFalse(consulta.getValue().getQueryObject().containsKey("estado"));
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Contenido.class));
+    }
+
+    @Test
+    void testSinIndiceDeTextoBuscaPorPrefijosDePalabrasNormalizadas() {
+        servicio.marcarCamposNormalizados();
+        ArgumentCaptor<Query> consulta = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(consulta.capture(), eq(Contenido.class))).thenReturn(List.of());
+
+        assertTrue(servicio.buscarParaGestor("Canción  MAR", null, PageRequest.of(0, 10)).isPresent());
+
+        Document filtro = consulta.getValue().getQueryObject();
+        assertFalse(filtro.containsKey("$text"));
+        List<Object> prefijos = filtro.get("palabrasBusqueda", Document.class).getList("$all", Object.class);
+        assertEquals(List.of("^cancion", "^mar"), prefijos.stream().map(p -> ((Pattern) p).pattern()).toList());
+        assertTrue(servicio.criterioPalabras(" ¿? ").isEmpty());
+    }
+}
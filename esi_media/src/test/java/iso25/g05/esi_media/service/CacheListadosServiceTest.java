@@ -0,0 +1,118 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import iso25.g05.esi_media.dto.ContenidoResumenDTO;
+import iso25.g05.esi_media.dto.EstadisticasCacheListadosDTO;
+import iso25.g05.esi_media.model.TipoContenido;
+
+/**
+ * Tests de la caché de páginas de los listados por tramo de permisos.
+ */
+class CacheListadosServiceTest {
+
+    private static final Pageable PRIMERA = PageRequest.of(0, 10);
+
+    private static Page<ContenidoResumenDTO> pagina(String id) {
+        return new PageImpl<>(List.of(new ContenidoResumenDTO(id, "Titulo " + id, "AUDIO", null, false, null)));
+    }
+
+    private static void guardar(CacheListadosService cache, CacheListadosService.Clave clave, String id) {
+        cache.guardar(clave, pagina(id), cache.generacion());
+    }
+
+    @Test
+    void testMismoTramoComparteLaPaginaYCuentaAciertos() {
+        CacheListadosService cache = new CacheListadosService(100, 60);
+        Page<ContenidoResumenDTO> pagina = pagina("a1");
+
+        assertTrue(cache.obtener(CacheListadosService.Clave.visualizador("audio", false, 30, "Mar", PRIMERA)).isEmpty());
+        cache.guardar(CacheListadosService.Clave.visualizador("audio", false, 30, "Mar", PRIMERA), pagina, 0);
+
+        // A partir de 18 años todos ven lo mismo, y la búsqueda no distingue mayúsculas
+        assertSame(pagina, cache.obtener(CacheListadosService.Clave.visualizador("AUDIO", false, 45, "mar", PRIMERA)).orElseThrow());
+        assertTrue(cache.obtener(CacheListadosService.Clave.visualizador("AUDIO", true, 45, "mar", PRIMERA)).isEmpty());
+        assertTrue(cache.obtener(CacheListadosService.Clave.visualizador("AUDIO", false, 45, "mar", PageRequest.of(1, 10))).isEmpty());
+        assertNull(CacheListadosService.Clave.gestor(null, null, Pageable.unpaged()));
+
+        EstadisticasCacheListadosDTO estadisticas = cache.estadisticas();
+        assertEquals(1, estadisticas.getAciertos());
+        assertEquals(3, estadisticas.getFallos());
+        assertEquals(1, estadisticas.getEntradas());
+    }
+
+    @Test
+    void testInvalidaSoloLosTramosQueVenElContenido() {
+        CacheListadosService cache = new CacheListadosService(100, 60);
+        CacheListadosService.Clave gestorAudio = CacheListadosService.Clave.gestor("AUDIO", null, PRIMERA);
+        CacheListadosService.Clave gestorVideo = CacheListadosService.Clave.gestor("VIDEO", null, PRIMERA);
+        CacheListadosService.Clave nino = CacheListadosService.Clave.visualizador(null, false, 12, null, PRIMERA);
+        CacheListadosService.Clave adultoVip = CacheListadosService.Clave.visualizador(null, true, 30, "mar", PRIMERA);
+        CacheListadosService.Clave adulto = CacheListadosService.Clave.visualizador("AUDIO", false, 30, null, PRIMERA);
+        for (CacheListadosService.Clave clave : List.of(gestorAudio, gestorVideo, nino, adultoVip, adulto)) {
+            guardar(cache, clave, "x");
+        }
+
+        // Alta de un audio VIP para mayores de 16: lo ven los gestores de audio y el adulto VIP
+        cache.invalidar(null, new CacheListadosService.Visibilidad(TipoContenido.AUDIO, true, true, 16));
+
+        assertTrue(cache.obtener(gestorAudio).isEmpty());
+        assertTrue(cache.obtener(adultoVip).isEmpty());
+        assertFalse(cache.obtener(gestorVideo).isEmpty());
+        assertFalse(cache.obtener(nino).isEmpty());
+        assertFalse(cache.obtener(adulto).isEmpty());
+
+        // Se oculta un audio que veían todos: cuenta el estado anterior
+        cache.invalidar(new CacheListadosService.Visibilidad(TipoContenido.AUDIO, true, false, 0),
+            new CacheListadosService.Visibilidad(TipoContenido.AUDIO, false, false, 0));
+
+        assertTrue(cache.obtener(nino).isEmpty());
+        assertTrue(cache.obtener(adulto).isEmpty());
+        assertFalse(cache.obtener(gestorVideo).isEmpty());
+        assertEquals(4, cache.estadisticas().getInvalidadas());
+    }
+
+    @Test
+    void testExpulsaLaMenosUsadaYNoGuardaPaginasDeOtraGeneracion() {
+        CacheListadosService cache = new CacheListadosService(2, 60);
+        CacheListadosService.Clave p0 = CacheListadosService.Clave.gestor(null, null, PageRequest.of(0, 10));
+        CacheListadosService.Clave p1 = CacheListadosService.Clave.gestor(null, null, PageRequest.of(1, 10));
+        CacheListadosService.Clave p2 = CacheListadosService.Clave.gestor(null, null, PageRequest.of(2, 10));
+        guardar(cache, p0, "a");
+        guardar(cache, p1, "b");
+        cache.obtener(p0);
+        guardar(cache, p2, "c");
+
+        assertTrue(cache.obtener(p1).isEmpty());
+        assertFalse(cache.obtener(p0).isEmpty());
+        assertEquals(1, cache.estadisticas().getExpulsiones());
+
+        // Calculada antes de una invalidación (aunque no afecte a su tramo): no se guarda
+        long generacion = cache.generacion();
+        cache.invalidar(null, null);
+        cache.guardar(p1, pagina("b"), generacion);
+        assertTrue(cache.obtener(p1).isEmpty());
+    }
+
+    @Test
+    void testTtlVencidoCuentaComoCaducada() {
+        CacheListadosService cache = new CacheListadosService(10, 0);
+        CacheListadosService.Clave clave = CacheListadosService.Clave.gestor(null, null, PRIMERA);
+        guardar(cache, clave, "a");
+
+        assertTrue(cache.obtener(clave).isEmpty());
+        assertEquals(1, cache.estadisticas().getCaducadas());
+        assertEquals(0, cache.estadisticas().getEntradas());
+    }
+}
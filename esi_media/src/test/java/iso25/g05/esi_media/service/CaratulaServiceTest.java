@@ -0,0 +1,73 @@
+package iso25.g05.esi_media.service;
+
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import iso25.g05.esi_media.exception.PeticionInvalidaException;
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+
+/**
+ * Tests de la validación de carátulas recibidas como data URI.
+ */
+class CaratulaServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13};
+
+    @TempDir
+    Path directorio;
+
+    private CaratulaService servicio;
+
+    @BeforeEach
+    void setUp() {
+        servicio = new CaratulaService(new LocalDiskBlobStorage(directorio.toString()), mock(MongoTemplate.class),
+            mock(MiniaturaService.class), mock(CatalogoService.class), "http://localhost:8080");
+    }
+
+    private static String dataUri(String tipo, byte[] bytes) {
+        return "data:" + tipo + ";base64," + Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @Test
+    void testGuardaElTipoSegunLosMagicBytes() {
+        Contenido contenido = new Audio();
+
+        servicio.asignar(contenido, dataUri("image/jpg", PNG));
+
+        assertEquals("image/png", contenido.getimagenCaratula().getmimeType());
+        assertNull(contenido.getcaratula());
+    }
+
+    @Test
+    void testRechazaSvgYTiposMalFormados() {
+        byte[] svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes();
+
+        assertThrows(PeticionInvalidaException.class, () -> servicio.asignar(new Audio(), dataUri("image/svg+xml", svg)));
+        assertThrows(PeticionInvalidaException.class, () -> servicio.asignar(new Audio(), dataUri("image/", PNG)));
+    }
+
+    @Test
+    void testRechazaBytesQueNoSonPngNiJpeg() {
+        byte[] html = "<html><script>alert(1)</script></html>".getBytes();
+
+        assertThrows(PeticionInvalidaException.class, () -> servicio.asignar(new Audio(), dataUri("image/png", html)));
+    }
+
+    @Test
+    void testTipoServibleSoloPngOJpeg() {
+        assertEquals("image/jpeg", CaratulaService.tipoServible("image/jpg"));
+        assertEquals("image/png", CaratulaService.tipoServible("IMAGE/PNG"));
+        assertEquals("application/octet-stream", CaratulaService.tipoServible("image/svg+xml"));
+        assertEquals("application/octet-stream", CaratulaService.tipoServible(null));
+    }
+}
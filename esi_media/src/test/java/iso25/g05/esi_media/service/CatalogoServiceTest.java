@@ -0,0 +1,308 @@
+package iso25.g05.esi_media.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import iso25.g05.esi_media.dto.PaginaCursorDTO;
+import iso25.g05.esi_media.exception.PeticionInvalidaException;
+
+import iso25.g05.esi_media.mapper.CatalogoMapper;
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.EntradaCatalogo;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.OrdenCatalogo;
+import iso25.g05.esi_media.model.TipoContenido;
+import iso25.g05.esi_media.model.Video;
+import iso25.g05.esi_media.repository.CatalogoRepository;
+
+/**
+ * Tests del modelo de lectura "catalogo" (elección de consulta, disponibilidad y conversión).
+ */
+class CatalogoServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private CatalogoRepository catalogoRepository;
+    private CatalogoService servicio;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        catalogoRepository = mock(CatalogoRepository.class);
+        servicio = new CatalogoService(mongoTemplate, catalogoRepository, 100, 300, true);
+    }
+
+    private void listo() {
+        // Sin contenidos: la reconstrucción termina en el primer lote y marca el catálogo como listo
+        servicio.reconstruirEnSegundoPlano();
+        assertTrue(servicio.listo());
+    }
+
+    private static EntradaCatalogo entrada(String id, TipoContenido tipo) {
+        Contenido c = tipo == TipoContenido.VIDEO ? new Video() : new Audio();
+        c.setId(id);
+        c.settitulo("t-" + id);
+        return CatalogoMapper.aEntrada(c, new Date());
+    }
+
+    @Test
+    void testSinReconstruirLosListadosVuelvenAContenidos() {
+        assertTrue(servicio.listarParaVisualizador(18, true, null, PageRequest.of(0, 10)).isEmpty());
+        assertTrue(servicio.listarParaGestor(null, PageRequest.of(0, 10)).isEmpty());
+        verifyNoInteractions(catalogoRepository);
+    }
+
+    @Test
+    void testVisualizadorNoVipFiltraVipYTipoEnUnaConsulta() {
+        listo();
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("titulo"));
+        when(catalogoRepository.findByEstadoTrueAndVipFalseAndTipoAndEdadvisualizacionLessThanEqual(
+                TipoContenido.VIDEO, 12, pageable))
+            .thenReturn(List.of(entrada("v1", TipoContenido.VIDEO)));
+
+        Optional<Page<Contenido>> pagina = servicio.listarParaVisualizador(12, false, "video", pageable);
+
+        assertTrue(pagina.isPresent());
+        assertInstanceOf(Video.class, pagina.get().getContent().get(0));
+        assertEquals("t-v1", pagina.get().getContent().get(0).gettitulo());
+        // Primera página incompleta: el total es el tamaño de la página, sin count
+        assertEquals(1, pagina.get().getTotalElements());
+        verify(mongoTemplate, never()).count(any(Query.class), eq(EntradaCatalogo.class));
+    }
+
+    @Test
+    void testGestorSinTipoListaTodo() {
+        listo();
+        Pageable pageable = PageRequest.of(0, 1);
+        when(catalogoRepository.findAllBy(pageable)).thenReturn(List.of(entrada("a1", TipoContenido.AUDIO)));
+        when(mongoTemplate.estimatedCount(EntradaCatalogo.class)).thenReturn(40L);
+
+        Page<Contenido> pagina = servicio.listarParaGestor("", pageable).orElseThrow();
+
+        assertInstanceOf(Audio.class, pagina.getContent().get(0));
+        assertEquals(40, pagina.getTotalElements());
+        verify(mongoTemplate, never()).count(any(Query.class), eq(EntradaCatalogo.class));
+    }
+
+    @Test
+    void testElTotalSeCacheaPorFormaYSeInvalidaAlEscribir() {
+        listo();
+        when(catalogoRepository.findByEstadoTrueAndEdadvisualizacionLessThanEqual(anyInt(), any(Pageable.class)))
+            .thenReturn(List.of(entrada("a1", TipoContenido.AUDIO)));
+        when(mongoTemplate.count(any(Query.class), eq(EntradaCatalogo.class))).thenReturn(25L, 26L);
+
+        // Mismo tramo de edad (a partir de 18 todos ven lo mismo) y otra página: un solo count
+        assertEquals(25, servicio.listarParaVisualizador(30, true, null, PageRequest.of(0, 1)).orElseThrow().getTotalElements());
+        assertEquals(25, servicio.listarParaVisualizador(45, true, null, PageRequest.of(3, 1)).orElseThrow().getTotalElements());
+        verify(mongoTemplate, times(1)).count(any(Query.class), eq(EntradaCatalogo.class));
+
+        Audio nuevo = new Audio();
+        nuevo.setId("a2");
+        servicio.sincronizar(nuevo);
+
+        assertEquals(26, servicio.listarParaVisualizador(30, true, null, PageRequest.of(0, 1)).orElseThrow().getTotalElements());
+        verify(mongoTemplate, times(2)).count(any(Query.class), eq(EntradaCatalogo.class));
+    }
+
+    @Test
+    void testOrdenNoSoportadoVuelveAContenidos() {
+        listo();
+        assertTrue(servicio.listarParaVisualizador(18, true, null, PageRequest.of(0, 10, Sort.by("duracion"))).isEmpty());
+        verifyNoInteractions(catalogoRepository);
+    }
+
+    @Test
+    void testFalloDeSincronizacionDesactivaElCatalogoHastaLaReconstruccionProgramada() {
+        listo();
+        Audio audio = new Audio();
+        audio.setId("a1");
+        when(mongoTemplate.save(any(EntradaCatalogo.class))).thenThrow(new IllegalStateException("caída"));
+
+        servicio.sincronizar(audio);
+        assertFalse(servicio.listo());
+
+        servicio.reconstruirSiDesincronizado();
+        assertTrue(servicio.listo());
+    }
+
+    @Test
+    void testSinFallosNiReconstruccionDeArranqueNoSeReconstruye() {
+        servicio.reconstruirSiDesincronizado();
+        verifyNoInteractions(mongoTemplate);
+
+        listo();
+        servicio.reconstruirSiDesincronizado();
+        // Solo la consulta del primer lote de la reconstrucción de arranque
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Contenido.class));
+    }
+
+    @Test
+    void testFalloAlSumarVisualizacionNoDesactivaElCatalogo() {
+        listo();
+        when(mongoTemplate.updateFirst(any(Query.class), any(), eq(EntradaCatalogo.class)))
+            .thenThrow(new IllegalStateException("caída"));
+
+        servicio.incrementarVisualizaciones("a1");
+
+        assertTrue(servicio.listo());
+    }
+
+    @Test
+    void testEliminarBorraLaEntrada() {
+        servicio.eliminar("c1");
+        verify(mongoTemplate).remove(any(Query.class), eq(EntradaCatalogo.class));
+    }
+
+    /** Prepara una reconstrucción de un solo lote y ejecuta {@code durante} dentro de bulk.execute(). */
+    private void reconstruirCon(Contenido enLote, Runnable durante) {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(EntradaCatalogo.class))).thenReturn(bulk);
+        when(mongoTemplate.find(any(Query.class), eq(Contenido.class))).thenReturn(List.of(enLote));
+        doAnswer(inv -> {
+            durante.run();
+            return null;
+        }).when(bulk).execute();
+        servicio.reconstruir();
+    }
+
+    @Test
+    void testEliminarDuranteLaReconstruccionNoResucitaLaEntrada() {
+        Audio audio = new Audio();
+        audio.setId("c1");
+        audio.settitulo("viejo");
+        when(mongoTemplate.findOne(any(Query.class), eq(Contenido.class))).thenReturn(null);
+
+        reconstruirCon(audio, () -> servicio.eliminar("c1"));
+
+        // El borrado, el que se repite tras el lote y el de las entradas antiguas
+        ArgumentCaptor<Query> borrados = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(3)).remove(borrados.capture(), eq(EntradaCatalogo.class));
+        assertEquals("c1", borrados.getAllValues().get(1).getQueryObject().get("_id"));
+        verify(mongoTemplate, never()).save(any(EntradaCatalogo.class));
+    }
+
+    @Test
+    void testSincronizarDuranteLaReconstruccionNoSePisaConElLote() {
+        Audio viejo = new Audio();
+        viejo.setId("c1");
+        viejo.settitulo("viejo");
+        Audio nuevo = new Audio();
+        nuevo.setId("c1");
+        nuevo.settitulo("nuevo");
+        when(mongoTemplate.findOne(any(Query.class), eq(Contenido.class))).thenReturn(nuevo);
+
+        reconstruirCon(viejo, () -> servicio.sincronizar(nuevo));
+
+        // La sincronización y la copia repetida tras el lote, ambas con el título nuevo
+        ArgumentCaptor<EntradaCatalogo> guardadas = ArgumentCaptor.forClass(EntradaCatalogo.class);
+        verify(mongoTemplate, times(2)).save(guardadas.capture());
+        assertEquals("nuevo", guardadas.getAllValues().get(1).gettitulo());
+    }
+
+    @Test
+    void testEntradaNormalizaYNoCopiaDataUri() {
+        Video video = new Video();
+        video.setId("v1");
+        video.setresolucion("1080p");
+        video.setcaratula("data:image/png;base64,AAAA");
+        video.setimagenCaratula(null);
+
+        EntradaCatalogo e = CatalogoMapper.aEntrada(video, new Date());
+
+        assertEquals(TipoContenido.VIDEO, e.gettipo());
+        assertEquals(0, e.getedadvisualizacion());
+        assertEquals("data:", e.getcaratula());
+        assertEquals("1080p", ((Video) CatalogoMapper.aContenido(e)).getresolucion());
+
+        Audio audio = new Audio();
+        ImagenCaratula imagen = new ImagenCaratula("b1", "abc", "image/png", 10);
+        imagen.setvariantes(List.of());
+        audio.setimagenCaratula(imagen);
+        EntradaCatalogo conImagen = CatalogoMapper.aEntrada(audio, new Date());
+        assertEquals("abc", conImagen.getimagenCaratula().getchecksum());
+        assertNull(conImagen.getimagenCaratula().getvariantes());
+        assertNull(conImagen.getcaratula());
+    }
+
+    @Test
+    void testCursorPideUnoMasYDevuelveLaPosicionDelUltimo() {
+        listo();
+        EntradaCatalogo a = entrada("a", TipoContenido.AUDIO);
+        EntradaCatalogo b = entrada("b", TipoContenido.VIDEO);
+        EntradaCatalogo c = entrada("c", TipoContenido.AUDIO);
+        b.setnvisualizaciones(7);
+        ArgumentCaptor<Query> consulta = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(consulta.capture(), eq(EntradaCatalogo.class))).thenReturn(List.of(a, b, c));
+
+        PaginaCursorDTO<Contenido> pagina = servicio.listarVisualizadorPorCursor(18, false, null, "vistas", null, 2);
+
+        assertEquals(List.of("a", "b"), pagina.getContenidos().stream().map(Contenido::getId).toList());
+        assertTrue(pagina.isHayMas());
+        assertEquals(new CursorCatalogo(OrdenCatalogo.VISTAS, "b", "7"),
+            CursorCatalogo.decodificar(pagina.getSiguienteCursor(), OrdenCatalogo.VISTAS));
+        assertEquals(3, consulta.getValue().getLimit());
+        assertEquals("{\"nvisualizaciones\": -1, \"_id\": -1}", consulta.getValue().getSortObject().toJson());
+    }
+
+    @Test
+    void testCursorContinuaDesdeLaClaveYElId() {
+        listo();
+        ArgumentCaptor<Query> consulta = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(consulta.capture(), eq(EntradaCatalogo.class))).thenReturn(List.of());
+        String cursor = new CursorCatalogo(OrdenCatalogo.TITULO, "b", "Beta").codificar();
+
+        PaginaCursorDTO<Contenido> pagina = servicio.listarGestorPorCursor(null, "titulo", cursor, 10);
+
+        assertFalse(pagina.isHayMas());
+        assertNull(pagina.getSiguienteCursor());
+        String filtro = consulta.getValue().getQueryObject().toJson();
+        assertTrue(filtro.contains("{\"titulo\": {\"$gt\": \"Beta\"}}"), filtro);
+        assertTrue(filtro.contains("{\"_id\": {\"$gt\": \"b\"}}"), filtro);
+    }
+
+    @Test
+    void testCursorNoValidoOdeOtroOrdenEsPeticionInvalida() {
+        String deFecha = new CursorCatalogo(OrdenCatalogo.FECHA, "a", null).codificar();
+
+        assertThrows(PeticionInvalidaException.class,
+            () -> servicio.listarGestorPorCursor(null, "vistas", deFecha, 10));
+        assertThrows(PeticionInvalidaException.class,
+            () -> servicio.listarGestorPorCursor(null, null, "%%%", 10));
+        assertThrows(PeticionInvalidaException.class,
+            () -> servicio.listarGestorPorCursor(null, "duracion", null, 10));
+    }
+
+    @Test
+    void testTituloConSaltoDeLineaSobreviveAlCursor() {
+        CursorCatalogo cursor = new CursorCatalogo(OrdenCatalogo.TITULO, "x1", "Parte 1\nParte 2");
+        assertEquals(cursor, CursorCatalogo.decodificar(cursor.codificar(), OrdenCatalogo.TITULO));
+    }
+}
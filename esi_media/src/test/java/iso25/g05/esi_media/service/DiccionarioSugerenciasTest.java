@@ -0,0 +1,52 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import iso25.g05.esi_media.dto.SugerenciaDTO;
+
+/**
+ * Tests del diccionario de sugerencias por prefijo.
+ */
+class DiccionarioSugerenciasTest {
+
+    private static List<String> titulos(List<SugerenciaDTO> sugerencias) {
+        return sugerencias.stream().map(SugerenciaDTO::getTitulo).toList();
+    }
+
+    private static DiccionarioSugerencias diccionario() {
+        return new DiccionarioSugerencias.Constructor()
+            .anadir(new SugerenciaDTO("1", "Canción del Mar", "AUDIO"), 50, false, 0)
+            .anadir(new SugerenciaDTO("2", "Marte", "VIDEO"), 10, false, 0)
+            .anadir(new SugerenciaDTO("3", "Mareas VIP", "VIDEO"), 500, true, 0)
+            .anadir(new SugerenciaDTO("4", "Mar adentro", "VIDEO"), 200, false, 16)
+            .anadir(new SugerenciaDTO(null, "mar", SugerenciasService.TIPO_TAG), 260, false, 0)
+            .anadir(new SugerenciaDTO("l1", "Mar y mar", SugerenciasService.TIPO_LISTA), 5, false, 0)
+            .construir();
+    }
+
+    @Test
+    void testOrdenaPorVisualizacionesYRespetaVipYEdad() {
+        DiccionarioSugerencias diccionario = diccionario();
+
+        assertEquals(List.of("Mareas VIP", "mar", "Mar adentro", "Canción del Mar", "Marte", "Mar y mar"),
+            titulos(diccionario.buscar("MAR", 10, true, 18)));
+        assertEquals(List.of("mar", "Canción del Mar", "Marte", "Mar y mar"),
+            titulos(diccionario.buscar("mar", 10, false, 12)));
+        assertEquals(List.of("mar", "Canción del Mar"), titulos(diccionario.buscar("mar", 2, false, 12)));
+    }
+
+    @Test
+    void testPalabrasInterioresSinTildesYSinRepetir() {
+        DiccionarioSugerencias diccionario = diccionario();
+
+        assertEquals(List.of("Canción del Mar"), titulos(diccionario.buscar("del m", 10, false, 0)));
+        assertEquals(List.of("Canción del Mar"), titulos(diccionario.buscar("cancion", 10, false, 0)));
+        assertTrue(diccionario.buscar("arte", 10, true, 18).isEmpty());
+        assertTrue(diccionario.buscar("  ", 10, true, 18).isEmpty());
+        assertTrue(DiccionarioSugerencias.VACIO.buscar("mar", 10, true, 18).isEmpty());
+    }
+}
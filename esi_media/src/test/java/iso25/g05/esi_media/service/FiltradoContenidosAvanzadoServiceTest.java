@@ -12,13 +12,17 @@ import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import org.bson.Document;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.mock;
@@ -29,10 +33,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 
+import iso25.g05.esi_media.dto.BusquedaFacetadaDTO;
 import iso25.g05.esi_media.dto.ContenidoDTO;
 import iso25.g05.esi_media.dto.TagStatDTO;
+import iso25.g05.esi_media.exception.AccesoNoAutorizadoException;
+import iso25.g05.esi_media.model.GestordeContenido;
+import iso25.g05.esi_media.model.Sesion;
 import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Visualizador;
 import iso25.g05.esi_media.repository.UsuarioRepository;
 
@@ -50,6 +60,9 @@ class FiltradoContenidosAvanzadoServiceTest {
     @Mock
     private MongoTemplate mongoTemplate;
 
+    @Mock
+    private BusquedaContenidosService busquedaService;
+
     @InjectMocks
     private FiltradoContenidosAvanzadoService filtradoService;
 
@@ -512,6 +525,74 @@ class FiltradoContenidosAvanzadoServiceTest {
         assertTrue(resultado.isEmpty());
     }
 
+    // ==================== TESTS DE BÚSQUEDA CON FACETAS ====================
+
+    @Test
+    void testBuscarConFacetas_UnaSolaAgregacionConTextoVisibilidadYFacetas() {
+        when(usuarioRepository.findUsuarioAutenticado("tok")).thenReturn(Optional.of(autenticado(visualizadorMenor)));
+        when(busquedaService.criterioTexto("rock")).thenReturn(Optional.of(TextCriteria.forLanguage("spanish").matching("rock")));
+        Document fila = new Document("resultados", List.of(new Document("id", "c1").append("titulo", "Rock").append("url", "http://v")))
+            .append("total", List.of(new Document("total", 7)))
+            .append("tipo", List.of(new Document("_id", "video").append("n", 5), new Document("_id", "audio").append("n", 2)))
+            .append("vip", List.of(new Document("_id", false).append("n", 7)))
+            .append("edad", List.of(new Document("_id", 0).append("n", 6), new Document("_id", 12).append("n", 1)))
+            .append("resolucion", List.of(new Document("_id", "1080p").append("n", 5)))
+            .append("tags", List.of(new Document("_id", "rock").append("n", 7)));
+        AggregationResults<Document> results = mock(AggregationResults.class);
+        when(results.getUniqueMappedResult()).thenReturn(fila);
+        ArgumentCaptor<Aggregation> agregacion = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(agregacion.capture(), eq("contenidos"), eq(Document.class))).thenReturn(results);
+
+        BusquedaFacetadaDTO dto = filtradoService.buscarConFacetas("tok", " rock ",
+            new FiltradoContenidosAvanzadoService.FiltrosFacetas("video", null, null, null, null), 0, 10);
+
+        assertEquals(7, dto.getTotal());
+        assertEquals("video", dto.getResultados().get(0).getTipo());
+        assertEquals(List.of("video", "audio"), List.copyOf(dto.getFacetas().get("tipo").keySet()));
+        assertEquals(1L, dto.getFacetas().get("edad").get("12"));
+        assertEquals(7L, dto.getFacetas().get("vip").get("false"));
+
+        List<Document> pipeline = agregacion.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(3, pipeline.size());
+        assertTrue(pipeline.get(0).get("$match", Document.class).containsKey("$text"));
+        Document visibilidad = pipeline.get(1).get("$match", Document.class);
+        assertEquals(true, visibilidad.get("estado"));
+        assertEquals(false, visibilidad.get("vip"));
+        Document facetas = pipeline.get(2).get("$facet", Document.class);
+        assertEquals(List.of("resultados", "total", "tipo", "vip", "edad", "resolucion", "tags"), List.copyOf(facetas.keySet()));
+        // La faceta de tipo no se filtra por el tipo elegido; las demás sí
+        assertFalse(facetas.getList("tipo", Document.class).get(0).containsKey("$match"));
+        assertTrue(facetas.getList("vip", Document.class).get(0).toJson().contains("url"));
+        assertTrue(facetas.getList("resultados", Document.class).get(1).toJson().contains("textScore"));
+    }
+
+    @Test
+    void testBuscarConFacetas_SinIndiceDeTextoUsaRegexYGestorSinRestricciones() {
+        GestordeContenido gestor = new GestordeContenido();
+        when(usuarioRepository.findUsuarioAutenticado("tok")).thenReturn(Optional.of(autenticado(gestor)));
+        when(busquedaService.criterioTexto("rock")).thenReturn(Optional.empty());
+        AggregationResults<Document> results = mock(AggregationResults.class);
+        ArgumentCaptor<Aggregation> agregacion = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(agregacion.capture(), eq("contenidos"), eq(Document.class))).thenReturn(results);
+
+        BusquedaFacetadaDTO dto = filtradoService.buscarConFacetas("tok", "rock", null, 0, 10);
+
+        assertEquals(0, dto.getTotal());
+        assertTrue(dto.getResultados().isEmpty());
+        List<Document> pipeline = agregacion.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(2, pipeline.size());
+        assertTrue(pipeline.get(0).toJson().contains("$regex"));
+    }
+
+    @Test
+    void testBuscarConFacetas_TokenNoValido() {
+        when(usuarioRepository.findUsuarioAutenticado("malo")).thenReturn(Optional.empty());
+
+        assertThrows(AccesoNoAutorizadoException.class,
+            () -> filtradoService.buscarConFacetas("malo", "rock", null, 0, 10));
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq("contenidos"), eq(Document.class));
+    }
+
     // ==================== MÉTODOS AUXILIARES ====================
 
     private List<Map<String, Object>> crearContenidosMock(boolean incluirContenido18Plus) {
@@ -627,4 +708,11 @@ class FiltradoContenidosAvanzadoServiceTest {
 
         return tags;
     }
+
+    /** Permisos de la sesión de ese usuario, como los guarda SesionService. */
+    private static UsuarioAutenticado autenticado(Usuario usuario) {
+        Sesion sesion = new Sesion();
+        sesion.copiarPermisos(usuario);
+        return UsuarioAutenticado.de(sesion);
+    }
 }
@@ -20,6 +20,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -40,7 +41,10 @@ import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
 import iso25.g05.esi_media.model.Audio;
 import iso25.g05.esi_media.model.Contenido;
 import iso25.g05.esi_media.model.GestordeContenido;
+import iso25.g05.esi_media.model.Sesion;
 import iso25.g05.esi_media.model.Token;
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Video;
 import iso25.g05.esi_media.model.Visualizador;
 import iso25.g05.esi_media.repository.ContenidoRepository;
@@ -70,6 +74,33 @@ class GestorContenidoServiceTest {
     @Mock
     private MongoTemplate mongoTemplate;
 
+    @Mock
+    private BlobStorage blobStorage;
+
+    @Mock
+    private AudioCacheService audioCache;
+
+    @Mock
+    private BorradoBlobsService borradoBlobs;
+
+    @Spy
+    private UrlFirmadaService urlFirmadaService = new UrlFirmadaService("http://localhost:8080", "secreto", 1800);
+
+    @Spy
+    private CaratulaService caratulaService = new CaratulaService(null, null, null, null, "http://localhost:8080");
+
+    @Mock
+    private CatalogoService catalogoService;
+
+    @Mock
+    private IndiceTitulosService indiceTitulos;
+
+    @Mock
+    private CacheListadosService cacheListados;
+
+    @Mock
+    private BusquedaContenidosService busquedaService;
+
     @InjectMocks
     private GestorContenidoService gestorContenidoService;
 
@@ -151,7 +182,7 @@ class GestorContenidoServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Contenido> pageContenidos = new PageImpl<>(Arrays.asList(video, audio));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findAllContenidosForGestor(pageable)).thenReturn(pageContenidos);
 
@@ -163,7 +194,7 @@ class GestorContenidoServiceTest {
         // Assert
         assertNotNull(resultado);
         assertEquals(2, resultado.getContent().size());
-        verify(usuarioRepository).findBySesionToken(TOKEN_SIN_BEARER);
+        verify(usuarioRepository).findUsuarioAutenticado(TOKEN_SIN_BEARER);
         verify(contenidoRepository).findAllContenidosForGestor(pageable);
         verify(logService).registrarAccion(eq("Listado de contenidos por gestor"), eq("gestorvideo@test.com"));
     }
@@ -174,7 +205,7 @@ class GestorContenidoServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Contenido> pageVideos = new PageImpl<>(Arrays.asList(video));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findAllVideosForGestor(pageable)).thenReturn(pageVideos);
 
@@ -195,7 +226,7 @@ class GestorContenidoServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Contenido> pageAudios = new PageImpl<>(Arrays.asList(audio));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorAudio));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorAudio)));
         when(gestorRepository.findById(ID_GESTOR_AUDIO)).thenReturn(Optional.of(gestorAudio));
         when(contenidoRepository.findAllAudiosForGestor(pageable)).thenReturn(pageAudios);
 
@@ -216,7 +247,7 @@ class GestorContenidoServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Contenido> pageResultados = new PageImpl<>(Arrays.asList(video));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.searchAllContenidosForGestor("tutorial", pageable))
             .thenReturn(pageResultados);
@@ -232,6 +263,23 @@ class GestorContenidoServiceTest {
         verify(contenidoRepository).searchAllContenidosForGestor("tutorial", pageable);
     }
 
+    @Test
+    void testListarConBusquedaConEspacios_RecortaTextoParaClaveYBusqueda() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
+        when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
+        when(contenidoRepository.searchAllContenidosForGestor("tutorial", pageable))
+            .thenReturn(new PageImpl<>(Arrays.asList(video)));
+
+        // Act
+        gestorContenidoService.listar(TOKEN_VALIDO, pageable, null, "  tutorial ");
+
+        // Assert: misma entrada de caché que MultimediaService para "tutorial"
+        verify(cacheListados).obtener(CacheListadosService.Clave.gestor(null, "tutorial", pageable));
+        verify(contenidoRepository).searchAllContenidosForGestor("tutorial", pageable);
+    }
+
     @Test
     void testListarSinToken_LanzaExcepcion() {
         // Arrange
@@ -249,7 +297,7 @@ class GestorContenidoServiceTest {
     void testListarConTokenInvalido_LanzaExcepcion() {
         // Arrange
         Pageable pageable = PageRequest.of(0, 10);
-        when(usuarioRepository.findBySesionToken("token-invalido")).thenReturn(Optional.empty());
+        when(usuarioRepository.findUsuarioAutenticado("token-invalido")).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(AccesoNoAutorizadoException.class, () -> {
@@ -267,7 +315,7 @@ class GestorContenidoServiceTest {
         visualizador.setId("visualizador-id");
         visualizador.setSesionstoken(tokenValido);
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(visualizador));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(visualizador)));
 
         // Act & Assert
         assertThrows(AccesoNoAutorizadoException.class, () -> {
@@ -283,7 +331,7 @@ class GestorContenidoServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         gestorVideo.setBloqueado(true);
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
 
         // Act & Assert
         assertThrows(AccesoNoAutorizadoException.class, () -> {
@@ -298,7 +346,7 @@ class GestorContenidoServiceTest {
     @Test
     void testDetalle_RetornaContenidoCompleto() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
         when(usuarioRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
@@ -321,7 +369,7 @@ class GestorContenidoServiceTest {
     @Test
     void testDetalle_ContenidoNoEncontrado_LanzaExcepcion() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor("id-inexistente")).thenReturn(Optional.empty());
 
@@ -334,7 +382,7 @@ class GestorContenidoServiceTest {
     @Test
     void testDetalle_CreadorEliminado_NoMuestraCreador() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
         when(usuarioRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.empty());
@@ -361,7 +409,7 @@ class GestorContenidoServiceTest {
         Set<String> nuevosTags = new HashSet<>(Arrays.asList("java", "spring"));
         updateDTO.setTags(new ArrayList<>(nuevosTags));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
         when(contenidoRepository.save(any(Video.class))).thenReturn(video);
@@ -386,7 +434,7 @@ class GestorContenidoServiceTest {
         ContenidoUpdateDTO updateDTO = new ContenidoUpdateDTO();
         updateDTO.setTitulo("Video Actualizado");
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor("id-inexistente")).thenReturn(Optional.empty());
 
@@ -404,7 +452,7 @@ class GestorContenidoServiceTest {
         ContenidoUpdateDTO updateDTO = new ContenidoUpdateDTO();
         updateDTO.setTitulo("Podcast Actualizado");
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_AUDIO)).thenReturn(Optional.of(audio));
 
@@ -422,7 +470,7 @@ class GestorContenidoServiceTest {
         ContenidoUpdateDTO updateDTO = new ContenidoUpdateDTO();
         updateDTO.setTitulo("Video Actualizado");
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorAudio));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorAudio)));
         when(gestorRepository.findById(ID_GESTOR_AUDIO)).thenReturn(Optional.of(gestorAudio));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
 
@@ -444,7 +492,7 @@ class GestorContenidoServiceTest {
         updateDTO.setVip(false); // No VIP
         updateDTO.setEstado(true);
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
 
@@ -468,7 +516,7 @@ class GestorContenidoServiceTest {
         updateDTO.setEdadVisualizacion(0);
         updateDTO.setTags(new ArrayList<>(video.gettags()));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
         when(contenidoRepository.save(any(Video.class))).thenAnswer(invocation -> {
@@ -492,7 +540,7 @@ class GestorContenidoServiceTest {
     @Test
     void testEliminar_EliminaContenidoCorrectamente() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
         doNothing().when(contenidoRepository).delete(video);
@@ -513,7 +561,7 @@ class GestorContenidoServiceTest {
     @Test
     void testEliminar_ContenidoNoEncontrado_LanzaExcepcion() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor("id-inexistente")).thenReturn(Optional.empty());
 
@@ -528,7 +576,7 @@ class GestorContenidoServiceTest {
     @Test
     void testEliminar_GestorVideoIntentaEliminarAudio_LanzaExcepcion() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_AUDIO)).thenReturn(Optional.of(audio));
 
@@ -559,7 +607,7 @@ class GestorContenidoServiceTest {
     @Test
     void testExtraerToken_ConBearer_ExtraeCorrectamente() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         Page<Contenido> pageContenidos = new PageImpl<>(Arrays.asList(video));
         when(contenidoRepository.findAllContenidosForGestor(any(Pageable.class)))
@@ -576,13 +624,13 @@ class GestorContenidoServiceTest {
         });
 
         // Assert
-        verify(usuarioRepository).findBySesionToken(TOKEN_SIN_BEARER);
+        verify(usuarioRepository).findUsuarioAutenticado(TOKEN_SIN_BEARER);
     }
 
     @Test
     void testExtraerToken_SinBearer_ExtraeCorrectamente() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         Page<Contenido> pageContenidos = new PageImpl<>(Arrays.asList(video));
         when(contenidoRepository.findAllContenidosForGestor(any(Pageable.class)))
@@ -599,7 +647,7 @@ class GestorContenidoServiceTest {
         });
 
         // Assert
-        verify(usuarioRepository).findBySesionToken(TOKEN_SIN_BEARER);
+        verify(usuarioRepository).findUsuarioAutenticado(TOKEN_SIN_BEARER);
     }
 
     @Test
@@ -613,7 +661,7 @@ class GestorContenidoServiceTest {
     @Test
     void testExtraerToken_TokenConEspacios_ExtraeCorrectamente() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         Page<Contenido> pageContenidos = new PageImpl<>(Arrays.asList(video));
         when(contenidoRepository.findAllContenidosForGestor(any(Pageable.class)))
@@ -630,7 +678,7 @@ class GestorContenidoServiceTest {
         });
 
         // Assert
-        verify(usuarioRepository).findBySesionToken(TOKEN_SIN_BEARER);
+        verify(usuarioRepository).findUsuarioAutenticado(TOKEN_SIN_BEARER);
     }
 
     // ==================== TESTS DE BÚSQUEDA POR TIPO ====================
@@ -641,7 +689,7 @@ class GestorContenidoServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Contenido> pageVideos = new PageImpl<>(Arrays.asList(video));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.searchAllVideosForGestor("tutorial", pageable))
             .thenReturn(pageVideos);
@@ -663,7 +711,7 @@ class GestorContenidoServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Contenido> pageAudios = new PageImpl<>(Arrays.asList(audio));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorAudio));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorAudio)));
         when(gestorRepository.findById(ID_GESTOR_AUDIO)).thenReturn(Optional.of(gestorAudio));
         when(contenidoRepository.searchAllAudiosForGestor("podcast", pageable))
             .thenReturn(pageAudios);
@@ -685,7 +733,7 @@ class GestorContenidoServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Contenido> pageContenidos = new PageImpl<>(Arrays.asList(video, audio));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.searchAllContenidosForGestor("test", pageable))
             .thenReturn(pageContenidos);
@@ -705,7 +753,7 @@ class GestorContenidoServiceTest {
     @Test
     void testConstruirReferencia_Video_RetornaUrl() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
         when(usuarioRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
@@ -721,7 +769,7 @@ class GestorContenidoServiceTest {
     @Test
     void testConstruirReferencia_Audio_RetornaUrlLocalhost() {
         // Arrange
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorAudio));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorAudio)));
         when(gestorRepository.findById(ID_GESTOR_AUDIO)).thenReturn(Optional.of(gestorAudio));
         when(contenidoRepository.findByIdForGestor(ID_AUDIO)).thenReturn(Optional.of(audio));
         when(usuarioRepository.findById(ID_GESTOR_AUDIO)).thenReturn(Optional.of(gestorAudio));
@@ -750,7 +798,7 @@ class GestorContenidoServiceTest {
         updateDTO.setFechaDisponibleHasta(nuevaFecha);
         updateDTO.setTags(new ArrayList<>(video.gettags()));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
         when(contenidoRepository.save(any(Video.class))).thenAnswer(invocation -> {
@@ -780,7 +828,7 @@ class GestorContenidoServiceTest {
         updateDTO.setCaratula("http://example.com/nueva-caratula.jpg");
         updateDTO.setTags(new ArrayList<>(video.gettags()));
 
-        when(usuarioRepository.findBySesionToken(TOKEN_SIN_BEARER)).thenReturn(Optional.of(gestorVideo));
+        when(usuarioRepository.findUsuarioAutenticado(TOKEN_SIN_BEARER)).thenReturn(Optional.of(autenticado(gestorVideo)));
         when(gestorRepository.findById(ID_GESTOR_VIDEO)).thenReturn(Optional.of(gestorVideo));
         when(contenidoRepository.findByIdForGestor(ID_VIDEO)).thenReturn(Optional.of(video));
         when(contenidoRepository.save(any(Video.class))).thenAnswer(invocation -> {
@@ -798,4 +846,11 @@ class GestorContenidoServiceTest {
         assertNotNull(resultado);
         verify(contenidoRepository).save(any(Video.class));
     }
+
+    /** Permisos de la sesión de ese usuario, como los guarda SesionService. */
+    private static UsuarioAutenticado autenticado(Usuario usuario) {
+        Sesion sesion = new Sesion();
+        sesion.copiarPermisos(usuario);
+        return UsuarioAutenticado.de(sesion);
+    }
 }
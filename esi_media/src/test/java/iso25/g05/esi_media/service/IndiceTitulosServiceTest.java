@@ -0,0 +1,99 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import iso25.g05.esi_media.dto.SugerenciaDTO;
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.Video;
+
+/**
+ * Tests del índice de títulos en memoria del autocompletado.
+ */
+class IndiceTitulosServiceTest {
+
+    private static List<String> ids(List<SugerenciaDTO> sugerencias) {
+        return sugerencias.stream().map(SugerenciaDTO::getId).toList();
+    }
+
+    private static Contenido contenido(Contenido c, String id, String titulo) {
+        c.setId(id);
+        c.settitulo(titulo);
+        return c;
+    }
+
+    @Test
+    void testContieneSinMayusculasNiTildesYPrimeroLosComienzos() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        indice.poner("1", "Canción del Mar", "AUDIO");
+        indice.poner("2", "El mar en calma", "VIDEO");
+        indice.poner("3", "Submarino", "VIDEO");
+        indice.poner("4", "Marte", "AUDIO");
+
+        assertEquals(List.of("4", "1", "2", "3"), ids(indice.buscar("MAR", 10)));
+        assertEquals(List.of("1"), ids(indice.buscar("cancion", 10)));
+        assertEquals(List.of("4", "1"), ids(indice.buscar("mar", 2)));
+        // Con dos letras solo comienzos de palabra
+        assertEquals(List.of("4", "1", "2"), ids(indice.buscar("ma", 10)));
+        assertTrue(indice.buscar("m", 10).isEmpty());
+        assertTrue(indice.buscar("marx", 10).isEmpty());
+    }
+
+    @Test
+    void testModificarYQuitarSustituyenElTitulo() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        indice.poner("1", "Canción del Mar", "AUDIO");
+        indice.poner("2", "Marte", "VIDEO");
+
+        indice.poner("2", "Júpiter", "VIDEO");
+        indice.quitar("1");
+
+        assertTrue(indice.buscar("mar", 10).isEmpty());
+        assertEquals("Júpiter", indice.buscar("jupi", 10).get(0).getTitulo());
+        assertEquals(1, indice.tamano());
+    }
+
+    @Test
+    void testCompactarConservaLosVivos() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        for (int i = 0; i < 5000; i++) {
+            indice.poner("c" + i, "Episodio " + i, "AUDIO");
+        }
+        for (int i = 0; i < 4000; i++) {
+            indice.quitar("c" + i);
+        }
+
+        assertEquals(1000, indice.tamano());
+        assertEquals(List.of("c4999"), ids(indice.buscar("episodio 4999", 10)));
+        assertTrue(indice.buscar("episodio 3999", 10).isEmpty());
+    }
+
+    @Test
+    void testSinConstruirDevuelveVacioYLasEscriturasDuranteLaConstruccionSeConservan() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        IndiceTitulosService servicio = new IndiceTitulosService(mongoTemplate);
+        assertTrue(servicio.sugerir("mar", 10).isEmpty());
+
+        // El cursor aún trae el título viejo del contenido que se modifica mientras se lee
+        when(mongoTemplate.stream(any(Query.class), eq(Contenido.class))).thenAnswer(inv -> {
+            servicio.actualizar(contenido(new Video(), "v1", "Mar de fondo"));
+            servicio.eliminar("a2");
+            return Stream.of(contenido(new Video(), "v1", "Titulo viejo"), contenido(new Audio(), "a2", "Marea"));
+        });
+
+        assertEquals(1, servicio.construir());
+        assertEquals(List.of("v1"), ids(servicio.sugerir("mar", 10).orElseThrow()));
+        assertEquals("VIDEO", servicio.sugerir("fondo", 10).orElseThrow().get(0).getTipo());
+    }
+}
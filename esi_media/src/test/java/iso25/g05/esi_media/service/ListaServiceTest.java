@@ -21,6 +21,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.never;
@@ -64,6 +65,9 @@ class ListaServiceTest {
     @Mock
     private VisualizadorRepository visualizadorRepository;
 
+    @Spy
+    private CaratulaService caratulaService = new CaratulaService(null, null, null, null, "http://localhost:8080");
+
     @InjectMocks
     private ListaService listaService;
 
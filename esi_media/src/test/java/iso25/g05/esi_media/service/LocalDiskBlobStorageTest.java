@@ -0,0 +1,83 @@
+package iso25.g05.esi_media.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+
+/**
+ * Tests del almacén de blobs en disco direccionado por SHA-256.
+ */
+class LocalDiskBlobStorageTest {
+
+    // SHA-256 de "hola"
+    private static final String SHA_HOLA = "b221d9dbb083a7f33428d7c2a3c3198ae925614d70210e28716ccaa7cd4ddb79";
+
+    @TempDir
+    Path directorio;
+
+    private LocalDiskBlobStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalDiskBlobStorage(directorio.toString());
+    }
+
+    @Test
+    void testGuardarUsaElHashComoIdentificador() {
+        BlobInfo info = storage.guardar(new ByteArrayInputStream("hola".getBytes()), "a.mp3", "audio/mpeg");
+
+        assertEquals(SHA_HOLA, info.id());
+        assertEquals(SHA_HOLA, info.sha256());
+        assertEquals(4L, info.tamanoBytes());
+        assertTrue(Files.isRegularFile(storage.rutaLocal(info.id())));
+    }
+
+    @Test
+    void testGuardarContenidoRepetidoNoDuplicaFicheros() throws IOException {
+        BlobInfo primero = storage.guardar(new ByteArrayInputStream("hola".getBytes()), "a.mp3", "audio/mpeg");
+        BlobInfo segundo = storage.guardar(new ByteArrayInputStream("hola".getBytes()), "b.mp3", "audio/mpeg");
+
+        assertEquals(primero.id(), segundo.id());
+        try (var temporales = Files.list(directorio.resolve("tmp"))) {
+            assertEquals(0, temporales.count());
+        }
+    }
+
+    @Test
+    void testAbrirDesdePosicion() throws IOException {
+        BlobInfo info = storage.guardar(new ByteArrayInputStream("hola".getBytes()), "a.mp3", "audio/mpeg");
+
+        try (InputStream in = storage.abrirDesde(info.id(), 2)) {
+            assertArrayEquals("la".getBytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testIdNoValidoNoSaleDelDirectorio() {
+        assertThrows(RecursoNoEncontradoException.class, () -> storage.obtenerInfo("../../etc/passwd"));
+        assertThrows(RecursoNoEncontradoException.class, () -> storage.abrir(SHA_HOLA));
+    }
+
+    @Test
+    void testEliminarBorraElFichero() {
+        BlobInfo info = storage.guardar(new ByteArrayInputStream("hola".getBytes()), "a.mp3", "audio/mpeg");
+        Path ruta = storage.rutaLocal(info.id());
+
+        storage.eliminar(info.id());
+
+        assertFalse(Files.exists(ruta));
+    }
+}
@@ -0,0 +1,151 @@
+package iso25.g05.esi_media.service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.UpdateResult;
+
+import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.ImagenCaratula;
+import iso25.g05.esi_media.model.VarianteCaratula;
+
+/**
+ * Tests de la generación de miniaturas de carátulas.
+ */
+class MiniaturaServiceTest {
+
+    @TempDir
+    Path directorio;
+
+    private LocalDiskBlobStorage blobStorage;
+    private MongoTemplate mongoTemplate;
+    private MiniaturaService servicio;
+
+    @BeforeEach
+    void setUp() {
+        blobStorage = new LocalDiskBlobStorage(directorio.toString());
+        mongoTemplate = mock(MongoTemplate.class);
+        servicio = new MiniaturaService(blobStorage, mongoTemplate, new int[]{640, 160, 320}, 0.8f, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        servicio.destroy();
+    }
+
+    /** Imagen con ruido para que la original comprimida pese más que las miniaturas. */
+    private static byte[] imagen(int ancho, int alto, String formato, int tipo) throws IOException {
+        BufferedImage img = new BufferedImage(ancho, alto, tipo);
+        Random random = new Random(42);
+        for (int y = 0; y < alto; y++) {
+            for (int x = 0; x < ancho; x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, formato, out);
+        return out.toByteArray();
+    }
+
+    private ImagenCaratula guardar(byte[] bytes, String mimeType) {
+        BlobInfo blob = blobStorage.guardar(new ByteArrayInputStream(bytes), "caratula", mimeType);
+        return new ImagenCaratula(blob.id(), blob.sha256(), mimeType, blob.tamanoBytes());
+    }
+
+    private void caratulaSinCambios(boolean sigueIgual) {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Contenido.class)))
+            .thenReturn(UpdateResult.acknowledged(sigueIgual ? 1 : 0, sigueIgual ? 1L : 0L, null));
+    }
+
+    @Test
+    void testGeneraLosAnchosMenoresQueLaOriginalEnJpeg() throws IOException {
+        caratulaSinCambios(true);
+        ImagenCaratula original = guardar(imagen(800, 600, "png", BufferedImage.TYPE_INT_RGB), "image/png");
+
+        List<VarianteCaratula> variantes = servicio.generar("c1", original);
+
+        assertEquals(List.of(160, 320, 640), variantes.stream().map(VarianteCaratula::getancho).toList());
+        for (VarianteCaratula variante : variantes) {
+            assertEquals("image/jpeg", variante.getmimeType());
+            assertTrue(variante.gettamanoBytes() < original.gettamanoBytes());
+            BufferedImage leida = ImageIO.read(blobStorage.abrir(variante.getblobId()));
+            assertEquals(variante.getancho(), leida.getWidth());
+            assertEquals(variante.getancho() * 3 / 4, leida.getHeight());
+        }
+    }
+
+    @Test
+    void testConTransparenciaUsaPngYSinTamanosMenoresNoGeneraNada() throws IOException {
+        caratulaSinCambios(true);
+        ImagenCaratula transparente = guardar(imagen(400, 400, "png", BufferedImage.TYPE_INT_ARGB), "image/png");
+        ImagenCaratula pequena = guardar(imagen(120, 120, "png", BufferedImage.TYPE_INT_RGB), "image/png");
+
+        List<VarianteCaratula> variantes = servicio.generar("c1", transparente);
+
+        assertEquals(List.of(160, 320), variantes.stream().map(VarianteCaratula::getancho).toList());
+        assertTrue(variantes.stream().allMatch(v -> "image/png".equals(v.getmimeType())));
+        assertTrue(servicio.generar("c2", pequena).isEmpty());
+    }
+
+    @Test
+    void testFormatoNoSoportadoQuedaSinVariantes() {
+        caratulaSinCambios(true);
+        ImagenCaratula webp = guardar(new byte[]{'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'}, "image/webp");
+
+        assertTrue(servicio.generar("c1", webp).isEmpty());
+    }
+
+    @Test
+    void testSiLaCaratulaCambioSeBorranLasMiniaturas() throws IOException {
+        caratulaSinCambios(false);
+        ImagenCaratula original = guardar(imagen(400, 300, "png", BufferedImage.TYPE_INT_RGB), "image/png");
+
+        assertTrue(servicio.generar("c1", original).isEmpty());
+
+        // Ningún contenido las referencia (exists del mock devuelve false): solo queda la original
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            assertEquals(1, ficheros.filter(Files::isRegularFile).count());
+        }
+        assertEquals(original.gettamanoBytes(), blobStorage.obtenerInfo(original.getblobId()).tamanoBytes());
+    }
+
+    @Test
+    void testEliminarHuerfanasSoloBorraLasQueNadieUsa() {
+        ImagenCaratula usada = guardar(new byte[]{1, 2, 3}, "image/jpeg");
+        ImagenCaratula huerfana = guardar(new byte[]{4, 5, 6}, "image/jpeg");
+        when(mongoTemplate.exists(any(Query.class), eq(Contenido.class)))
+            .thenAnswer(inv -> inv.getArgument(0, Query.class).getQueryObject().toJson().contains(usada.getblobId()));
+
+        servicio.eliminarHuerfanas(List.of(
+            new VarianteCaratula(160, usada.getblobId(), usada.getchecksum(), "image/jpeg", 3),
+            new VarianteCaratula(320, huerfana.getblobId(), huerfana.getchecksum(), "image/jpeg", 3)));
+
+        assertEquals(3, blobStorage.obtenerInfo(usada.getblobId()).tamanoBytes());
+        assertThrows(RecursoNoEncontradoException.class, () -> blobStorage.obtenerInfo(huerfana.getblobId()));
+    }
+}
@@ -11,6 +11,7 @@ import org.bson.types.Binary;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -21,6 +22,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -37,6 +39,9 @@ import iso25.g05.esi_media.exception.PeticionInvalidaException;
 import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
 import iso25.g05.esi_media.model.Audio;
 import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.Sesion;
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Video;
 import iso25.g05.esi_media.model.Visualizador;
 import iso25.g05.esi_media.repository.ContenidoRepository;
@@ -52,6 +57,24 @@ class MultimediaServiceBehaviourTest {
     @Mock
     private UsuarioRepository usuarioRepository;
 
+    @Mock
+    private AudioCacheService audioCache;
+
+    @Spy
+    private UrlFirmadaService urlFirmadaService = new UrlFirmadaService("http://localhost:8080", "secreto", 1800);
+
+    @Spy
+    private CaratulaService caratulaService = new CaratulaService(null, null, null, null, "http://localhost:8080");
+
+    @Mock
+    private CatalogoService catalogoService;
+
+    @Mock
+    private BusquedaContenidosService busquedaService;
+
+    @Mock
+    private CacheListadosService cacheListados;
+
     @InjectMocks
     private MultimediaService multimediaService;
 
@@ -98,7 +121,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("listarContenidos: VIP usa repo sin filtro VIP")
     void listarContenidos_vip_ok() {
-        when(usuarioRepository.findBySesionToken(eq("tok"))).thenReturn(Optional.of(buildViz(true, 30)));
+        when(usuarioRepository.findUsuarioAutenticado(eq("tok"))).thenReturn(Optional.of(autenticado(buildViz(true, 30))));
 
         Page<Contenido> page = new PageImpl<>(List.of(buildVideo("v1", false, true, 0)));
         when(contenidoRepository.findByEstadoTrueAndEdadvisualizacionLessThanEqual(anyInt(), any())).thenReturn(page);
@@ -113,7 +136,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("listarContenidos: NO VIP usa repo con filtro VIP=false")
     void listarContenidos_noVip_ok() {
-        when(usuarioRepository.findBySesionToken(eq("tok"))).thenReturn(Optional.of(buildViz(false, 25)));
+        when(usuarioRepository.findUsuarioAutenticado(eq("tok"))).thenReturn(Optional.of(autenticado(buildViz(false, 25))));
 
         Page<Contenido> page = new PageImpl<>(List.of(buildAudio("a1", false, true, 0, new byte[]{1}))); 
         when(contenidoRepository.findByEstadoTrueAndVipFalseAndEdadvisualizacionLessThanEqual(anyInt(), any())).thenReturn(page);
@@ -128,14 +151,14 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("listarContenidos extrae token de 'Bearer x'")
     void listarContenidos_tokenBearer() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(true, 20)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(true, 20))));
         when(contenidoRepository.findByEstadoTrueAndEdadvisualizacionLessThanEqual(anyInt(), any()))
                 .thenReturn(new PageImpl<>(List.of()));
 
         multimediaService.listarContenidos(PageRequest.of(0, 1), "Bearer abc");
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-        verify(usuarioRepository).findBySesionToken(captor.capture());
+        verify(usuarioRepository).findUsuarioAutenticado(captor.capture());
         assertEquals("abc", captor.getValue(), "Debe extraer el token sin el prefijo Bearer");
     }
 
@@ -148,7 +171,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("obtenerDetalle: 404 si no existe o no visible")
     void obtenerDetalle_404() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(true, 30)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(true, 30))));
         when(contenidoRepository.findByIdAndEstadoTrue(eq("x"))).thenReturn(Optional.empty());
 
         assertThrows(RecursoNoEncontradoException.class, () -> multimediaService.obtenerContenidoPorId("x", "tok"));
@@ -157,7 +180,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("obtenerDetalle: 403 por edad mínima")
     void obtenerDetalle_403_edad() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(true, 16)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(true, 16))));
         when(contenidoRepository.findByIdAndEstadoTrue(eq("v1"))).thenReturn(Optional.of(buildVideo("v1", false, true, 18)));
 
         assertThrows(AccesoNoAutorizadoException.class, () -> multimediaService.obtenerContenidoPorId("v1", "tok"));
@@ -166,7 +189,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("obtenerDetalle: 403 por VIP")
     void obtenerDetalle_403_vip() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(false, 30)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(false, 30))));
         when(contenidoRepository.findByIdAndEstadoTrue(eq("v2"))).thenReturn(Optional.of(buildVideo("v2", true, true, 0)));
 
         assertThrows(AccesoNoAutorizadoException.class, () -> multimediaService.obtenerContenidoPorId("v2", "tok"));
@@ -175,11 +198,11 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("obtenerDetalle: 200 AUDIO devuelve endpoint interno")
     void obtenerDetalle_audio_ok() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(true, 30)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(true, 30))));
         when(contenidoRepository.findByIdAndEstadoTrue(eq("a1"))).thenReturn(Optional.of(buildAudio("a1", false, true, 0, new byte[]{1,2})));
 
         ContenidoDetalleDTO dto = multimediaService.obtenerContenidoPorId("a1", "tok");
-        assertEquals("http://localhost:8080/multimedia/audio/a1", dto.getReferenciaReproduccion());
+        assertTrue(dto.getReferenciaReproduccion().startsWith("http://localhost:8080/multimedia/audio/a1?exp="));
     }
 
     @Test
@@ -191,7 +214,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("validarYObtenerAudio: 404 si no existe")
     void validarAudio_noExiste_404() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(true, 30)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(true, 30))));
         when(contenidoRepository.findByIdAndEstadoTrue(eq("no"))).thenReturn(Optional.empty());
 
         assertThrows(RecursoNoEncontradoException.class, () -> multimediaService.validarYObtenerAudioParaStreaming("no", "tok"));
@@ -200,7 +223,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("validarYObtenerAudio: 400 si el contenido no es audio")
     void validarAudio_noEsAudio_400() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(true, 30)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(true, 30))));
         when(contenidoRepository.findByIdAndEstadoTrue(eq("v1"))).thenReturn(Optional.of(buildVideo("v1", false, true, 0)));
 
         assertThrows(PeticionInvalidaException.class, () -> multimediaService.validarYObtenerAudioParaStreaming("v1", "tok"));
@@ -209,7 +232,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("validarYObtenerAudio: 403 por VIP o edad")
     void validarAudio_403() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(false, 16)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(false, 16))));
         when(contenidoRepository.findByIdAndEstadoTrue(eq("a1"))).thenReturn(Optional.of(buildAudio("a1", true, true, 18, new byte[]{1})));
 
         assertThrows(AccesoNoAutorizadoException.class, () -> multimediaService.validarYObtenerAudioParaStreaming("a1", "tok"));
@@ -218,7 +241,7 @@ class MultimediaServiceBehaviourTest {
     @Test
     @DisplayName("validarYObtenerAudio: 200 cuando usuario autorizado")
     void validarAudio_ok() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(true, 30)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(true, 30))));
         Audio audio = buildAudio("a2", false, true, 0, new byte[]{1,2,3});
         when(contenidoRepository.findByIdAndEstadoTrue(eq("a2"))).thenReturn(Optional.of(audio));
 
@@ -227,14 +250,44 @@ class MultimediaServiceBehaviourTest {
         assertEquals("a2", res.getId());
     }
 
+    @Test
+    @DisplayName("validarYObtenerAudio: el audio cacheado evita la lectura en BD pero sigue validando VIP/edad")
+    void validarAudio_desdeCache_respetaRestricciones() {
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(false, 16))));
+        Audio cacheado = buildAudio("a3", true, true, 18, null);
+        when(audioCache.obtenerMetadatos("a3")).thenReturn(Optional.of(cacheado));
+
+        assertThrows(AccesoNoAutorizadoException.class, () -> multimediaService.validarYObtenerAudioParaStreaming("a3", "tok"));
+        verify(contenidoRepository, never()).findByIdAndEstadoTrue(anyString());
+    }
+
     @Test
     @DisplayName("obtenerDetalle: si fechaNac es null, no bloquea por edad")
     void obtenerDetalle_fechaNull_noBloquea() {
-        when(usuarioRepository.findBySesionToken(anyString())).thenReturn(Optional.of(buildViz(true, null)));
+        when(usuarioRepository.findUsuarioAutenticado(anyString())).thenReturn(Optional.of(autenticado(buildViz(true, null))));
         when(contenidoRepository.findByIdAndEstadoTrue(eq("v3"))).thenReturn(Optional.of(buildVideo("v3", false, true, 200)));
 
         // No debe lanzar excepción (edad por defecto 200)
         ContenidoDetalleDTO dto = multimediaService.obtenerContenidoPorId("v3", "tok");
         assertEquals("https://example.com/video/v3", dto.getReferenciaReproduccion());
     }
+
+    @Test
+    @DisplayName("obtenerAudioConPermiso: valida VIP/edad con los permisos firmados sin buscar al usuario")
+    void obtenerAudioConPermiso_sinConsultarUsuario() {
+        Audio vip = buildAudio("a4", true, true, 0, new byte[]{1});
+        when(contenidoRepository.findByIdAndEstadoTrue(eq("a4"))).thenReturn(Optional.of(vip));
+
+        assertEquals("a4", multimediaService.obtenerAudioConPermiso("a4", new PermisoStream("v1", true, 30, false)).getId());
+        assertThrows(AccesoNoAutorizadoException.class,
+                () -> multimediaService.obtenerAudioConPermiso("a4", new PermisoStream("v1", false, 30, false)));
+        verify(usuarioRepository, never()).findUsuarioAutenticado(anyString());
+    }
+
+    /** Permisos de la sesión de ese usuario, como los guarda SesionService. */
+    private static UsuarioAutenticado autenticado(Usuario usuario) {
+        Sesion sesion = new Sesion();
+        sesion.copiarPermisos(usuario);
+        return UsuarioAutenticado.de(sesion);
+    }
 }
@@ -1,15 +1,21 @@
 package iso25.g05.esi_media.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Video;
 
 @DisplayName("Unit tests: MultimediaService helpers")
 class MultimediaServiceUnitTest {
 
+    private static final UsuarioAutenticado VISUALIZADOR =
+            new UsuarioAutenticado("v1", "Visualizador", false, null, false, null, null);
+
     @Test
     @DisplayName("construirReferenciaReproduccion devuelve URL del video")
     void construirReferencia_video() {
@@ -18,20 +24,23 @@ class MultimediaServiceUnitTest {
         v.setId("vid1");
         v.seturl("https://youtu.be/xxxxx");
 
-        String ref = service.construirReferenciaReproduccion(v);
+        String ref = service.construirReferenciaReproduccion(v, VISUALIZADOR);
 
         assertEquals("https://youtu.be/xxxxx", ref);
     }
 
     @Test
-    @DisplayName("construirReferenciaReproduccion devuelve endpoint de audio")
+    @DisplayName("construirReferenciaReproduccion devuelve endpoint de audio firmado sobre app.backend.url")
     void construirReferencia_audio() {
         MultimediaService service = new MultimediaService();
+        ReflectionTestUtils.setField(service, "urlFirmadaService",
+                new UrlFirmadaService("http://localhost:8080", "secreto", 1800));
         Audio a = new Audio();
         a.setId("aud1");
 
-        String ref = service.construirReferenciaReproduccion(a);
+        String ref = service.construirReferenciaReproduccion(a, VISUALIZADOR);
 
-        assertEquals("http://localhost:8080/multimedia/audio/aud1", ref);
+        assertTrue(ref.startsWith("http://localhost:8080/multimedia/audio/aud1?exp="));
+        assertTrue(ref.contains("&firma="));
     }
 }
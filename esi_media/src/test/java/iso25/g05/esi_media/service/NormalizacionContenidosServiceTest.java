@@ -0,0 +1,75 @@
+package iso25.g05.esi_media.service;
+
+import java.util.List;
+
+import org.bson.Document;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import iso25.g05.esi_media.model.Audio;
+import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.Video;
+
+/**
+ * Tests de los campos de búsqueda normalizados y de su relleno por lotes.
+ */
+class NormalizacionContenidosServiceTest {
+
+    private static Contenido contenido(Contenido c, String id, String titulo) {
+        c.setId(id);
+        c.settitulo(titulo);
+        return c;
+    }
+
+    @Test
+    void testAplicarQuitaTildesYMayusculas() {
+        Video video = new Video();
+        video.settitulo("Canción  del MAR");
+        video.setdescripcion("Pingüino, ñandú y más... del mar");
+        video.settags(List.of("Música Clásica", " "));
+
+        CamposBusqueda.aplicar(video);
+
+        assertEquals("cancion del mar", video.gettituloNormalizado());
+        assertEquals("pinguino, nandu y mas... del mar", video.getdescripcionNormalizada());
+        assertEquals(List.of("musica clasica"), video.gettagsNormalizados());
+        assertEquals(List.of("cancion", "del", "mar", "musica", "clasica", "pinguino", "nandu", "y", "mas"),
+            video.getpalabrasBusqueda());
+    }
+
+    @Test
+    void testRellenarPorLotesConSetSoloSiFaltanLasCopias() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations bulk = mock(BulkOperations.class);
+        NormalizacionContenidosService servicio =
+            new NormalizacionContenidosService(mongoTemplate, new BusquedaContenidosService(mongoTemplate), 2);
+        when(mongoTemplate.find(any(Query.class), eq(Contenido.class))).thenReturn(
+            List.of(contenido(new Audio(), "a1", "Canción"), contenido(new Video(), "v1", "Él")),
+            List.of(contenido(new Video(), "v2", null)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Contenido.class)).thenReturn(bulk);
+
+        assertEquals(3, servicio.rellenar());
+
+        ArgumentCaptor<Query> filtros = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> cambios = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(3)).updateOne(filtros.capture(), cambios.capture());
+        verify(bulk, times(2)).execute();
+        assertEquals(new Document("$exists", false),
+            filtros.getAllValues().get(0).getQueryObject().get("palabrasBusqueda"));
+        Document set = cambios.getAllValues().get(0).getUpdateObject().get("$set", Document.class);
+        assertEquals("cancion", set.get("tituloNormalizado"));
+        assertEquals(List.of("cancion"), set.get("palabrasBusqueda"));
+        assertEquals(List.of(), cambios.getAllValues().get(2).getUpdateObject().get("$set", Document.class).get("palabrasBusqueda"));
+    }
+}
@@ -0,0 +1,135 @@
+package iso25.g05.esi_media.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import iso25.g05.esi_media.exception.DemasiadosStreamsException;
+import iso25.g05.esi_media.exception.ServicioSaturadoException;
+
+/**
+ * Tests del planificador de streams (cupos global y por usuario, cubo de tokens y métricas).
+ */
+class PlanificadorStreamsServiceTest {
+
+    private static final PermisoStream NORMAL = new PermisoStream("u1", false, 30, false);
+    private static final PermisoStream VIP = new PermisoStream("u2", true, 30, false);
+
+    @Test
+    void testCupoPorUsuarioMayorParaVip() {
+        PlanificadorStreamsService planificador = new PlanificadorStreamsService(10, 1, 2, 0, 1, 60_000);
+
+        planificador.admitir(NORMAL);
+        assertThrows(DemasiadosStreamsException.class, () -> planificador.admitir(NORMAL));
+
+        planificador.admitir(VIP);
+        planificador.admitir(VIP);
+        assertThrows(DemasiadosStreamsException.class, () -> planificador.admitir(VIP));
+
+        assertEquals(3, planificador.estadisticas().getActivos());
+        assertEquals(0, planificador.estadisticas().getEnCola());
+        assertEquals(2, planificador.estadisticas().getRechazadosPorUsuario());
+    }
+
+    @Test
+    void testCupoGlobalLlenoResponde503YCerrarLiberaElTurno() {
+        PlanificadorStreamsService planificador = new PlanificadorStreamsService(1, 5, 5, 0, 1, 60_000);
+
+        PlanificadorStreamsService.Turno turno = planificador.admitir(NORMAL);
+        ServicioSaturadoException ex = assertThrows(ServicioSaturadoException.class, () -> planificador.admitir(VIP));
+        assertEquals(5, ex.getReintentarSegundos());
+
+        // Cerrar dos veces no debe liberar dos plazas
+        turno.close();
+        turno.close();
+        planificador.admitir(VIP);
+        assertThrows(ServicioSaturadoException.class, () -> planificador.admitir(NORMAL));
+
+        assertEquals(1, planificador.estadisticas().getActivos());
+        assertEquals(2, planificador.estadisticas().getRechazadosPorSaturacion());
+    }
+
+    @Test
+    void testRechazoGlobalDevuelveElCupoDelUsuario() {
+        PlanificadorStreamsService planificador = new PlanificadorStreamsService(1, 1, 1, 0, 1, 60_000);
+        PlanificadorStreamsService.Turno ocupado = planificador.admitir(VIP);
+
+        assertThrows(ServicioSaturadoException.class, () -> planificador.admitir(NORMAL));
+        ocupado.close();
+
+        // Si el 503 no hubiera devuelto el cupo, ahora sería un 429
+        planificador.admitir(NORMAL);
+    }
+
+    @Test
+    void testProgramarEscribeEnLaRespuestaConSuPoolYTimeoutYLiberaElTurno() throws Exception {
+        PlanificadorStreamsService planificador = new PlanificadorStreamsService(1, 1, 1, 0, 1, 60_000);
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+
+        WebAsyncTask<Void> tarea = planificador.programar(planificador.admitir(NORMAL), respuesta,
+            out -> out.write(new byte[]{1, 2, 3}));
+
+        assertEquals(Long.valueOf(60_000), tarea.getTimeout());
+        assertNotNull(tarea.getExecutor());
+        assertEquals(1, planificador.estadisticas().getActivos());
+        tarea.getCallable().call();
+        assertArrayEquals(new byte[]{1, 2, 3}, respuesta.getContentAsByteArray());
+        assertEquals(0, planificador.estadisticas().getActivos());
+        planificador.destroy();
+    }
+
+    @Test
+    void testSinLimiteDeAnchoDeBandaDevuelveLaMismaSalida() {
+        PlanificadorStreamsService planificador = new PlanificadorStreamsService(1, 1, 1, 0, 1, 60_000);
+        OutputStream salida = new ByteArrayOutputStream();
+
+        assertSame(salida, planificador.admitir(NORMAL).limitar(salida));
+    }
+
+    @Test
+    void testSalidaLimitadaEscribeTodoYCuentaElStreamLimitado() throws IOException {
+        // 1 MB/s con ráfaga de 100 bytes: el segundo trozo de 100 bytes espera ~0,1 ms
+        PlanificadorStreamsService planificador = new PlanificadorStreamsService(1, 1, 1, 1_000_000, 100, 60_000);
+        ByteArrayOutputStream destino = new ByteArrayOutputStream();
+        byte[] trozo = new byte[100];
+
+        try (PlanificadorStreamsService.Turno turno = planificador.admitir(NORMAL)) {
+            OutputStream salida = turno.limitar(destino);
+            salida.write(trozo);
+            salida.write(trozo);
+            salida.write(7);
+        }
+
+        assertEquals(201, destino.size());
+        assertEquals(1, planificador.estadisticas().getTotalLimitados());
+        assertEquals(0, planificador.estadisticas().getLimitadosAhora());
+        assertEquals(0, planificador.estadisticas().getActivos());
+    }
+
+    @Test
+    void testCuboTokensRafagaDeudaYRecarga() {
+        AtomicLong reloj = new AtomicLong();
+        // 1000 bytes/s = 1 byte por milisegundo, ráfaga de 500
+        CuboTokens cubo = new CuboTokens(1000, 500, reloj::get);
+
+        long[] esperas = {
+            cubo.consumir(500),   // ráfaga completa: sin espera
+            cubo.consumir(200),   // 200 bytes de deuda: 200 ms
+        };
+        reloj.addAndGet(1_000_000_000L);  // 1 s recarga 1000, pero el cubo no pasa de 500
+        long trasRecarga = cubo.consumir(500);
+
+        assertArrayEquals(new long[]{0, 200_000_000L}, esperas);
+        assertEquals(0, trasRecarga);
+    }
+}
@@ -0,0 +1,118 @@
+package iso25.g05.esi_media.service;
+
+import java.util.Date;
+
+import org.bson.Document;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+import iso25.g05.esi_media.model.Sesion;
+import iso25.g05.esi_media.model.Token;
+import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.Visualizador;
+import iso25.g05.esi_media.repository.CacheSesiones;
+
+/**
+ * Tests del alta y cierre de sesiones en la colección "sesiones".
+ */
+class SesionServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private CacheSesiones cacheSesiones;
+    private SesionService sesionService;
+    private Visualizador visualizador;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        cacheSesiones = mock(CacheSesiones.class);
+        sesionService = new SesionService(mongoTemplate, cacheSesiones, 8);
+        visualizador = new Visualizador();
+        visualizador.setId("v1");
+        visualizador.setVip(true);
+        visualizador.setFechaNac(new Date(631152000000L));
+    }
+
+    @Test
+    void testCrearInsertaLaSesionConElHashDelTokenYLosPermisos() {
+        Token token = sesionService.crear(visualizador);
+
+        ArgumentCaptor<Sesion> insertada = ArgumentCaptor.forClass(Sesion.class);
+        verify(mongoTemplate).insert(insertada.capture());
+        Sesion sesion = insertada.getValue();
+        assertEquals(Sesion.idDeToken(token.getToken()), sesion.getId());
+        assertNotEquals(token.getToken(), sesion.getId());
+        assertEquals("v1", sesion.getusuarioId());
+        assertEquals("Visualizador", sesion.getrol());
+        assertTrue(sesion.isvip());
+        assertEquals(visualizador.getFechaNac(), sesion.getfechanac());
+        assertEquals(token.getFechaExpiracion(), sesion.getexpiraEn());
+        assertFalse(sesion.caducada());
+    }
+
+    @Test
+    void testCerrarBorraSoloEsaSesionYLaSacaDeLaCache() {
+        when(mongoTemplate.remove(any(Query.class), eq(Sesion.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        assertTrue(sesionService.cerrar("tok"));
+
+        ArgumentCaptor<Query> consulta = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(consulta.capture(), eq(Sesion.class));
+        assertEquals(Sesion.idDeToken("tok"), consulta.getValue().getQueryObject().get("_id"));
+        verify(cacheSesiones).invalidarToken("tok");
+        assertFalse(sesionService.cerrar(null));
+    }
+
+    @Test
+    void testSaveDelUsuarioRefrescaSusSesionesYSuBajaLasBorra() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Sesion.class)))
+            .thenReturn(UpdateResult.acknowledged(2, 2L, null));
+        visualizador.setBloqueado(true);
+
+        sesionService.onAfterSave(new AfterSaveEvent<>(visualizador, new Document(), "users"));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(any(Query.class), update.capture(), eq(Sesion.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(true, set.get("bloqueado"));
+        assertEquals(true, set.get("vip"));
+        verify(cacheSesiones).invalidarUsuario("v1");
+
+        sesionService.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", "v1"), Usuario.class, "users"));
+        verify(mongoTemplate).remove(any(Query.class), eq(Sesion.class));
+        verify(cacheSesiones, times(2)).invalidarUsuario("v1");
+    }
+
+    @Test
+    void testLimpiezaDeSesionesEmbebidasNoEscribeSiYaNoQuedan() {
+        when(mongoTemplate.exists(any(Query.class), eq(Usuario.class))).thenReturn(false);
+
+        assertEquals(0, sesionService.eliminarSesionesEmbebidas());
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(Usuario.class));
+
+        when(mongoTemplate.exists(any(Query.class), eq(Usuario.class))).thenReturn(true);
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Usuario.class)))
+            .thenReturn(UpdateResult.acknowledged(3, 3L, null));
+        assertEquals(3, sesionService.eliminarSesionesEmbebidas());
+    }
+}
@@ -0,0 +1,72 @@
+package iso25.g05.esi_media.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import iso25.g05.esi_media.exception.AccesoNoAutorizadoException;
+
+/**
+ * Tests de las URLs de streaming firmadas con HMAC.
+ */
+class UrlFirmadaServiceTest {
+
+    private static final Instant AHORA = Instant.parse("2025-01-01T00:00:00Z");
+
+    private static UrlFirmadaService servicio(Instant instante) {
+        return new UrlFirmadaService("http://api.test/", "secreto", 60, Clock.fixed(instante, ZoneOffset.UTC));
+    }
+
+    private static Map<String, String> parametros(String url) {
+        Map<String, String> params = new HashMap<>();
+        for (String par : url.substring(url.indexOf('?') + 1).split("&")) {
+            String[] kv = par.split("=", 2);
+            params.put(kv[0], kv[1]);
+        }
+        return params;
+    }
+
+    private static PermisoStream verificar(UrlFirmadaService s, String id, Map<String, String> p) {
+        return s.verificar(id, Long.valueOf(p.get("exp")), p.get("u"), Integer.valueOf(p.get("vip")),
+            Integer.valueOf(p.get("edad")), Integer.valueOf(p.get("gestor")), p.get("firma"));
+    }
+
+    @Test
+    void testFirmaYVerificaLosPermisos() {
+        String url = servicio(AHORA).firmarAudio("a1", new PermisoStream("u1", true, 30, false));
+
+        assertTrue(url.startsWith("http://api.test/multimedia/audio/a1?exp="));
+        PermisoStream permiso = verificar(servicio(AHORA.plusSeconds(59)), "a1", parametros(url));
+        assertEquals(new PermisoStream("u1", true, 30, false), permiso);
+    }
+
+    @Test
+    void testRechazaParametrosManipuladosYOtroContenido() {
+        Map<String, String> p = parametros(servicio(AHORA).firmarAudio("a1", new PermisoStream("u1", false, 16, false)));
+
+        Map<String, String> vip = new HashMap<>(p);
+        vip.put("vip", "1");
+        assertThrows(AccesoNoAutorizadoException.class, () -> verificar(servicio(AHORA), "a1", vip));
+        assertThrows(AccesoNoAutorizadoException.class, () -> verificar(servicio(AHORA), "a2", p));
+        // El id de usuario también va firmado: no se puede usar el cupo de streams de otro
+        Map<String, String> otroUsuario = new HashMap<>(p);
+        otroUsuario.put("u", "u2");
+        assertThrows(AccesoNoAutorizadoException.class, () -> verificar(servicio(AHORA), "a1", otroUsuario));
+    }
+
+    @Test
+    void testRechazaUrlCaducadaOIncompleta() {
+        Map<String, String> p = parametros(servicio(AHORA).firmarAudio("a1", PermisoStream.deGestor("g1")));
+
+        assertThrows(AccesoNoAutorizadoException.class, () -> verificar(servicio(AHORA.plusSeconds(61)), "a1", p));
+        assertThrows(AccesoNoAutorizadoException.class,
+            () -> servicio(AHORA).verificar("a1", null, "g1", 1, 200, 1, p.get("firma")));
+    }
+}
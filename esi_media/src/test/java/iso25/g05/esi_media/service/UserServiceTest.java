@@ -74,6 +74,9 @@ class UserServiceTest {
     @Mock
     private LogService logService;
 
+    @Mock
+    private SesionService sesionService;
+
     @InjectMocks
     private UserService userService;
 
@@ -94,7 +97,6 @@ class UserServiceTest {
         user.setTwoFactorAutenticationEnabled(false);
 
         when(usuarioRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
-        when(usuarioRepository.save(any(Usuario.class))).thenReturn(user);
         when(ipLoginAttemptRepository.findById("127.0.0.1")).thenReturn(Optional.empty());
         when(ipLoginAttemptRepository.save(any())).thenReturn(null);
 
@@ -102,7 +104,9 @@ class UserServiceTest {
 
         assertNotNull(result);
         assertEquals("test@example.com", result.getEmail());
-        verify(usuarioRepository, times(1)).save(any(Usuario.class));
+        // Iniciar sesión inserta en "sesiones" sin reescribir el usuario
+        verify(sesionService, times(1)).crear(user);
+        verify(usuarioRepository, times(0)).save(any(Usuario.class));
     }
 
     @Test
@@ -159,7 +163,6 @@ class UserServiceTest {
         user.setTwoFactorAutenticationEnabled(false);
 
         when(usuarioRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user));
-        when(usuarioRepository.save(any(Usuario.class))).thenReturn(user);
         when(ipLoginAttemptRepository.findById("127.0.0.1")).thenReturn(Optional.empty());
         when(ipLoginAttemptRepository.save(any())).thenReturn(null);
 
@@ -169,7 +172,7 @@ class UserServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals("user@example.com", result.getEmail());
-        verify(usuarioRepository, times(1)).save(any(Usuario.class));
+        verify(sesionService, times(1)).crear(user);
     }
 
     @Test
@@ -200,8 +203,9 @@ class UserServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals("user@example.com", result.getEmail());
-        // No debe guardar porque 2FA está habilitado
+        // No debe abrir sesión porque 2FA está habilitado
         verify(usuarioRepository, times(0)).save(any(Usuario.class));
+        verify(sesionService, times(0)).crear(any(Usuario.class));
     }
 
     @Test
@@ -298,6 +302,7 @@ class UserServiceTest {
         when(codigorecuperacionRepository.findById("codigoId123"))
             .thenReturn(Optional.of(codigoRecuperacion));
         when(usuarioRepository.save(any(Usuario.class))).thenReturn(usuario);
+        when(sesionService.crear(usuario)).thenReturn(new Token());
 
         // Act
         Token result = userService.confirmLogin3Auth(loginData);
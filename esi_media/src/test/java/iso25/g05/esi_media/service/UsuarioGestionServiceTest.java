@@ -1,10 +1,11 @@
 package iso25.g05.esi_media.service;
 
 import iso25.g05.esi_media.model.Administrador;
-import iso25.g05.esi_media.model.Token;
 import iso25.g05.esi_media.model.Usuario;
 import iso25.g05.esi_media.model.Visualizador;
 import iso25.g05.esi_media.model.GestordeContenido;
+import iso25.g05.esi_media.model.Sesion;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.dto.VisualizadorGestionDTO;
 import iso25.g05.esi_media.dto.AdministradorGestionDTO;
 import iso25.g05.esi_media.dto.GestorGestionDTO;
@@ -28,12 +29,11 @@ class UsuarioGestionServiceTest {
     private MongoTemplate mongoTemplate;
 
     @Mock
-    private iso25.g05.esi_media.repository.TokenRepository tokenRepository;
+    private iso25.g05.esi_media.repository.UsuarioRepository usuarioRepository;
 
     @InjectMocks
     private UsuarioGestionService usuarioGestionService;
 
-    private Token token;
     private Administrador admin;
 
     @BeforeEach
@@ -42,15 +42,11 @@ class UsuarioGestionServiceTest {
         admin.setNombre("Admin");
         admin.setApellidos("Principal");
         admin.setEmail("admin@example.com");
-        token = new Token();
-        token.setToken("token123");
-        token.setFechaExpiracion(new Date(System.currentTimeMillis() + 3600_000));
-        token.setUsuario(admin);
     }
 
     @Test
     void testObtenerAdministradores_Success() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
         when(mongoTemplate.find(any(), eq(Administrador.class), eq("users"))).thenReturn(List.of(admin));
 
         List<AdministradorGestionDTO> result = usuarioGestionService.obtenerAdministradores("Bearer token123");
@@ -71,8 +67,7 @@ class UsuarioGestionServiceTest {
     @Test
     void testValidarAdministrador_NotAdmin_Throws() {
         Usuario user = new Usuario();
-        token.setUsuario(user);
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(user)));
 
         RuntimeException ex = assertThrows(RuntimeException.class, () -> usuarioGestionService.obtenerAdministradores("Bearer token123"));
         assertTrue(ex.getMessage().contains("Solo los administradores"));
@@ -80,7 +75,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testObtenerVisualizadorPorId_NotFound() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
         when(mongoTemplate.findOne(any(), eq(Visualizador.class), eq("users"))).thenReturn(null);
 
         RuntimeException ex = assertThrows(RuntimeException.class, () -> usuarioGestionService.obtenerVisualizadorPorId("v1", "Bearer token123"));
@@ -89,7 +84,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testObtenerGestorPorId_NotFound() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
         when(mongoTemplate.findOne(any(), eq(GestordeContenido.class), eq("users"))).thenReturn(null);
 
         RuntimeException ex = assertThrows(RuntimeException.class, () -> usuarioGestionService.obtenerGestorPorId("g1", "Bearer token123"));
@@ -98,7 +93,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testObtenerGestores_Success() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
         GestordeContenido g = new GestordeContenido();
         g.setId("g1");
         when(mongoTemplate.find(any(), eq(GestordeContenido.class), eq("users"))).thenReturn(List.of(g));
@@ -110,7 +105,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testModificarVisualizador_Success() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
 
         Visualizador v = new Visualizador();
         v.setId("v1");
@@ -137,7 +132,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testModificarGestor_Success() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
 
     GestordeContenido g = new GestordeContenido();
         g.setId("gest1");
@@ -168,7 +163,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testModificarGestor_NotFound() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
         when(mongoTemplate.findOne(any(), eq(GestordeContenido.class), eq("users"))).thenReturn(null);
 
         GestorGestionDTO dto = new GestorGestionDTO();
@@ -180,7 +175,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testObtenerVisualizadores_Success() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
         Visualizador v = new Visualizador();
         v.setId("v1");
         when(mongoTemplate.find(any(), eq(Visualizador.class), eq("users"))).thenReturn(List.of(v));
@@ -192,7 +187,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testModificarAdministrador_Success() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
 
         Administrador adm = new Administrador();
         adm.setId("adm1");
@@ -218,7 +213,7 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testModificarAdministrador_NotFound() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
         when(mongoTemplate.findOne(any(), eq(Administrador.class), eq("users"))).thenReturn(null);
 
         AdministradorGestionDTO dto = new AdministradorGestionDTO();
@@ -230,10 +225,17 @@ class UsuarioGestionServiceTest {
 
     @Test
     void testObtenerAdministradorPorId_NotFound() {
-        when(tokenRepository.findByToken("token123")).thenReturn(Optional.of(token));
+        when(usuarioRepository.findUsuarioAutenticado("token123")).thenReturn(Optional.of(autenticado(admin)));
         when(mongoTemplate.findOne(any(), eq(Administrador.class), eq("users"))).thenReturn(null);
 
         RuntimeException ex = assertThrows(RuntimeException.class, () -> usuarioGestionService.obtenerAdministradorPorId("adm1", "Bearer token123"));
         assertTrue(ex.getMessage().contains("Administrador no encontrado"));
     }
+
+    /** Permisos de la sesión de ese usuario, como los guarda SesionService. */
+    private static UsuarioAutenticado autenticado(Usuario usuario) {
+        Sesion sesion = new Sesion();
+        sesion.copiarPermisos(usuario);
+        return UsuarioAutenticado.de(sesion);
+    }
 }
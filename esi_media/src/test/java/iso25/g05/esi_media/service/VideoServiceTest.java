@@ -15,6 +15,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -22,8 +23,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import iso25.g05.esi_media.dto.VideoUploadDTO;
 import iso25.g05.esi_media.model.GestordeContenido;
+import iso25.g05.esi_media.model.Sesion;
 import iso25.g05.esi_media.model.Token;
 import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Video;
 import iso25.g05.esi_media.repository.GestorDeContenidoRepository;
 import iso25.g05.esi_media.repository.UsuarioRepository;
@@ -41,6 +44,18 @@ class VideoServiceTest {
     @Mock
     private UsuarioRepository usuarioRepository;
 
+    @Spy
+    private CaratulaService caratulaService = new CaratulaService(null, null, null, null, "http://localhost:8080");
+
+    @Mock
+    private CatalogoService catalogoService;
+
+    @Mock
+    private IndiceTitulosService indiceTitulos;
+
+    @Mock
+    private CacheListadosService cacheListados;
+
     @InjectMocks
     private VideoService videoService;
 
@@ -72,7 +87,7 @@ class VideoServiceTest {
         videoMock.setId("video123");
         videoMock.settitulo("Video Test");
 
-        usuarioMock = new Usuario();
+        usuarioMock = new GestordeContenido();
         usuarioMock.setId("gestor123");
 
         tokenMock = new Token();
@@ -188,7 +203,7 @@ class VideoServiceTest {
     @Test
     void testSubirVideoConTokenExitoso() {
         // Arrange
-        when(usuarioRepository.findBySesionToken("valid-token")).thenReturn(Optional.of(usuarioMock));
+        when(usuarioRepository.findUsuarioAutenticado("valid-token")).thenReturn(Optional.of(autenticado(usuarioMock)));
         when(gestorRepository.findById("gestor123")).thenReturn(Optional.of(gestorMock));
         when(videoRepository.save(any(Video.class))).thenReturn(videoMock);
         when(gestorRepository.save(any(GestordeContenido.class))).thenReturn(gestorMock);
@@ -212,7 +227,7 @@ class VideoServiceTest {
     @Test
     void testSubirVideoConTokenInvalido() {
         // Arrange
-        when(usuarioRepository.findBySesionToken("invalid-token")).thenReturn(Optional.empty());
+        when(usuarioRepository.findUsuarioAutenticado("invalid-token")).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> {
@@ -224,7 +239,7 @@ class VideoServiceTest {
     void testSubirVideoConTokenExpirado() {
         // Arrange
         tokenMock.setFechaExpiracion(new Date(System.currentTimeMillis() - 3600000));
-        when(usuarioRepository.findBySesionToken("valid-token")).thenReturn(Optional.of(usuarioMock));
+        when(usuarioRepository.findUsuarioAutenticado("valid-token")).thenReturn(Optional.of(autenticado(usuarioMock)));
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> {
@@ -257,4 +272,12 @@ class VideoServiceTest {
             videoService.obtenerVideosPorGestor("noexiste");
         });
     }
+
+    /** Permisos de la sesión del usuario, con la caducidad de su token. */
+    private UsuarioAutenticado autenticado(Usuario usuario) {
+        Sesion sesion = new Sesion();
+        sesion.copiarPermisos(usuario);
+        sesion.setexpiraEn(tokenMock.getFechaExpiracion());
+        return UsuarioAutenticado.de(sesion);
+    }
 }
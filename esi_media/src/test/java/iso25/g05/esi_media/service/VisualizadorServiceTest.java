@@ -39,7 +39,9 @@ import iso25.g05.esi_media.exception.PeticionInvalidaException;
 import iso25.g05.esi_media.exception.RecursoNoEncontradoException;
 import iso25.g05.esi_media.model.Contrasenia;
 import iso25.g05.esi_media.model.Contenido;
+import iso25.g05.esi_media.model.Sesion;
 import iso25.g05.esi_media.model.Usuario;
+import iso25.g05.esi_media.model.UsuarioAutenticado;
 import iso25.g05.esi_media.model.Video;
 import iso25.g05.esi_media.model.Visualizador;
 import iso25.g05.esi_media.repository.ContenidoRepository;
@@ -96,6 +98,8 @@ class VisualizadorServiceTest {
         ReflectionTestUtils.setField(visualizadorService, "contraseniaComunRepository", contraseniaComunRepository);
         ReflectionTestUtils.setField(visualizadorService, "contenidoRepository", contenidoRepository);
         ReflectionTestUtils.setField(visualizadorService, "logService", logService);
+        ReflectionTestUtils.setField(visualizadorService, "caratulaService",
+                new CaratulaService(null, null, null, null, "http://localhost:8080"));
     }
     
     /**
@@ -557,7 +561,9 @@ class VisualizadorServiceTest {
     private void prepararToken(String header, Visualizador visualizador) {
         String token = "session-token";
         when(userService.extraerToken(header)).thenReturn(token);
-        when(usuarioRepository.findBySesionToken(token)).thenReturn(Optional.of(visualizador));
+        when(usuarioRepository.findUsuarioAutenticado(token)).thenReturn(Optional.of(autenticado(visualizador)));
+        // La sesión solo trae los permisos: el visualizador completo se lee por id
+        when(usuarioRepository.findById(visualizador.getId())).thenReturn(Optional.of(visualizador));
     }
 
     private Visualizador crearVisualizadorAutenticado() {
@@ -575,4 +581,11 @@ class VisualizadorServiceTest {
         video.settitulo("Video " + id);
         return video;
     }
+
+    /** Permisos de la sesión de ese usuario, como los guarda SesionService. */
+    private static UsuarioAutenticado autenticado(Usuario usuario) {
+        Sesion sesion = new Sesion();
+        sesion.copiarPermisos(usuario);
+        return UsuarioAutenticado.de(sesion);
+    }
 }